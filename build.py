@@ -279,13 +279,16 @@ CTX.INPUT['execution'] = """
 """
 
 CTX.INPUT['executors'] = """
+ AggregateHashTable.cpp
  OptimizedProjector.cpp
+ SemiJoinFilter.cpp
  abstractexecutor.cpp
  abstractjoinexecutor.cpp
  aggregateexecutor.cpp
  deleteexecutor.cpp
  executorfactory.cpp
  executorutil.cpp
+ hashjoinexecutor.cpp
  indexcountexecutor.cpp
  indexscanexecutor.cpp
  insertexecutor.cpp
@@ -309,6 +312,8 @@ CTX.INPUT['executors'] = """
 
 CTX.INPUT['expressions'] = """
  abstractexpression.cpp
+ BatchPredicate.cpp
+ CompiledPredicate.cpp
  expressionutil.cpp
  functionexpression.cpp
  geofunctions.cpp
@@ -328,6 +333,7 @@ CTX.INPUT['plannodes'] = """
  abstractscannode.cpp
  aggregatenode.cpp
  deletenode.cpp
+ hashjoinnode.cpp
  indexscannode.cpp
  indexcountnode.cpp
  tablecountnode.cpp
@@ -381,6 +387,7 @@ CTX.INPUT['storage'] = """
  persistenttable.cpp
  PersistentTableStats.cpp
  RecoveryContext.cpp
+ SpillFile.cpp
  streamedtable.cpp
  StreamedTableStats.cpp
  table.cpp
@@ -493,14 +500,21 @@ if whichtests in ("${eetestsuite}", "execution"):
     """
 if whichtests in ("${eetestsuite}", "executors"):
     CTX.TESTS['executors'] = """
+    AggregateHashExecutorTest
+    AggregateHashTableTest
+    HashJoinExecutorTest
     OptimizedProjectorTest
     MergeReceiveExecutorTest
+    OrderByExecutorTest
     PartitionByExecutorTest
+    SemiJoinFilterTest
     TestGeneratedPlans
     """
 
 if whichtests in ("${eetestsuite}", "expressions"):
     CTX.TESTS['expressions'] = """
+     batchpredicate_test
+     compiledpredicate_test
      expression_test
      function_test
     """
@@ -54,6 +54,16 @@ namespace voltdb {
         return 1000000000; // larger means less likely/frequent callbacks to ignore
     }
 
+    void DummyTopend::fragmentSpilledBytes(int32_t batchIndex, int64_t spilledBytes) {
+    }
+
+    void DummyTopend::fragmentPredicateStats(int32_t batchIndex, int32_t predicates,
+                                             int32_t compiledPredicates, int64_t executionNanos) {
+    }
+
+    void DummyTopend::fragmentSemiJoinPrunedRows(int32_t batchIndex, int64_t prunedRows) {
+    }
+
     std::string DummyTopend::planForFragmentId(int64_t fragmentId) {
         return "";
     }
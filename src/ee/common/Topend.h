@@ -53,6 +53,21 @@ class Topend {
                 int64_t currMemoryInBytes,
                 int64_t peakMemoryInBytes) = 0;
 
+    // Tell the topend how many bytes of temp table data a fragment spilled to disk.
+    // Only called for fragments that spilled.
+    virtual void fragmentSpilledBytes(int32_t batchIndex, int64_t spilledBytes) = 0;
+
+    // Tell the topend how many predicates a fragment has, how many of them
+    // were compiled and how long it took to execute.
+    // Only called when compiled predicates are enabled.
+    virtual void fragmentPredicateStats(int32_t batchIndex, int32_t predicates,
+                                        int32_t compiledPredicates, int64_t executionNanos) = 0;
+
+    // Tell the topend how many rows the scans of a fragment left out because
+    // they could not match the join keys of another input.
+    // Only called for fragments that have such scans.
+    virtual void fragmentSemiJoinPrunedRows(int32_t batchIndex, int64_t prunedRows) = 0;
+
     virtual std::string planForFragmentId(int64_t fragmentId) = 0;
 
     virtual void crashVoltDB(voltdb::FatalException e) = 0;
@@ -98,6 +113,13 @@ public:
             int64_t currMemoryInBytes,
             int64_t peakMemoryInBytes);
 
+    virtual void fragmentSpilledBytes(int32_t batchIndex, int64_t spilledBytes);
+
+    virtual void fragmentPredicateStats(int32_t batchIndex, int32_t predicates,
+                                        int32_t compiledPredicates, int64_t executionNanos);
+
+    virtual void fragmentSemiJoinPrunedRows(int32_t batchIndex, int64_t prunedRows);
+
     std::string planForFragmentId(int64_t fragmentId);
 
     void crashVoltDB(voltdb::FatalException e);
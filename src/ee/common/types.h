@@ -191,6 +191,7 @@ enum PlanNodeType {
     //
     PLAN_NODE_TYPE_NESTLOOP         = 20,
     PLAN_NODE_TYPE_NESTLOOPINDEX    = 21,
+    PLAN_NODE_TYPE_HASHJOIN         = 22,
 
     //
     // Operator Nodes
@@ -491,7 +492,10 @@ enum TaskType {
     TASK_TYPE_SP_JAVA_GET_DRID_TRACKER = 4,      // not supported in EE
     TASK_TYPE_SET_DRID_TRACKER = 5,              // not supported in EE
     TASK_TYPE_GENERATE_DR_EVENT = 6,
-    TASK_TYPE_RESET_DR_APPLIED_TRACKER = 7       // not supported in EE
+    TASK_TYPE_RESET_DR_APPLIED_TRACKER = 7,      // not supported in EE
+    TASK_TYPE_SET_TEMP_TABLE_SPILL_DIRECTORY = 8,
+    TASK_TYPE_ENABLE_COMPILED_PREDICATES = 9,
+    TASK_TYPE_ENABLE_DISTINCT_KEY_ESTIMATES = 10
 };
 
 // ------------------------------------------------------------------
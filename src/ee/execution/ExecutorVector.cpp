@@ -48,12 +48,17 @@
 #include "catalog/planfragment.h"
 #include "catalog/statement.h"
 #include "executors/abstractexecutor.h"
+#include "executors/seqscanexecutor.h"
+#include "expressions/CompiledPredicate.h"
 #include "plannodes/abstractplannode.h"
 #include "plannodes/abstractplannode.h"
+#include "plannodes/seqscannode.h"
 #include "executors/executorfactory.h"
 
 #include "boost/foreach.hpp"
 
+#include <algorithm>
+
 namespace voltdb {
 
 boost::shared_ptr<ExecutorVector> ExecutorVector::fromCatalogStatement(VoltDBEngine* engine,
@@ -106,6 +111,7 @@ boost::shared_ptr<ExecutorVector> ExecutorVector::fromJsonPlan(VoltDBEngine* eng
     boost::shared_ptr<ExecutorVector> ev(new ExecutorVector(fragId,
                                                             tempTableLogLimit,
                                                             tempTableMemoryLimit,
+                                                            engine->tempTableSpillDirectory(),
                                                             pnf));
     ev->init(engine);
     return ev;
@@ -122,6 +128,7 @@ void ExecutorVector::init(VoltDBEngine* engine) {
             initPlanNode(engine, planNode);
             executorList->push_back(planNode->getExecutor());
         }
+        connectSemiJoinFilters(planNodeList);
         m_subplanExecListMap.insert(make_pair(it->first, executorList.get()));
         executorList.release();
     }
@@ -170,6 +177,11 @@ void ExecutorVector::initPlanNode(VoltDBEngine* engine, AbstractPlanNode* node)
 
     // Now use the plannode to initialize the executor for execution later on
     if (executor->init(engine, &m_limits)) {
+        // Executors look at the predicates as the planner built them when
+        // they initialize, so they can only be compiled after that.
+        if (engine->compiledPredicatesEnabled()) {
+            compilePredicates(node);
+        }
         return;
     }
 
@@ -181,10 +193,62 @@ void ExecutorVector::initPlanNode(VoltDBEngine* engine, AbstractPlanNode* node)
     throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION, msg);
 }
 
+void ExecutorVector::compilePredicates(AbstractPlanNode* node) {
+    std::vector<boost::scoped_ptr<AbstractExpression>*> predicates;
+    node->getPredicates(predicates);
+    BOOST_FOREACH (boost::scoped_ptr<AbstractExpression>* predicate, predicates) {
+        if (predicate->get() == NULL) {
+            continue;
+        }
+        ++m_predicateCount;
+        if (CompiledPredicate::compile(*predicate)) {
+            ++m_compiledPredicateCount;
+        }
+    }
+}
+
 void ExecutorVector::setupContext(ExecutorContext* executorContext)
     { executorContext->setupForExecutors(&m_subplanExecListMap); }
 
-void ExecutorVector::resetLimitStats() { m_limits.resetPeakMemory(); }
+void ExecutorVector::connectSemiJoinFilters(const std::vector<AbstractPlanNode*>& planNodeList) {
+    // The planner only filters the inner scan of a nested loop or hash join by
+    // the keys of an outer input that executes before it. Make sure it does,
+    // as the scan would otherwise leave out rows that join.
+    for (std::vector<AbstractPlanNode*>::const_iterator it = planNodeList.begin();
+         it != planNodeList.end(); ++it) {
+        PlanNodeType type = (*it)->getPlanNodeType();
+        if (type != PLAN_NODE_TYPE_NESTLOOP && type != PLAN_NODE_TYPE_HASHJOIN) {
+            continue;
+        }
+        const std::vector<AbstractPlanNode*>& children = (*it)->getChildren();
+        assert(children.size() == 2);
+        SeqScanPlanNode* scan = dynamic_cast<SeqScanPlanNode*>(children[1]);
+        if (scan == NULL || scan->getSemiJoinProbeColumn() < 0) {
+            continue;
+        }
+        std::vector<AbstractPlanNode*>::const_iterator source =
+            std::find(planNodeList.begin(), planNodeList.end(), children[0]);
+        std::vector<AbstractPlanNode*>::const_iterator probe =
+            std::find(planNodeList.begin(), planNodeList.end(), children[1]);
+        if (source < probe) {
+            scan->setSemiJoinSource(children[0]);
+            m_semiJoinScans.push_back(dynamic_cast<SeqScanExecutor*>(scan->getExecutor()));
+        }
+    }
+}
+
+int64_t ExecutorVector::takeSemiJoinPrunedRows() {
+    int64_t prunedRows = 0;
+    BOOST_FOREACH (SeqScanExecutor* executor, m_semiJoinScans) {
+        prunedRows += executor->takeSemiJoinPrunedRows();
+    }
+    return prunedRows;
+}
+
+void ExecutorVector::resetLimitStats() {
+    m_limits.resetPeakMemory();
+    m_limits.resetSpilledBytes();
+}
 
 const std::vector<AbstractExecutor*>& ExecutorVector::getExecutorList(int planId) {
     assert(m_subplanExecListMap.find(planId) != m_subplanExecListMap.end());
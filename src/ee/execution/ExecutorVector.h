@@ -63,6 +63,7 @@ class VoltDBEngine;
 class AbstractPlanNode;
 class AbstractExecutor;
 class ExecutorContext;
+class SeqScanExecutor;
 
 /**
  * A list of executors for runtime.
@@ -87,6 +88,16 @@ public:
 
     const TempTableLimits& limits() const { return m_limits; }
 
+    /** How many predicates the fragment has, and how many of those were compiled */
+    int32_t predicateCount() const { return m_predicateCount; }
+    int32_t compiledPredicateCount() const { return m_compiledPredicateCount; }
+
+    /** Whether any scan of the fragment is filtered by the join keys of another input */
+    bool hasSemiJoinFilters() const { return ! m_semiJoinScans.empty(); }
+
+    /** Rows those scans have left out since the last call */
+    int64_t takeSemiJoinPrunedRows();
+
     /** Return a std::string with helpful info about this object. */
     std::string debug() const;
 
@@ -121,18 +132,28 @@ private:
     ExecutorVector(int64_t fragmentId,
                    int64_t logThreshold,
                    int64_t memoryLimit,
+                   const std::string& spillDirectory,
                    PlanNodeFragment* fragment)
         : m_fragId(fragmentId)
-        , m_limits(memoryLimit, logThreshold)
+        , m_limits(memoryLimit, logThreshold, spillDirectory)
         , m_fragment(fragment)
+        , m_predicateCount(0)
+        , m_compiledPredicateCount(0)
     { }
 
     void initPlanNode(VoltDBEngine* engine, AbstractPlanNode* node);
 
+    void compilePredicates(AbstractPlanNode* node);
+
+    void connectSemiJoinFilters(const std::vector<AbstractPlanNode*>& planNodeList);
+
     const int64_t m_fragId;
     std::map<int, std::vector<AbstractExecutor*>* > m_subplanExecListMap;
     TempTableLimits m_limits;
     boost::scoped_ptr<PlanNodeFragment> m_fragment;
+    int32_t m_predicateCount;
+    int32_t m_compiledPredicateCount;
+    std::vector<SeqScanExecutor*> m_semiJoinScans;
 };
 
 } // namespace voltdb
@@ -105,6 +105,27 @@ JNITopend::JNITopend(JNIEnv *env, jobject caller) : m_jniEnv(env), m_javaExecuti
         throw std::exception();
     }
 
+    m_fragmentSpilledBytesMID = m_jniEnv->GetMethodID(jniClass, "fragmentSpilledBytes", "(IJ)V");
+    if (m_fragmentSpilledBytesMID == NULL) {
+        m_jniEnv->ExceptionDescribe();
+        assert(m_fragmentSpilledBytesMID != 0);
+        throw std::exception();
+    }
+
+    m_fragmentPredicateStatsMID = m_jniEnv->GetMethodID(jniClass, "fragmentPredicateStats", "(IIIJ)V");
+    if (m_fragmentPredicateStatsMID == NULL) {
+        m_jniEnv->ExceptionDescribe();
+        assert(m_fragmentPredicateStatsMID != 0);
+        throw std::exception();
+    }
+
+    m_fragmentSemiJoinPrunedRowsMID = m_jniEnv->GetMethodID(jniClass, "fragmentSemiJoinPrunedRows", "(IJ)V");
+    if (m_fragmentSemiJoinPrunedRowsMID == NULL) {
+        m_jniEnv->ExceptionDescribe();
+        assert(m_fragmentSemiJoinPrunedRowsMID != 0);
+        throw std::exception();
+    }
+
     m_planForFragmentIdMID = m_jniEnv->GetMethodID(jniClass, "planForFragmentId", "(J)[B");
     if (m_planForFragmentIdMID == NULL) {
         m_jniEnv->ExceptionDescribe();
@@ -286,6 +307,30 @@ int64_t JNITopend::fragmentProgressUpdate(
     return (int64_t)nextStep;
 }
 
+void JNITopend::fragmentSpilledBytes(int32_t batchIndex, int64_t spilledBytes) {
+    m_jniEnv->CallVoidMethod(m_javaExecutionEngine,
+                             m_fragmentSpilledBytesMID,
+                             batchIndex,
+                             spilledBytes);
+}
+
+void JNITopend::fragmentPredicateStats(int32_t batchIndex, int32_t predicates,
+                                       int32_t compiledPredicates, int64_t executionNanos) {
+    m_jniEnv->CallVoidMethod(m_javaExecutionEngine,
+                             m_fragmentPredicateStatsMID,
+                             batchIndex,
+                             predicates,
+                             compiledPredicates,
+                             executionNanos);
+}
+
+void JNITopend::fragmentSemiJoinPrunedRows(int32_t batchIndex, int64_t prunedRows) {
+    m_jniEnv->CallVoidMethod(m_javaExecutionEngine,
+                             m_fragmentSemiJoinPrunedRowsMID,
+                             batchIndex,
+                             prunedRows);
+}
+
 // A local helper to convert a jbyteArray to an std::string.
 // Callers should be aware that an empty string may be returned if
 // jbuf is null.
@@ -38,6 +38,10 @@ public:
                 int64_t tuplesProcessed,
                 int64_t currMemoryInBytes,
                 int64_t peakMemoryInBytes);
+    void fragmentSpilledBytes(int32_t batchIndex, int64_t spilledBytes);
+    void fragmentPredicateStats(int32_t batchIndex, int32_t predicates,
+                                int32_t compiledPredicates, int64_t executionNanos);
+    void fragmentSemiJoinPrunedRows(int32_t batchIndex, int64_t prunedRows);
     std::string planForFragmentId(int64_t fragmentId);
     void crashVoltDB(FatalException e);
     int64_t getQueuedExportBytes(int32_t partitionId, std::string signature);
@@ -72,6 +76,9 @@ private:
     jmethodID m_fallbackToEEAllocatedBufferMID;
     jmethodID m_nextDependencyMID;
     jmethodID m_fragmentProgressUpdateMID;
+    jmethodID m_fragmentSpilledBytesMID;
+    jmethodID m_fragmentPredicateStatsMID;
+    jmethodID m_fragmentSemiJoinPrunedRowsMID;
     jmethodID m_planForFragmentIdMID;
     jmethodID m_crashVoltDBMID;
     jmethodID m_pushExportBufferMID;
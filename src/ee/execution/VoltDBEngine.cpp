@@ -99,6 +99,7 @@
 #include <sstream>
 #include <locale>
 #include <typeinfo>
+#include <time.h>
 
 ENABLE_BOOST_FOREACH_ON_CONST_MAP(Column);
 ENABLE_BOOST_FOREACH_ON_CONST_MAP(Index);
@@ -164,7 +165,9 @@ VoltDBEngine::VoltDBEngine(Topend *topend, LogProxy *logProxy)
       m_compatibleDRStream(NULL),
       m_compatibleDRReplicatedStream(NULL),
       m_currExecutorVec(NULL),
-      m_tuplesModifiedStack()
+      m_tuplesModifiedStack(),
+      m_compiledPredicatesEnabled(false),
+      m_distinctKeyEstimatesEnabled(false)
 {
 }
 
@@ -524,10 +527,17 @@ int VoltDBEngine::executePlanFragment(int64_t planfragmentId,
     return ENGINE_ERRORCODE_SUCCESS;
 }
 
+static int64_t monotonicNanos() {
+    struct timespec now;
+    clock_gettime(CLOCK_MONOTONIC, &now);
+    return static_cast<int64_t>(now.tv_sec) * 1000000000 + now.tv_nsec;
+}
+
 UniqueTempTableResult VoltDBEngine::executePlanFragment(ExecutorVector* executorVector, int64_t* tuplesModified) {
     UniqueTempTableResult result;
     // set this to zero for dml operations
     m_tuplesModifiedStack.push(0);
+    int64_t startNanos = m_compiledPredicatesEnabled ? monotonicNanos() : 0;
 
     // execution lists for planfragments are cached by planfragment id
     try {
@@ -536,7 +546,7 @@ UniqueTempTableResult VoltDBEngine::executePlanFragment(ExecutorVector* executor
         result = m_executorContext->executeExecutors(0);
     }
     catch (const SerializableEEException &e) {
-        resetExecutionMetadata(executorVector);
+        resetExecutionMetadata(executorVector, startNanos);
         throw;
     }
 
@@ -544,19 +554,33 @@ UniqueTempTableResult VoltDBEngine::executePlanFragment(ExecutorVector* executor
         *tuplesModified = m_tuplesModifiedStack.top();
     }
 
-    resetExecutionMetadata(executorVector);
+    resetExecutionMetadata(executorVector, startNanos);
 
     VOLT_DEBUG("Finished executing successfully.");
     return result;
 }
 
-void VoltDBEngine::resetExecutionMetadata(ExecutorVector* executorVector) {
+void VoltDBEngine::resetExecutionMetadata(ExecutorVector* executorVector, int64_t startNanos) {
 
     if (m_tuplesModifiedStack.size() != 0) {
         m_tuplesModifiedStack.pop();
     }
     assert (m_tuplesModifiedStack.size() == 0);
 
+    int64_t spilledBytes = executorVector->limits().getSpilledBytes();
+    if (spilledBytes > 0) {
+        m_topend->fragmentSpilledBytes(m_currentIndexInBatch, spilledBytes);
+    }
+    if (m_compiledPredicatesEnabled) {
+        m_topend->fragmentPredicateStats(m_currentIndexInBatch,
+                                         executorVector->predicateCount(),
+                                         executorVector->compiledPredicateCount(),
+                                         monotonicNanos() - startNanos);
+    }
+    if (executorVector->hasSemiJoinFilters()) {
+        m_topend->fragmentSemiJoinPrunedRows(m_currentIndexInBatch,
+                                             executorVector->takeSemiJoinPrunedRows());
+    }
     executorVector->resetLimitStats();
 }
 
@@ -2015,6 +2039,23 @@ void VoltDBEngine::executeTask(TaskType taskType, ReferenceSerializeInputBE &tas
         m_resultOutput.writeInt(0);
         break;
     }
+    case TASK_TYPE_SET_TEMP_TABLE_SPILL_DIRECTORY: {
+        // Only affects plan fragments loaded from now on
+        m_tempTableSpillDirectory = taskInfo.readTextString();
+        m_resultOutput.writeInt(0);
+        break;
+    }
+    case TASK_TYPE_ENABLE_COMPILED_PREDICATES: {
+        // Only affects plan fragments loaded from now on
+        m_compiledPredicatesEnabled = true;
+        m_resultOutput.writeInt(0);
+        break;
+    }
+    case TASK_TYPE_ENABLE_DISTINCT_KEY_ESTIMATES: {
+        m_distinctKeyEstimatesEnabled = true;
+        m_resultOutput.writeInt(0);
+        break;
+    }
     case TASK_TYPE_GENERATE_DR_EVENT: {
         // we start using in-band CATALOG_UPDATE at version 5
         if (m_drVersion >= 5) {
@@ -463,6 +463,19 @@ class __attribute__((visibility("default"))) VoltDBEngine {
             return (m_tempTableMemoryLimit * 3) / 4;
         }
 
+        /** Where temp tables spill to disk, empty if they may not */
+        const std::string& tempTableSpillDirectory() const {
+            return m_tempTableSpillDirectory;
+        }
+
+        bool compiledPredicatesEnabled() const {
+            return m_compiledPredicatesEnabled;
+        }
+
+        bool distinctKeyEstimatesEnabled() const {
+            return m_distinctKeyEstimatesEnabled;
+        }
+
         int32_t getPartitionId() const {
             return m_partitionId;
         }
@@ -515,7 +528,7 @@ class __attribute__((visibility("default"))) VoltDBEngine {
         void setExecutorVectorForFragmentId(int64_t fragId);
 
         bool checkTempTableCleanup(ExecutorVector * execsForFrag);
-        void resetExecutionMetadata(ExecutorVector* executorVector);
+        void resetExecutionMetadata(ExecutorVector* executorVector, int64_t startNanos);
 
         // -------------------------------------------------
         // Data Members
@@ -539,6 +552,7 @@ class __attribute__((visibility("default"))) VoltDBEngine {
         boost::scoped_ptr<TheHashinator> m_hashinator;
         size_t m_startOfResultBuffer;
         int64_t m_tempTableMemoryLimit;
+        std::string m_tempTableSpillDirectory;
 
         /*
          * Catalog delegates hashed by path.
@@ -683,6 +697,13 @@ class __attribute__((visibility("default"))) VoltDBEngine {
          * most deeply nested executing plan fragment.
          */
         std::stack<int64_t> m_tuplesModifiedStack;
+
+        // Whether plan fragments loaded from now on get compiled predicates
+        // and report predicate statistics after they execute
+        bool m_compiledPredicatesEnabled;
+
+        // Whether index statistics sample the indexes for their distinct key estimates
+        bool m_distinctKeyEstimatesEnabled;
 };
 
 inline void VoltDBEngine::resetReusedResultOutputBuffer(const size_t headerSize)
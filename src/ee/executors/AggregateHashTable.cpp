@@ -0,0 +1,127 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "AggregateHashTable.h"
+
+#include "common/Pool.hpp"
+
+#include <cassert>
+
+namespace voltdb {
+
+namespace {
+// Slots of a table that has no estimate, or an estimate of very few groups.
+const std::size_t MIN_CAPACITY = 64;
+// Estimates are not trusted beyond this many slots, past it the table grows as needed.
+const std::size_t MAX_INITIAL_CAPACITY = 1 << 20;
+}
+
+AggregateHashTable::AggregateHashTable(Pool* memoryPool)
+    : m_memoryPool(memoryPool)
+    , m_keySchema(NULL)
+    , m_slots(NULL)
+    , m_capacity(0)
+    , m_shift(64)
+    , m_size(0)
+    , m_growAt(0)
+    , m_initialCapacity(MIN_CAPACITY)
+{ }
+
+void AggregateHashTable::reset(int64_t expectedGroupCount)
+{
+    m_slots = NULL;
+    m_capacity = 0;
+    m_shift = 64;
+    m_size = 0;
+    m_growAt = 0;
+    // Keep the table at most half full with as many groups as expected.
+    m_initialCapacity = MIN_CAPACITY;
+    while (m_initialCapacity < MAX_INITIAL_CAPACITY &&
+           static_cast<int64_t>(m_initialCapacity) < expectedGroupCount * 2) {
+        m_initialCapacity <<= 1;
+    }
+}
+
+void AggregateHashTable::allocateSlots(std::size_t capacity)
+{
+    assert((capacity & (capacity - 1)) == 0);
+    m_slots = reinterpret_cast<Slot*>(m_memoryPool->allocateZeroes(capacity * sizeof(Slot)));
+    m_capacity = capacity;
+    m_shift = 64;
+    for (std::size_t ii = capacity; ii > 1; ii >>= 1) {
+        --m_shift;
+    }
+    // Linear probing slows down quickly past three quarters full.
+    m_growAt = capacity - capacity / 4;
+}
+
+AggregateRow* AggregateHashTable::find(const TableTuple& key, std::size_t hash) const
+{
+    if (m_size == 0) {
+        return NULL;
+    }
+    const std::size_t mask = m_capacity - 1;
+    for (std::size_t slot = firstSlot(hash); m_slots[slot].row != NULL; slot = (slot + 1) & mask) {
+        if (m_slots[slot].hash == hash &&
+            TableTuple(m_slots[slot].key, m_keySchema).equalsNoSchemaCheck(key)) {
+            return m_slots[slot].row;
+        }
+    }
+    return NULL;
+}
+
+void AggregateHashTable::insert(const TableTuple& key, std::size_t hash, AggregateRow* row)
+{
+    assert(row != NULL);
+    if (m_slots == NULL) {
+        m_keySchema = key.getSchema();
+        allocateSlots(m_initialCapacity);
+    }
+    else if (m_size == m_growAt) {
+        grow();
+    }
+    const std::size_t mask = m_capacity - 1;
+    std::size_t slot = firstSlot(hash);
+    while (m_slots[slot].row != NULL) {
+        slot = (slot + 1) & mask;
+    }
+    m_slots[slot].hash = hash;
+    m_slots[slot].key = key.address();
+    m_slots[slot].row = row;
+    ++m_size;
+}
+
+void AggregateHashTable::grow()
+{
+    // The old slots stay in the pool until it is purged.
+    Slot* oldSlots = m_slots;
+    const std::size_t oldCapacity = m_capacity;
+    allocateSlots(oldCapacity * 2);
+    const std::size_t mask = m_capacity - 1;
+    for (std::size_t ii = 0; ii < oldCapacity; ++ii) {
+        if (oldSlots[ii].row == NULL) {
+            continue;
+        }
+        std::size_t slot = firstSlot(oldSlots[ii].hash);
+        while (m_slots[slot].row != NULL) {
+            slot = (slot + 1) & mask;
+        }
+        m_slots[slot] = oldSlots[ii];
+    }
+}
+
+} // namespace voltdb
@@ -0,0 +1,111 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef _EE_EXECUTORS_AGGREGATEHASHTABLE_H_
+#define _EE_EXECUTORS_AGGREGATEHASHTABLE_H_
+
+#include "common/tabletuple.h"
+
+#include <cstddef>
+#include <stdint.h>
+
+namespace voltdb {
+
+class Pool;
+struct AggregateRow;
+
+/**
+ * The groups of a hash aggregation, by group by key.
+ *
+ * An open addressed table with linear probing, whose slots are allocated
+ * from the aggregate executor's memory pool along with the keys and the
+ * aggregate rows.  It is sized for the planner's estimate of the group
+ * count up front, so it only has to grow when the estimate was too low,
+ * and the memory of the slots that were outgrown goes back with the rest
+ * of the pool when it is purged.
+ */
+class AggregateHashTable {
+public:
+    explicit AggregateHashTable(Pool* memoryPool);
+
+    /**
+     * Forget all the groups, which have to be deleted by the caller,
+     * and size the table for this many groups once the first is added.
+     * Call it whenever the pool has been purged.
+     */
+    void reset(int64_t expectedGroupCount);
+
+    static std::size_t hash(const TableTuple& key)
+    {
+        return key.hashCode();
+    }
+
+    /** Return the row of the group with this key, or NULL if there is none. */
+    AggregateRow* find(const TableTuple& key, std::size_t hash) const;
+
+    /**
+     * Add a group that is not in the table yet.  The key's storage has
+     * to live as long as the group.
+     */
+    void insert(const TableTuple& key, std::size_t hash, AggregateRow* row);
+
+    std::size_t size() const
+    {
+        return m_size;
+    }
+
+    /** The number of slots, for going through the groups with rowAt. */
+    std::size_t slotCount() const
+    {
+        return m_capacity;
+    }
+
+    /** Return the row of the group in this slot, or NULL if the slot is empty. */
+    AggregateRow* rowAt(std::size_t slot) const
+    {
+        return m_slots[slot].row;
+    }
+
+private:
+    struct Slot {
+        std::size_t hash;
+        char* key;
+        AggregateRow* row;
+    };
+
+    void allocateSlots(std::size_t capacity);
+    void grow();
+
+    std::size_t firstSlot(std::size_t hash) const
+    {
+        // The key hashes combine column hashes, so mix them and take the top bits.
+        return static_cast<std::size_t>((static_cast<uint64_t>(hash) * 0x9E3779B97F4A7C15ULL) >> m_shift);
+    }
+
+    Pool* m_memoryPool;
+    const TupleSchema* m_keySchema;
+    Slot* m_slots;
+    std::size_t m_capacity;
+    int m_shift;
+    std::size_t m_size;
+    std::size_t m_growAt;
+    std::size_t m_initialCapacity;
+};
+
+} // namespace voltdb
+
+#endif // _EE_EXECUTORS_AGGREGATEHASHTABLE_H_
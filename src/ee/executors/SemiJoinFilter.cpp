@@ -0,0 +1,98 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "SemiJoinFilter.h"
+
+#include "common/NValue.hpp"
+#include "common/tabletuple.h"
+#include "storage/table.h"
+#include "storage/tableiterator.h"
+
+namespace voltdb {
+
+namespace {
+// 16 bits and 3 probes per key miss about one value in 300 that is not a key.
+const std::size_t BITS_PER_KEY = 16;
+const int PROBES = 3;
+const std::size_t MIN_BITS = 64;
+}
+
+SemiJoinFilter::SemiJoinFilter()
+    : m_bitMask(0)
+    , m_keyCount(0)
+{ }
+
+void SemiJoinFilter::build(Table* table, int column)
+{
+    std::size_t bits = MIN_BITS;
+    while (bits < table->activeTupleCount() * BITS_PER_KEY) {
+        bits <<= 1;
+    }
+    m_words.assign(bits / 64, 0);
+    m_bitMask = bits - 1;
+    m_keyCount = 0;
+
+    TableTuple tuple(table->schema());
+    TableIterator iterator = table->iterator();
+    while (iterator.next(tuple)) {
+        const NValue value = tuple.getNValue(column);
+        if ( ! value.isNull()) {
+            add(hash(value));
+            ++m_keyCount;
+        }
+    }
+}
+
+uint64_t SemiJoinFilter::hash(const NValue& value)
+{
+    std::size_t seed = 0;
+    value.hashCombine(seed);
+    // Spread the bits of small integer keys, whose hashes are the keys themselves.
+    return static_cast<uint64_t>(seed) * 0x9E3779B97F4A7C15ULL;
+}
+
+void SemiJoinFilter::add(uint64_t hash)
+{
+    // Derive the probes from the two halves of the hash.
+    uint64_t probe = hash >> 32;
+    const uint64_t step = (hash & 0xFFFFFFFFULL) | 1;
+    for (int ii = 0; ii < PROBES; ++ii) {
+        const uint64_t bit = probe & m_bitMask;
+        m_words[bit >> 6] |= 1ULL << (bit & 63);
+        probe += step;
+    }
+}
+
+bool SemiJoinFilter::mayContain(const NValue& value) const
+{
+    if (value.isNull()) {
+        return false;
+    }
+    const uint64_t h = hash(value);
+    uint64_t probe = h >> 32;
+    const uint64_t step = (h & 0xFFFFFFFFULL) | 1;
+    for (int ii = 0; ii < PROBES; ++ii) {
+        const uint64_t bit = probe & m_bitMask;
+        if ((m_words[bit >> 6] & (1ULL << (bit & 63))) == 0) {
+            return false;
+        }
+        probe += step;
+    }
+    return true;
+}
+
+} // namespace voltdb
@@ -0,0 +1,73 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef _EE_EXECUTORS_SEMIJOINFILTER_H_
+#define _EE_EXECUTORS_SEMIJOINFILTER_H_
+
+#include <cstddef>
+#include <stdint.h>
+#include <vector>
+
+namespace voltdb {
+
+class NValue;
+class Table;
+
+/**
+ * A Bloom filter of the join key values of one input of a join, used to
+ * drop the rows of the other input that can't match before they are
+ * copied into a temp table and joined.
+ *
+ * A value the filter says is absent is certainly not among the keys.
+ * A value it says may be present is one of the keys, or, for a small
+ * fraction of the values, a false positive that the join then rejects.
+ * NULL keys never match, so they are neither added nor looked for.
+ */
+class SemiJoinFilter {
+public:
+    SemiJoinFilter();
+
+    /** Replace the keys of the filter with the values of this column of the table. */
+    void build(Table* table, int column);
+
+    /** Return false if the value is NULL or none of the keys can be equal to it. */
+    bool mayContain(const NValue& value) const;
+
+    std::size_t keyCount() const
+    {
+        return m_keyCount;
+    }
+
+    /** The memory taken by the filter's bits */
+    std::size_t byteSize() const
+    {
+        return m_words.size() * sizeof(uint64_t);
+    }
+
+private:
+    static uint64_t hash(const NValue& value);
+
+    void add(uint64_t hash);
+
+    std::vector<uint64_t> m_words;
+    uint64_t m_bitMask;
+    std::size_t m_keyCount;
+};
+
+} // namespace voltdb
+
+#endif // _EE_EXECUTORS_SEMIJOINFILTER_H_
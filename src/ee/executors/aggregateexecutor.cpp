@@ -48,15 +48,20 @@
 #include "common/ValueFactory.hpp"
 #include "common/common.h"
 #include "common/debuglog.h"
+#include "common/SQLException.h"
 #include "common/SerializableEEException.h"
 #include "expressions/abstractexpression.h"
+#include "expressions/tuplevalueexpression.h"
 #include "plannodes/aggregatenode.h"
 #include "plannodes/limitnode.h"
+#include "storage/SpillFile.h"
+#include "storage/TempTableLimits.h"
 #include "storage/temptable.h"
 #include "storage/tableiterator.h"
 #include "executors/partitionbyexecutor.h"
 
 #include "boost/foreach.hpp"
+#include "boost/functional/hash.hpp"
 #include "boost/unordered_map.hpp"
 #include "hyperloglog/hyperloglog.hpp" // for APPROX_COUNT_DISTINCT
 
@@ -243,6 +248,11 @@ public:
         m_count++;
     }
 
+    void increment()
+    {
+        ++m_count;
+    }
+
     virtual NValue finalize(ValueType type)
     {
         ifDistinct.clear();
@@ -270,6 +280,11 @@ public:
         ++m_count;
     }
 
+    void increment()
+    {
+        ++m_count;
+    }
+
     virtual NValue finalize(ValueType type)
     {
         return ValueFactory::getBigIntValue(m_count).castAs(type);
@@ -578,6 +593,87 @@ private:
     bool                               m_isDenseRank;
 };
 
+struct IntegerSum {
+    static void apply(int64_t& sum, int64_t value)
+    {
+        // INT64_MIN is the BIGINT null, so a sum can't reach it either.
+        if ((value > 0 && sum > INT64_MAX - value) || (value < 0 && sum <= INT64_MIN - value)) {
+            char message[4096];
+            snprintf(message, 4096, "Adding %jd and %jd will overflow BigInt storage",
+                     (intmax_t)sum, (intmax_t)value);
+            throw SQLException(SQLException::data_exception_numeric_value_out_of_range, message);
+        }
+        sum += value;
+    }
+};
+
+struct IntegerMin {
+    static void apply(int64_t& min, int64_t value)
+    {
+        if (value < min) {
+            min = value;
+        }
+    }
+};
+
+struct IntegerMax {
+    static void apply(int64_t& max, int64_t value)
+    {
+        if (value > max) {
+            max = value;
+        }
+    }
+};
+
+/**
+ * SUM, MIN or MAX of an integer column, kept as a native integer.
+ * The aggregate kernels in advanceAggs read the column and advance it
+ * without a virtual call or NValue arithmetic.
+ * Parameter Op is IntegerSum, IntegerMin or IntegerMax.
+ */
+template<class Op>
+class IntegerAgg : public Agg
+{
+public:
+    IntegerAgg() : m_integer(0) { }
+
+    void advanceInteger(int64_t value)
+    {
+        if (!m_haveAdvanced) {
+            m_integer = value;
+            m_haveAdvanced = true;
+        }
+        else {
+            Op::apply(m_integer, value);
+        }
+    }
+
+    virtual void advance(const NValue& val)
+    {
+        if (val.isNull()) {
+            return;
+        }
+        advanceInteger(ValuePeeker::peekAsBigInt(val));
+    }
+
+    virtual NValue finalize(ValueType type)
+    {
+        if (!m_haveAdvanced) {
+            return ValueFactory::getNullValue().castAs(type);
+        }
+        return ValueFactory::getBigIntValue(m_integer).castAs(type);
+    }
+
+    virtual void resetAgg()
+    {
+        Agg::resetAgg();
+        m_integer = 0;
+    }
+
+private:
+    int64_t m_integer;
+};
+
 /**
  * Create an instance of an aggregator for the specified aggregate type and "distinct" flag.
  * The object is allocated from the provided memory pool.
@@ -672,6 +768,8 @@ bool AggregateExecutorBase::p_init(AbstractPlanNode*, TempTableLimits* limits)
     m_prePredicate = node->getPrePredicate();
     m_postPredicate = node->getPostPredicate();
 
+    initAggKernels(node);
+
     m_groupByKeySchema = constructGroupBySchema(false);
     m_groupByKeyPartialHashSchema = NULL;
     if (m_partialSerialGroupByColumns.size() > 0) {
@@ -690,6 +788,59 @@ bool AggregateExecutorBase::p_init(AbstractPlanNode*, TempTableLimits* limits)
     return true;
 }
 
+static bool isIntegerType(ValueType type)
+{
+    switch (type) {
+    case VALUE_TYPE_TINYINT:
+    case VALUE_TYPE_SMALLINT:
+    case VALUE_TYPE_INTEGER:
+    case VALUE_TYPE_BIGINT:
+        return true;
+    default:
+        return false;
+    }
+}
+
+void AggregateExecutorBase::initAggKernels(const AggregatePlanNode* node)
+{
+    m_aggKernels.assign(m_aggTypes.size(), AGG_KERNEL_GENERIC);
+    m_aggInputColumns.assign(m_aggTypes.size(), -1);
+    // Only the hash aggregates planned for the arena hash table use the kernels.
+    if (node->getEstimatedGroupCount() < 0) {
+        return;
+    }
+    for (int ii = 0; ii < m_aggTypes.size(); ii++) {
+        if (m_aggTypes[ii] == EXPRESSION_TYPE_AGGREGATE_COUNT_STAR) {
+            m_aggKernels[ii] = AGG_KERNEL_COUNT_STAR;
+            continue;
+        }
+        const TupleValueExpression* column = dynamic_cast<const TupleValueExpression*>(m_inputExpressions[ii]);
+        if (m_distinctAggs[ii] || column == NULL || column->getTupleId() != 0) {
+            continue;
+        }
+        const bool integer = isIntegerType(column->getValueType());
+        switch (m_aggTypes[ii]) {
+        case EXPRESSION_TYPE_AGGREGATE_COUNT:
+            m_aggKernels[ii] = AGG_KERNEL_COUNT;
+            break;
+        case EXPRESSION_TYPE_AGGREGATE_SUM:
+            m_aggKernels[ii] = integer ? AGG_KERNEL_SUM_INTEGER : AGG_KERNEL_GENERIC;
+            break;
+        case EXPRESSION_TYPE_AGGREGATE_MIN:
+            m_aggKernels[ii] = integer ? AGG_KERNEL_MIN_INTEGER : AGG_KERNEL_GENERIC;
+            break;
+        case EXPRESSION_TYPE_AGGREGATE_MAX:
+            m_aggKernels[ii] = integer ? AGG_KERNEL_MAX_INTEGER : AGG_KERNEL_GENERIC;
+            break;
+        default:
+            break;
+        }
+        if (m_aggKernels[ii] != AGG_KERNEL_GENERIC) {
+            m_aggInputColumns[ii] = column->getColumnId();
+        }
+    }
+}
+
 inline TupleSchema* AggregateExecutorBase::constructGroupBySchema(bool partial) {
     std::vector<ValueType> groupByColumnTypes;
     std::vector<int32_t> groupByColumnSizes;
@@ -773,6 +924,10 @@ inline void AggregateExecutorBase::advanceAggs(AggregateRow* aggregateRow, const
 {
     Agg** aggs = aggregateRow->m_aggregates;
     for (int ii = 0; ii < m_aggTypes.size(); ii++) {
+        if (m_aggKernels[ii] != AGG_KERNEL_GENERIC) {
+            advanceAggKernel(m_aggKernels[ii], aggs[ii], tuple, m_aggInputColumns[ii]);
+            continue;
+        }
         // In particular, COUNT(*) and the
         // rank() family of aggreates accept a dummy NValue
         // from a NULL input expression.
@@ -781,6 +936,35 @@ inline void AggregateExecutorBase::advanceAggs(AggregateRow* aggregateRow, const
     }
 }
 
+inline void AggregateExecutorBase::advanceAggKernel(AggKernel kernel, Agg* agg,
+                                                    const TableTuple& tuple, int column)
+{
+    if (kernel == AGG_KERNEL_COUNT_STAR) {
+        static_cast<CountStarAgg*>(agg)->increment();
+        return;
+    }
+    const NValue value = tuple.getNValue(column);
+    if (value.isNull()) {
+        return;
+    }
+    switch (kernel) {
+    case AGG_KERNEL_COUNT:
+        static_cast<CountAgg<NotDistinct>*>(agg)->increment();
+        break;
+    case AGG_KERNEL_SUM_INTEGER:
+        static_cast<IntegerAgg<IntegerSum>*>(agg)->advanceInteger(ValuePeeker::peekAsBigInt(value));
+        break;
+    case AGG_KERNEL_MIN_INTEGER:
+        static_cast<IntegerAgg<IntegerMin>*>(agg)->advanceInteger(ValuePeeker::peekAsBigInt(value));
+        break;
+    case AGG_KERNEL_MAX_INTEGER:
+        static_cast<IntegerAgg<IntegerMax>*>(agg)->advanceInteger(ValuePeeker::peekAsBigInt(value));
+        break;
+    default:
+        assert(false);
+    }
+}
+
 /*
  * Create an instance of an aggregator for the specified aggregate type.
  * The object is constructed in memory from the provided memory pool.
@@ -789,7 +973,20 @@ inline void AggregateExecutorBase::initAggInstances(AggregateRow* aggregateRow)
 {
     Agg** aggs = aggregateRow->m_aggregates;
     for (int ii = 0; ii < m_aggTypes.size(); ii++) {
-        aggs[ii] = getAggInstance(m_memoryPool, m_aggTypes[ii], m_distinctAggs[ii]);
+        switch (m_aggKernels[ii]) {
+        case AGG_KERNEL_SUM_INTEGER:
+            aggs[ii] = new (m_memoryPool) IntegerAgg<IntegerSum>();
+            break;
+        case AGG_KERNEL_MIN_INTEGER:
+            aggs[ii] = new (m_memoryPool) IntegerAgg<IntegerMin>();
+            break;
+        case AGG_KERNEL_MAX_INTEGER:
+            aggs[ii] = new (m_memoryPool) IntegerAgg<IntegerMax>();
+            break;
+        default:
+            // COUNT and COUNT(*) kernels advance the usual aggregates
+            aggs[ii] = getAggInstance(m_memoryPool, m_aggTypes[ii], m_distinctAggs[ii]);
+        }
     }
 }
 
@@ -855,6 +1052,25 @@ void AggregateExecutorBase::p_execute_finish()
 
 AggregateHashExecutor::~AggregateHashExecutor() {}
 
+namespace {
+// Spilled rows are split this many ways each time they go to disk.
+const int SPILL_PARTITION_COUNT = 16;
+// Past this many trips through a spill file the groups must be few enough,
+// or the group by key skewed enough, that spilling again would not help.
+const int MAX_SPILL_DEPTH = 3;
+// Bytes of each partition that are written or read back at a time.
+const int SPILL_CHUNK_SIZE = 64 * 1024;
+}
+
+bool AggregateHashExecutor::p_init(AbstractPlanNode* abstract_node, TempTableLimits* limits)
+{
+    m_limits = limits;
+    AggregatePlanNode* node = dynamic_cast<AggregatePlanNode*>(abstract_node);
+    assert(node);
+    m_estimatedGroupCount = node->getEstimatedGroupCount();
+    return AggregateExecutorBase::p_init(abstract_node, limits);
+}
+
 TableTuple AggregateHashExecutor::p_execute_init(const NValueArray& params,
                                                  ProgressMonitorProxy* pmp,
                                                  const TupleSchema * schema,
@@ -863,6 +1079,10 @@ TableTuple AggregateHashExecutor::p_execute_init(const NValueArray& params,
 {
     VOLT_TRACE("hash aggregate executor init..");
     m_hash.clear();
+    m_groups.reset(m_estimatedGroupCount);
+    m_spilledPartitions.clear();
+    m_spillFile.reset();
+    m_spillDepth = 0;
 
     return AggregateExecutorBase::p_execute_init(params, pmp, schema, newTempTable, parentPostfilter);
 }
@@ -895,16 +1115,36 @@ bool AggregateHashExecutor::p_execute(const NValueArray& params)
 void AggregateHashExecutor::p_execute_tuple(const TableTuple& nextTuple) {
     m_pmp->countdownProgress();
     initGroupByKeyTuple(nextTuple);
-    AggregateRow* aggregateRow;
+    AggregateRow* aggregateRow = NULL;
     TableTuple& nextGroupByKeyTuple = m_nextGroupByKeyStorage;
     // Search for the matching group.
-    HashAggregateMapType::const_iterator keyIter = m_hash.find(nextGroupByKeyTuple);
+    std::size_t hash = 0;
+    if (m_estimatedGroupCount >= 0) {
+        hash = AggregateHashTable::hash(nextGroupByKeyTuple);
+        aggregateRow = m_groups.find(nextGroupByKeyTuple, hash);
+    }
+    else {
+        HashAggregateMapType::const_iterator keyIter = m_hash.find(nextGroupByKeyTuple);
+        if (keyIter != m_hash.end()) {
+            aggregateRow = keyIter->second;
+        }
+    }
 
-    // Group not found. Make a new entry in the hash for this new group.
-    if (keyIter == m_hash.end()) {
+    // Group not found. Make a new entry in the hash for this new group,
+    // unless there is no more room for groups in memory.
+    if (aggregateRow == NULL) {
+        if (shouldSpill()) {
+            spillTuple(nextTuple);
+            return;
+        }
         VOLT_TRACE("hash aggregate: new group..");
         aggregateRow = new (m_memoryPool, m_aggTypes.size()) AggregateRow();
-        m_hash.insert(HashAggregateMapType::value_type(nextGroupByKeyTuple, aggregateRow));
+        if (m_estimatedGroupCount >= 0) {
+            m_groups.insert(nextGroupByKeyTuple, hash, aggregateRow);
+        }
+        else {
+            m_hash.insert(HashAggregateMapType::value_type(nextGroupByKeyTuple, aggregateRow));
+        }
 
         initAggInstances(aggregateRow);
 
@@ -920,30 +1160,106 @@ void AggregateHashExecutor::p_execute_tuple(const TableTuple& nextTuple) {
             insertOutputTuple(aggregateRow);
             return;
         }
-    } else {
-        // otherwise, the agg row is the second item of the pair...
-        aggregateRow = keyIter->second;
     }
     // update the aggregation calculation.
     advanceAggs(aggregateRow, nextTuple);
 }
 
-void AggregateHashExecutor::p_execute_finish() {
-    VOLT_TRACE("finalizing..");
+bool AggregateHashExecutor::shouldSpill() {
+    if ( ! m_spilledPartitions.empty()) {
+        return true;
+    }
+    if (m_limits == NULL || ! m_limits->spillingEnabled() || m_spillDepth >= MAX_SPILL_DEPTH ||
+        m_memoryPool.getAllocatedMemory() + m_limits->getAllocated() <= m_limits->getSpillThreshold()) {
+        return false;
+    }
+    VOLT_DEBUG("hash aggregate: spilling new groups at depth %d", m_spillDepth);
+    if ( ! m_spillFile) {
+        m_spillFile.reset(new SpillFile(m_limits));
+    }
+    const int tupleLength = m_inputSchema->tupleLength() + TUPLE_HEADER_SIZE;
+    const int chunkTuples = std::max(1, SPILL_CHUNK_SIZE / tupleLength);
+    for (int ii = 0; ii < SPILL_PARTITION_COUNT; ++ii) {
+        m_spilledPartitions.push_back(boost::shared_ptr<SpilledTupleRun>(
+                new SpilledTupleRun(m_spillFile.get(), tupleLength, chunkTuples)));
+    }
+    return true;
+}
 
+void AggregateHashExecutor::spillTuple(const TableTuple& nextTuple) {
+    // Salt the hash with the depth, so the rows of one partition
+    // are split up again if they have to be spilled once more.
+    std::size_t hash = m_spillDepth;
+    boost::hash_combine(hash, TableTupleHasher()(m_nextGroupByKeyStorage));
+    m_spilledPartitions[hash % SPILL_PARTITION_COUNT]->append(nextTuple.address());
+}
+
+inline void AggregateHashExecutor::outputGroup(AggregateRow* aggregateRow) {
+    if (insertOutputTuple(aggregateRow)) {
+        m_pmp->countdownProgress();
+    }
+    delete aggregateRow;
+}
+
+void AggregateHashExecutor::outputGroups() {
     // If there is no aggregation, results are already inserted already
     if (m_aggTypes.size() != 0) {
         for (HashAggregateMapType::const_iterator iter = m_hash.begin(); iter != m_hash.end(); iter++) {
-            AggregateRow *aggregateRow = iter->second;
-            if (insertOutputTuple(aggregateRow)) {
-                m_pmp->countdownProgress();
+            outputGroup(iter->second);
+        }
+        for (std::size_t slot = 0; slot < m_groups.slotCount(); ++slot) {
+            AggregateRow *aggregateRow = m_groups.rowAt(slot);
+            if (aggregateRow != NULL) {
+                outputGroup(aggregateRow);
             }
-            delete aggregateRow;
         }
     }
+    m_hash.clear();
+    m_groups.reset(m_estimatedGroupCount);
+}
+
+void AggregateHashExecutor::aggregateSpilledPartitions() {
+    std::vector<boost::shared_ptr<SpilledTupleRun> > partitions;
+    partitions.swap(m_spilledPartitions);
+    ++m_spillDepth;
+    BOOST_FOREACH (boost::shared_ptr<SpilledTupleRun>& partition, partitions) {
+        partition->finishWriting();
+        if (partition->tupleCount() == 0) {
+            continue;
+        }
+        // The groups output so far are done with, so start over with an empty pool.
+        TableTuple& nextGroupByKeyTuple = m_nextGroupByKeyStorage;
+        nextGroupByKeyTuple.move(NULL);
+        m_memoryPool.purge();
+        // A partition has its share of the groups that did not fit in memory,
+        // which the estimate says nothing about, so let the table grow to them.
+        if (m_estimatedGroupCount >= 0) {
+            m_groups.reset(0);
+        }
+
+        const char* data;
+        while ((data = partition->next()) != NULL) {
+            p_execute_tuple(TableTuple(const_cast<char*>(data), m_inputSchema));
+        }
+        partition.reset();
+        outputGroups();
+        if ( ! m_spilledPartitions.empty()) {
+            aggregateSpilledPartitions();
+        }
+    }
+    --m_spillDepth;
+}
+
+void AggregateHashExecutor::p_execute_finish() {
+    VOLT_TRACE("finalizing..");
+
+    outputGroups();
+    if ( ! m_spilledPartitions.empty()) {
+        aggregateSpilledPartitions();
+    }
 
     // Clean up
-    m_hash.clear();
+    m_spillFile.reset();
     AggregateExecutorBase::p_execute_finish();
 }
 
@@ -54,10 +54,18 @@
 #include "common/tabletuple.h"
 #include "expressions/abstractexpression.h"
 #include "execution/ProgressMonitorProxy.h"
+#include "executors/AggregateHashTable.h"
 #include "executors/executorutil.h"
 
+#include "boost/scoped_ptr.hpp"
+#include "boost/shared_ptr.hpp"
+
 namespace voltdb {
 
+class AggregatePlanNode;
+class SpillFile;
+class SpilledTupleRun;
+
 /*
  * Base class for an individual aggregate that aggregates a specific
  * column for a group
@@ -151,6 +159,20 @@ struct AggregateRow
     Agg* m_aggregates[0];
 };
 
+/**
+ * How an aggregate is advanced for each input row.  All but the generic
+ * kernel read a column of the input tuple directly and advance an Agg of
+ * a known type without a virtual call.
+ */
+enum AggKernel {
+    AGG_KERNEL_GENERIC,
+    AGG_KERNEL_COUNT_STAR,
+    AGG_KERNEL_COUNT,
+    AGG_KERNEL_SUM_INTEGER,
+    AGG_KERNEL_MIN_INTEGER,
+    AGG_KERNEL_MAX_INTEGER
+};
+
 /**
  * The base class for aggregate executors regardless of the type of grouping that should be performed.
  */
@@ -208,6 +230,8 @@ protected:
 
     void advanceAggs(AggregateRow* aggregateRow, const TableTuple& tuple);
 
+    void advanceAggKernel(AggKernel kernel, Agg* agg, const TableTuple& tuple, int column);
+
     /*
      * Create an instance of an aggregator for the specified aggregate type.
      * The object is constructed in memory from the provided memory pool.
@@ -250,6 +274,9 @@ protected:
     TupleSchema* m_groupByKeySchema;
     std::vector<ExpressionType> m_aggTypes;
     std::vector<bool> m_distinctAggs;
+    std::vector<AggKernel> m_aggKernels;
+    // The input column of each aggregate with a kernel other than the generic one
+    std::vector<int> m_aggInputColumns;
     std::vector<AbstractExpression*> m_groupByExpressions;
     std::vector<AbstractExpression*> m_inputExpressions;
     std::vector<AbstractExpression*> m_outputColumnExpressions;
@@ -273,6 +300,7 @@ protected:
 
 private:
     TupleSchema* constructGroupBySchema(bool partial);
+    void initAggKernels(const AggregatePlanNode* node);
 };
 
 inline bool AggregateExecutorBase::emptyInputMeansEmptyOutput() const {
@@ -291,12 +319,25 @@ typedef boost::unordered_map<TableTuple,
 /**
  * The concrete executor class for PLAN_NODE_TYPE_HASHAGGREGATE
  * in which the input does not need to be sorted and execution will hash the group by key to aggregate the tuples.
+ *
+ * When temp tables may spill and the groups outgrow the spill threshold,
+ * no more groups are started in memory.  Input rows of groups that are not
+ * already in the hash table are written to partitions on disk by the hash
+ * of their group by key instead, and each partition is aggregated on its own
+ * once the groups in memory have been output.
+ *
+ * When the planner sized the aggregate for an arena hash table, the groups
+ * are kept in an AggregateHashTable allocated from the memory pool instead
+ * of a boost::unordered_map, and COUNT/SUM/MIN/MAX of integer columns are
+ * advanced by specialized kernels.
  */
 class AggregateHashExecutor : public AggregateExecutorBase
 {
 public:
     AggregateHashExecutor(VoltDBEngine* engine, AbstractPlanNode* abstract_node) :
-        AggregateExecutorBase(engine, abstract_node) { }
+        AggregateExecutorBase(engine, abstract_node),
+        m_groups(&m_memoryPool), m_estimatedGroupCount(-1),
+        m_limits(NULL), m_spillDepth(0) { }
 
     // empty destructor defined in .cpp file because of it is called virtually (not inline)
     // same reason for serial and partial
@@ -308,9 +349,29 @@ public:
     void p_execute_tuple(const TableTuple& nextTuple);
     void p_execute_finish();
 
+protected:
+    virtual bool p_init(AbstractPlanNode*, TempTableLimits*);
+
 private:
     virtual bool p_execute(const NValueArray& params);
+
+    bool shouldSpill();
+    void spillTuple(const TableTuple& nextTuple);
+    void outputGroup(AggregateRow* aggregateRow);
+    void outputGroups();
+    void aggregateSpilledPartitions();
+
     HashAggregateMapType m_hash;
+    AggregateHashTable m_groups;
+    /// Groups the planner expects, or -1 to keep them in m_hash rather than m_groups.
+    int64_t m_estimatedGroupCount;
+
+    TempTableLimits* m_limits;
+    boost::scoped_ptr<SpillFile> m_spillFile;
+    /// Input rows of the groups that did not fit in memory, by group by key hash.
+    std::vector<boost::shared_ptr<SpilledTupleRun> > m_spilledPartitions;
+    /// How many times the rows being aggregated have been through a spill file.
+    int m_spillDepth;
 };
 
 /**
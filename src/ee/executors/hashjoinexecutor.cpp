@@ -0,0 +1,264 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+#include "hashjoinexecutor.h"
+
+#include "common/debuglog.h"
+#include "common/tabletuple.h"
+#include "executors/aggregateexecutor.h"
+#include "executors/executorutil.h"
+#include "execution/ProgressMonitorProxy.h"
+#include "expressions/abstractexpression.h"
+#include "storage/table.h"
+#include "storage/temptable.h"
+#include "storage/tableiterator.h"
+#include "storage/TempTableLimits.h"
+#include "plannodes/hashjoinnode.h"
+#include "plannodes/limitnode.h"
+
+#include <algorithm>
+#include <vector>
+
+using namespace std;
+using namespace voltdb;
+
+HashJoinExecutor::~HashJoinExecutor() {
+    TupleSchema::freeTupleSchema(m_keySchema);
+}
+
+bool HashJoinExecutor::p_init(AbstractPlanNode* abstractNode,
+                              TempTableLimits* limits)
+{
+    VOLT_TRACE("init HashJoin Executor");
+    assert(limits);
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+
+    // Init parent first
+    if (!AbstractJoinExecutor::p_init(abstractNode, limits)) {
+        return false;
+    }
+
+    if (m_joinType != JOIN_TYPE_INNER && m_joinType != JOIN_TYPE_LEFT) {
+        VOLT_ERROR("Hash join does not support %s joins",
+                   joinToString(m_joinType).c_str());
+        return false;
+    }
+
+    // NULL tuples for left joins
+    p_init_null_tuples(node->getInputTable(), node->getInputTable(1));
+
+    m_limits = limits;
+
+    // Outer and inner keys share one schema so that they hash and compare alike.
+    // The planner only pairs expressions of the same type but their sizes may differ.
+    const std::vector<AbstractExpression*>& outerExprs = node->getOuterHashExpressions();
+    const std::vector<AbstractExpression*>& innerExprs = node->getInnerHashExpressions();
+    assert(!outerExprs.empty());
+    assert(outerExprs.size() == innerExprs.size());
+    std::vector<ValueType> keyColumnTypes;
+    std::vector<int32_t> keyColumnSizes;
+    std::vector<bool> keyColumnAllowNull(outerExprs.size(), true);
+    std::vector<bool> keyColumnInBytes;
+    for (size_t ii = 0; ii < outerExprs.size(); ii++) {
+        assert(outerExprs[ii]->getValueType() == innerExprs[ii]->getValueType());
+        keyColumnTypes.push_back(innerExprs[ii]->getValueType());
+        keyColumnSizes.push_back(std::max(outerExprs[ii]->getValueSize(),
+                                          innerExprs[ii]->getValueSize()));
+        keyColumnInBytes.push_back(outerExprs[ii]->getInBytes() || innerExprs[ii]->getInBytes());
+    }
+    TupleSchema::freeTupleSchema(m_keySchema);
+    m_keySchema = TupleSchema::createTupleSchema(keyColumnTypes,
+                                                 keyColumnSizes,
+                                                 keyColumnAllowNull,
+                                                 keyColumnInBytes);
+    return true;
+}
+
+bool HashJoinExecutor::initKeyTuple(TableTuple& keyTuple,
+                                    const std::vector<AbstractExpression*>& hashExpressions,
+                                    const TableTuple* outerTuple,
+                                    const TableTuple* innerTuple) const
+{
+    for (int ii = 0; ii < hashExpressions.size(); ii++) {
+        NValue value = hashExpressions[ii]->eval(outerTuple, innerTuple);
+        if (value.isNull()) {
+            return false;
+        }
+        keyTuple.setNValue(ii, value);
+    }
+    return true;
+}
+
+bool HashJoinExecutor::p_execute(const NValueArray &params) {
+    VOLT_DEBUG("executing HashJoin...");
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+    assert(node->getInputTableCount() == 2);
+
+    // output table must be a temp table
+    assert(m_tmpOutputTable);
+
+    Table* outer_table = node->getInputTable();
+    assert(outer_table);
+
+    Table* inner_table = node->getInputTable(1);
+    assert(inner_table);
+
+    VOLT_TRACE ("input table left:\n %s", outer_table->debug().c_str());
+    VOLT_TRACE ("input table right:\n %s", inner_table->debug().c_str());
+
+    AbstractExpression *preJoinPredicate = node->getPreJoinPredicate();
+    AbstractExpression *joinPredicate = node->getJoinPredicate();
+    AbstractExpression *wherePredicate = node->getWherePredicate();
+    const std::vector<AbstractExpression*>& outerExprs = node->getOuterHashExpressions();
+    const std::vector<AbstractExpression*>& innerExprs = node->getInnerHashExpressions();
+
+    LimitPlanNode* limit_node = dynamic_cast<LimitPlanNode*>(node->getInlinePlanNode(PLAN_NODE_TYPE_LIMIT));
+    int limit = CountingPostfilter::NO_LIMIT;
+    int offset = CountingPostfilter::NO_OFFSET;
+    if (limit_node) {
+        limit_node->getLimitAndOffsetByReference(params, limit, offset);
+    }
+
+    int outer_cols = outer_table->columnCount();
+    int inner_cols = inner_table->columnCount();
+    TableTuple outer_tuple(outer_table->schema());
+    TableTuple inner_tuple(inner_table->schema());
+    const TableTuple& null_inner_tuple = m_null_inner_tuple.tuple();
+
+    // A LEFT join has to see every outer tuple exactly once to pad the unmatched ones,
+    // so it always probes with the outer input.
+    const bool buildOnOuter = m_joinType == JOIN_TYPE_INNER &&
+            outer_table->activeTupleCount() < inner_table->activeTupleCount();
+    Table* build_table = buildOnOuter ? outer_table : inner_table;
+    TableTuple& build_tuple = buildOnOuter ? outer_tuple : inner_tuple;
+    TableTuple& probe_tuple = buildOnOuter ? inner_tuple : outer_tuple;
+    const std::vector<AbstractExpression*>& buildExprs = buildOnOuter ? outerExprs : innerExprs;
+    const std::vector<AbstractExpression*>& probeExprs = buildOnOuter ? innerExprs : outerExprs;
+
+    ProgressMonitorProxy pmp(m_engine, this);
+    TempTableMemoryCharge memoryCharge(m_limits);
+    m_hashTable.clear();
+    m_memoryPool.purge();
+
+    //
+    // Build
+    //
+    m_hashTable.reserve(build_table->activeTupleCount());
+    memoryCharge.charge(static_cast<int>(m_hashTable.bucket_count() * sizeof(void*)));
+    const int entryBytes = static_cast<int>(m_keySchema->tupleLength() + TUPLE_HEADER_SIZE +
+                                            sizeof(HashJoinMapType::value_type) + 2 * sizeof(void*));
+    PoolBackedTupleStorage buildKeyStorage;
+    buildKeyStorage.init(m_keySchema, &m_memoryPool);
+    TableTuple& buildKey = buildKeyStorage;
+    TableIterator buildIterator = build_table->iterator();
+    while (buildIterator.next(build_tuple)) {
+        pmp.countdownProgress();
+        // An outer tuple failing the pre-join predicate can't match any inner tuple
+        if (buildOnOuter && preJoinPredicate != NULL &&
+                !preJoinPredicate->eval(&outer_tuple, NULL).isTrue()) {
+            continue;
+        }
+        if (buildKey.isNullTuple()) {
+            buildKeyStorage.allocateActiveTuple();
+        }
+        if (!initKeyTuple(buildKey,
+                          buildExprs,
+                          buildOnOuter ? &build_tuple : NULL,
+                          buildOnOuter ? NULL : &build_tuple)) {
+            // Reuse the key storage, a NULL key never matches
+            continue;
+        }
+        memoryCharge.charge(entryBytes);
+        m_hashTable.insert(HashJoinMapType::value_type(buildKey, build_tuple.address()));
+        buildKey.move(NULL);
+    }
+
+    //
+    // Probe
+    //
+    CountingPostfilter postfilter(m_tmpOutputTable, wherePredicate, limit, offset);
+
+    TableTuple join_tuple;
+    if (m_aggExec != NULL) {
+        VOLT_TRACE("Init inline aggregate...");
+        const TupleSchema * aggInputSchema = node->getTupleSchemaPreAgg();
+        join_tuple = m_aggExec->p_execute_init(params, &pmp, aggInputSchema, m_tmpOutputTable, &postfilter);
+    } else {
+        join_tuple = m_tmpOutputTable->tempTuple();
+    }
+
+    PoolBackedTupleStorage probeKeyStorage;
+    probeKeyStorage.init(m_keySchema, &m_memoryPool);
+    probeKeyStorage.allocateActiveTuple();
+    TableTuple& probeKey = probeKeyStorage;
+
+    TableIterator probeIterator = buildOnOuter ? inner_table->iterator() :
+                                                 outer_table->iteratorDeletingAsWeGo();
+    while (postfilter.isUnderLimit() && probeIterator.next(probe_tuple)) {
+        pmp.countdownProgress();
+
+        bool outerMatch = false;
+        if ((buildOnOuter || preJoinPredicate == NULL ||
+                    preJoinPredicate->eval(&outer_tuple, NULL).isTrue()) &&
+                initKeyTuple(probeKey,
+                             probeExprs,
+                             buildOnOuter ? NULL : &probe_tuple,
+                             buildOnOuter ? &probe_tuple : NULL)) {
+            std::pair<HashJoinMapType::const_iterator, HashJoinMapType::const_iterator> matches =
+                    m_hashTable.equal_range(probeKey);
+            for (HashJoinMapType::const_iterator it = matches.first;
+                    it != matches.second && postfilter.isUnderLimit(); ++it) {
+                build_tuple.move(it->second);
+                if (joinPredicate == NULL || joinPredicate->eval(&outer_tuple, &inner_tuple).isTrue()) {
+                    outerMatch = true;
+                    if (postfilter.eval(&outer_tuple, &inner_tuple)) {
+                        join_tuple.setNValues(0, outer_tuple, 0, outer_cols);
+                        join_tuple.setNValues(outer_cols, inner_tuple, 0, inner_cols);
+                        outputTuple(postfilter, join_tuple, pmp);
+                    }
+                }
+            }
+        }
+
+        //
+        // Left Outer Join
+        //
+        if (m_joinType == JOIN_TYPE_LEFT && !outerMatch && postfilter.isUnderLimit()) {
+            // Still needs to pass the filter
+            if (postfilter.eval(&outer_tuple, &null_inner_tuple)) {
+                join_tuple.setNValues(0, outer_tuple, 0, outer_cols);
+                join_tuple.setNValues(outer_cols, null_inner_tuple, 0, inner_cols);
+                outputTuple(postfilter, join_tuple, pmp);
+            }
+        }
+    }
+
+    if (m_aggExec != NULL) {
+        m_aggExec->p_execute_finish();
+    }
+
+    m_hashTable.clear();
+    m_memoryPool.purge();
+
+    cleanupInputTempTable(inner_table);
+    cleanupInputTempTable(outer_table);
+
+    return (true);
+}
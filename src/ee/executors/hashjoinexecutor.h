@@ -0,0 +1,79 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef HSTOREHASHJOINEXECUTOR_H
+#define HSTOREHASHJOINEXECUTOR_H
+
+#include "common/common.h"
+#include "common/Pool.hpp"
+#include "common/tabletuple.h"
+#include "executors/abstractjoinexecutor.h"
+
+#include "boost/unordered_map.hpp"
+
+namespace voltdb {
+
+class AbstractExpression;
+
+/**
+ * Executor for PLAN_NODE_TYPE_HASHJOIN.
+ *
+ * Builds a hash table on the hash key values of one input and probes it with
+ * the other, so each input is read once. LEFT joins always build on the inner
+ * input and probe with the outer one, which keeps the null padding logic the
+ * same as for the nested loop join. INNER joins build on whichever input has
+ * fewer tuples. Tuples with a NULL key value never match and are not hashed.
+ *
+ * The hash table is charged to the fragment's TempTableLimits while it exists,
+ * so a build side that does not fit fails the query the same way an oversized
+ * temp table would.
+ */
+class HashJoinExecutor : public AbstractJoinExecutor {
+    public:
+        HashJoinExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node) :
+            AbstractJoinExecutor(engine, abstract_node),
+            m_keySchema(NULL),
+            m_limits(NULL) { }
+        ~HashJoinExecutor();
+
+    private:
+        typedef boost::unordered_multimap<TableTuple,
+                                          char*,
+                                          TableTupleHasher,
+                                          TableTupleEqualityChecker> HashJoinMapType;
+
+        bool p_init(AbstractPlanNode*, TempTableLimits* limits);
+        bool p_execute(const NValueArray &params);
+
+        /**
+         * Evaluate the hash expressions into the key tuple.
+         * @return false if any key value is NULL, such a tuple can not match anything.
+         */
+        bool initKeyTuple(TableTuple& keyTuple,
+                          const std::vector<AbstractExpression*>& hashExpressions,
+                          const TableTuple* outerTuple,
+                          const TableTuple* innerTuple) const;
+
+        TupleSchema* m_keySchema;
+        TempTableLimits* m_limits;
+        Pool m_memoryPool;
+        HashJoinMapType m_hashTable;
+};
+
+}
+
+#endif
@@ -141,6 +141,10 @@ bool IndexScanExecutor::p_init(AbstractPlanNode *abstractNode,
     m_lookupType = m_node->getLookupType();
     m_sortDirection = m_node->getSortDirection();
 
+    if (m_node->isPredicateBatchable()) {
+        m_batchPredicate.reset(BatchPredicate::compile(m_node->getPredicate(), targetTable->schema()));
+    }
+
     VOLT_DEBUG("IndexScan: %s.%s\n", targetTable->name().c_str(), tableIndex->getName().c_str());
 
     return true;
@@ -187,8 +191,11 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
         VOLT_DEBUG("Post Expression:\n%s", post_expression->debug(true).c_str());
     }
 
+    // A batch predicate leaves only the limit and offset to the postfilter
+    bool batched = m_batchPredicate && m_batchPredicate->bind();
+
     // Initialize the postfilter
-    CountingPostfilter postfilter(m_outputTable, post_expression, limit, offset);
+    CountingPostfilter postfilter(m_outputTable, batched ? NULL : post_expression, limit, offset);
 
     TableTuple temp_tuple;
     ProgressMonitorProxy pmp(m_engine, this);
@@ -371,7 +378,7 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
     // Now loop through each tuple given to us by the iterator
     //
 
-    TableTuple tuple;
+    TableTuple tuple(tableIndex->getTupleSchema());
     if (activeNumOfSearchKeys > 0) {
         VOLT_TRACE("INDEX_LOOKUP_TYPE(%d) m_numSearchkeys(%d) key:%s",
                 localLookupType, activeNumOfSearchKeys, searchKey.debugNoHeader().c_str());
@@ -422,6 +429,10 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
         tableIndex->moveToEnd(toStartActually, indexCursor);
     }
 
+    // Tuples that got past the end expression, waiting for the batch predicate
+    char* batch[BatchPredicate::BATCH_SIZE];
+    int batchCount = 0;
+
     //
     // We have to different nextValue() methods for different lookup types
     //
@@ -455,6 +466,14 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
             VOLT_TRACE("End Expression evaluated to false, stopping scan");
             break;
         }
+        if (batched) {
+            batch[batchCount++] = tuple.address();
+            if (batchCount == BatchPredicate::BATCH_SIZE) {
+                outputBatch(batch, batchCount, tuple, temp_tuple, postfilter, pmp);
+                batchCount = 0;
+            }
+            continue;
+        }
         //
         // Then apply our post-predicate and LIMIT/OFFSET to do further filtering
         //
@@ -470,6 +489,9 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
             pmp.countdownProgress();
         }
     }
+    if (batchCount > 0) {
+        outputBatch(batch, batchCount, tuple, temp_tuple, postfilter, pmp);
+    }
 
     if (m_aggExec != NULL) {
         m_aggExec->p_execute_finish();
@@ -480,6 +502,34 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
     return true;
 }
 
+void IndexScanExecutor::outputBatch(char* const* batch, int count, TableTuple& tuple, TableTuple& temp_tuple,
+                                    CountingPostfilter& postfilter, ProgressMonitorProxy& pmp) {
+    char selected[BatchPredicate::BATCH_SIZE];
+    if ( ! m_batchPredicate->evaluate(batch, count, selected)) {
+        // Let the usual evaluation report the arithmetic overflow
+        for (int ii = 0; ii < count; ++ii) {
+            tuple.move(batch[ii]);
+            selected[ii] = m_node->getPredicate()->eval(&tuple, NULL).isTrue();
+        }
+    }
+    for (int ii = 0; ii < count && postfilter.isUnderLimit(); ++ii) {
+        if ( ! selected[ii]) {
+            continue;
+        }
+        tuple.move(batch[ii]);
+        if (postfilter.eval(&tuple, NULL)) {
+            if (m_projector.numSteps() > 0) {
+                m_projector.exec(temp_tuple, tuple);
+                outputTuple(postfilter, temp_tuple);
+            }
+            else {
+                outputTuple(postfilter, tuple);
+            }
+            pmp.countdownProgress();
+        }
+    }
+}
+
 void IndexScanExecutor::outputTuple(CountingPostfilter& postfilter, TableTuple& tuple) {
     if (m_aggExec != NULL) {
         m_aggExec->p_execute_tuple(tuple);
@@ -49,8 +49,10 @@
 #include "common/tabletuple.h"
 #include "executors/abstractexecutor.h"
 #include "executors/OptimizedProjector.hpp"
+#include "expressions/BatchPredicate.h"
 #include "indexes/tableindex.h"
 
+#include "boost/scoped_ptr.hpp"
 #include "boost/shared_array.hpp"
 
 namespace voltdb {
@@ -68,6 +70,7 @@ class ProjectionPlanNode;
 class LimitPlanNode;
 
 class AggregateExecutorBase;
+class ProgressMonitorProxy;
 
 struct CountingPostfilter;
 
@@ -112,6 +115,8 @@ private:
                 TempTableLimits* limits);
     bool p_execute(const NValueArray &params);
     void outputTuple(CountingPostfilter& postfilter, TableTuple& tuple);
+    void outputBatch(char* const* batch, int count, TableTuple& tuple, TableTuple& temp_tuple,
+                     CountingPostfilter& postfilter, ProgressMonitorProxy& pmp);
 
 
     // Data in this class is arranged roughly in the order it is read for
@@ -141,6 +146,7 @@ private:
     char* m_searchKeyBackingStore;
 
     AggregateExecutorBase* m_aggExec;
+    boost::scoped_ptr<BatchPredicate> m_batchPredicate;
 };
 
 }
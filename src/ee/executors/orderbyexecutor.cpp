@@ -51,6 +51,7 @@
 #include "execution/ProgressMonitorProxy.h"
 #include "plannodes/orderbynode.h"
 #include "plannodes/limitnode.h"
+#include "storage/SpillFile.h"
 #include "storage/table.h"
 #include "storage/temptable.h"
 #include "storage/tableiterator.h"
@@ -59,6 +60,8 @@
 #include <algorithm>
 #include <vector>
 
+#include "boost/shared_ptr.hpp"
+
 using namespace voltdb;
 using namespace std;
 
@@ -67,6 +70,7 @@ OrderByExecutor::p_init(AbstractPlanNode* abstract_node,
                         TempTableLimits* limits)
 {
     VOLT_TRACE("init OrderBy Executor");
+    m_limits = limits;
 
     OrderByPlanNode* node = dynamic_cast<OrderByPlanNode*>(abstract_node);
     assert(node);
@@ -132,8 +136,23 @@ OrderByExecutor::p_execute(const NValueArray &params)
     // If limit == 0 we have no work here.  There's no need to sort anything,
     // or to fetch the vector of tuples from the input.  If limit < 0 we
     // need to do the loop below, though.  The only case where we can skip
-    // is if limit == 0.
-    if (limit != 0) {
+    // is if limit == 0.  A sort with no limit that may not fit in memory
+    // is done in runs on disk instead, and a sort with a limit only has to
+    // keep the tuples that can make it past the limit.
+    if (limit < 0 && m_limits != NULL && m_limits->spillingEnabled() &&
+        input_table->activeTupleCount() * tuple.tupleLength() > m_limits->getSpillThreshold() / 4) {
+        ProgressMonitorProxy pmp(m_engine, this);
+        sortBySpilling(input_table, output_table,
+                AbstractExecutor::TupleComparer(node->getSortExpressions(), node->getSortDirections()),
+                m_limits, &pmp);
+    }
+    else if (limit > 0) {
+        ProgressMonitorProxy pmp(m_engine, this);
+        sortWithLimit(input_table, output_table,
+                AbstractExecutor::TupleComparer(node->getSortExpressions(), node->getSortDirections()),
+                limit, offset, m_limits, &pmp);
+    }
+    else if (limit != 0) {
         vector<TableTuple> xs;
         ProgressMonitorProxy pmp(m_engine, this);
         while (iterator.next(tuple))
@@ -145,39 +164,12 @@ OrderByExecutor::p_execute(const NValueArray &params)
         VOLT_TRACE("\n***** Input Table PreSort:\n '%s'",
                    input_table->debug().c_str());
 
+        sort(xs.begin(), xs.end(),
+                AbstractExecutor::TupleComparer(node->getSortExpressions(), node->getSortDirections()));
 
-        if (limit >= 0 && xs.begin() + limit + offset < xs.end()) {
-            // partial sort
-            partial_sort(xs.begin(), xs.begin() + limit + offset, xs.end(),
-                    AbstractExecutor::TupleComparer(node->getSortExpressions(), node->getSortDirections()));
-        } else {
-            // full sort
-            sort(xs.begin(), xs.end(),
-                    AbstractExecutor::TupleComparer(node->getSortExpressions(), node->getSortDirections()));
-        }
-
-        int tuple_ctr = 0;
-        int tuple_skipped = 0;
-        // If (limit < 0), so we don't have a limit at all, then just compare
-        // the iterator with the end.  Otherwise check that the tuple_counter is
-        // not over the limit.
-        for (vector<TableTuple>::iterator it = xs.begin();
-             ((limit < 0) || (tuple_ctr < limit)) && it != xs.end();
-             it++)
-        {
-            //
-            // Check if has gone past the offset
-            //
-            if (tuple_skipped < offset) {
-                tuple_skipped++;
-                continue;
-            }
-
-            VOLT_TRACE("\n***** Input Table PostSort:\n '%s'",
-                       input_table->debug().c_str());
+        for (vector<TableTuple>::iterator it = xs.begin(); it != xs.end(); it++) {
             output_table->insertTempTuple(*it);
             pmp.countdownProgress();
-            tuple_ctr += 1;
         }
     }
     VOLT_TRACE("Result of OrderBy:\n '%s'", output_table->debug().c_str());
@@ -187,5 +179,153 @@ OrderByExecutor::p_execute(const NValueArray &params)
     return true;
 }
 
+void OrderByExecutor::sortWithLimit(Table* input_table, TempTable* output_table,
+                                    const AbstractExecutor::TupleComparer& comparer,
+                                    int limit, int offset,
+                                    TempTableLimits* limits,
+                                    ProgressMonitorProxy* pmp)
+{
+    // Only the first limit + offset tuples in sort order can be output, so
+    // keep just those in a heap with the last of them on top, and push out
+    // the top whenever a tuple that sorts before it comes along.
+    const size_t skipped = std::max(offset, 0);
+    const size_t heapSize = static_cast<size_t>(std::min(static_cast<int64_t>(limit + skipped),
+                                                         input_table->activeTupleCount()));
+    if (heapSize == 0) {
+        return;
+    }
+    TempTableMemoryCharge heapCharge(limits);
+    heapCharge.charge(static_cast<int>(heapSize * sizeof(TableTuple)));
+    vector<TableTuple> heap;
+    heap.reserve(heapSize);
+
+    TableIterator iterator = input_table->iterator();
+    TableTuple tuple(input_table->schema());
+    while (iterator.next(tuple)) {
+        if (pmp != NULL) {
+            pmp->countdownProgress();
+        }
+        assert(tuple.isActive());
+        if (heap.size() < heapSize) {
+            heap.push_back(tuple);
+            push_heap(heap.begin(), heap.end(), comparer);
+        }
+        else if (comparer(tuple, heap.front())) {
+            pop_heap(heap.begin(), heap.end(), comparer);
+            heap.back() = tuple;
+            push_heap(heap.begin(), heap.end(), comparer);
+        }
+    }
+    sort_heap(heap.begin(), heap.end(), comparer);
+
+    for (size_t ii = skipped; ii < heap.size(); ++ii) {
+        output_table->insertTempTuple(heap[ii]);
+        if (pmp != NULL) {
+            pmp->countdownProgress();
+        }
+    }
+}
+
+namespace {
+
+// Bytes of each sorted run that are written or read back at a time.
+const int SPILL_CHUNK_SIZE = 64 * 1024;
+
+typedef pair<TableTuple, SpilledTupleRun*> MergeHead;
+
+// Orders a heap so the smallest of the run heads is on top.
+struct MergeHeadComparer {
+    MergeHeadComparer(const AbstractExecutor::TupleComparer& comparer) : m_comparer(comparer) { }
+
+    bool operator()(const MergeHead& a, const MergeHead& b) const {
+        return m_comparer(b.first, a.first);
+    }
+
+    const AbstractExecutor::TupleComparer& m_comparer;
+};
+
+}
+
+void OrderByExecutor::sortBySpilling(Table* input_table, TempTable* output_table,
+                                     const AbstractExecutor::TupleComparer& comparer,
+                                     TempTableLimits* limits,
+                                     ProgressMonitorProxy* pmp)
+{
+    const TupleSchema* schema = input_table->schema();
+    TableTuple tuple(schema);
+    const int tupleLength = tuple.tupleLength();
+    // A quarter of the spill threshold for sorting runs, the input only has to
+    // be held a block at a time and the output table spills as it grows.
+    const int64_t runTuples = std::max(static_cast<int64_t>(1),
+                                       limits->getSpillThreshold() / 4 / tupleLength);
+    const int chunkTuples = std::max(1, SPILL_CHUNK_SIZE / tupleLength);
+
+    SpillFile spillFile(limits);
+    vector<boost::shared_ptr<SpilledTupleRun> > runs;
+    {
+        TempTableMemoryCharge runCharge(limits);
+        runCharge.charge(static_cast<int>(runTuples * (tupleLength + sizeof(TableTuple))));
+        vector<char> runStorage(static_cast<size_t>(runTuples) * tupleLength);
+        vector<TableTuple> xs;
+        xs.reserve(static_cast<size_t>(runTuples));
+
+        TableIterator& iterator = input_table->iteratorDeletingAsWeGo();
+        bool more = true;
+        while (more) {
+            more = iterator.next(tuple);
+            if (more) {
+                if (pmp != NULL) {
+                    pmp->countdownProgress();
+                }
+                char* storage = &runStorage[xs.size() * tupleLength];
+                ::memcpy(storage, tuple.address(), tupleLength);
+                xs.push_back(TableTuple(storage, schema));
+                if (xs.size() < runTuples) {
+                    continue;
+                }
+            }
+            if (xs.empty()) {
+                break;
+            }
+            sort(xs.begin(), xs.end(), comparer);
+            boost::shared_ptr<SpilledTupleRun> run(new SpilledTupleRun(&spillFile, tupleLength, chunkTuples));
+            for (vector<TableTuple>::iterator it = xs.begin(); it != xs.end(); ++it) {
+                run->append(it->address());
+            }
+            run->finishWriting();
+            runs.push_back(run);
+            xs.clear();
+        }
+    }
+    VOLT_DEBUG("OrderBy spilled %d sorted runs", static_cast<int>(runs.size()));
+
+    // Merge the runs, keeping the head of each run in a heap.
+    vector<MergeHead> heads;
+    MergeHeadComparer headComparer(comparer);
+    for (size_t ii = 0; ii < runs.size(); ++ii) {
+        const char* data = runs[ii]->next();
+        if (data != NULL) {
+            heads.push_back(MergeHead(TableTuple(const_cast<char*>(data), schema), runs[ii].get()));
+        }
+    }
+    make_heap(heads.begin(), heads.end(), headComparer);
+    while ( ! heads.empty()) {
+        pop_heap(heads.begin(), heads.end(), headComparer);
+        MergeHead& head = heads.back();
+        output_table->insertTempTuple(head.first);
+        if (pmp != NULL) {
+            pmp->countdownProgress();
+        }
+        const char* data = head.second->next();
+        if (data == NULL) {
+            heads.pop_back();
+        }
+        else {
+            head.first.move(const_cast<char*>(data));
+            push_heap(heads.begin(), heads.end(), headComparer);
+        }
+    }
+}
+
 OrderByExecutor::~OrderByExecutor() {
 }
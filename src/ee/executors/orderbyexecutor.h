@@ -55,6 +55,8 @@ namespace voltdb {
     class UndoLog;
     class ReadWriteSet;
     class LimitPlanNode;
+    class ProgressMonitorProxy;
+    class TempTable;
 
     /**
      *
@@ -62,10 +64,32 @@ namespace voltdb {
     class OrderByExecutor : public AbstractExecutor {
     public:
         OrderByExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node)
-            : AbstractExecutor(engine, abstract_node), limit_node(NULL)
+            : AbstractExecutor(engine, abstract_node), limit_node(NULL), m_limits(NULL)
             { }
         ~OrderByExecutor();
 
+        /**
+         * External merge sort for inputs too big to sort in memory when temp
+         * tables may spill: sort runs of the input in a bounded buffer, write
+         * them to a spill file and merge them into the output table.
+         * The run buffer is charged to limits, which must have spilling enabled.
+         */
+        static void sortBySpilling(Table* input_table, TempTable* output_table,
+                                   const AbstractExecutor::TupleComparer& comparer,
+                                   TempTableLimits* limits,
+                                   ProgressMonitorProxy* pmp);
+
+        /**
+         * Top-N sort for an inlined limit: keep only the first limit + offset
+         * tuples in a bounded heap instead of sorting the whole input, and
+         * charge the heap to the temp table limits, if any.
+         */
+        static void sortWithLimit(Table* input_table, TempTable* output_table,
+                                  const AbstractExecutor::TupleComparer& comparer,
+                                  int limit, int offset,
+                                  TempTableLimits* limits,
+                                  ProgressMonitorProxy* pmp);
+
     protected:
         bool p_init(AbstractPlanNode* abstract_node,
                     TempTableLimits* limits);
@@ -73,6 +97,7 @@ namespace voltdb {
 
     private:
         LimitPlanNode *limit_node;
+        TempTableLimits* m_limits;
     };
 
 }
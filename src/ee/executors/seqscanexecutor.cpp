@@ -60,6 +60,7 @@
 #include "storage/temptable.h"
 #include "storage/tablefactory.h"
 #include "storage/tableiterator.h"
+#include "storage/TempTableLimits.h"
 
 using namespace voltdb;
 
@@ -82,7 +83,8 @@ bool SeqScanExecutor::p_init(AbstractPlanNode* abstract_node,
     // the tuples. We are guarenteed that no Executor will ever
     // modify an input table, so this operation is safe
     //
-    if (node->getPredicate() != NULL || node->getInlinePlanNodes().size() > 0) {
+    if (node->getPredicate() != NULL || node->getInlinePlanNodes().size() > 0 ||
+        node->getParallelSliceColumn() >= 0 || node->getSemiJoinProbeColumn() >= 0) {
         // Create output table based on output schema from the plan
         const std::string& temp_name = (node->isSubQuery()) ?
                 node->getChildren()[0]->getOutputTable()->name():
@@ -103,6 +105,15 @@ bool SeqScanExecutor::p_init(AbstractPlanNode* abstract_node,
     // Inline aggregation can be serial, partial or hash
     m_aggExec = voltdb::getInlineAggregateExecutor(node);
 
+    m_limits = limits;
+
+    // Tuples of a subquery's temp table may be freed as the scan goes,
+    // so only persistent tables are scanned a batch at a time.
+    if (node->isPredicateBatchable() && ! isSubquery) {
+        m_batchPredicate.reset(BatchPredicate::compile(node->getPredicate(),
+                                                       node->getTargetTable()->schema()));
+    }
+
     return true;
 }
 
@@ -140,11 +151,7 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
     // change any nodes in our expression tree to be ready for the
     // projection operations in execute
     //
-    int num_of_columns = -1;
     ProjectionPlanNode* projection_node = dynamic_cast<ProjectionPlanNode*>(node->getInlinePlanNode(PLAN_NODE_TYPE_PROJECTION));
-    if (projection_node != NULL) {
-        num_of_columns = static_cast<int> (projection_node->getOutputColumnExpressions().size());
-    }
     //
     // OPTIMIZATION: NESTED LIMIT
     // How nice! We can also cut off our scanning with a nested limit!
@@ -159,8 +166,24 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
     // at the TargetTable. Therefore, there is nothing we more we need
     // to do here
     //
+    // Each partition scans only its slice of a replicated table
+    // that every partition is scanning at the same time.
+    const int sliceColumn = node->getParallelSliceColumn();
+
+    // The inner scan of a join leaves out the rows whose join key is not
+    // among the keys of the join's outer input, which has already executed.
+    int probeColumn = -1;
+    TempTableMemoryCharge filterCharge(m_limits);
+    if (node->getSemiJoinSource() != NULL) {
+        m_semiJoinFilter.build(node->getSemiJoinSource()->getOutputTable(),
+                               node->getSemiJoinSourceColumn());
+        filterCharge.charge(static_cast<int>(m_semiJoinFilter.byteSize()));
+        probeColumn = node->getSemiJoinProbeColumn();
+    }
+
     if (node->getPredicate() != NULL || projection_node != NULL ||
-        limit_node != NULL || m_aggExec != NULL)
+        limit_node != NULL || m_aggExec != NULL || sliceColumn >= 0 ||
+        node->getSemiJoinProbeColumn() >= 0)
     {
         //
         // Just walk through the table using our iterator and apply
@@ -181,8 +204,12 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
         if (limit_node) {
             limit_node->getLimitAndOffsetByReference(params, limit, offset);
         }
+        // A batch predicate leaves only the limit and offset to the postfilter
+        BatchPredicate* batchPredicate =
+            (m_batchPredicate && m_batchPredicate->bind()) ? m_batchPredicate.get() : NULL;
+
         // Initialize the postfilter
-        CountingPostfilter postfilter(m_tmpOutputTable, predicate, limit, offset);
+        CountingPostfilter postfilter(m_tmpOutputTable, batchPredicate ? NULL : predicate, limit, offset);
 
         ProgressMonitorProxy pmp(m_engine, this);
         TableTuple temp_tuple;
@@ -198,40 +225,73 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
             temp_tuple = m_tmpOutputTable->tempTuple();
         }
 
-        while (postfilter.isUnderLimit() && iterator.next(tuple))
-        {
+        if (batchPredicate != NULL) {
+            while (postfilter.isUnderLimit())
+            {
+                char* batch[BatchPredicate::BATCH_SIZE];
+                char selected[BatchPredicate::BATCH_SIZE];
+                int count = 0;
+                while (count < BatchPredicate::BATCH_SIZE && iterator.next(tuple)) {
+                    pmp.countdownProgress();
+                    if (sliceColumn >= 0 && ! m_engine->isLocalSite(tuple.getNValue(sliceColumn))) {
+                        continue;
+                    }
+                    if (probeColumn >= 0 && ! m_semiJoinFilter.mayContain(tuple.getNValue(probeColumn))) {
+                        ++m_semiJoinPrunedRows;
+                        continue;
+                    }
+                    batch[count++] = tuple.address();
+                }
+                if (count == 0) {
+                    break;
+                }
+                if ( ! batchPredicate->evaluate(batch, count, selected)) {
+                    // Let the usual evaluation report the arithmetic overflow
+                    for (int ii = 0; ii < count; ++ii) {
+                        tuple.move(batch[ii]);
+                        selected[ii] = predicate->eval(&tuple, NULL).isTrue();
+                    }
+                }
+                for (int ii = 0; ii < count && postfilter.isUnderLimit(); ++ii) {
+                    if ( ! selected[ii]) {
+                        continue;
+                    }
+                    tuple.move(batch[ii]);
+                    if (postfilter.eval(&tuple, NULL)) {
+                        outputMatch(postfilter, tuple, temp_tuple, projection_node);
+                        pmp.countdownProgress();
+                    }
+                }
+            }
+        }
+        else {
+            while (postfilter.isUnderLimit() && iterator.next(tuple))
+            {
 #if   defined(VOLT_TRACE_ENABLED)
-            int tuple_ctr = 0;
+                int tuple_ctr = 0;
 #endif
-            VOLT_TRACE("INPUT TUPLE: %s, %d/%d\n",
-                       tuple.debug(input_table->name()).c_str(),
-                       ++tuple_ctr,
-                       (int)input_table->activeTupleCount());
-            pmp.countdownProgress();
+                VOLT_TRACE("INPUT TUPLE: %s, %d/%d\n",
+                           tuple.debug(input_table->name()).c_str(),
+                           ++tuple_ctr,
+                           (int)input_table->activeTupleCount());
+                pmp.countdownProgress();
+
+                if (sliceColumn >= 0 && ! m_engine->isLocalSite(tuple.getNValue(sliceColumn))) {
+                    continue;
+                }
+                if (probeColumn >= 0 && ! m_semiJoinFilter.mayContain(tuple.getNValue(probeColumn))) {
+                    ++m_semiJoinPrunedRows;
+                    continue;
+                }
 
-            //
-            // For each tuple we need to evaluate it against our predicate and limit/offset
-            //
-            if (postfilter.eval(&tuple, NULL))
-            {
                 //
-                // Nested Projection
-                // Project (or replace) values from input tuple
+                // For each tuple we need to evaluate it against our predicate and limit/offset
                 //
-                if (projection_node != NULL)
-                {
-                    VOLT_TRACE("inline projection...");
-                    for (int ctr = 0; ctr < num_of_columns; ctr++) {
-                        NValue value = projection_node->getOutputColumnExpressions()[ctr]->eval(&tuple, NULL);
-                        temp_tuple.setNValue(ctr, value);
-                    }
-                    outputTuple(postfilter, temp_tuple);
-                }
-                else
+                if (postfilter.eval(&tuple, NULL))
                 {
-                    outputTuple(postfilter, tuple);
+                    outputMatch(postfilter, tuple, temp_tuple, projection_node);
+                    pmp.countdownProgress();
                 }
-                pmp.countdownProgress();
             }
         }
 
@@ -248,6 +308,28 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
     return true;
 }
 
+void SeqScanExecutor::outputMatch(CountingPostfilter& postfilter, TableTuple& tuple,
+                                  TableTuple& temp_tuple, ProjectionPlanNode* projection_node) {
+    //
+    // Nested Projection
+    // Project (or replace) values from input tuple
+    //
+    if (projection_node != NULL)
+    {
+        VOLT_TRACE("inline projection...");
+        const std::vector<AbstractExpression*>& columns = projection_node->getOutputColumnExpressions();
+        for (int ctr = 0; ctr < columns.size(); ctr++) {
+            NValue value = columns[ctr]->eval(&tuple, NULL);
+            temp_tuple.setNValue(ctr, value);
+        }
+        outputTuple(postfilter, temp_tuple);
+    }
+    else
+    {
+        outputTuple(postfilter, tuple);
+    }
+}
+
 void SeqScanExecutor::outputTuple(CountingPostfilter& postfilter, TableTuple& tuple) {
     if (m_aggExec != NULL) {
         m_aggExec->p_execute_tuple(tuple);
@@ -50,10 +50,15 @@
 #include "common/valuevector.h"
 #include "executors/abstractexecutor.h"
 #include "execution/VoltDBEngine.h"
+#include "executors/SemiJoinFilter.h"
+#include "expressions/BatchPredicate.h"
+
+#include "boost/scoped_ptr.hpp"
 
 namespace voltdb
 {
     class AggregateExecutorBase;
+    class ProjectionPlanNode;
     struct CountingPostfilter;
 
     class SeqScanExecutor : public AbstractExecutor {
@@ -61,7 +66,21 @@ namespace voltdb
         SeqScanExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node)
             : AbstractExecutor(engine, abstract_node)
             , m_aggExec(NULL)
+            , m_limits(NULL)
+            , m_semiJoinPrunedRows(0)
         {}
+
+        /**
+         * Return how many rows the scan has left out since the last call
+         * because the outer input of its join had no key they could match.
+         */
+        int64_t takeSemiJoinPrunedRows()
+        {
+            int64_t prunedRows = m_semiJoinPrunedRows;
+            m_semiJoinPrunedRows = 0;
+            return prunedRows;
+        }
+
     protected:
         bool p_init(AbstractPlanNode* abstract_node,
                     TempTableLimits* limits);
@@ -70,8 +89,14 @@ namespace voltdb
     private:
 
         void outputTuple(CountingPostfilter& postfilter, TableTuple& tuple);
+        void outputMatch(CountingPostfilter& postfilter, TableTuple& tuple,
+                         TableTuple& temp_tuple, ProjectionPlanNode* projection_node);
 
         AggregateExecutorBase* m_aggExec;
+        boost::scoped_ptr<BatchPredicate> m_batchPredicate;
+        TempTableLimits* m_limits;
+        SemiJoinFilter m_semiJoinFilter;
+        int64_t m_semiJoinPrunedRows;
     };
 }
 
@@ -0,0 +1,376 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "BatchPredicate.h"
+
+#include "common/NValue.hpp"
+#include "common/TupleSchema.h"
+#include "common/ValuePeeker.hpp"
+#include "common/tabletuple.h"
+#include "common/value_defs.h"
+#include "expressions/abstractexpression.h"
+#include "expressions/tuplevalueexpression.h"
+
+#include <algorithm>
+#include <cassert>
+#include <memory>
+
+namespace voltdb {
+
+namespace {
+
+bool isBatchableType(ValueType type) {
+    switch (type) {
+    case VALUE_TYPE_TINYINT:
+    case VALUE_TYPE_SMALLINT:
+    case VALUE_TYPE_INTEGER:
+    case VALUE_TYPE_BIGINT:
+    case VALUE_TYPE_TIMESTAMP:
+        return true;
+    default:
+        return false;
+    }
+}
+
+bool isComparison(ExpressionType type) {
+    switch (type) {
+    case EXPRESSION_TYPE_COMPARE_EQUAL:
+    case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+    case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+    case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+    case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+    case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO:
+        return true;
+    default:
+        return false;
+    }
+}
+
+// The same overflow checks as the NValue BIGINT arithmetic.
+inline bool addOverflows(int64_t lhs, int64_t rhs) {
+    return ((lhs^rhs) | (((lhs^(~(lhs^rhs) & (1L << (sizeof(int64_t)*CHAR_BIT-1))))+rhs)^rhs)) >= 0;
+}
+
+inline bool subtractOverflows(int64_t lhs, int64_t rhs) {
+    return ((lhs^rhs) & (((lhs ^ ((lhs^rhs) & (1L << (sizeof(int64_t)*CHAR_BIT-1))))-rhs)^rhs)) < 0;
+}
+
+inline bool multiplyOverflows(int64_t lhs, int64_t rhs) {
+    if (lhs > 0) {
+        return (rhs > 0) ? lhs > (INT64_MAX / rhs) : rhs < (INT64_MIN / lhs);
+    }
+    return (rhs > 0) ? lhs < (INT64_MIN / rhs) : (lhs != 0 && rhs < (INT64_MAX / lhs));
+}
+
+template <typename T>
+inline void readColumn(char* const* tuples, int count, uint32_t offset, T nullValue,
+                       int64_t* values, char* nulls) {
+    for (int ii = 0; ii < count; ++ii) {
+        T value = *reinterpret_cast<const T*>(tuples[ii] + TUPLE_HEADER_SIZE + offset);
+        values[ii] = value;
+        nulls[ii] = (value == nullValue);
+    }
+}
+
+template <typename Compare>
+inline void compareValues(const int64_t* left, const char* leftNulls,
+                          const int64_t* right, const char* rightNulls,
+                          int count, char* selected, Compare compare) {
+    for (int ii = 0; ii < count; ++ii) {
+        selected[ii] = ! (leftNulls[ii] | rightNulls[ii]) & compare(left[ii], right[ii]);
+    }
+}
+
+struct Equal { bool operator()(int64_t l, int64_t r) const { return l == r; } };
+struct NotEqual { bool operator()(int64_t l, int64_t r) const { return l != r; } };
+struct Less { bool operator()(int64_t l, int64_t r) const { return l < r; } };
+struct Greater { bool operator()(int64_t l, int64_t r) const { return l > r; } };
+struct LessOrEqual { bool operator()(int64_t l, int64_t r) const { return l <= r; } };
+struct GreaterOrEqual { bool operator()(int64_t l, int64_t r) const { return l >= r; } };
+
+}
+
+BatchPredicate* BatchPredicate::compile(const AbstractExpression* predicate, const TupleSchema* schema)
+{
+    if (predicate == NULL) {
+        return NULL;
+    }
+    std::auto_ptr<BatchPredicate> result(new BatchPredicate());
+    result->m_root = result->compileNode(predicate, schema, true);
+    if (result->m_root < 0) {
+        return NULL;
+    }
+    int valueSlots = 0;
+    int booleanSlots = 0;
+    for (size_t ii = 0; ii < result->m_nodes.size(); ++ii) {
+        Node& node = result->m_nodes[ii];
+        if (node.kind == NODE_COMPARISON || node.kind == NODE_CONJUNCTION) {
+            node.slot = BATCH_SIZE * booleanSlots++;
+        }
+        else {
+            node.slot = BATCH_SIZE * valueSlots++;
+        }
+    }
+    result->m_values.resize(BATCH_SIZE * valueSlots);
+    result->m_nulls.resize(BATCH_SIZE * valueSlots);
+    result->m_selections.resize(BATCH_SIZE * booleanSlots);
+    return result.release();
+}
+
+int BatchPredicate::compileNode(const AbstractExpression* expression, const TupleSchema* schema, bool boolean)
+{
+    if (expression == NULL) {
+        return -1;
+    }
+    Node node;
+    node.type = expression->getExpressionType();
+    node.left = -1;
+    node.right = -1;
+    node.offset = 0;
+    node.columnType = VALUE_TYPE_INVALID;
+    node.expression = NULL;
+    node.isTimestamp = false;
+    node.slot = 0;
+
+    if (boolean) {
+        if (node.type == EXPRESSION_TYPE_CONJUNCTION_AND || node.type == EXPRESSION_TYPE_CONJUNCTION_OR) {
+            node.kind = NODE_CONJUNCTION;
+        }
+        else if (isComparison(node.type)) {
+            node.kind = NODE_COMPARISON;
+        }
+        else {
+            return -1;
+        }
+        node.left = compileNode(expression->getLeft(), schema, node.kind == NODE_CONJUNCTION);
+        node.right = compileNode(expression->getRight(), schema, node.kind == NODE_CONJUNCTION);
+        if (node.left < 0 || node.right < 0) {
+            return -1;
+        }
+    }
+    else {
+        switch (node.type) {
+        case EXPRESSION_TYPE_VALUE_TUPLE: {
+            const TupleValueExpression* tve = dynamic_cast<const TupleValueExpression*>(expression);
+            if (tve == NULL || tve->getTupleId() != 0 ||
+                tve->getColumnId() < 0 || tve->getColumnId() >= schema->columnCount()) {
+                return -1;
+            }
+            node.kind = NODE_COLUMN;
+            node.columnType = schema->columnType(tve->getColumnId());
+            if ( ! isBatchableType(node.columnType)) {
+                return -1;
+            }
+            node.offset = schema->getColumnInfo(tve->getColumnId())->offset;
+            node.isTimestamp = (node.columnType == VALUE_TYPE_TIMESTAMP);
+            break;
+        }
+        case EXPRESSION_TYPE_VALUE_CONSTANT:
+        case EXPRESSION_TYPE_VALUE_PARAMETER:
+            node.kind = NODE_CONSTANT;
+            node.expression = expression;
+            break;
+        case EXPRESSION_TYPE_OPERATOR_PLUS:
+        case EXPRESSION_TYPE_OPERATOR_MINUS:
+        case EXPRESSION_TYPE_OPERATOR_MULTIPLY:
+            node.kind = NODE_ARITHMETIC;
+            node.left = compileNode(expression->getLeft(), schema, false);
+            node.right = compileNode(expression->getRight(), schema, false);
+            if (node.left < 0 || node.right < 0 ||
+                m_nodes[node.left].isTimestamp || m_nodes[node.right].isTimestamp) {
+                return -1;
+            }
+            break;
+        default:
+            return -1;
+        }
+    }
+    m_nodes.push_back(node);
+    return static_cast<int>(m_nodes.size() - 1);
+}
+
+bool BatchPredicate::bind()
+{
+    // Children come before their parents, so the constants below a
+    // comparison or an operator have been looked at by the time it is.
+    for (size_t ii = 0; ii < m_nodes.size(); ++ii) {
+        Node& node = m_nodes[ii];
+        if (node.kind == NODE_CONSTANT) {
+            NValue value = node.expression->eval(NULL, NULL);
+            bool isNull = value.isNull();
+            ValueType type = ValuePeeker::peekValueType(value);
+            int64_t bigint = 0;
+            if ( ! isNull) {
+                if ( ! isBatchableType(type)) {
+                    return false;
+                }
+                bigint = ValuePeeker::peekAsBigInt(value);
+            }
+            node.isTimestamp = ( ! isNull && type == VALUE_TYPE_TIMESTAMP);
+            std::fill(m_values.begin() + node.slot, m_values.begin() + node.slot + BATCH_SIZE, bigint);
+            std::fill(m_nulls.begin() + node.slot, m_nulls.begin() + node.slot + BATCH_SIZE, isNull);
+        }
+        else if (node.kind == NODE_ARITHMETIC) {
+            if (m_nodes[node.left].isTimestamp || m_nodes[node.right].isTimestamp) {
+                return false;
+            }
+        }
+        else if (node.kind == NODE_COMPARISON) {
+            // A timestamp only compares to another timestamp or NULL.
+            const Node& left = m_nodes[node.left];
+            const Node& right = m_nodes[node.right];
+            bool leftNull = (left.kind == NODE_CONSTANT && m_nulls[left.slot]);
+            bool rightNull = (right.kind == NODE_CONSTANT && m_nulls[right.slot]);
+            if (left.isTimestamp != right.isTimestamp && ! leftNull && ! rightNull) {
+                return false;
+            }
+        }
+    }
+    return true;
+}
+
+bool BatchPredicate::evaluate(char* const* tuples, int count, char* selected)
+{
+    assert(count <= BATCH_SIZE);
+    if ( ! evaluateBoolean(m_root, tuples, count)) {
+        return false;
+    }
+    std::copy(m_selections.begin() + m_nodes[m_root].slot,
+              m_selections.begin() + m_nodes[m_root].slot + count,
+              selected);
+    return true;
+}
+
+bool BatchPredicate::evaluateValues(int index, char* const* tuples, int count)
+{
+    const Node& node = m_nodes[index];
+    int64_t* values = &m_values[node.slot];
+    char* nulls = &m_nulls[node.slot];
+    switch (node.kind) {
+    case NODE_CONSTANT:
+        return true;
+    case NODE_COLUMN:
+        switch (node.columnType) {
+        case VALUE_TYPE_TINYINT:
+            readColumn<int8_t>(tuples, count, node.offset, INT8_NULL, values, nulls);
+            break;
+        case VALUE_TYPE_SMALLINT:
+            readColumn<int16_t>(tuples, count, node.offset, INT16_NULL, values, nulls);
+            break;
+        case VALUE_TYPE_INTEGER:
+            readColumn<int32_t>(tuples, count, node.offset, INT32_NULL, values, nulls);
+            break;
+        default:
+            readColumn<int64_t>(tuples, count, node.offset, INT64_NULL, values, nulls);
+            break;
+        }
+        return true;
+    default:
+        break;
+    }
+
+    assert(node.kind == NODE_ARITHMETIC);
+    if ( ! evaluateValues(node.left, tuples, count) || ! evaluateValues(node.right, tuples, count)) {
+        return false;
+    }
+    const int64_t* left = &m_values[m_nodes[node.left].slot];
+    const char* leftNulls = &m_nulls[m_nodes[node.left].slot];
+    const int64_t* right = &m_values[m_nodes[node.right].slot];
+    const char* rightNulls = &m_nulls[m_nodes[node.right].slot];
+    bool overflow = false;
+    for (int ii = 0; ii < count; ++ii) {
+        nulls[ii] = leftNulls[ii] | rightNulls[ii];
+        if (nulls[ii]) {
+            continue;
+        }
+        int64_t lhs = left[ii];
+        int64_t rhs = right[ii];
+        switch (node.type) {
+        case EXPRESSION_TYPE_OPERATOR_PLUS:
+            overflow |= addOverflows(lhs, rhs);
+            values[ii] = lhs + rhs;
+            break;
+        case EXPRESSION_TYPE_OPERATOR_MINUS:
+            overflow |= subtractOverflows(lhs, rhs);
+            values[ii] = lhs - rhs;
+            break;
+        default:
+            overflow |= multiplyOverflows(lhs, rhs);
+            values[ii] = lhs * rhs;
+            break;
+        }
+        // Like a BIGINT NValue, the smallest value stands for NULL.
+        nulls[ii] = (values[ii] == INT64_NULL);
+    }
+    return ! overflow;
+}
+
+bool BatchPredicate::evaluateBoolean(int index, char* const* tuples, int count)
+{
+    const Node& node = m_nodes[index];
+    char* selected = &m_selections[node.slot];
+    if (node.kind == NODE_CONJUNCTION) {
+        if ( ! evaluateBoolean(node.left, tuples, count) || ! evaluateBoolean(node.right, tuples, count)) {
+            return false;
+        }
+        const char* left = &m_selections[m_nodes[node.left].slot];
+        const char* right = &m_selections[m_nodes[node.right].slot];
+        if (node.type == EXPRESSION_TYPE_CONJUNCTION_AND) {
+            for (int ii = 0; ii < count; ++ii) {
+                selected[ii] = left[ii] & right[ii];
+            }
+        }
+        else {
+            for (int ii = 0; ii < count; ++ii) {
+                selected[ii] = left[ii] | right[ii];
+            }
+        }
+        return true;
+    }
+
+    assert(node.kind == NODE_COMPARISON);
+    if ( ! evaluateValues(node.left, tuples, count) || ! evaluateValues(node.right, tuples, count)) {
+        return false;
+    }
+    const int64_t* left = &m_values[m_nodes[node.left].slot];
+    const char* leftNulls = &m_nulls[m_nodes[node.left].slot];
+    const int64_t* right = &m_values[m_nodes[node.right].slot];
+    const char* rightNulls = &m_nulls[m_nodes[node.right].slot];
+    switch (node.type) {
+    case EXPRESSION_TYPE_COMPARE_EQUAL:
+        compareValues(left, leftNulls, right, rightNulls, count, selected, Equal());
+        break;
+    case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+        compareValues(left, leftNulls, right, rightNulls, count, selected, NotEqual());
+        break;
+    case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+        compareValues(left, leftNulls, right, rightNulls, count, selected, Less());
+        break;
+    case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+        compareValues(left, leftNulls, right, rightNulls, count, selected, Greater());
+        break;
+    case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+        compareValues(left, leftNulls, right, rightNulls, count, selected, LessOrEqual());
+        break;
+    default:
+        compareValues(left, leftNulls, right, rightNulls, count, selected, GreaterOrEqual());
+        break;
+    }
+    return true;
+}
+
+} // namespace voltdb
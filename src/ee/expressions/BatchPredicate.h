@@ -0,0 +1,108 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef _EE_EXPRESSIONS_BATCHPREDICATE_H_
+#define _EE_EXPRESSIONS_BATCHPREDICATE_H_
+
+#include "common/types.h"
+
+#include <stdint.h>
+#include <vector>
+
+namespace voltdb {
+
+class AbstractExpression;
+class TupleSchema;
+
+/**
+ * A scan predicate evaluated over a batch of tuples at a time instead of
+ * one tuple at a time.  Each node of the expression tree is evaluated for
+ * the whole batch in a tight loop, into a vector of values or a selection
+ * vector, so the per-tuple cost is a few machine instructions rather than a
+ * virtual eval() call and an NValue per node.
+ *
+ * Only AND/OR trees of comparisons between integer and timestamp columns,
+ * constants, parameters and +, -, * of those can be batched.  Without NOT,
+ * a NULL result anywhere in such a tree filters the tuple the same way as
+ * FALSE, so NULL is simply treated as FALSE.
+ */
+class BatchPredicate {
+public:
+    static const int BATCH_SIZE = 1024;
+
+    /**
+     * Return a batch predicate for the expression on tuples of the schema,
+     * or NULL if some part of the expression can't be batched.
+     */
+    static BatchPredicate* compile(const AbstractExpression* predicate, const TupleSchema* schema);
+
+    /**
+     * Pick up the constant and parameter values for the next execution.
+     * Return false if their types don't allow batching this time, in which
+     * case the predicate has to be evaluated one tuple at a time.
+     */
+    bool bind();
+
+    /**
+     * Set selected[ii] to 1 for each of the tuples that satisfies the
+     * predicate and to 0 for the others.  Return false if the arithmetic
+     * overflowed for some tuple; the batch then has to be evaluated one
+     * tuple at a time to raise the same error as usual.
+     */
+    bool evaluate(char* const* tuples, int count, char* selected);
+
+private:
+    enum NodeKind {
+        NODE_COLUMN,
+        NODE_CONSTANT,
+        NODE_ARITHMETIC,
+        NODE_COMPARISON,
+        NODE_CONJUNCTION
+    };
+
+    struct Node {
+        NodeKind kind;
+        ExpressionType type;
+        int left;
+        int right;
+        // Columns
+        uint32_t offset;
+        ValueType columnType;
+        // Constants and parameters, evaluated by bind()
+        const AbstractExpression* expression;
+        // Whether the value is a timestamp, which only compares to timestamps
+        bool isTimestamp;
+        // Where the node's values or selection vector start in the batch buffers
+        int slot;
+    };
+
+    BatchPredicate() { }
+
+    int compileNode(const AbstractExpression* expression, const TupleSchema* schema, bool boolean);
+    bool evaluateValues(int node, char* const* tuples, int count);
+    bool evaluateBoolean(int node, char* const* tuples, int count);
+
+    std::vector<Node> m_nodes;
+    std::vector<int64_t> m_values;
+    std::vector<char> m_nulls;
+    std::vector<char> m_selections;
+    int m_root;
+};
+
+} // namespace voltdb
+
+#endif // _EE_EXPRESSIONS_BATCHPREDICATE_H_
@@ -0,0 +1,463 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "CompiledPredicate.h"
+
+#include "common/TupleSchema.h"
+#include "common/ValuePeeker.hpp"
+#include "common/tabletuple.h"
+#include "common/value_defs.h"
+#include "expressions/parametervalueexpression.h"
+#include "expressions/tuplevalueexpression.h"
+
+#include <cassert>
+#include <cmath>
+#include <memory>
+
+namespace voltdb {
+
+namespace {
+
+bool isCompiledType(ValueType type) {
+    switch (type) {
+    case VALUE_TYPE_TINYINT:
+    case VALUE_TYPE_SMALLINT:
+    case VALUE_TYPE_INTEGER:
+    case VALUE_TYPE_BIGINT:
+    case VALUE_TYPE_TIMESTAMP:
+    case VALUE_TYPE_DOUBLE:
+        return true;
+    default:
+        return false;
+    }
+}
+
+// The same overflow checks as the NValue BIGINT arithmetic.
+inline bool addOverflows(int64_t lhs, int64_t rhs) {
+    return ((lhs^rhs) | (((lhs^(~(lhs^rhs) & (1L << (sizeof(int64_t)*CHAR_BIT-1))))+rhs)^rhs)) >= 0;
+}
+
+inline bool subtractOverflows(int64_t lhs, int64_t rhs) {
+    return ((lhs^rhs) & (((lhs ^ ((lhs^rhs) & (1L << (sizeof(int64_t)*CHAR_BIT-1))))-rhs)^rhs)) < 0;
+}
+
+inline bool multiplyOverflows(int64_t lhs, int64_t rhs) {
+    if (lhs > 0) {
+        return (rhs > 0) ? lhs > (INT64_MAX / rhs) : rhs < (INT64_MIN / lhs);
+    }
+    return (rhs > 0) ? lhs < (INT64_MIN / rhs) : (lhs != 0 && rhs < (INT64_MAX / lhs));
+}
+
+struct Equal { template <typename T> bool operator()(T l, T r) const { return l == r; } };
+struct NotEqual { template <typename T> bool operator()(T l, T r) const { return l != r; } };
+struct Less { template <typename T> bool operator()(T l, T r) const { return l < r; } };
+struct Greater { template <typename T> bool operator()(T l, T r) const { return l > r; } };
+struct LessOrEqual { template <typename T> bool operator()(T l, T r) const { return l <= r; } };
+struct GreaterOrEqual { template <typename T> bool operator()(T l, T r) const { return l >= r; } };
+
+}
+
+template <typename Compare>
+CompiledPredicate::Result CompiledPredicate::compare(const Value& left, const Value& right)
+{
+    if (left.kind == Value::NULL_VALUE || right.kind == Value::NULL_VALUE) {
+        return RESULT_NULL;
+    }
+    // A timestamp only compares to another timestamp.
+    if (left.kind == Value::OTHER || right.kind == Value::OTHER ||
+        (left.kind == Value::TIMESTAMP) != (right.kind == Value::TIMESTAMP)) {
+        return RESULT_UNKNOWN;
+    }
+    bool result;
+    if (left.kind == Value::DOUBLE || right.kind == Value::DOUBLE) {
+        double lhs = (left.kind == Value::DOUBLE) ? left.dbl : static_cast<double>(left.bigint);
+        double rhs = (right.kind == Value::DOUBLE) ? right.dbl : static_cast<double>(right.bigint);
+        result = Compare()(lhs, rhs);
+    }
+    else {
+        result = Compare()(left.bigint, right.bigint);
+    }
+    return result ? RESULT_TRUE : RESULT_FALSE;
+}
+
+CompiledPredicate::CompiledPredicate(const AbstractExpression* original)
+    : AbstractExpression(original->getExpressionType())
+    , m_root(-1)
+{
+    setValueType(original->getValueType());
+}
+
+bool CompiledPredicate::compile(boost::scoped_ptr<AbstractExpression>& predicate)
+{
+    if (predicate.get() == NULL || dynamic_cast<CompiledPredicate*>(predicate.get()) != NULL) {
+        return false;
+    }
+    std::auto_ptr<CompiledPredicate> compiled(new CompiledPredicate(predicate.get()));
+    compiled->m_root = compiled->compileNode(predicate.get(), true);
+    if (compiled->m_root < 0) {
+        return false;
+    }
+    compiled->m_original.swap(predicate);
+    predicate.reset(compiled.release());
+    return true;
+}
+
+int CompiledPredicate::compileNode(const AbstractExpression* expression, bool boolean)
+{
+    if (expression == NULL) {
+        return -1;
+    }
+    Node node;
+    node.kind = NODE_CONSTANT;
+    node.type = expression->getExpressionType();
+    node.left = -1;
+    node.right = -1;
+    node.tupleIndex = 0;
+    node.columnIndex = -1;
+    node.constant.kind = Value::OTHER;
+    node.parameter = NULL;
+    node.compare = NULL;
+
+    if (boolean) {
+        switch (node.type) {
+        case EXPRESSION_TYPE_CONJUNCTION_AND:
+        case EXPRESSION_TYPE_CONJUNCTION_OR:
+            node.kind = NODE_CONJUNCTION;
+            break;
+        case EXPRESSION_TYPE_COMPARE_EQUAL:
+            node.compare = &CompiledPredicate::compare<Equal>;
+            break;
+        case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+            node.compare = &CompiledPredicate::compare<NotEqual>;
+            break;
+        case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+            node.compare = &CompiledPredicate::compare<Less>;
+            break;
+        case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+            node.compare = &CompiledPredicate::compare<Greater>;
+            break;
+        case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+            node.compare = &CompiledPredicate::compare<LessOrEqual>;
+            break;
+        case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO:
+            node.compare = &CompiledPredicate::compare<GreaterOrEqual>;
+            break;
+        default:
+            return -1;
+        }
+        if (node.compare != NULL) {
+            node.kind = NODE_COMPARISON;
+        }
+        node.left = compileNode(expression->getLeft(), node.kind == NODE_CONJUNCTION);
+        node.right = compileNode(expression->getRight(), node.kind == NODE_CONJUNCTION);
+        if (node.left < 0 || node.right < 0) {
+            return -1;
+        }
+    }
+    else {
+        switch (node.type) {
+        case EXPRESSION_TYPE_VALUE_TUPLE: {
+            const TupleValueExpression* tve = dynamic_cast<const TupleValueExpression*>(expression);
+            if (tve == NULL || tve->getTupleId() < 0 || tve->getTupleId() > 1 ||
+                ! isCompiledType(tve->getValueType())) {
+                return -1;
+            }
+            node.kind = NODE_COLUMN;
+            node.tupleIndex = tve->getTupleId();
+            node.columnIndex = tve->getColumnId();
+            break;
+        }
+        case EXPRESSION_TYPE_VALUE_CONSTANT:
+            node.kind = NODE_CONSTANT;
+            node.constant = decode(expression->eval(NULL, NULL));
+            if (node.constant.kind == Value::OTHER) {
+                return -1;
+            }
+            break;
+        case EXPRESSION_TYPE_VALUE_PARAMETER: {
+            const ParameterValueExpression* pve = dynamic_cast<const ParameterValueExpression*>(expression);
+            if (pve == NULL || pve->getParameterValue() == NULL ||
+                (expression->getValueType() != VALUE_TYPE_INVALID &&
+                 ! isCompiledType(expression->getValueType()))) {
+                return -1;
+            }
+            node.kind = NODE_PARAMETER;
+            node.parameter = pve->getParameterValue();
+            break;
+        }
+        case EXPRESSION_TYPE_OPERATOR_PLUS:
+        case EXPRESSION_TYPE_OPERATOR_MINUS:
+        case EXPRESSION_TYPE_OPERATOR_MULTIPLY:
+        case EXPRESSION_TYPE_OPERATOR_DIVIDE:
+            if (expression->getValueType() == VALUE_TYPE_DECIMAL) {
+                return -1;
+            }
+            node.kind = NODE_ARITHMETIC;
+            node.left = compileNode(expression->getLeft(), false);
+            node.right = compileNode(expression->getRight(), false);
+            if (node.left < 0 || node.right < 0) {
+                return -1;
+            }
+            break;
+        default:
+            return -1;
+        }
+    }
+    m_nodes.push_back(node);
+    return static_cast<int>(m_nodes.size() - 1);
+}
+
+CompiledPredicate::Value CompiledPredicate::decode(const NValue& nvalue)
+{
+    Value value;
+    value.bigint = 0;
+    value.dbl = 0;
+    if (nvalue.isNull()) {
+        value.kind = Value::NULL_VALUE;
+        return value;
+    }
+    switch (ValuePeeker::peekValueType(nvalue)) {
+    case VALUE_TYPE_TINYINT:
+    case VALUE_TYPE_SMALLINT:
+    case VALUE_TYPE_INTEGER:
+    case VALUE_TYPE_BIGINT:
+        value.kind = Value::INTEGER;
+        value.bigint = ValuePeeker::peekAsBigInt(nvalue);
+        break;
+    case VALUE_TYPE_TIMESTAMP:
+        value.kind = Value::TIMESTAMP;
+        value.bigint = ValuePeeker::peekTimestamp(nvalue);
+        break;
+    case VALUE_TYPE_DOUBLE:
+        value.kind = Value::DOUBLE;
+        value.dbl = ValuePeeker::peekDouble(nvalue);
+        break;
+    default:
+        value.kind = Value::OTHER;
+        break;
+    }
+    return value;
+}
+
+NValue CompiledPredicate::eval(const TableTuple *tuple1, const TableTuple *tuple2) const
+{
+    switch (evaluateBoolean(m_root, tuple1, tuple2)) {
+    case RESULT_TRUE:
+        return NValue::getTrue();
+    case RESULT_FALSE:
+        return NValue::getFalse();
+    case RESULT_NULL:
+        return NValue::getNullValue(VALUE_TYPE_BOOLEAN);
+    default:
+        return m_original->eval(tuple1, tuple2);
+    }
+}
+
+CompiledPredicate::Result CompiledPredicate::evaluateBoolean(int index,
+                                                             const TableTuple* tuple1,
+                                                             const TableTuple* tuple2) const
+{
+    const Node& node = m_nodes[index];
+    if (node.kind == NODE_COMPARISON) {
+        Value left;
+        Value right;
+        if ( ! evaluateValue(node.left, tuple1, tuple2, left)) {
+            return RESULT_UNKNOWN;
+        }
+        // Like a comparison expression, don't look at the right side of a NULL.
+        if (left.kind == Value::NULL_VALUE) {
+            return RESULT_NULL;
+        }
+        if ( ! evaluateValue(node.right, tuple1, tuple2, right)) {
+            return RESULT_UNKNOWN;
+        }
+        return node.compare(left, right);
+    }
+
+    assert(node.kind == NODE_CONJUNCTION);
+    Result left = evaluateBoolean(node.left, tuple1, tuple2);
+    if (left == RESULT_UNKNOWN) {
+        return RESULT_UNKNOWN;
+    }
+    // The same short cuts and NULL handling as a conjunction expression
+    if (node.type == EXPRESSION_TYPE_CONJUNCTION_AND) {
+        if (left == RESULT_FALSE) {
+            return RESULT_FALSE;
+        }
+        Result right = evaluateBoolean(node.right, tuple1, tuple2);
+        if (right == RESULT_UNKNOWN || left == RESULT_TRUE || right == RESULT_FALSE) {
+            return right;
+        }
+        return RESULT_NULL;
+    }
+    if (left == RESULT_TRUE) {
+        return RESULT_TRUE;
+    }
+    Result right = evaluateBoolean(node.right, tuple1, tuple2);
+    if (right == RESULT_UNKNOWN || left == RESULT_FALSE || right == RESULT_TRUE) {
+        return right;
+    }
+    return RESULT_NULL;
+}
+
+bool CompiledPredicate::evaluateValue(int index,
+                                      const TableTuple* tuple1,
+                                      const TableTuple* tuple2,
+                                      Value& value) const
+{
+    const Node& node = m_nodes[index];
+    switch (node.kind) {
+    case NODE_CONSTANT:
+        value = node.constant;
+        return true;
+    case NODE_PARAMETER:
+        value = decode(*node.parameter);
+        return value.kind != Value::OTHER;
+    case NODE_COLUMN: {
+        const TableTuple* tuple = (node.tupleIndex == 0) ? tuple1 : tuple2;
+        if (tuple == NULL) {
+            return false;
+        }
+        const TupleSchema::ColumnInfo* info = tuple->getSchema()->getColumnInfo(node.columnIndex);
+        const char* data = tuple->address() + TUPLE_HEADER_SIZE + info->offset;
+        value.kind = Value::INTEGER;
+        switch (info->getVoltType()) {
+        case VALUE_TYPE_TINYINT: {
+            int8_t v = *reinterpret_cast<const int8_t*>(data);
+            value.bigint = v;
+            if (v == INT8_NULL) {
+                value.kind = Value::NULL_VALUE;
+            }
+            return true;
+        }
+        case VALUE_TYPE_SMALLINT: {
+            int16_t v = *reinterpret_cast<const int16_t*>(data);
+            value.bigint = v;
+            if (v == INT16_NULL) {
+                value.kind = Value::NULL_VALUE;
+            }
+            return true;
+        }
+        case VALUE_TYPE_INTEGER: {
+            int32_t v = *reinterpret_cast<const int32_t*>(data);
+            value.bigint = v;
+            if (v == INT32_NULL) {
+                value.kind = Value::NULL_VALUE;
+            }
+            return true;
+        }
+        case VALUE_TYPE_BIGINT:
+        case VALUE_TYPE_TIMESTAMP:
+            value.bigint = *reinterpret_cast<const int64_t*>(data);
+            if (value.bigint == INT64_NULL) {
+                value.kind = Value::NULL_VALUE;
+            }
+            else if (info->getVoltType() == VALUE_TYPE_TIMESTAMP) {
+                value.kind = Value::TIMESTAMP;
+            }
+            return true;
+        case VALUE_TYPE_DOUBLE:
+            value.dbl = *reinterpret_cast<const double*>(data);
+            value.kind = (value.dbl <= DOUBLE_NULL) ? Value::NULL_VALUE : Value::DOUBLE;
+            return true;
+        default:
+            return false;
+        }
+    }
+    default:
+        break;
+    }
+
+    assert(node.kind == NODE_ARITHMETIC);
+    Value left;
+    Value right;
+    if ( ! evaluateValue(node.left, tuple1, tuple2, left) ||
+         ! evaluateValue(node.right, tuple1, tuple2, right) ||
+         left.kind == Value::TIMESTAMP || right.kind == Value::TIMESTAMP ||
+         left.kind == Value::OTHER || right.kind == Value::OTHER) {
+        return false;
+    }
+    if (left.kind == Value::NULL_VALUE || right.kind == Value::NULL_VALUE) {
+        value.kind = Value::NULL_VALUE;
+        return true;
+    }
+    if (left.kind == Value::DOUBLE || right.kind == Value::DOUBLE) {
+        double lhs = (left.kind == Value::DOUBLE) ? left.dbl : static_cast<double>(left.bigint);
+        double rhs = (right.kind == Value::DOUBLE) ? right.dbl : static_cast<double>(right.bigint);
+        switch (node.type) {
+        case EXPRESSION_TYPE_OPERATOR_PLUS:
+            value.dbl = lhs + rhs;
+            break;
+        case EXPRESSION_TYPE_OPERATOR_MINUS:
+            value.dbl = lhs - rhs;
+            break;
+        case EXPRESSION_TYPE_OPERATOR_MULTIPLY:
+            value.dbl = lhs * rhs;
+            break;
+        default:
+            value.dbl = lhs / rhs;
+            break;
+        }
+        value.kind = Value::DOUBLE;
+        // Infinity and NaN are errors, and results that look like NULL are
+        // best left to NValue too.
+        return std::isfinite(value.dbl) && value.dbl > DOUBLE_NULL;
+    }
+
+    int64_t lhs = left.bigint;
+    int64_t rhs = right.bigint;
+    switch (node.type) {
+    case EXPRESSION_TYPE_OPERATOR_PLUS:
+        if (addOverflows(lhs, rhs)) {
+            return false;
+        }
+        value.bigint = lhs + rhs;
+        break;
+    case EXPRESSION_TYPE_OPERATOR_MINUS:
+        if (subtractOverflows(lhs, rhs)) {
+            return false;
+        }
+        value.bigint = lhs - rhs;
+        break;
+    case EXPRESSION_TYPE_OPERATOR_MULTIPLY:
+        if (multiplyOverflows(lhs, rhs)) {
+            return false;
+        }
+        value.bigint = lhs * rhs;
+        break;
+    default:
+        if (rhs == 0) {
+            return false;
+        }
+        value.bigint = lhs / rhs;
+        break;
+    }
+    value.kind = Value::INTEGER;
+    return value.bigint != INT64_NULL;
+}
+
+bool CompiledPredicate::hasParameter() const
+{
+    return m_original->hasParameter();
+}
+
+std::string CompiledPredicate::debugInfo(const std::string &spacer) const
+{
+    return spacer + "CompiledPredicate of\n" + m_original->debug(spacer);
+}
+
+} // namespace voltdb
@@ -0,0 +1,118 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef _EE_EXPRESSIONS_COMPILEDPREDICATE_H_
+#define _EE_EXPRESSIONS_COMPILEDPREDICATE_H_
+
+#include "common/NValue.hpp"
+#include "expressions/abstractexpression.h"
+
+#include "boost/scoped_ptr.hpp"
+
+#include <stdint.h>
+#include <vector>
+
+namespace voltdb {
+
+/**
+ * A predicate compiled from an expression tree when its plan fragment is
+ * loaded, so that filtering a tuple takes one virtual eval() call instead
+ * of one per node of the tree, and no NValue per node.
+ *
+ * Only AND/OR trees of comparisons between columns, constants, parameters
+ * and +, -, *, / of those are compiled, and only for integer, timestamp
+ * and double values.  Whenever a tuple or a parameter is anything else, or
+ * the arithmetic would overflow or divide by zero, the tuple is evaluated
+ * by the original expression, which raises the usual errors.
+ */
+class CompiledPredicate : public AbstractExpression {
+public:
+    /**
+     * Replace the predicate with a compiled version of it, which takes
+     * over the original.  Return false, leaving the predicate as it is,
+     * if it can't be compiled.
+     */
+    static bool compile(boost::scoped_ptr<AbstractExpression>& predicate);
+
+    NValue eval(const TableTuple *tuple1, const TableTuple *tuple2) const;
+
+    bool hasParameter() const;
+
+    std::string debugInfo(const std::string &spacer) const;
+
+private:
+    enum Result {
+        RESULT_FALSE,
+        RESULT_TRUE,
+        RESULT_NULL,
+        // The original expression has to decide
+        RESULT_UNKNOWN
+    };
+
+    enum NodeKind {
+        NODE_COLUMN,
+        NODE_CONSTANT,
+        NODE_PARAMETER,
+        NODE_ARITHMETIC,
+        NODE_COMPARISON,
+        NODE_CONJUNCTION
+    };
+
+    // The value of a column, constant, parameter or operator for one tuple
+    struct Value {
+        enum Kind { INTEGER, TIMESTAMP, DOUBLE, NULL_VALUE, OTHER } kind;
+        int64_t bigint;
+        double dbl;
+    };
+
+    typedef Result (*CompareFunction)(const Value& left, const Value& right);
+
+    struct Node {
+        NodeKind kind;
+        ExpressionType type;
+        int left;
+        int right;
+        // Columns
+        int tupleIndex;
+        int columnIndex;
+        // Constants, decoded once
+        Value constant;
+        // Parameters, decoded for every tuple since they change between executions
+        const NValue* parameter;
+        // Comparisons, specialized for their operator
+        CompareFunction compare;
+    };
+
+    explicit CompiledPredicate(const AbstractExpression* original);
+
+    int compileNode(const AbstractExpression* expression, bool boolean);
+    Result evaluateBoolean(int node, const TableTuple* tuple1, const TableTuple* tuple2) const;
+    bool evaluateValue(int node, const TableTuple* tuple1, const TableTuple* tuple2, Value& value) const;
+
+    static Value decode(const NValue& value);
+
+    template <typename Compare>
+    static Result compare(const Value& left, const Value& right);
+
+    boost::scoped_ptr<AbstractExpression> m_original;
+    std::vector<Node> m_nodes;
+    int m_root;
+};
+
+} // namespace voltdb
+
+#endif // _EE_EXPRESSIONS_COMPILEDPREDICATE_H_
@@ -90,6 +90,10 @@ public:
         return this->m_valueIdx;
     }
 
+    const voltdb::NValue* getParameterValue() const {
+        return m_paramValue;
+    }
+
   private:
     int m_valueIdx;
 
@@ -46,6 +46,7 @@
 #ifndef COMPACTINGTREEMULTIMAPINDEX_H_
 #define COMPACTINGTREEMULTIMAPINDEX_H_
 
+#include <algorithm>
 #include <iostream>
 #include <cassert>
 #include "indexes/tableindex.h"
@@ -115,6 +116,40 @@ class CompactingTreeMultiMapIndex : public TableIndex
         return 0 != m_cmp(setKeyFromTuple(lhs), setKeyFromTuple(rhs));
     }
 
+    int64_t estimateDistinctKeysDo(int64_t sampleSize) const
+    {
+        if (!hasRank) {
+            return -1;
+        }
+        // Counting one over the number of entries sharing its key for every entry
+        // adds up to one per key. Scale up the mean of that over entries picked
+        // evenly across the whole key range, which is exact when all are picked.
+        const int64_t entries = m_entries.size();
+        const int64_t samples = std::min(sampleSize, entries);
+        double keys = 0.0;
+        int64_t firstRank = 0;
+        int64_t lastRank = 0;
+        for (int64_t i = 0; i < samples; ++i) {
+            const int64_t rank = 1 + (i * entries) / samples;
+            // picks are in rank order, so they often land in the key found last
+            if (rank > lastRank) {
+                MapIterator mapIter = m_entries.findRank(rank);
+                if (mapIter.isEnd()) {
+                    return -1;
+                }
+                lastRank = m_entries.rankUpper(mapIter.key());
+                KeyType firstKey(mapIter.key());
+                setPointerValue(firstKey, NULL);
+                MapIterator priorIter = m_entries.lowerBound(firstKey);
+                priorIter.movePrev();
+                firstRank = priorIter.isEnd() ? 1 : m_entries.rankUpper(priorIter.key()) + 1;
+            }
+            keys += 1.0 / static_cast<double>(lastRank - firstRank + 1);
+        }
+        return std::max(static_cast<int64_t>(1),
+                        static_cast<int64_t>(keys * static_cast<double>(entries) / samples + 0.5));
+    }
+
     bool existsDo(const TableTuple *persistentTuple) const
     {
         return ! findTuple(*persistentTuple).isEnd();
@@ -26,10 +26,15 @@
 #include "storage/table.h"
 #include "storage/tablefactory.h"
 #include "indexes/tableindex.h"
+#include "common/executorcontext.hpp"
+#include "execution/VoltDBEngine.h"
 
 using namespace voltdb;
 using namespace std;
 
+// Entries sampled per index and stats poll to estimate the number of distinct keys
+const static int64_t DISTINCT_KEY_SAMPLE_SIZE = 1000;
+
 vector<string> IndexStats::generateIndexStatsColumnNames() {
     vector<string> columnNames = StatsSource::generateBaseStatsColumnNames();
     columnNames.push_back("INDEX_NAME");
@@ -39,6 +44,7 @@ vector<string> IndexStats::generateIndexStatsColumnNames() {
     columnNames.push_back("IS_COUNTABLE");
     columnNames.push_back("ENTRY_COUNT");
     columnNames.push_back("MEMORY_ESTIMATE");
+    columnNames.push_back("DISTINCT_KEY_ESTIMATE");
 
     return columnNames;
 }
@@ -93,6 +99,12 @@ void IndexStats::populateIndexStatsSchema(
     columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
     allowNull.push_back(false);
     inBytes.push_back(false);
+
+    // distinct key estimate
+    types.push_back(VALUE_TYPE_BIGINT);
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+    allowNull.push_back(false);
+    inBytes.push_back(false);
 }
 
 TempTable* IndexStats::generateEmptyIndexStatsTable() {
@@ -189,6 +201,15 @@ void IndexStats::updateStatsTuple(TableTuple *tuple) {
     tuple->setNValue(StatsSource::m_columnName2Index["MEMORY_ESTIMATE"],
                      ValueFactory::
                      getBigIntValue(mem_estimate_kb));
+    // Not an interval value, the planner wants the current estimate.
+    // Sampling is only worth its cost when the planner uses live statistics.
+    VoltDBEngine* engine = ExecutorContext::getEngine();
+    int64_t distinctKeys = -1;
+    if (engine != NULL && engine->distinctKeyEstimatesEnabled()) {
+        distinctKeys = m_index->estimateDistinctKeys(DISTINCT_KEY_SAMPLE_SIZE);
+    }
+    tuple->setNValue(StatsSource::m_columnName2Index["DISTINCT_KEY_ESTIMATE"],
+                     ValueFactory::getBigIntValue(distinctKeys));
 }
 
 /**
@@ -210,6 +210,18 @@ bool TableIndex::replaceEntryNoKeyChange(const TableTuple &destinationTuple, con
     }
 }
 
+int64_t TableIndex::estimateDistinctKeys(int64_t sampleSize) const
+{
+    const int64_t entries = static_cast<int64_t>(getSize());
+    if (isUniqueIndex() || entries <= 1) {
+        return entries;
+    }
+    if (sampleSize <= 0) {
+        return -1;
+    }
+    return estimateDistinctKeysDo(sampleSize);
+}
+
 bool TableIndex::exists(const TableTuple *persistentTuple) const
 {
     if (isPartialIndex() && !getPredicate()->eval(persistentTuple, NULL).isTrue())
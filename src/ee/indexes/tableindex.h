@@ -456,6 +456,15 @@ public:
     // index.
     virtual int64_t getMemoryEstimate() const = 0;
 
+    /**
+     * Estimate the number of distinct keys in the index for the planner.
+     * Unique indexes have one key per entry. Non-unique tree indexes sample
+     * sampleSize entries spread evenly over the whole key range, which is
+     * exact for indexes with no more entries than that.
+     * @Return -1 if the index can not be sampled.
+     */
+    int64_t estimateDistinctKeys(int64_t sampleSize) const;
+
     const std::vector<int>& getColumnIndices() const
     {
         return m_scheme.columnIndices;
@@ -550,6 +559,8 @@ protected:
                                          const TableTuple &originalTuple) = 0;
     virtual bool existsDo(const TableTuple* values) const = 0;
     virtual bool checkForIndexChangeDo(const TableTuple *lhs, const TableTuple *rhs) const = 0;
+    // Only non-unique indexes which keep ranks can estimate their distinct keys
+    virtual int64_t estimateDistinctKeysDo(int64_t sampleSize) const { return -1; }
 
 private:
 
@@ -63,6 +63,13 @@ public:
     AbstractExpression* getPreJoinPredicate() const { return m_preJoinPredicate.get(); }
     AbstractExpression* getJoinPredicate() const { return m_joinPredicate.get(); }
     AbstractExpression* getWherePredicate() const { return m_wherePredicate.get(); }
+
+    void getPredicates(std::vector<boost::scoped_ptr<AbstractExpression>*>& predicates)
+    {
+        predicates.push_back(&m_preJoinPredicate);
+        predicates.push_back(&m_joinPredicate);
+        predicates.push_back(&m_wherePredicate);
+    }
     const TupleSchema* getTupleSchemaPreAgg() const { return m_tupleSchemaPreAgg; }
     void getOutputColumnExpressions(std::vector<AbstractExpression*>& outputExpressions) const;
 
@@ -154,6 +154,12 @@ public:
     //
     virtual PlanNodeType getPlanNodeType() const = 0;
 
+    /**
+     * Add the expressions this node filters tuples with, so the
+     * ExecutorVector can replace them with compiled versions.
+     */
+    virtual void getPredicates(std::vector<boost::scoped_ptr<AbstractExpression>*>& predicates) { }
+
     /**
      * Get the output columns that make up the output schema for
      * this plan node.  The column order is implicit in their
@@ -77,6 +77,7 @@ void AbstractScanPlanNode::loadFromJSONObject(PlannerDomValue obj)
     if (!m_isEmptyScan) {
         m_predicate.reset(loadExpressionFromJSONObject("PREDICATE", obj));
     }
+    m_isPredicateBatchable = obj.hasNonNullKey("PREDICATE_BATCHABLE");
 
     m_isSubQuery = obj.hasNonNullKey("SUBQUERY_INDICATOR");
 
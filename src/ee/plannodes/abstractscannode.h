@@ -66,10 +66,16 @@ public:
     std::string getTargetTableName() const { return m_target_table_name; } // DEPRECATED?
     AbstractExpression* getPredicate() const { return m_predicate.get(); }
 
+    void getPredicates(std::vector<boost::scoped_ptr<AbstractExpression>*>& predicates)
+    { predicates.push_back(&m_predicate); }
+
     bool isSubQuery() const { return m_isSubQuery; }
 
     bool isEmptyScan() const { return m_isEmptyScan; }
 
+    /** True if the planner found the predicate simple enough to evaluate a batch of tuples at a time */
+    bool isPredicateBatchable() const { return m_isPredicateBatchable; }
+
 protected:
     AbstractScanPlanNode() { }
 
@@ -91,6 +97,8 @@ protected:
     bool m_isSubQuery;
     // True if this scan has a predicate that always evaluates to FALSE
     bool m_isEmptyScan;
+    // True if the predicate may be evaluated by a BatchPredicate
+    bool m_isPredicateBatchable;
 };
 
 } // namespace voltdb
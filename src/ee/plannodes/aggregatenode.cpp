@@ -82,6 +82,9 @@ std::string AggregatePlanNode::debugInfo(const std::string &spacer) const
         add = ", ";
     }
     buffer << "]\n";
+    if (m_estimatedGroupCount >= 0) {
+        buffer << spacer << "EstimatedGroupCount: " << m_estimatedGroupCount << "\n";
+    }
 
     return buffer.str();
 }
@@ -131,6 +134,10 @@ void AggregatePlanNode::loadFromJSONObject(PlannerDomValue obj)
     m_postPredicate.reset(loadExpressionFromJSONObject("POST_PREDICATE", obj));
 
     loadIntArrayFromJSONObject("PARTIAL_GROUPBY_COLUMNS", obj, m_partialGroupByColumns);
+
+    if (obj.hasNonNullKey("ESTIMATED_GROUP_COUNT")) {
+        m_estimatedGroupCount = obj.valueForKey("ESTIMATED_GROUP_COUNT").asInt64();
+    }
 }
 
 void AggregatePlanNode::collectOutputExpressions(
@@ -53,7 +53,7 @@ namespace voltdb {
 class AggregatePlanNode : public AbstractPlanNode
 {
 public:
-    AggregatePlanNode(PlanNodeType type) : m_type(type) { }
+    AggregatePlanNode(PlanNodeType type) : m_type(type), m_estimatedGroupCount(-1) { }
     ~AggregatePlanNode();
     PlanNodeType getPlanNodeType() const;
     std::string debugInfo(const std::string &spacer) const;
@@ -88,6 +88,14 @@ public:
 
     void collectOutputExpressions(std::vector<AbstractExpression*>& outputColumnExpressions) const;
 
+    /*
+     * The planner's estimate of the number of groups of a hash aggregate,
+     * 0 if it has none, or -1 if the groups are not to be kept in a
+     * pre-sized arena hash table at all.
+     */
+    int64_t getEstimatedGroupCount() const
+    { return m_estimatedGroupCount; }
+
 protected:
     void loadFromJSONObject(PlannerDomValue obj);
 
@@ -109,6 +117,8 @@ protected:
     boost::scoped_ptr<AbstractExpression> m_prePredicate;
 
     boost::scoped_ptr<AbstractExpression> m_postPredicate;
+
+    int64_t m_estimatedGroupCount;
 };
 
 } // namespace voltdb
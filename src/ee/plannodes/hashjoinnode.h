@@ -0,0 +1,50 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef HSTOREHASHJOINNODE_H
+#define HSTOREHASHJOINNODE_H
+
+#include "abstractjoinnode.h"
+
+namespace voltdb {
+
+/**
+ * Equi-join of two inputs. The i-th outer hash expression, evaluated against an
+ * outer tuple, must equal the i-th inner hash expression, evaluated against an
+ * inner tuple, for the pair to be considered by the join predicate.
+ */
+class HashJoinPlanNode : public AbstractJoinPlanNode
+{
+public:
+    HashJoinPlanNode() { }
+    ~HashJoinPlanNode();
+    PlanNodeType getPlanNodeType() const;
+    std::string debugInfo(const std::string& spacer) const;
+
+    const std::vector<AbstractExpression*>& getOuterHashExpressions() const { return m_outerHashExpressions; }
+    const std::vector<AbstractExpression*>& getInnerHashExpressions() const { return m_innerHashExpressions; }
+
+protected:
+    void loadFromJSONObject(PlannerDomValue obj);
+
+    OwningExpressionVector m_outerHashExpressions;
+    OwningExpressionVector m_innerHashExpressions;
+};
+
+} // namespace voltdb
+
+#endif
@@ -78,6 +78,12 @@ public:
 
     AbstractExpression* getSkipNullPredicate() const { return m_skip_null_predicate.get(); }
 
+    void getPredicates(std::vector<boost::scoped_ptr<AbstractExpression>*>& predicates)
+    {
+        AbstractScanPlanNode::getPredicates(predicates);
+        predicates.push_back(&m_end_expression);
+    }
+
 protected:
     void loadFromJSONObject(PlannerDomValue obj);
 
@@ -56,13 +56,26 @@ SeqScanPlanNode::~SeqScanPlanNode()
     // This is opposite the check that controls when the temp table is created in seqscanexecutor.
     // So, even if there is a temp table to be freed, it belongs to a subquery, so drop this
     // reference to it to prevent double-delete by AbstractPlanNode.
-    if (getPredicate() == NULL && getInlinePlanNodes().size() == 0) {
+    if (getPredicate() == NULL && getInlinePlanNodes().size() == 0 && m_parallelSliceColumn < 0 &&
+        m_semiJoinProbeColumn < 0) {
         clearOutputTableReference();
     }
 }
 
 PlanNodeType SeqScanPlanNode::getPlanNodeType() const { return PLAN_NODE_TYPE_SEQSCAN; }
 
+void SeqScanPlanNode::loadFromJSONObject(PlannerDomValue obj)
+{
+    AbstractScanPlanNode::loadFromJSONObject(obj);
+    if (obj.hasNonNullKey("PARALLEL_SLICE_COLUMN")) {
+        m_parallelSliceColumn = obj.valueForKey("PARALLEL_SLICE_COLUMN").asInt();
+    }
+    if (obj.hasNonNullKey("SEMI_JOIN_PROBE_COLUMN")) {
+        m_semiJoinProbeColumn = obj.valueForKey("SEMI_JOIN_PROBE_COLUMN").asInt();
+        m_semiJoinSourceColumn = obj.valueForKey("SEMI_JOIN_SOURCE_COLUMN").asInt();
+    }
+}
+
 std::string SeqScanPlanNode::debugInfo(const std::string &spacer) const
 {
     std::ostringstream buffer;
@@ -73,6 +86,13 @@ std::string SeqScanPlanNode::debugInfo(const std::string &spacer) const
     } else {
         buffer << "<NULL>\n";
     }
+    if (m_parallelSliceColumn >= 0) {
+        buffer << spacer << "Slice Column: " << m_parallelSliceColumn << "\n";
+    }
+    if (m_semiJoinProbeColumn >= 0) {
+        buffer << spacer << "Semi-join Filter: column " << m_semiJoinProbeColumn
+               << " in outer column " << m_semiJoinSourceColumn << "\n";
+    }
     return buffer.str();
 }
 
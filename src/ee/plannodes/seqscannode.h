@@ -57,11 +57,49 @@ class AbstractExpression;
  */
 class SeqScanPlanNode : public AbstractScanPlanNode {
 public:
-    SeqScanPlanNode()  { }
+    SeqScanPlanNode()
+        : m_parallelSliceColumn(-1)
+        , m_semiJoinSourceColumn(-1)
+        , m_semiJoinProbeColumn(-1)
+        , m_semiJoinSource(NULL)
+    { }
     ~SeqScanPlanNode();
     PlanNodeType getPlanNodeType() const;
     std::string debugInfo(const std::string &spacer) const;
 
+    /**
+     * For a replicated table scanned by every partition, the column whose
+     * hashinated value tells which partition's slice a row is in, or -1 to
+     * scan the whole table.
+     */
+    int getParallelSliceColumn() const { return m_parallelSliceColumn; }
+
+    /**
+     * For the inner scan of a join, the column of the table whose values have
+     * to be among the join keys of the outer input for a row to join, or -1
+     * if the scan is not filtered by the outer input's keys.
+     */
+    int getSemiJoinProbeColumn() const { return m_semiJoinProbeColumn; }
+
+    /** The column of the outer input's output table holding its join keys */
+    int getSemiJoinSourceColumn() const { return m_semiJoinSourceColumn; }
+
+    /**
+     * The outer input of the join, or NULL if it is not known to have been
+     * executed by the time the scan executes, in which case nothing can be
+     * filtered out.
+     */
+    AbstractPlanNode* getSemiJoinSource() const { return m_semiJoinSource; }
+    void setSemiJoinSource(AbstractPlanNode* source) { m_semiJoinSource = source; }
+
+protected:
+    void loadFromJSONObject(PlannerDomValue obj);
+
+private:
+    int m_parallelSliceColumn;
+    int m_semiJoinSourceColumn;
+    int m_semiJoinProbeColumn;
+    AbstractPlanNode* m_semiJoinSource;
 };
 
 }
@@ -0,0 +1,170 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "SpillFile.h"
+
+#include "common/SQLException.h"
+#include "storage/TempTableLimits.h"
+
+#include <cassert>
+#include <cerrno>
+#include <cstdio>
+#include <cstdlib>
+#include <cstring>
+#include <string>
+#include <unistd.h>
+
+namespace voltdb {
+
+static void throwSpillException(const char* action, const std::string& directory)
+{
+    char msg[1024];
+    snprintf(msg, sizeof(msg), "Unable to %s temp table spill file in %s: %s",
+             action, directory.c_str(), strerror(errno));
+    throw SQLException(SQLException::volt_temp_table_memory_overflow, msg);
+}
+
+SpillFile::SpillFile(TempTableLimits* limits)
+    : m_limits(limits)
+    , m_fd(-1)
+    , m_size(0)
+{
+    assert(m_limits && m_limits->spillingEnabled());
+}
+
+SpillFile::~SpillFile()
+{
+    if (m_fd >= 0) {
+        ::close(m_fd);
+    }
+}
+
+void SpillFile::open()
+{
+    std::string path = m_limits->getSpillDirectory() + "/spill_XXXXXX";
+    std::vector<char> name(path.begin(), path.end());
+    name.push_back('\0');
+    m_fd = ::mkstemp(&name[0]);
+    if (m_fd < 0) {
+        throwSpillException("create", m_limits->getSpillDirectory());
+    }
+    // Nobody else needs to find it, and this way it can't be left behind.
+    ::unlink(&name[0]);
+}
+
+int64_t SpillFile::write(const char* data, size_t length)
+{
+    if (m_fd < 0) {
+        open();
+    }
+    int64_t offset = m_size;
+    size_t written = 0;
+    while (written < length) {
+        ssize_t rc = ::pwrite(m_fd, data + written, length - written, offset + written);
+        if (rc < 0) {
+            if (errno == EINTR) {
+                continue;
+            }
+            throwSpillException("write", m_limits->getSpillDirectory());
+        }
+        written += rc;
+    }
+    m_size += length;
+    m_limits->addSpilledBytes(length);
+    return offset;
+}
+
+void SpillFile::read(int64_t offset, char* data, size_t length) const
+{
+    assert(m_fd >= 0 && offset + static_cast<int64_t>(length) <= m_size);
+    size_t done = 0;
+    while (done < length) {
+        ssize_t rc = ::pread(m_fd, data + done, length - done, offset + done);
+        if (rc <= 0) {
+            if (rc < 0 && errno == EINTR) {
+                continue;
+            }
+            throwSpillException("read", m_limits->getSpillDirectory());
+        }
+        done += rc;
+    }
+}
+
+void SpillFile::truncate()
+{
+    if (m_fd >= 0 && m_size > 0) {
+        if (::ftruncate(m_fd, 0) != 0) {
+            throwSpillException("truncate", m_limits->getSpillDirectory());
+        }
+    }
+    m_size = 0;
+}
+
+SpilledTupleRun::SpilledTupleRun(SpillFile* file, int tupleLength, int chunkTuples)
+    : m_file(file)
+    , m_tupleLength(tupleLength)
+    , m_chunkTuples(chunkTuples > 0 ? chunkTuples : 1)
+    , m_buffer(static_cast<size_t>(m_tupleLength) * m_chunkTuples)
+    , m_bufferedTuples(0)
+    , m_readPosition(0)
+    , m_nextChunk(0)
+    , m_tupleCount(0)
+{ }
+
+void SpilledTupleRun::append(const char* tupleData)
+{
+    if (m_bufferedTuples == m_chunkTuples) {
+        flush();
+    }
+    ::memcpy(&m_buffer[static_cast<size_t>(m_tupleLength) * m_bufferedTuples], tupleData, m_tupleLength);
+    ++m_bufferedTuples;
+    ++m_tupleCount;
+}
+
+void SpilledTupleRun::flush()
+{
+    if (m_bufferedTuples > 0) {
+        int64_t offset = m_file->write(&m_buffer[0], static_cast<size_t>(m_tupleLength) * m_bufferedTuples);
+        m_chunks.push_back(std::make_pair(offset, m_bufferedTuples));
+        m_bufferedTuples = 0;
+    }
+}
+
+void SpilledTupleRun::finishWriting()
+{
+    flush();
+    m_readPosition = 0;
+    m_nextChunk = 0;
+}
+
+const char* SpilledTupleRun::next()
+{
+    if (m_readPosition == m_bufferedTuples) {
+        if (m_nextChunk == m_chunks.size()) {
+            // Done with this run, let go of the buffer.
+            std::vector<char>().swap(m_buffer);
+            return NULL;
+        }
+        const std::pair<int64_t, int>& chunk = m_chunks[m_nextChunk++];
+        m_file->read(chunk.first, &m_buffer[0], static_cast<size_t>(m_tupleLength) * chunk.second);
+        m_bufferedTuples = chunk.second;
+        m_readPosition = 0;
+    }
+    return &m_buffer[static_cast<size_t>(m_tupleLength) * m_readPosition++];
+}
+
+} // namespace voltdb
@@ -0,0 +1,100 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef _EE_STORAGE_SPILLFILE_H_
+#define _EE_STORAGE_SPILLFILE_H_
+
+#include <stdint.h>
+#include <cstddef>
+#include <utility>
+#include <vector>
+
+namespace voltdb {
+
+class TempTableLimits;
+
+/**
+ * A scratch file in the spill directory of a fragment's TempTableLimits.
+ * The file is unlinked as soon as it is created so it goes away with its
+ * descriptor, even if the process does not exit cleanly.
+ * Bytes written are counted as spilled bytes of the fragment.
+ */
+class SpillFile {
+public:
+    explicit SpillFile(TempTableLimits* limits);
+    ~SpillFile();
+
+    /** Append the bytes to the file and return the offset they were written at. */
+    int64_t write(const char* data, size_t length);
+
+    /** Read back bytes previously written at the offset. */
+    void read(int64_t offset, char* data, size_t length) const;
+
+    /** Discard everything written so far. */
+    void truncate();
+
+private:
+    // no copies, no assignment
+    SpillFile(SpillFile const&);
+    SpillFile operator=(SpillFile const&);
+
+    void open();
+
+    TempTableLimits* const m_limits;
+    int m_fd;
+    int64_t m_size;
+};
+
+/**
+ * A sequence of fixed-length tuples written to a SpillFile in chunks,
+ * then read back in the order they were written. Several runs can share
+ * one file, each one only buffering a chunk in memory at a time.
+ * The tuples are copied as they are, so any non-inlined values they
+ * refer to must outlive the run, as they do for temp table tuples.
+ */
+class SpilledTupleRun {
+public:
+    SpilledTupleRun(SpillFile* file, int tupleLength, int chunkTuples);
+
+    void append(const char* tupleData);
+
+    /** Write any buffered tuples and get ready to read from the start. */
+    void finishWriting();
+
+    /** Return the next tuple, or NULL after the last one. */
+    const char* next();
+
+    int64_t tupleCount() const { return m_tupleCount; }
+
+private:
+    void flush();
+
+    SpillFile* m_file;
+    const int m_tupleLength;
+    const int m_chunkTuples;
+    /// Offset and tuple count of each chunk written to the file.
+    std::vector<std::pair<int64_t, int> > m_chunks;
+    std::vector<char> m_buffer;
+    int m_bufferedTuples;
+    int m_readPosition;
+    size_t m_nextChunk;
+    int64_t m_tupleCount;
+};
+
+} // namespace voltdb
+
+#endif // _EE_STORAGE_SPILLFILE_H_
@@ -19,6 +19,7 @@
 #define _EE_STORAGE_TEMPTABLELIMITS_H_
 
 #include <stdint.h>
+#include <string>
 
 namespace voltdb {
 
@@ -28,12 +29,21 @@ namespace voltdb {
  */
 class TempTableLimits {
 public:
-    TempTableLimits(int64_t memoryLimit = 1024 * 1024 * 100, int64_t logThreshold = -1)
+    /**
+     * With a spill directory, temp tables and the executors that support it write
+     * their intermediate results to files in that directory once half of the
+     * memory limit is used, instead of running into the limit.
+     */
+    TempTableLimits(int64_t memoryLimit = 1024 * 1024 * 100, int64_t logThreshold = -1,
+                    const std::string& spillDirectory = "")
         : m_currMemoryInBytes(0)
         , m_peakMemoryInBytes(0)
         , m_logThreshold(logThreshold)
         , m_memoryLimit(memoryLimit)
         , m_logLatch(false)
+        , m_spillDirectory(spillDirectory)
+        , m_spillThreshold((memoryLimit > 0 && ! spillDirectory.empty()) ? memoryLimit / 2 : -1)
+        , m_spilledBytes(0)
     { }
 
     /**
@@ -48,6 +58,19 @@ public:
     int64_t getPeakMemoryInBytes() const { return m_peakMemoryInBytes; }
     void resetPeakMemory() { m_peakMemoryInBytes = m_currMemoryInBytes; }
 
+    bool spillingEnabled() const { return m_spillThreshold > 0; }
+    /** True if allocating this many more bytes should rather spill something to disk */
+    bool shouldSpill(int64_t bytes) const {
+        return spillingEnabled() && m_currMemoryInBytes + bytes > m_spillThreshold;
+    }
+    int64_t getSpillThreshold() const { return m_spillThreshold; }
+    const std::string& getSpillDirectory() const { return m_spillDirectory; }
+
+    void addSpilledBytes(int64_t bytes) { m_spilledBytes += bytes; }
+    /// Bytes written to spill files since the last reset, reported per fragment execution
+    int64_t getSpilledBytes() const { return m_spilledBytes; }
+    void resetSpilledBytes() { m_spilledBytes = 0; }
+
 private:
     /// The current amount of memory used by temp tables for this plan fragment.
     int64_t m_currMemoryInBytes;
@@ -63,6 +86,45 @@ private:
     /// True if we have already generated a log message for
     /// exceeding the log threshold and not yet dropped below it.
     bool m_logLatch;
+    /// Where spill files are created, empty when spilling is disabled.
+    const std::string m_spillDirectory;
+    /// The memory allocation above which temp tables spill blocks to disk.
+    /// A negative value disables spilling.
+    const int64_t m_spillThreshold;
+    int64_t m_spilledBytes;
+};
+
+/**
+ * Charges memory an executor holds outside of temp tables, such as a hash table
+ * or a sort buffer, to the fragment's temp table limits and gives it all back
+ * when the charge goes out of scope, however the executor finishes.
+ */
+class TempTableMemoryCharge {
+public:
+    TempTableMemoryCharge(TempTableLimits* limits) : m_limits(limits), m_bytes(0) { }
+
+    ~TempTableMemoryCharge() {
+        release();
+    }
+
+    void charge(int bytes) {
+        if (m_limits != NULL) {
+            // increaseAllocated counts the bytes before it throws for exceeding the limit
+            m_bytes += bytes;
+            m_limits->increaseAllocated(bytes);
+        }
+    }
+
+    void release() {
+        if (m_limits != NULL && m_bytes > 0) {
+            m_limits->reduceAllocated(m_bytes);
+        }
+        m_bytes = 0;
+    }
+
+private:
+    TempTableLimits* m_limits;
+    int m_bytes;
 };
 
 } // namespace voltdb
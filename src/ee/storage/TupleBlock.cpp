@@ -33,8 +33,18 @@ TupleBlock::TupleBlock(Table *table, TBBucketPtr bucket) :
         m_nextFreeTuple(0),
         m_lastCompactionOffset(0),
         m_bucket(bucket),
-        m_bucketIndex(0)
+        m_bucketIndex(0),
+        m_spillOffset(-1)
 {
+    allocateStorage(table);
+    tupleBlocksAllocated++;
+}
+
+TupleBlock::~TupleBlock() {
+    freeStorage();
+}
+
+void TupleBlock::allocateStorage(Table *table) {
 #ifdef USE_MMAP
     size_t tableAllocationSize = static_cast<size_t> (m_tupleLength * m_tuplesPerBlock);
     m_storage = static_cast<char*>(::mmap( 0, tableAllocationSize, PROT_READ | PROT_WRITE, MAP_PRIVATE | MAP_ANON, -1, 0 ));
@@ -45,10 +55,12 @@ TupleBlock::TupleBlock(Table *table, TBBucketPtr bucket) :
 #else
     m_storage = new char[table->m_tableAllocationSize];
 #endif
-    tupleBlocksAllocated++;
 }
 
-TupleBlock::~TupleBlock() {
+void TupleBlock::freeStorage() {
+    if (m_storage == NULL) {
+        return;
+    }
 #ifdef USE_MMAP
     size_t tableAllocationSize = static_cast<size_t> (m_tupleLength * m_tuplesPerBlock);
     if (::munmap( m_storage, tableAllocationSize) != 0) {
@@ -58,6 +70,18 @@ TupleBlock::~TupleBlock() {
 #else
     delete []m_storage;
 #endif
+    m_storage = NULL;
+}
+
+void TupleBlock::releaseStorage(int64_t spillOffset) {
+    assert( ! isSpilled());
+    freeStorage();
+    m_spillOffset = spillOffset;
+}
+
+void TupleBlock::restoreStorage(Table *table) {
+    assert(isSpilled());
+    allocateStorage(table);
 }
 
 std::pair<int, int> TupleBlock::merge(Table *table, TBPtr source, TupleMovementListener *listener) {
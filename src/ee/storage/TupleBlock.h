@@ -235,7 +235,25 @@ public:
     inline TBBucketPtr currentBucket() {
         return m_bucket;
     }
+
+    /**
+     * Temp tables spill full blocks to disk by writing out the storage and
+     * letting go of it until the block is scanned again.
+     */
+    void releaseStorage(int64_t spillOffset);
+    void restoreStorage(Table *table);
+
+    inline bool isSpilled() const {
+        return m_storage == NULL;
+    }
+
+    inline int64_t spillOffset() const {
+        return m_spillOffset;
+    }
 private:
+    void allocateStorage(Table *table);
+    void freeStorage();
+
     char*   m_storage;
     uint32_t m_references;
     uint32_t m_tupleLength;
@@ -255,6 +273,7 @@ private:
 
     TBBucketPtr m_bucket;
     int m_bucketIndex;
+    int64_t m_spillOffset;
 };
 
 /**
@@ -268,6 +268,9 @@ inline bool TableIterator::tempNext(TableTuple &out) {
             }
 
             m_currentBlock = *m_tempBlockIterator;
+            if (m_currentBlock->isSpilled()) {
+                m_table->loadSpilledBlock(m_currentBlock);
+            }
             m_dataPtr = m_currentBlock->address();
             m_blockOffset = 0;
             m_tempBlockIterator++;
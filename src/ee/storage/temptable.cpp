@@ -88,6 +88,25 @@ bool TempTable::insertTuple(TableTuple &source) {
     return true;
 }
 
+void TempTable::spillBlock(TBPtr block) {
+    if ( ! m_spillFile) {
+        m_spillFile.reset(new SpillFile(m_limits));
+    }
+    int64_t offset = m_spillFile->write(block->address(), m_tableAllocationSize);
+    block->releaseStorage(offset);
+    m_limits->reduceAllocated(m_tableAllocationSize);
+}
+
+void TempTable::loadSpilledBlock(TBPtr block) {
+    // The block stays in memory until the table is emptied, or the iterator
+    // moves past it when deleting as it goes, since tuples in it may still be
+    // referenced. Charge the memory first: if this goes over the limit,
+    // nothing was allocated.
+    m_limits->increaseAllocated(m_tableAllocationSize);
+    block->restoreStorage(this);
+    m_spillFile->read(block->spillOffset(), block->address(), m_tableAllocationSize);
+}
+
 std::string TempTable::tableType() const { return "TempTable"; }
 
 voltdb::TableStats* TempTable::getTableStats() { return NULL; }
@@ -50,9 +50,12 @@
 #include "common/tabletuple.h"
 #include "common/ThreadLocalPool.h"
 #include "storage/tableiterator.h"
+#include "storage/SpillFile.h"
 #include "storage/TempTableLimits.h"
 #include "storage/TupleBlock.h"
 
+#include "boost/scoped_ptr.hpp"
+
 namespace voltdb {
 
 class TableColumn;
@@ -67,6 +70,21 @@ class TableStats;
  * in TempTable to make it faster, use deleteAllTuples instead.  As
  * there is no deleteTuple, there is no freelist; TempTable does a
  * efficient thing for iterating and deleteAllTuples.
+ *
+ * When its TempTableLimits allow spilling and the memory used by temp
+ * tables passes the spill threshold, each block that fills up (except the
+ * first one, which is kept for reuse) is written to a spill file and its
+ * memory released. An iterator reaching a spilled block reads it back,
+ * after which it stays in memory so tuples handed out remain valid.
+ *
+ * Only consumers that scan with iteratorDeletingAsWeGo() free each block,
+ * read back or not, once they move past it, and so hold a block or two at
+ * a time: projection, limit, the aggregates, the outer side of nested loop
+ * and hash joins and the input of OrderByExecutor's external sort. Others
+ * keep pointers to earlier tuples, like an in-memory ORDER BY or the build
+ * side of a hash join, or scan the table more than once, like the inner
+ * side of a nested loop join, and have every block they read back charged
+ * to the limits again.
  */
 class TempTable : public Table {
     friend class TableFactory;
@@ -156,6 +174,9 @@ class TempTable : public Table {
     void freeLastScanedBlock(std::vector<TBPtr>::iterator nextBlockIterator);
     std::vector<TBPtr>::iterator getDataEndBlockIterator();
 
+    void spillBlock(TBPtr block);
+    void loadSpilledBlock(TBPtr block);
+
     virtual void onSetColumns() {
         m_data.clear();
     };
@@ -168,6 +189,9 @@ class TempTable : public Table {
 
     // ptr to global integer tracking temp table memory allocated per frag
     TempTableLimits* m_limits;
+
+    // created on the first spill, truncated when the table is emptied
+    boost::scoped_ptr<SpillFile> m_spillFile;
 };
 
 inline void TempTable::insertTempTupleDeepCopy(const TableTuple &source, Pool *pool) {
@@ -218,10 +242,14 @@ inline void TempTable::deleteAllTempTuples() {
         m_data.pop_back();
         // These temp table blocks may have been cleaned up
         // and set null already by the delete as we go feature.
-        if (m_limits && blockPtr) {
+        // Spilled blocks no longer count as allocated.
+        if (m_limits && blockPtr && ! blockPtr->isSpilled()) {
             m_limits->reduceAllocated(m_tableAllocationSize);
         }
     }
+    if (m_spillFile) {
+        m_spillFile->truncate();
+    }
 
     // cheap clear of the preserved first block
     if (remaining) {
@@ -230,6 +258,12 @@ inline void TempTable::deleteAllTempTuples() {
 }
 
 inline TBPtr TempTable::allocateNextBlock() {
+    // The block that just filled up will not change any more,
+    // so it can go to disk rather than add to the memory used.
+    if (m_limits && m_data.size() > 1 && m_limits->shouldSpill(m_tableAllocationSize)) {
+        spillBlock(m_data.back());
+    }
+
     TBPtr block(new TupleBlock(this, TBBucketPtr()));
     m_data.push_back(block);
 
@@ -262,8 +296,9 @@ inline void TempTable::freeLastScanedBlock(std::vector<TBPtr>::iterator nextBloc
         nextBlockIterator--;
         // somehow we preserve the first block
         if (m_data.begin() != nextBlockIterator) {
+            bool spilled = (*nextBlockIterator)->isSpilled();
             *nextBlockIterator = NULL;
-            if (m_limits) {
+            if (m_limits && ! spilled) {
                 m_limits->reduceAllocated(m_tableAllocationSize);
             }
         }
@@ -99,6 +99,13 @@ public:
             int64_t currMemoryInBytes,
             int64_t peakMemoryInBytes);
 
+    void fragmentSpilledBytes(int32_t batchIndex, int64_t spilledBytes);
+
+    void fragmentPredicateStats(int32_t batchIndex, int32_t predicates,
+                                int32_t compiledPredicates, int64_t executionNanos);
+
+    void fragmentSemiJoinPrunedRows(int32_t batchIndex, int64_t prunedRows);
+
     std::string decodeBase64AndDecompress(const std::string& base64Data);
 
     /**
@@ -1108,6 +1115,19 @@ int64_t VoltDBIPC::fragmentProgressUpdate(
     return nextStep;
 }
 
+void VoltDBIPC::fragmentSpilledBytes(int32_t batchIndex, int64_t spilledBytes) {
+    // Like progress updates, spill statistics are not reported over IPC.
+}
+
+void VoltDBIPC::fragmentPredicateStats(int32_t batchIndex, int32_t predicates,
+                                       int32_t compiledPredicates, int64_t executionNanos) {
+    // Nor are predicate statistics.
+}
+
+void VoltDBIPC::fragmentSemiJoinPrunedRows(int32_t batchIndex, int64_t prunedRows) {
+    // Nor are semi-join statistics.
+}
+
 void VoltDBIPC::crashVoltDB(voltdb::FatalException e) {
     const char *reasonBytes = e.m_reason.c_str();
     int32_t reasonLength = static_cast<int32_t>(strlen(reasonBytes));
@@ -23,17 +23,26 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
 
+import org.HdrHistogram_voltpatches.Histogram;
 import org.voltcore.logging.Level;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.network.Connection;
 import org.voltcore.network.PicoNetwork;
 import org.voltcore.network.QueueMonitor;
 import org.voltcore.network.VoltProtocolHandler;
+import org.voltcore.utils.CompressionStrategy;
+import org.voltcore.utils.CompressionStrategySnappy;
 import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.EstTime;
@@ -60,6 +69,24 @@ public class ForeignHost {
     // hold onto the socket so we can kill it
     private final Socket m_socket;
 
+    /*
+     * Additional links to the same host, index 0 is always null because the first link
+     * is m_network. Messages are striped across links by destination site so that
+     * ordering per site is preserved. Until both ends have attached a link its stripe
+     * uses the first link.
+     */
+    private PicoNetwork m_links[];
+    private FHInputHandler m_linkHandlers[];
+    private Socket m_linkSockets[];
+    private boolean m_sendingLinks[];
+    private boolean m_startedLinks[];
+    // Stripe to network used by senders, replaced under the write lock of m_sendLock
+    private volatile PicoNetwork m_sendNetworks[];
+    private final StampedLock m_sendLock = new StampedLock();
+    // Links the remote host has attached but that were not attached here yet
+    private final Set<Integer> m_acceptedLinks = new HashSet<Integer>();
+    private Set<Long> m_verbotenThreads;
+
     // Set the default here for TestMessaging, which currently has no VoltDB instance
     private long m_deadHostTimeout;
     private final AtomicLong m_lastMessageMillis = new AtomicLong(Long.MAX_VALUE);
@@ -71,6 +98,61 @@ public class ForeignHost {
     private AtomicBoolean m_linkCutForTest = new AtomicBoolean(false);
 
     public static final int POISON_PILL = -1;
+    // Destination count marker for a message whose body is compressed, the real count follows
+    public static final int COMPRESSED_MESSAGE = -2;
+    /*
+     * Destination count marker sent on the first link once the sender has switched a stripe
+     * to an additional link. The receiver only starts reading that link after the fence so
+     * messages already queued on the first link are delivered first.
+     */
+    public static final int LINK_FENCE = -3;
+    /*
+     * Destination count marker sent on the first link once a host has attached an additional
+     * link. Neither end sends on the link before the other end has accepted it, so a link that
+     * is rejected or never attached leaves its stripe on the first link.
+     */
+    public static final int LINK_ACCEPTED = -6;
+    /*
+     * Destination count markers of the link level ping used to measure round trip latency.
+     * Both carry the System.nanoTime() of the sender, the response echoes it back.
+     * Pings are answered by the network thread and do not count towards liveness, only
+     * messages from the remote host's sites keep the dead host timeout from expiring.
+     */
+    public static final int PING = -4;
+    public static final int PING_RESPONSE = -5;
+
+    // Round trip times above this are recorded as this, a link that slow is timing out anyway
+    private static final long MAX_ROUND_TRIP_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    /*
+     * Ping round trip times in microseconds since the start and since the last interval
+     * read, along with the longest gap between received messages. Guarded by m_roundTrips.
+     */
+    private final Histogram m_roundTrips = new Histogram(MAX_ROUND_TRIP_MICROS, 2);
+    private final Histogram m_intervalRoundTrips = new Histogram(MAX_ROUND_TRIP_MICROS, 2);
+    private long m_maxMessageGapMillis;
+    private long m_intervalMaxMessageGapMillis;
+
+    /*
+     * Messages whose serialized body is at least this many bytes are compressed before
+     * they are sent over the link, 0 disables compression. Receivers always understand
+     * compressed messages so this only needs to be set on the hosts that should compress.
+     */
+    static int COMPRESSION_THRESHOLD = Integer.getInteger("FOREIGN_HOST_COMPRESSION_THRESHOLD", 0);
+
+    private volatile int m_compressionThreshold = COMPRESSION_THRESHOLD;
+    private final CompressionStrategy m_compression = CompressionStrategySnappy.INSTANCE;
+
+    /*
+     * Bytes handed to and produced by the compressor for this link and the time spent
+     * compressing on the sending threads and decompressing on the network thread,
+     * reported per link in IOSTATS
+     */
+    private final AtomicLong m_compressionInputBytes = new AtomicLong();
+    private final AtomicLong m_compressionOutputBytes = new AtomicLong();
+    private final AtomicLong m_compressNanos = new AtomicLong();
+    private final AtomicLong m_decompressNanos = new AtomicLong();
+    private final long m_lastCompressionStats[] = new long[4];
 
     public static final int CRASH_ALL = 0;
     public static final int CRASH_ME = 1;
@@ -154,14 +236,135 @@ public class ForeignHost {
         m_deadHostTimeout = deadHostTimeout;
         m_listeningAddress = listeningAddress;
         m_network = network;
+        m_sendNetworks = new PicoNetwork[] { network };
 
         setLogRate(deadHostTimeout);
     }
 
-    public void enableRead(Set<Long> verbotenThreads) {
+    public synchronized void enableRead(Set<Long> verbotenThreads) {
+        m_verbotenThreads = verbotenThreads;
         m_network.start(m_handler, verbotenThreads);
     }
 
+    /**
+     * Attach an additional connection to this host. Once the remote host has attached it
+     * too, messages for the link's stripe are sent on it, preceded by a fence on the first
+     * link. Once reading, a link that fails takes the whole host down like the first link
+     * does, since the messages queued on it are lost.
+     * @param linkIndex index of the link, 1 to linkCount - 1
+     * @param linkCount total number of links the connecting host will open
+     */
+    synchronized void attachLink(int linkIndex, int linkCount, SocketChannel socket) throws IOException {
+        if (m_closing) {
+            socket.close();
+            return;
+        }
+        if (m_links == null) {
+            m_links = new PicoNetwork[linkCount];
+            m_linkHandlers = new FHInputHandler[linkCount];
+            m_linkSockets = new Socket[linkCount];
+            m_sendingLinks = new boolean[linkCount];
+            m_startedLinks = new boolean[linkCount];
+        }
+        if (linkIndex < 1 || linkIndex >= m_links.length || m_links[linkIndex] != null) {
+            hostLog.warn("Rejecting link " + linkIndex + " of " + linkCount + " from host " + m_hostId);
+            socket.close();
+            return;
+        }
+        m_links[linkIndex] = new PicoNetwork(socket);
+        m_linkHandlers[linkIndex] = new FHInputHandler();
+        m_linkSockets[linkIndex] = socket.socket();
+
+        m_network.enqueue(linkFrame(LINK_ACCEPTED, linkIndex));
+        if (m_acceptedLinks.remove(linkIndex)) {
+            sendOnLink(linkIndex);
+        }
+    }
+
+    private synchronized void linkAccepted(int linkIndex) {
+        if (isAttached(linkIndex)) {
+            sendOnLink(linkIndex);
+        } else {
+            m_acceptedLinks.add(linkIndex);
+        }
+    }
+
+    private boolean isAttached(int linkIndex) {
+        return m_links != null && linkIndex > 0 && linkIndex < m_links.length && m_links[linkIndex] != null;
+    }
+
+    private void sendOnLink(int linkIndex) {
+        if (m_closing) {
+            return;
+        }
+        m_sendingLinks[linkIndex] = true;
+
+        /*
+         * Senders hold the read lock until their message is queued, so once the write lock is
+         * held nothing can be queued on the old stripe and the fence is ordered after everything
+         * that was sent for the stripe on the first link
+         */
+        final long stamp = m_sendLock.writeLock();
+        try {
+            PicoNetwork sendNetworks[] = new PicoNetwork[m_links.length];
+            for (int ii = 0; ii < sendNetworks.length; ii++) {
+                sendNetworks[ii] = m_sendingLinks[ii] ? m_links[ii] : m_network;
+            }
+            m_sendNetworks = sendNetworks;
+        } finally {
+            m_sendLock.unlockWrite(stamp);
+        }
+        m_network.enqueue(linkFrame(LINK_FENCE, linkIndex));
+    }
+
+    /*
+     * The remote host only fences a link after this host accepted it, so it is attached.
+     * What the remote host queued on the link before the fence is sent once it is started.
+     */
+    private synchronized void linkFenced(int linkIndex) {
+        if (!isAttached(linkIndex)) {
+            hostLog.warn("Received a fence for link " + linkIndex + " that is not attached from host " + m_hostId);
+            return;
+        }
+        startLink(linkIndex);
+    }
+
+    private void startLink(int linkIndex) {
+        if (m_closing) {
+            return;
+        }
+        // The fence arrives on the first link so reading has been enabled there already
+        assert(m_verbotenThreads != null);
+        m_links[linkIndex].start(m_linkHandlers[linkIndex], m_verbotenThreads);
+        m_startedLinks[linkIndex] = true;
+    }
+
+    private static ByteBuffer linkFrame(int type, int linkIndex) {
+        ByteBuffer frame = ByteBuffer.allocate(20);
+        frame.putInt(frame.capacity() - 4);
+        frame.putLong(-1);
+        frame.putInt(type);
+        frame.putInt(linkIndex);
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * @return the network of every running link, the first link first
+     */
+    synchronized List<PicoNetwork> getNetworks() {
+        List<PicoNetwork> networks = new ArrayList<PicoNetwork>();
+        networks.add(m_network);
+        if (m_links != null) {
+            for (int ii = 1; ii < m_links.length; ii++) {
+                if (m_startedLinks[ii]) {
+                    networks.add(m_links[ii]);
+                }
+            }
+        }
+        return networks;
+    }
+
     synchronized void close()
     {
         m_isUp = false;
@@ -169,6 +372,18 @@ public class ForeignHost {
         m_closing = true;
         try {
             m_network.shutdownAsync();
+            if (m_links != null) {
+                for (int ii = 1; ii < m_links.length; ii++) {
+                    if (m_startedLinks[ii]) {
+                        m_links[ii].shutdownAsync();
+                    } else if (m_linkSockets[ii] != null) {
+                        // never started so there is no network thread to close it
+                        m_linkSockets[ii].close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            hostLog.warn("Failed to close link to host " + m_hostId, e);
         } catch (InterruptedException e) {
             Throwables.propagate(e);
         }
@@ -184,6 +399,15 @@ public class ForeignHost {
             m_socket.setSoLinger(false, 0);
             Thread.sleep(25);
             m_socket.close();
+            synchronized (this) {
+                if (m_linkSockets != null) {
+                    for (Socket socket : m_linkSockets) {
+                        if (socket != null) {
+                            socket.close();
+                        }
+                    }
+                }
+            }
             Thread.sleep(25);
             System.gc();
             Thread.sleep(25);
@@ -219,7 +443,72 @@ public class ForeignHost {
 
         // if this link is "gone silent" for partition tests, just drop the message on the floor
         if (!m_linkCutForTest.get()) {
-            m_network.enqueue(
+            final long stamp = m_sendLock.readLock();
+            try {
+                final PicoNetwork networks[] = m_sendNetworks;
+                if (networks.length == 1) {
+                    send(networks[0], destinations, message);
+                } else {
+                    sendStriped(networks, destinations, message);
+                }
+            } finally {
+                m_sendLock.unlockRead(stamp);
+            }
+        }
+
+        checkLiveness();
+    }
+
+    private static int stripe(long destinationHSId, int stripes) {
+        return (CoreUtils.getSiteIdFromHSId(destinationHSId) & Integer.MAX_VALUE) % stripes;
+    }
+
+    /*
+     * Send one copy of the message per distinct link used by the destinations so that each
+     * site always receives its messages over the same link
+     */
+    private void sendStriped(final PicoNetwork networks[], final long destinations[], final VoltMessage message) {
+        final PicoNetwork first = networks[stripe(destinations[0], networks.length)];
+        int sameLink = 1;
+        while (sameLink < destinations.length && networks[stripe(destinations[sameLink], networks.length)] == first) {
+            sameLink++;
+        }
+        if (sameLink == destinations.length) {
+            send(first, destinations, message);
+            return;
+        }
+
+        final long linkDestinations[] = new long[destinations.length];
+        final boolean sent[] = new boolean[networks.length];
+        for (int ii = 0; ii < networks.length; ii++) {
+            if (sent[ii]) {
+                continue;
+            }
+            int count = 0;
+            for (long destination : destinations) {
+                final int stripe = stripe(destination, networks.length);
+                if (networks[stripe] == networks[ii]) {
+                    sent[stripe] = true;
+                    linkDestinations[count++] = destination;
+                }
+            }
+            if (count > 0) {
+                send(networks[ii], Arrays.copyOf(linkDestinations, count), message);
+            }
+        }
+    }
+
+    private void send(final PicoNetwork network, final long destinations[], final VoltMessage message) {
+        final int threshold = m_compressionThreshold;
+        final int messageSize = message.getSerializedSize();
+        ByteBuffer compressed = null;
+        if (threshold > 0 && messageSize >= threshold) {
+            compressed = compressMessage(destinations, message, messageSize);
+        }
+        if (compressed != null) {
+            network.enqueue(compressed);
+        } else {
+            network.enqueue(
                     new DeferredSerialization() {
                         @Override
                         public final void serialize(final ByteBuffer buf) throws IOException {
@@ -251,12 +540,55 @@ public class ForeignHost {
                                     + 8            /* source hsid */
                                     + 4            /* destinationCount */
                                     + 8 * destinations.length  /* destination list */
-                                    + message.getSerializedSize();
+                                    + messageSize;
                             return len;
                         }
                     });
         }
+    }
+
+    /**
+     * Serialize and compress a message on the sending thread. The body is compressed straight
+     * into the frame that is queued, so the only copy made is the serialized body.
+     * @return the framed compressed message, or null if compression didn't make it smaller
+     */
+    private ByteBuffer compressMessage(final long destinations[], final VoltMessage message, final int messageSize) {
+        final int headerSize = 4 + 8 + 4 + 4 + 8 * destinations.length;
+        final long start = System.nanoTime();
+        final ByteBuffer buf;
+        final int compressedSize;
+        try {
+            final ByteBuffer body = ByteBuffer.allocate(messageSize);
+            message.flattenToBuffer(body);
+            body.flip();
+            buf = ByteBuffer.allocate(headerSize + m_compression.maxCompressedLength(messageSize));
+            buf.position(headerSize);
+            compressedSize = m_compression.compress(body, buf);
+        } catch (IOException e) {
+            hostLog.warn("Unable to compress " + message.getClass().getSimpleName() + ", sending it uncompressed", e);
+            return null;
+        } finally {
+            m_compressNanos.addAndGet(System.nanoTime() - start);
+        }
+        if (compressedSize >= messageSize) {
+            return null;
+        }
+        m_compressionInputBytes.addAndGet(messageSize);
+        m_compressionOutputBytes.addAndGet(compressedSize);
+
+        buf.position(0);
+        buf.putInt(buf.limit() - 4);
+        buf.putLong(message.m_sourceHSId);
+        buf.putInt(COMPRESSED_MESSAGE);
+        buf.putInt(destinations.length);
+        for (int ii = 0; ii < destinations.length; ii++) {
+            buf.putLong(destinations[ii]);
+        }
+        buf.position(0);
+        return buf;
+    }
 
+    private void checkLiveness() {
         long current_time = EstTime.currentTimeMillis();
         long current_delta = current_time - m_lastMessageMillis.get();
         /*
@@ -336,10 +668,24 @@ public class ForeignHost {
     private void handleRead(ByteBuffer in, Connection c) throws IOException {
         // port is locked by VoltNetwork when in valid use.
         // assert(m_port.m_lock.tryLock() == true);
-        long recvDests[] = null;
-
         final long sourceHSId = in.getLong();
-        final int destCount = in.getInt();
+        int destCount = in.getInt();
+        if (destCount == LINK_ACCEPTED) {
+            linkAccepted(in.getInt());
+            return;
+        }
+        if (destCount == LINK_FENCE) {
+            linkFenced(in.getInt());
+            return;
+        }
+        if (destCount == PING) {
+            m_network.enqueue(pingFrame(PING_RESPONSE, in.getLong()));
+            return;
+        }
+        if (destCount == PING_RESPONSE) {
+            recordRoundTrip(System.nanoTime() - in.getLong());
+            return;
+        }
         if (destCount == POISON_PILL) {//This is a poison pill
             //Ignore poison pill during shutdown, in tests we receive crash messages from
             //leader appointer during shutdown
@@ -367,9 +713,21 @@ public class ForeignHost {
             return;
         }
 
-        recvDests = new long[destCount];
-        for (int i = 0; i < destCount; i++) {
-            recvDests[i] = in.getLong();
+        final boolean compressed = destCount == COMPRESSED_MESSAGE;
+        if (compressed) {
+            destCount = in.getInt();
+        }
+        // Destinations are read in place after the message is created instead of being copied out
+        final ByteBuffer destinations = in;
+        final int destinationsPosition = in.position();
+        in.position(destinationsPosition + 8 * destCount);
+
+        if (compressed) {
+            final long start = System.nanoTime();
+            final ByteBuffer body = ByteBuffer.allocate(m_compression.uncompressedLength(in));
+            m_compression.uncompress(in, body);
+            in = body;
+            m_decompressNanos.addAndGet(System.nanoTime() - start);
         }
 
         final VoltMessage message =
@@ -388,11 +746,13 @@ public class ForeignHost {
         }
 
         for (int i = 0; i < destCount; i++) {
-            deliverMessage( recvDests[i], message);
+            deliverMessage( destinations.getLong(destinationsPosition + 8 * i), message);
         }
 
         //m_lastMessageMillis = System.currentTimeMillis();
-        m_lastMessageMillis.lazySet(EstTime.currentTimeMillis());
+        final long now = EstTime.currentTimeMillis();
+        recordMessageGap(now - m_lastMessageMillis.get());
+        m_lastMessageMillis.lazySet(now);
 
     }
 
@@ -420,6 +780,99 @@ public class ForeignHost {
         m_network.enqueue(message);
     }
 
+    private static ByteBuffer pingFrame(int type, long nanos) {
+        ByteBuffer frame = ByteBuffer.allocate(24);
+        frame.putInt(frame.capacity() - 4);
+        frame.putLong(-1);
+        frame.putInt(type);
+        frame.putLong(nanos);
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * Ping the remote host on the first link, which carries the failure detection traffic.
+     * The round trip covers both network threads as well as the wire.
+     */
+    void sendPing() {
+        if (m_linkCutForTest.get() || m_closing || !m_isUp) {
+            return;
+        }
+        m_network.enqueue(pingFrame(PING, System.nanoTime()));
+    }
+
+    private void recordRoundTrip(long nanos) {
+        final long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0), MAX_ROUND_TRIP_MICROS);
+        synchronized (m_roundTrips) {
+            m_roundTrips.recordValue(micros);
+            m_intervalRoundTrips.recordValue(micros);
+        }
+    }
+
+    /*
+     * Messages from the links of this host can be handled by several network threads
+     * at once so this is only approximately the longest gap, which is enough for tuning
+     */
+    private void recordMessageGap(long gapMillis) {
+        if (gapMillis <= m_intervalMaxMessageGapMillis) {
+            return;
+        }
+        synchronized (m_roundTrips) {
+            m_maxMessageGapMillis = Math.max(m_maxMessageGapMillis, gapMillis);
+            m_intervalMaxMessageGapMillis = Math.max(m_intervalMaxMessageGapMillis, gapMillis);
+        }
+    }
+
+    /**
+     * Failure detection latency of this link: pings answered, median, 99th percentile and
+     * maximum ping round trip in microseconds, the longest gap between messages received
+     * in milliseconds and the current dead host timeout.
+     * Called from the stats thread only.
+     */
+    long[] getHeartbeatStats(boolean interval) {
+        synchronized (m_roundTrips) {
+            final Histogram roundTrips = interval ? m_intervalRoundTrips : m_roundTrips;
+            final long stats[] = new long[] {
+                    roundTrips.getTotalCount(),
+                    roundTrips.getValueAtPercentile(50.0),
+                    roundTrips.getValueAtPercentile(99.0),
+                    roundTrips.getMaxValue(),
+                    interval ? m_intervalMaxMessageGapMillis : m_maxMessageGapMillis,
+                    m_deadHostTimeout };
+            if (interval) {
+                m_intervalRoundTrips.reset();
+                m_intervalMaxMessageGapMillis = 0;
+            }
+            return stats;
+        }
+    }
+
+    void setCompressionThreshold(int threshold) {
+        m_compressionThreshold = threshold;
+    }
+
+    /**
+     * Compression counters for this link: bytes fed to the compressor, bytes it produced,
+     * microseconds spent compressing and microseconds spent decompressing.
+     * Called from the stats thread only.
+     */
+    long[] getCompressionStats(boolean interval) {
+        final long stats[] = new long[] {
+                m_compressionInputBytes.get(),
+                m_compressionOutputBytes.get(),
+                m_compressNanos.get() / 1000,
+                m_decompressNanos.get() / 1000 };
+        if (!interval) {
+            return stats;
+        }
+        final long delta[] = new long[stats.length];
+        for (int ii = 0; ii < stats.length; ii++) {
+            delta[ii] = stats[ii] - m_lastCompressionStats[ii];
+            m_lastCompressionStats[ii] = stats[ii];
+        }
+        return delta;
+    }
+
     public void updateDeadHostTimeout(int timeout) {
         m_deadHostTimeout = timeout;
         setLogRate(timeout);
@@ -27,6 +27,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -40,6 +41,8 @@ import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -76,7 +79,6 @@ import com.google_voltpatches.common.collect.ImmutableSet;
 import com.google_voltpatches.common.collect.Maps;
 import com.google_voltpatches.common.collect.Sets;
 import com.google_voltpatches.common.net.HostAndPort;
-import com.google_voltpatches.common.primitives.Longs;
 
 /**
  * Host messenger contains all the code necessary to join a cluster mesh, and create mailboxes
@@ -116,6 +118,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
 
         private static final String ACCEPTOR = "acceptor";
         private static final String NETWORK_THREADS = "networkThreads";
+        private static final String LINKS_PER_HOST = "linksPerHost";
         private static final String BACKWARDS_TIME_FORGIVENESS_WINDOW = "backwardstimeforgivenesswindow";
         private static final String DEAD_HOST_TIMEOUT = "deadhosttimeout";
         private static final String INTERNAL_PORT = "internalport";
@@ -135,6 +138,11 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         public int networkThreads =  Math.max(2, CoreUtils.availableProcessors() / 4);
         public Queue<String> coreBindIds;
         public JoinAcceptor acceptor = null;
+        /*
+         * Number of connections this node opens to each host it joins, messages are
+         * striped across them by destination site
+         */
+        public int linksPerHost = Integer.getInteger("LINKS_PER_HOST", 1);
 
         public Config(String coordIp, int coordPort) {
             if (coordIp == null || coordIp.length() == 0) {
@@ -220,6 +228,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 js.key(DEAD_HOST_TIMEOUT).value(deadHostTimeout);
                 js.key(BACKWARDS_TIME_FORGIVENESS_WINDOW).value(backwardsTimeForgivenessWindow);
                 js.key(NETWORK_THREADS).value(networkThreads);
+                js.key(LINKS_PER_HOST).value(linksPerHost);
                 js.key(ACCEPTOR).value(acceptor);
                 js.endObject();
 
@@ -296,6 +305,13 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
 
     private final HostWatcher m_hostWatcher;
 
+    /*
+     * How often each foreign host is pinged to measure round trip latency for the
+     * HEARTBEAT statistics, 0 disables pinging
+     */
+    static int PING_INTERVAL = Integer.getInteger("FOREIGN_HOST_PING_INTERVAL", 1000);
+    private final ScheduledThreadPoolExecutor m_pinger;
+
     private final Object m_mapLock = new Object();
 
     /*
@@ -351,6 +367,20 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 m_acceptor,
                 this);
 
+        if (PING_INTERVAL > 0) {
+            m_pinger = CoreUtils.getScheduledThreadPoolExecutor("Link Pinger", 1, CoreUtils.SMALL_STACK_SIZE);
+            m_pinger.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    for (ForeignHost fh : m_foreignHosts.values()) {
+                        fh.sendPing();
+                    }
+                }
+            }, PING_INTERVAL, PING_INTERVAL, TimeUnit.MILLISECONDS);
+        } else {
+            m_pinger = null;
+        }
+
         // Register a clean shutdown hook for the network threads.  This gets cranky
         // when crashLocalVoltDB() is called because System.exit() can get called from
         // a random network thread which is already shutting down and we'll get delicious
@@ -1011,6 +1041,58 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         }
 
         m_zk.create(CoreZK.hosts_host + getHostId(), hostInfo.toBytes(), Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL);
+
+        if (m_config.linksPerHost > 1) {
+            connectAdditionalLinks(m_foreignHosts.values());
+        }
+    }
+
+    /*
+     * The joining node opens the additional links to every host it connected to. It is done
+     * in the background because the remote socket joiners may still be busy admitting this node.
+     * Nothing is sent on a link until the remote host has accepted it, so a link it rejects
+     * leaves its stripe on the first link.
+     */
+    private void connectAdditionalLinks(final Collection<ForeignHost> fhosts) {
+        final ExecutorService es = CoreUtils.getCachedSingleThreadExecutor("Link Connector", 15000);
+        es.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (ForeignHost fh : fhosts) {
+                    for (int linkIndex = 1; linkIndex < m_config.linksPerHost; linkIndex++) {
+                        if (isShuttingDown() || !fh.isUp()) {
+                            break;
+                        }
+                        try {
+                            SocketChannel socket = m_joiner.connectLink(fh.m_listeningAddress, linkIndex, m_config.linksPerHost);
+                            prepSocketChannel(socket);
+                            fh.attachLink(linkIndex, m_config.linksPerHost, socket);
+                        } catch (Exception e) {
+                            m_networkLog.warn("Failed to open link " + linkIndex + " to " + fh.hostnameAndIPAndPort()
+                                    + ", messages for its sites will share the other links", e);
+                            break;
+                        }
+                    }
+                }
+                es.shutdown();
+            }
+        });
+    }
+
+    /*
+     * A joining node opened an additional link to this node
+     */
+    @Override
+    public void notifyOfLink(int hostId, int linkIndex, int linkCount, SocketChannel socket) throws Exception {
+        m_networkLog.info(getHostId() + " notified of link " + linkIndex + " of " + linkCount + " from " + hostId);
+        ForeignHost fhost = m_foreignHosts.get(hostId);
+        if (fhost == null) {
+            m_networkLog.warn("Received link from unknown host " + hostId);
+            socket.close();
+            return;
+        }
+        prepSocketChannel(socket);
+        fhost.attachLink(linkIndex, linkCount, socket);
     }
 
     /**
@@ -1287,23 +1369,33 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
     {
         assert(message != null);
         assert(destinationHSIds != null);
-        final HashMap<ForeignHost, ArrayList<Long>> foreignHosts =
-            new HashMap<ForeignHost, ArrayList<Long>>(32);
-        for (long hsId : destinationHSIds) {
-            ForeignHost host = presend(hsId, message);
-            if (host == null) continue;
-            ArrayList<Long> bundle = foreignHosts.get(host);
-            if (bundle == null) {
-                bundle = new ArrayList<Long>();
-                foreignHosts.put(host, bundle);
+        /*
+         * Group the remote destinations by host without boxing them, fragments
+         * fan out to every partition so this is on the hot path
+         */
+        final ForeignHost hosts[] = new ForeignHost[destinationHSIds.length];
+        int remote = 0;
+        for (int ii = 0; ii < destinationHSIds.length; ii++) {
+            hosts[ii] = presend(destinationHSIds[ii], message);
+            if (hosts[ii] != null) {
+                remote++;
             }
-            bundle.add(hsId);
         }
 
-        if (foreignHosts.size() == 0) return;
+        if (remote == 0) return;
 
-        for (Entry<ForeignHost, ArrayList<Long>> e : foreignHosts.entrySet()) {
-            e.getKey().send(Longs.toArray(e.getValue()), message);
+        final long bundle[] = new long[remote];
+        for (int ii = 0; ii < hosts.length; ii++) {
+            final ForeignHost host = hosts[ii];
+            if (host == null) continue;
+            int count = 0;
+            for (int jj = ii; jj < hosts.length; jj++) {
+                if (hosts[jj] == host) {
+                    bundle[count++] = destinationHSIds[jj];
+                    hosts[jj] = null;
+                }
+            }
+            host.send(Arrays.copyOf(bundle, count), message);
         }
     }
 
@@ -1335,6 +1427,9 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
 
     public void shutdown() throws InterruptedException
     {
+        if (m_pinger != null) {
+            m_pinger.shutdownNow();
+        }
         if (m_zk != null) {
             m_zk.close();
         }
@@ -1450,10 +1545,50 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         ArrayList<IOStatsIntf> picoNetworks = new ArrayList<IOStatsIntf>(fhosts.size());
 
         for (ForeignHost fh : fhosts.values()) {
-            picoNetworks.add(fh.m_network);
+            picoNetworks.addAll(fh.getNetworks());
+        }
+
+        Map<Long, Pair<String, long[]>> stats = m_network.getIOStats(interval, picoNetworks);
+
+        // Append the per link compression counters to the foreign host rows
+        for (ForeignHost fh : fhosts.values()) {
+            final Long connectionId = fh.m_handler.connectionId();
+            final Pair<String, long[]> linkStats = stats.get(connectionId);
+            final long compressionStats[] = fh.getCompressionStats(interval);
+            if (linkStats != null) {
+                final long counters[] = Arrays.copyOf(linkStats.getSecond(),
+                        linkStats.getSecond().length + compressionStats.length);
+                System.arraycopy(compressionStats, 0, counters, linkStats.getSecond().length, compressionStats.length);
+                stats.put(connectionId, Pair.of(linkStats.getFirst(), counters));
+            }
         }
+        return stats;
+    }
 
-        return m_network.getIOStats(interval, picoNetworks);
+    /**
+     * Failure detection latency for every foreign host keyed by host id: the ping round trip
+     * and message gap counters from {@link ForeignHost#getHeartbeatStats(boolean)} followed
+     * by the number of network thread stalls and the longest stall in milliseconds across
+     * all links to the host.
+     */
+    public Map<Integer, Pair<String, long[]>> getHeartbeatStats(final boolean interval) {
+        final Map<Integer, Pair<String, long[]>> stats = new HashMap<Integer, Pair<String, long[]>>();
+        for (Entry<Integer, ForeignHost> e : m_foreignHosts.entrySet()) {
+            final ForeignHost fh = e.getValue();
+            final long heartbeatStats[] = fh.getHeartbeatStats(interval);
+            long stalls = 0;
+            long maxStallMillis = 0;
+            for (PicoNetwork network : fh.getNetworks()) {
+                final long stallStats[] = network.getStallStats(interval);
+                stalls += stallStats[0];
+                maxStallMillis = Math.max(maxStallMillis, stallStats[1]);
+            }
+            final long counters[] = Arrays.copyOf(heartbeatStats, heartbeatStats.length + 2);
+            counters[heartbeatStats.length] = stalls;
+            counters[heartbeatStats.length + 1] = maxStallMillis;
+            stats.put(e.getKey(), Pair.of(fh.hostname(), counters));
+        }
+        return stats;
     }
 
     /**
@@ -77,6 +77,9 @@ public class SocketJoiner {
     private static final String TYPE = "type";
     private static final String PUBLISH_HOSTID = "PUBLISH_HOSTID";
     private static final String REQUEST_HOSTID = "REQUEST_HOSTID";
+    private static final String PUBLISH_LINK = "PUBLISH_LINK";
+    private static final String LINK_INDEX = "linkIndex";
+    private static final String LINK_COUNT = "linkCount";
     private static final String HOST_ID = "hostId";
     private static final String PORT = "port";
     private static final String ADDRESS = "address";
@@ -128,6 +131,15 @@ public class SocketJoiner {
                 SocketChannel sockets[],
                 InetSocketAddress listeningAddresses[],
                 Map<Integer, JSONObject> jos) throws Exception;
+
+        /*
+         * A host that is already connected opened an additional link to this node
+         */
+        public void notifyOfLink(
+                int hostId,
+                int linkIndex,
+                int linkCount,
+                SocketChannel socket) throws Exception;
     }
 
     private static final VoltLogger LOG = new VoltLogger("JOINER");
@@ -485,6 +497,8 @@ public class SocketJoiner {
                 m_joinHandler.requestJoin( sc, listeningAddress, jsObj);
             } else if (type.equals(PUBLISH_HOSTID)){
                 m_joinHandler.notifyOfJoin(jsObj.getInt(HOST_ID), sc, listeningAddress, jsObj);
+            } else if (type.equals(PUBLISH_LINK)) {
+                m_joinHandler.notifyOfLink(jsObj.getInt(HOST_ID), jsObj.getInt(LINK_INDEX), jsObj.getInt(LINK_COUNT), sc);
             } else {
                 throw new RuntimeException("Unexpected message type " + type + " from " + remoteAddress);
             }
@@ -578,6 +592,54 @@ public class SocketJoiner {
         return jsonResponse;
     }
 
+    /**
+     * Open an additional link to a host this node is already connected to. Goes through the same
+     * handshake as the connection that published the host id so the remote socket joiner can
+     * hand it to its host messenger.
+     */
+    SocketChannel connectLink(InetSocketAddress hostAddr, int linkIndex, int linkCount) throws Exception {
+        SocketChannel hostSocket = SocketChannel.open(hostAddr);
+        try {
+            hostSocket.socket().setTcpNoDelay(true);
+            hostSocket.socket().setPerformancePreferences(0, 2, 1);
+            final String remoteAddress = hostSocket.socket().getRemoteSocketAddress().toString();
+
+            // The acceptor always leads with its time for the clock skew check
+            ByteBuffer currentTimeBuf = ByteBuffer.allocate(8);
+            while (currentTimeBuf.hasRemaining()) {
+                if (hostSocket.read(currentTimeBuf) == -1) {
+                    throw new EOFException(remoteAddress);
+                }
+            }
+
+            JSONObject jsObj = new JSONObject();
+            jsObj.put(TYPE, PUBLISH_LINK);
+            jsObj.put(HOST_ID, m_localHostId);
+            jsObj.put(LINK_INDEX, linkIndex);
+            jsObj.put(LINK_COUNT, linkCount);
+            jsObj.put(PORT, m_internalPort);
+            jsObj.put(
+                    ADDRESS,
+                    m_internalInterface.isEmpty() ? m_reportedInternalInterface : m_internalInterface);
+            jsObj.put(VERSION_STRING, m_acceptor.getVersionChecker().getVersionString());
+
+            byte jsBytes[] = jsObj.toString(4).getBytes(StandardCharsets.UTF_8);
+            ByteBuffer publishLink = ByteBuffer.allocate(4 + jsBytes.length);
+            publishLink.putInt(jsBytes.length);
+            publishLink.put(jsBytes).flip();
+            while (publishLink.hasRemaining()) {
+                hostSocket.write(publishLink);
+            }
+
+            // versions were already validated on the first link
+            readJSONObjFromWire(hostSocket, remoteAddress);
+            return hostSocket;
+        } catch (Exception e) {
+            hostSocket.close();
+            throw e;
+        }
+    }
+
     /*
      * If this node failed to bind to the leader address
      * it must connect to the leader which will generate a host id and
@@ -123,7 +123,7 @@ public class NIOReadStream {
             while (bytesRead < maxBytes && lastRead > 0) {
                 ByteBuffer writeBuffer = null;
                 if (m_writeBuffer == null) {
-                    m_writeBuffer = pool.acquire();
+                    m_writeBuffer = m_readBufferSize == 0 ? pool.acquire() : pool.acquire(m_readBufferSize);
                     writeBuffer = m_writeBuffer.b();
                     writeBuffer.clear();
                 } else {
@@ -160,12 +160,83 @@ public class NIOReadStream {
             if (bytesRead > 0) {
                 m_bytesRead += bytesRead;
                 m_totalAvailable += bytesRead;
+                adaptReadBufferSize(pool, bytesRead);
             }
         }
 
         return bytesRead;
     }
 
+    /*
+     * Size the next buffer acquired for reading to fit what recent calls to read() brought in.
+     * A large message or a burst of messages grows it right away, and each read afterwards decays
+     * the remembered peak by an eighth, so it shrinks back towards the pool's regular size over
+     * a window of smaller reads. Only the bytes of each call count, not how full a buffer that is
+     * kept across calls has become.
+     */
+    private void adaptReadBufferSize(NetworkDBBPool pool, int bytesRead) {
+        m_recentReadPeak = Math.max(bytesRead, m_recentReadPeak - (m_recentReadPeak >> READ_PEAK_DECAY_SHIFT));
+        int size = pool.getAllocationSize();
+        while (size < m_recentReadPeak && size * 2 <= NetworkDBBPool.MAX_LARGE_SIZE) {
+            size *= 2;
+        }
+        m_readBufferSize = size == pool.getAllocationSize() ? 0 : size;
+    }
+
+    /**
+     * Called once every complete message has been taken from the stream and the connection
+     * waits for more data. Buffers larger than the pool's regular size are not kept while
+     * waiting: if the bytes of the partial message left in them fit a regular buffer, they
+     * move into one and the large buffers go back to the pool.
+     */
+    void releaseLargeBuffers(NetworkDBBPool pool) {
+        final int regularSize = pool.getAllocationSize();
+        if (m_totalAvailable > regularSize) {
+            return;
+        }
+        boolean holdsLarge = m_writeBuffer != null && m_writeBuffer.b().capacity() > regularSize;
+        for (BBContainer c : m_readBuffers) {
+            holdsLarge |= c.b().capacity() > regularSize;
+        }
+        if (!holdsLarge) {
+            return;
+        }
+
+        final BBContainer regular = pool.acquire();
+        final ByteBuffer target = regular.b();
+        target.clear();
+        BBContainer c;
+        while ((c = m_readBuffers.poll()) != null) {
+            target.put(c.b());
+            c.discard();
+        }
+        if (m_writeBuffer != null) {
+            final ByteBuffer written = m_writeBuffer.b().duplicate();
+            written.flip();
+            target.put(written);
+            m_writeBuffer.discard();
+        }
+        m_writeBuffer = regular;
+    }
+
+    /*
+     * Used by tests
+     */
+    int getReadBufferSize() {
+        return m_readBufferSize;
+    }
+
+    /*
+     * Used by tests
+     */
+    int getBufferedCapacity() {
+        int capacity = m_writeBuffer == null ? 0 : m_writeBuffer.b().capacity();
+        for (BBContainer c : m_readBuffers) {
+            capacity += c.b().capacity();
+        }
+        return capacity;
+    }
+
     void shutdown() {
         for (BBContainer c : m_readBuffers) {
             c.discard();
@@ -180,6 +251,15 @@ public class NIOReadStream {
     private final ArrayDeque<BBContainer> m_readBuffers = new ArrayDeque<BBContainer>();
     private BBContainer m_writeBuffer = null;
     private int m_totalAvailable = 0;
+    /*
+     * Minimum size of the next buffer to read into, 0 for the pool's regular size
+     */
+    private int m_readBufferSize = 0;
+    /*
+     * Bytes of the largest recent call to read(), decayed by 1/2^READ_PEAK_DECAY_SHIFT per call
+     */
+    private int m_recentReadPeak = 0;
+    private static final int READ_PEAK_DECAY_SHIFT = 3;
     private long m_bytesRead = 0;
     private long m_lastBytesRead = 0;
 
@@ -26,6 +26,7 @@ import java.util.ArrayDeque;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.EstTime;
+import org.voltcore.utils.MpscQueue;
 
 /**
 *
@@ -53,15 +54,23 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
     private static final VoltLogger networkLog = new VoltLogger("NETWORK");
 
     /**
-     * Contains messages waiting to be serialized and written to the socket
+     * Contains messages waiting to be serialized and written to the socket. Producers
+     * (site threads responding to clients) enqueue without taking the stream's monitor
+     * and the network thread drains everything queued so far in one batch.
      */
-    private final ArrayDeque<DeferredSerialization> m_queuedWrites1 =
-        new ArrayDeque<DeferredSerialization>();
+    private final MpscQueue<DeferredSerialization> m_queuedWrites =
+        new MpscQueue<DeferredSerialization>();
 
-    private final ArrayDeque<DeferredSerialization> m_queuedWrites2 =
+    /**
+     * Batch drained from m_queuedWrites, only touched by the network thread
+     */
+    private final ArrayDeque<DeferredSerialization> m_drainedWrites =
         new ArrayDeque<DeferredSerialization>();
 
-    private ArrayDeque<DeferredSerialization> m_queuedWrites = m_queuedWrites1;
+    /**
+     * Size of m_drainedWrites published for other threads, which only read this
+     */
+    private volatile int m_drainedWriteCount = 0;
 
     private final int m_maxQueuedWritesBeforeBackpressure = 100;
 
@@ -73,8 +82,10 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
     /**
      * Set to -1 when there are no pending writes. If there is a pending write it is set to the time
      * of the last successful write or the time the oldest pending write was queued.
+     * Producers only ever set it from -1 and can race with a drain resetting it, in which case
+     * the pending write is timed from the next enqueue instead.
      */
-    private long m_lastPendingWriteTime = -1;
+    private volatile long m_lastPendingWriteTime = -1;
 
     NIOWriteStream(VoltPort port) {
         this(port, null, null, null);
@@ -96,15 +107,15 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
      * Return the number of messages waiting to be written to the network
      */
     @Override
-    synchronized public int getOutstandingMessageCount()
+    public int getOutstandingMessageCount()
     {
-        return m_queuedWrites.size() + super.getOutstandingMessageCount();
+        return m_queuedWrites.size() + m_drainedWriteCount + super.getOutstandingMessageCount();
     }
 
     @Override
-    synchronized public boolean isEmpty()
+    public boolean isEmpty()
     {
-        return super.isEmpty() && m_queuedWrites.isEmpty();
+        return super.isEmpty() && m_drainedWriteCount == 0 && m_queuedWrites.isEmpty();
     }
 
     /**
@@ -117,24 +128,26 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
     }
 
     @Override
-    protected synchronized ArrayDeque<DeferredSerialization> getQueuedWrites() {
-        ArrayDeque<DeferredSerialization> oldlist;
-        if (m_queuedWrites.isEmpty()) return m_queuedWrites;
-        if (m_queuedWrites == m_queuedWrites1) {
-            oldlist = m_queuedWrites1;
-            m_queuedWrites = m_queuedWrites2;
-        }
-        else {
-            oldlist = m_queuedWrites2;
-            m_queuedWrites = m_queuedWrites1;
-        }
-        return oldlist;
+    protected ArrayDeque<DeferredSerialization> getQueuedWrites() {
+        // Count what is about to move before it leaves m_queuedWrites, so other threads
+        // never see the stream as empty while it still has writes
+        m_drainedWriteCount = m_drainedWrites.size() + m_queuedWrites.size();
+        m_queuedWrites.drainTo(m_drainedWrites);
+        m_drainedWriteCount = m_drainedWrites.size();
+        return m_drainedWrites;
+    }
+
+    @Override
+    protected void queuedWritesSerialized() {
+        m_drainedWriteCount = m_drainedWrites.size();
     }
 
     /**
-     * Called when not all queued data could be flushed to the channel
+     * Called when not all queued data could be flushed to the channel. Synchronized because
+     * producers can trigger it without holding any other lock and the callbacks must only
+     * run once per transition.
      */
-    protected final void backpressureStarted() {
+    protected final synchronized void backpressureStarted() {
         if (networkLog.isTraceEnabled()) {
             networkLog.trace("Backpressure started for client " + m_port);
         }
@@ -147,14 +160,21 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
     }
 
     /**
-     * Called when all queued data is flushed to the channel
+     * Called when all queued data is flushed to the channel. Producers enqueue without the lock
+     * and only check the flag after their write is counted, so the flag is cleared before the
+     * queue is checked again: a producer that pushed the queue over the limit either sees the
+     * flag cleared and starts backpressure itself, or is seen here and backpressure stays on.
      */
-    protected final void backpressureEnded() {
-        if (networkLog.isTraceEnabled()) {
-            networkLog.trace("Backpressure ended for client " + m_port);
-        }
+    protected final synchronized void backpressureEnded() {
         if (m_hadBackPressure == true) {
             m_hadBackPressure = false;
+            if (m_queuedWrites.size() > m_maxQueuedWritesBeforeBackpressure) {
+                m_hadBackPressure = true;
+                return;
+            }
+            if (networkLog.isTraceEnabled()) {
+                networkLog.trace("Backpressure ended for client " + m_port);
+            }
             if (m_offBackPressureCallback != null) {
                 m_offBackPressureCallback.run();
             }
@@ -182,33 +202,26 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
      */
     @Override
     public void enqueue(final DeferredSerialization ds) {
-        synchronized (this) {
-            if (m_isShutdown) {
-                ds.cancel();
-                return;
-            }
-            updateLastPendingWriteTimeAndQueueBackpressure();
-            m_queuedWrites.offer(ds);
-            m_port.setInterests( SelectionKey.OP_WRITE, 0);
+        if (!m_queuedWrites.offer(ds)) {
+            //Stream was shutdown
+            ds.cancel();
+            return;
         }
-        return;
+        updateLastPendingWriteTimeAndQueueBackpressure();
+        m_port.setInterests( SelectionKey.OP_WRITE, 0);
     }
 
     /*
      * For the server we run everything backpressure
      * related on the network thread, so the entire thing can just
-     * go in the queue directly without acquiring any additional locks
+     * go in the queue directly from there
      */
     @Override
     public void fastEnqueue(final DeferredSerialization ds) {
         m_port.queueTask(new Runnable() {
             @Override
             public void run() {
-                synchronized (NIOWriteStream.this) {
-                    updateLastPendingWriteTimeAndQueueBackpressure();
-                    m_queuedWrites.offer(ds);
-                    m_port.setInterests( SelectionKey.OP_WRITE, 0);
-                }
+                enqueue(ds);
             }
         });
     }
@@ -236,37 +249,32 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
             }
         }
 
-        synchronized (this) {
-            if (m_isShutdown) {
-                return;
-            }
-
-            updateLastPendingWriteTimeAndQueueBackpressure();
-
-            m_queuedWrites.offer(new DeferredSerialization() {
-                @Override
-                public void serialize(ByteBuffer outbuf) {
-                    for (ByteBuffer buf : b) {
-                        outbuf.put(buf);
-                    }
+        final boolean queued = m_queuedWrites.offer(new DeferredSerialization() {
+            @Override
+            public void serialize(ByteBuffer outbuf) {
+                for (ByteBuffer buf : b) {
+                    outbuf.put(buf);
                 }
+            }
 
-                @Override
-                public void cancel() {}
+            @Override
+            public void cancel() {}
 
-                @Override
-                public int getSerializedSize() {
-                    int sum = 0;
-                    for (ByteBuffer buf : b) {
-                        buf.position(0);
-                        sum += buf.remaining();
-                    }
-                    return sum;
+            @Override
+            public int getSerializedSize() {
+                int sum = 0;
+                for (ByteBuffer buf : b) {
+                    buf.position(0);
+                    sum += buf.remaining();
                 }
-            });
-            m_port.setInterests( SelectionKey.OP_WRITE, 0);
+                return sum;
+            }
+        });
+        if (!queued) {
+            return;
         }
-        return;
+        updateLastPendingWriteTimeAndQueueBackpressure();
+        m_port.setInterests( SelectionKey.OP_WRITE, 0);
     }
 
     /**
@@ -277,17 +285,22 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
     synchronized void shutdown() {
         super.shutdown();
         DeferredSerialization ds = null;
-        while ((ds = m_queuedWrites.poll()) != null) {
+        while ((ds = m_drainedWrites.poll()) != null) {
             ds.cancel();
         }
+        m_drainedWriteCount = 0;
+        for (DeferredSerialization queued : m_queuedWrites.close()) {
+            queued.cancel();
+        }
     }
 
     @Override
-    public synchronized int calculatePendingWriteDelta(final long now) {
-        if (m_lastPendingWriteTime == -1) {
+    public int calculatePendingWriteDelta(final long now) {
+        final long lastPendingWriteTime = m_lastPendingWriteTime;
+        if (lastPendingWriteTime == -1) {
             return 0;
         }
-        return (int)(now - m_lastPendingWriteTime);
+        return (int)(now - lastPendingWriteTime);
     }
 
     private void updateLastPendingWriteTimeAndQueueBackpressure() {
@@ -313,9 +326,9 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
 
     /**
      * Does the work of queueing addititional buffers that have been serialized
-     * and choosing between gathering and regular writes to the channel. Also splits up very large
-     * writes of HeapByteBuffers into many smaller writes so Java doesn't allocate a monster DirectByteBuffer
-     * that will never be freed
+     * and draining them to the channel with gathering writes of up to MAX_GATHERED_BUFFERS
+     * pooled buffers at a time. All the buffers are direct so Java doesn't allocate
+     * a monster DirectByteBuffer that will never be freed
      * @param channel
      * @return
      * @throws IOException
@@ -333,26 +346,13 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
                     return bytesWritten;
                 }
 
-                ByteBuffer buffer = null;
-                if (m_currentWriteBuffer == null) {
-                    m_currentWriteBuffer = m_queuedBuffers.poll();
-                    buffer = m_currentWriteBuffer.b();
-                    buffer.flip();
-                } else {
-                    buffer = m_currentWriteBuffer.b();
-                }
-
-                rc = channel.write(buffer);
+                rc = gatheringWrite(channel);
 
-                //Discard the buffer back to a pool if no data remains
-                if (buffer.hasRemaining()) {
+                //Data left over in a gathered buffer means the channel is full
+                if (m_currentWriteBuffer != null) {
                     if (!m_hadBackPressure) {
                         backpressureStarted();
                     }
-                } else {
-                    m_currentWriteBuffer.discard();
-                    m_currentWriteBuffer = null;
-                    m_messagesWritten++;
                 }
                 bytesWritten += rc;
 
@@ -360,7 +360,7 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
         } finally {
             //We might fail after writing few bytes. make sure the ones that are written accounted for.
             //Not sure if we need to do any backpressure magic as client is dead and so no backpressure on this may be needed.
-            if (m_queuedBuffers.isEmpty() && m_hadBackPressure && m_queuedWrites.size() <= m_maxQueuedWritesBeforeBackpressure) {
+            if (m_queuedBuffers.isEmpty() && m_hadBackPressure) {
                 backpressureEnded();
             }
             //Same here I dont know if we do need to do this housekeeping??
@@ -49,6 +49,19 @@ public abstract class NIOWriteStreamBase {
 
     protected long m_bytesWritten = 0;
     protected long m_messagesWritten = 0;
+    protected long m_writeCalls = 0;
+
+    /*
+     * Upper bound on the number of pooled buffers handed to a single gathering write.
+     * Kept well below IOV_MAX, the JDK splits anything larger into multiple syscalls anyway.
+     */
+    static final int MAX_GATHERED_BUFFERS = Integer.getInteger("MAX_GATHERED_BUFFERS", 32);
+
+    /*
+     * Scratch arrays for assembling gathering writes, only touched by the thread draining the stream
+     */
+    private final BBContainer[] m_gatherContainers = new BBContainer[MAX_GATHERED_BUFFERS];
+    private final ByteBuffer[] m_gatherBuffers = new ByteBuffer[MAX_GATHERED_BUFFERS];
 
     /*
      * Used to provide incremental reads of the amount of
@@ -58,7 +71,12 @@ public abstract class NIOWriteStreamBase {
      */
     private long m_lastBytesWritten = 0;
     private long m_lastMessagesWritten = 0;
+    private long m_lastWriteCalls = 0;
 
+    /*
+     * Returns bytes written, messages (buffers) written and the number of write calls
+     * made to the channel to write them
+     */
     long[] getBytesAndMessagesWritten(boolean interval) {
         if (interval) {
             final long bytesWrittenThisTime = m_bytesWritten - m_lastBytesWritten;
@@ -66,9 +84,12 @@ public abstract class NIOWriteStreamBase {
 
             final long messagesWrittenThisTime = m_messagesWritten - m_lastMessagesWritten;
             m_lastMessagesWritten = m_messagesWritten;
-            return new long[] { bytesWrittenThisTime, messagesWrittenThisTime };
+
+            final long writeCallsThisTime = m_writeCalls - m_lastWriteCalls;
+            m_lastWriteCalls = m_writeCalls;
+            return new long[] { bytesWrittenThisTime, messagesWrittenThisTime, writeCallsThisTime };
         } else {
-            return new long[] {m_bytesWritten, m_messagesWritten};
+            return new long[] {m_bytesWritten, m_messagesWritten, m_writeCalls};
         }
     }
 
@@ -87,8 +108,68 @@ public abstract class NIOWriteStreamBase {
 
     abstract int drainTo (final GatheringByteChannel channel) throws IOException;
 
+    /**
+     * Write the current write buffer and as many of the queued buffers as will fit
+     * to the channel with a single gathering write. Buffers that were completely written are
+     * discarded back to the pool, the first buffer with data remaining becomes the current
+     * write buffer and buffers the channel didn't get to are returned to the head of the queue
+     * in the same state swapAndSerializeQueuedWrites left them in.
+     * @param channel
+     * @return the number of bytes written, 0 if there was nothing to write
+     * @throws IOException
+     */
+    protected final long gatheringWrite(final GatheringByteChannel channel) throws IOException {
+        int count = 0;
+        if (m_currentWriteBuffer != null) {
+            m_gatherContainers[count++] = m_currentWriteBuffer;
+            m_currentWriteBuffer = null;
+        }
+        while (count < MAX_GATHERED_BUFFERS && !m_queuedBuffers.isEmpty()) {
+            final BBContainer c = m_queuedBuffers.poll();
+            c.b().flip();
+            m_gatherContainers[count++] = c;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        for (int ii = 0; ii < count; ii++) {
+            m_gatherBuffers[ii] = m_gatherContainers[ii].b();
+        }
+
+        try {
+                m_writeCalls++;
+                return channel.write(m_gatherBuffers, 0, count);
+        } finally {
+            int ii = 0;
+            for (; ii < count && !m_gatherBuffers[ii].hasRemaining(); ii++) {
+                m_gatherContainers[ii].discard();
+                m_messagesWritten++;
+            }
+            if (ii < count) {
+                m_currentWriteBuffer = m_gatherContainers[ii];
+            }
+            //Undo the flip on buffers that weren't touched so they can still be appended to
+            for (int jj = count - 1; jj > ii; jj--) {
+                final ByteBuffer b = m_gatherBuffers[jj];
+                b.position(b.limit());
+                b.limit(b.capacity());
+                m_queuedBuffers.addFirst(m_gatherContainers[jj]);
+            }
+            for (int jj = 0; jj < count; jj++) {
+                m_gatherContainers[jj] = null;
+                m_gatherBuffers[jj] = null;
+            }
+        }
+    }
+
     protected abstract ArrayDeque<DeferredSerialization> getQueuedWrites();
 
+    /**
+     * Called on the network thread once the writes returned by getQueuedWrites()
+     * have been serialized, or serializing them failed part way
+     */
+    protected void queuedWritesSerialized() {}
+
     /**
      * Swap the two queues of DeferredSerializations and serialize everything into the queue
      * of pending buffers
@@ -102,6 +183,7 @@ public abstract class NIOWriteStreamBase {
 
         DeferredSerialization ds = null;
         int bytesQueued = 0;
+        try {
         while ((ds = oldlist.poll()) != null) {
             processedWrites++;
             final int serializedSize = ds.getSerializedSize();
@@ -152,6 +234,9 @@ public abstract class NIOWriteStreamBase {
                 }
             }
         }
+        } finally {
+            queuedWritesSerialized();
+        }
         updateQueued(bytesQueued, true);
         return processedWrites;
     }
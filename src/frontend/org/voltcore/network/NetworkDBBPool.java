@@ -18,6 +18,8 @@
 package org.voltcore.network;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
@@ -28,8 +30,23 @@ public class NetworkDBBPool {
     private static final int LIMIT = Integer.getInteger("NETWORK_DBB_LIMIT", 512);
     private static final int SIZE = Integer.getInteger("NETWORK_DBB_SIZE", (1024 * 32));
 
+    /*
+     * Buffers larger than the regular allocation size are handed out to connections
+     * that are receiving large messages. They come in power of two size classes up to
+     * MAX_LARGE_SIZE and the bytes allocated for them across every pool in the process
+     * are bounded by LARGE_BUDGET. Once the budget is used up connections get regular
+     * buffers. Only LARGE_LIMIT idle buffers of each size class are kept around.
+     */
+    static final int MAX_LARGE_SIZE = Integer.getInteger("NETWORK_DBB_MAX_LARGE_SIZE", 1024 * 1024);
+    static long LARGE_BUDGET = Long.getLong("NETWORK_DBB_LARGE_BUDGET", 64L * 1024 * 1024);
+    private static final int LARGE_LIMIT = Integer.getInteger("NETWORK_DBB_LARGE_LIMIT", 2);
+    private static final AtomicLong m_largeBytesAllocated = new AtomicLong();
+    private static final AtomicLong m_regularBytesAllocated = new AtomicLong();
+
     private final int m_numBuffers;
     private final int m_allocationSize;
+    private final ArrayList<ArrayDeque<BBContainer>> m_largeBuffers = new ArrayList<ArrayDeque<BBContainer>>();
+
     public NetworkDBBPool(int numBuffers) {
         m_numBuffers = numBuffers;
         m_allocationSize = SIZE;
@@ -45,10 +62,72 @@ public class NetworkDBBPool {
         m_allocationSize = SIZE;
     }
 
+    int getAllocationSize() {
+        return m_allocationSize;
+    }
+
+    /**
+     * @return bytes currently allocated for large buffers by all pools, in use or idle
+     */
+    public static long getLargeBytesAllocated() {
+        return m_largeBytesAllocated.get();
+    }
+
+    /**
+     * @return bytes currently allocated by all pools, in use or idle
+     */
+    public static long getBytesAllocated() {
+        return m_regularBytesAllocated.get() + m_largeBytesAllocated.get();
+    }
+
+    /**
+     * Acquire a buffer with at least minSize capacity, capped at MAX_LARGE_SIZE. Returns a
+     * regular sized buffer if minSize fits in one or the large buffer budget is used up.
+     */
+    BBContainer acquire(int minSize) {
+        if (minSize <= m_allocationSize || m_allocationSize * 2 > MAX_LARGE_SIZE) {
+            return acquire();
+        }
+        int size = m_allocationSize * 2;
+        int sizeClass = 0;
+        while (size < minSize && size * 2 <= MAX_LARGE_SIZE) {
+            size *= 2;
+            sizeClass++;
+        }
+        while (m_largeBuffers.size() <= sizeClass) {
+            m_largeBuffers.add(new ArrayDeque<BBContainer>());
+        }
+        final ArrayDeque<BBContainer> pooled = m_largeBuffers.get(sizeClass);
+
+        BBContainer cont = pooled.poll();
+        if (cont == null) {
+            if (m_largeBytesAllocated.addAndGet(size) > LARGE_BUDGET) {
+                m_largeBytesAllocated.addAndGet(-size);
+                return acquire();
+            }
+            cont = DBBPool.allocateDirect(size);
+        }
+        final BBContainer origin = cont;
+        final int capacity = size;
+        return new BBContainer(origin.b()) {
+            @Override
+            public void discard() {
+                checkDoubleFree();
+                if (pooled.size() >= LARGE_LIMIT) {
+                    origin.discard();
+                    m_largeBytesAllocated.addAndGet(-capacity);
+                    return;
+                }
+                pooled.push(origin);
+            }
+        };
+    }
+
     BBContainer acquire() {
        final BBContainer cont = m_buffers.poll();
        if (cont == null) {
            final BBContainer originContainer = DBBPool.allocateDirect(m_allocationSize);
+           m_regularBytesAllocated.addAndGet(m_allocationSize);
            return new BBContainer(originContainer.b()) {
                 @Override
                 public void discard() {
@@ -56,6 +135,7 @@ public class NetworkDBBPool {
                     //If we had to allocate over the desired limit, start discarding
                     if (m_buffers.size() > m_numBuffers) {
                         originContainer.discard();
+                        m_regularBytesAllocated.addAndGet(-m_allocationSize);
                         return;
                     }
                     m_buffers.push(originContainer);
@@ -74,8 +154,15 @@ public class NetworkDBBPool {
     void clear() {
         BBContainer cont = null;
         while ((cont = m_buffers.poll()) != null) {
+            m_regularBytesAllocated.addAndGet(-cont.b().capacity());
             cont.discard();
         }
+        for (ArrayDeque<BBContainer> pooled : m_largeBuffers) {
+            while ((cont = pooled.poll()) != null) {
+                m_largeBytesAllocated.addAndGet(-cont.b().capacity());
+                cont.discard();
+            }
+        }
     }
 
 }
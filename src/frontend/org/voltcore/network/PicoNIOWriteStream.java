@@ -74,7 +74,7 @@ public class PicoNIOWriteStream extends NIOWriteStreamBase {
     protected void updateQueued(int queued, boolean noBackpressureSignal) {}
 
     /**
-     * Drain pending buffers one at a time into the socket
+     * Drain pending buffers into the socket using gathering writes
      * @param channel
      * @return
      * @throws IOException
@@ -91,23 +91,7 @@ public class PicoNIOWriteStream extends NIOWriteStreamBase {
                 break;
             }
 
-            ByteBuffer buffer = null;
-            if (m_currentWriteBuffer == null) {
-                m_currentWriteBuffer = m_queuedBuffers.poll();
-                buffer = m_currentWriteBuffer.b();
-                buffer.flip();
-            } else {
-                buffer = m_currentWriteBuffer.b();
-            }
-
-            rc = channel.write(buffer);
-
-            //Discard the buffer back to a pool if no data remains
-            if (!buffer.hasRemaining()) {
-                m_currentWriteBuffer.discard();
-                m_currentWriteBuffer = null;
-                m_messagesWritten++;
-            }
+            rc = gatheringWrite(channel);
             bytesWritten += rc;
 
         } while (rc > 0);
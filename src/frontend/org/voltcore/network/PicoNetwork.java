@@ -79,12 +79,17 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.voltcore.logging.Level;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.network.VoltNetworkPool.IOStatsIntf;
 import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.LatencyWatchdog;
+import org.voltcore.utils.MpscQueue;
 import org.voltcore.utils.Pair;
+import org.voltcore.utils.RateLimitedLogger;
 
 /**
  * The least amount of code possible to produce a working
@@ -102,8 +107,26 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
     private final NIOReadStream m_readStream = new NIOReadStream();
     private final PicoNIOWriteStream m_writeStream = new PicoNIOWriteStream();
     private final ConcurrentLinkedQueue<Runnable> m_tasks = new ConcurrentLinkedQueue<Runnable>();
+    /*
+     * Writes queued by other threads, moved into the write stream by the network thread.
+     * Avoids wrapping every outbound message in a task.
+     */
+    private final MpscQueue<DeferredSerialization> m_pendingWrites = new MpscQueue<DeferredSerialization>();
     private volatile boolean m_shouldStop = false;//volatile boolean is sufficient
     private long m_messagesRead;
+
+    /*
+     * A pass through the loop that takes longer than this, from the selector returning to
+     * getting back to it, is counted as a stall. Stalls delay every message on the link
+     * including the ones failure detection depends on. Run with ENABLE_LATENCY_WATCHDOG
+     * to get the stack traces of stalled threads.
+     */
+    private static final long STALL_THRESHOLD_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("NETWORK_STALL_THRESHOLD", 20));
+    private final AtomicLong m_stalls = new AtomicLong();
+    private final AtomicLong m_maxStallNanos = new AtomicLong();
+    private final AtomicLong m_intervalMaxStallNanos = new AtomicLong();
+    private long m_lastStalls;
     private int m_interestOps = 0;
     private final SocketChannel m_sc;
     private final SelectionKey m_key;
@@ -186,14 +209,22 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                     m_selector.select();
                 }
 
+                final long start = System.nanoTime();
                 m_hadWork = false;
                 Runnable task = null;
                 while ((task = m_tasks.poll()) != null) {
                     m_hadWork = true;
                     task.run();
                 }
+                if (m_pendingWrites.drainTo(m_writeStream.getQueuedWrites()) > 0) {
+                    m_hadWork = true;
+                }
                 dispatchReadStream();
                 drainWriteStream();
+                final long elapsed = System.nanoTime() - start;
+                if (elapsed > STALL_THRESHOLD_NANOS) {
+                    recordStall(elapsed);
+                }
             }
         } catch (CancelledKeyException e) {
             networkLog.warn(
@@ -225,6 +256,33 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
         }
     }
 
+    private void recordStall(long nanos) {
+        m_stalls.incrementAndGet();
+        // Only the network thread raises the maximums, the stats thread only resets the interval one
+        if (nanos > m_maxStallNanos.get()) {
+            m_maxStallNanos.set(nanos);
+        }
+        if (nanos > m_intervalMaxStallNanos.get()) {
+            m_intervalMaxStallNanos.set(nanos);
+        }
+        RateLimitedLogger.tryLogForMessage(System.currentTimeMillis(), 10, TimeUnit.SECONDS, networkLog, Level.INFO,
+                "Network thread for %s stalled for %d milliseconds", m_toString, TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    /**
+     * Number of passes through the network loop that exceeded the stall threshold and
+     * the longest pass in milliseconds. Called from the stats thread only.
+     */
+    public long[] getStallStats(boolean interval) {
+        final long stalls = m_stalls.get();
+        if (!interval) {
+            return new long[] { stalls, TimeUnit.NANOSECONDS.toMillis(m_maxStallNanos.get()) };
+        }
+        final long delta = stalls - m_lastStalls;
+        m_lastStalls = stalls;
+        return new long[] { delta, TimeUnit.NANOSECONDS.toMillis(m_intervalMaxStallNanos.getAndSet(0)) };
+    }
+
     private void dispatchReadStream() throws IOException {
         if (readyForRead()) {
             if (fillReadStream() > 0) m_hadWork = true;
@@ -239,6 +297,8 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                     m_ih.handleMessage( message, this);
                     m_messagesRead++;
                 }
+                // don't hold on to a large buffer while waiting for the rest of a message
+                m_readStream.releaseLargeBuffers(m_pool);
             }
             catch (VoltProtocolHandler.BadMessageLength e) {
                 networkLog.error("Bad message length exception", e);
@@ -351,6 +411,9 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                     m_readStream.shutdown();
                 } finally {
                     try {
+                        for (DeferredSerialization ds : m_pendingWrites.close()) {
+                            ds.cancel();
+                        }
                         m_writeStream.shutdown();
                     } finally {
                         try {
@@ -386,7 +449,8 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1]}));
+                                    writeInfo[1],
+                                    writeInfo[2]}));
             retval.put(
                     -1L,
                     Pair.of(
@@ -395,7 +459,8 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1] }));
+                                    writeInfo[1],
+                                    writeInfo[2] }));
             return retval;
     }
 
@@ -500,23 +565,34 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
     }
 
     public void enqueue(final DeferredSerialization ds) {
-        m_tasks.offer(new Runnable() {
-            @Override
-            public void run() {
-                m_writeStream.enqueue(ds);
-            }
-        });
+        if (!m_pendingWrites.offer(ds)) {
+            // network is shutting down
+            ds.cancel();
+            return;
+        }
         m_selector.wakeup();
     }
 
     public void enqueue(final ByteBuffer buf) {
-        m_tasks.offer(new Runnable() {
+        assert(!buf.isDirect());//Don't queue direct buffers, they leak memory without a container
+        if (buf.remaining() == 0) {
+            throw new IllegalArgumentException("Attempted to queue a zero length buffer");
+        }
+        // Goes through the same queue as serialized messages so the two stay in order
+        enqueue(new DeferredSerialization() {
             @Override
-            public void run() {
-                m_writeStream.enqueue(buf);
+            public void serialize(final ByteBuffer outbuf) throws IOException {
+                outbuf.put(buf);
+            }
+
+            @Override
+            public void cancel() {}
+
+            @Override
+            public int getSerializedSize() {
+                return buf.remaining();
             }
         });
-        m_selector.wakeup();
     }
 
     boolean readyForRead() {
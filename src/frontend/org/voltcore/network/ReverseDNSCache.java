@@ -18,27 +18,46 @@
 package org.voltcore.network;
 
 import java.net.InetAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.voltcore.utils.CoreUtils;
 
 import com.google_voltpatches.common.base.Function;
 import com.google_voltpatches.common.cache.Cache;
 import com.google_voltpatches.common.cache.CacheBuilder;
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.ListenableFutureTask;
 
 /**
  * A configurable cache mapping from InetAddress to the hostnames of InetAddresses.
  * Tracks failed lookups allowing for a longer timeout to be specified. This saves on allocating threads
  * to DNS lookups that will time out and works around the lack of async DNS lookups in Java
+ *
+ * Concurrent requests for the same address share a single lookup, so a storm of connections
+ * from a restarted client fleet costs one lookup per client host rather than one per connection.
  */
 public class ReverseDNSCache {
-    private static volatile ThreadPoolExecutor m_es =
-        new ThreadPoolExecutor(1, 16, 1, TimeUnit.SECONDS,
-                               new SynchronousQueue<Runnable>(),
-                               CoreUtils.getThreadFactory("Reverse DNS lookups"));
+    /*
+     * Background lookups run on at most this many threads. Lookups are not queued behind
+     * busy threads, when all of them are busy the address is used until a later lookup.
+     */
+    public static final int MAX_LOOKUP_THREADS = Integer.getInteger("REVERSE_DNS_THREADS", 16);
+
+    /*
+     * Never wait on DNS, hostnameOrAddress returns the address for anything that isn't cached
+     * and resolves it in the background for later callers
+     */
+    public static final boolean NON_BLOCKING = Boolean.getBoolean("REVERSE_DNS_NON_BLOCKING");
+
+    private static volatile ThreadPoolExecutor m_es = newExecutor();
 
     public static final long DEFAULT_MAX_SUCCESS = 1000 * 10;
     public static final long DEFAULT_MAX_FAILURE = 1000 * 10;
@@ -66,13 +85,26 @@ public class ReverseDNSCache {
 
     private final Cache<InetAddress, String> m_successes;
     private final Cache<InetAddress, String> m_failures;
+    // Lookups in progress, removed once the result is in one of the caches
+    private final ConcurrentHashMap<InetAddress, ListenableFutureTask<String>> m_inflight =
+            new ConcurrentHashMap<InetAddress, ListenableFutureTask<String>>();
 
+    private final AtomicLong m_cacheHits = new AtomicLong();
+    private final AtomicLong m_lookups = new AtomicLong();
+    private final AtomicLong m_failedLookups = new AtomicLong();
+    private final AtomicLong m_rejectedLookups = new AtomicLong();
+    private final AtomicLong m_lookupNanos = new AtomicLong();
+    private final AtomicLong m_maxLookupNanos = new AtomicLong();
+
+    private static ThreadPoolExecutor newExecutor() {
+        return new ThreadPoolExecutor(1, MAX_LOOKUP_THREADS, 1, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(),
+                CoreUtils.getThreadFactory("Reverse DNS lookups"));
+    }
 
     public static synchronized void start() {
         if (m_es == null) {
-            m_es = new ThreadPoolExecutor(1, 16, 1, TimeUnit.SECONDS,
-                   new SynchronousQueue<Runnable>(),
-                   CoreUtils.getThreadFactory("Reverse DNS lookups"));
+            m_es = newExecutor();
             try {
                 m_es.submit(new Runnable() {
                     @Override
@@ -131,32 +163,135 @@ public class ReverseDNSCache {
         return b.build();
     }
 
-    public String getHostnameOrAddress(InetAddress address) {
+    /**
+     * @return the cached hostname, the address if the last lookup failed, or null if not cached
+     */
+    private String getIfPresent(InetAddress address) {
         //Check for it in the success cache
         String hostname = m_successes.getIfPresent(address);
-        if (hostname == null) {
-            //Check for it in the failure cache
-            hostname = m_failures.getIfPresent(address);
-            if (hostname != null) {
-                //Lookup failed recently, return the address string
-                return address.getHostAddress();
+        if (hostname == null && m_failures.getIfPresent(address) != null) {
+            //Lookup failed recently, return the address string
+            hostname = address.getHostAddress();
+        }
+        if (hostname != null) {
+            m_cacheHits.incrementAndGet();
+        }
+        return hostname;
+    }
+
+    private ListenableFutureTask<String> newLookup(final InetAddress address) {
+        return ListenableFutureTask.create(new Callable<String>() {
+            @Override
+            public String call() {
+                final long start = System.nanoTime();
+                try {
+                    //Do the lookup and see if it succeeded.
+                    final String hostname = DNS_RESOLVER.apply(address);
+                    if (hostname.equals(address.getHostAddress())) {
+                        m_failedLookups.incrementAndGet();
+                        m_failures.put(address, DUMMY);
+                    } else {
+                        m_successes.put(address, hostname);
+                    }
+                    return hostname;
+                } finally {
+                    final long elapsed = System.nanoTime() - start;
+                    m_lookups.incrementAndGet();
+                    m_lookupNanos.addAndGet(elapsed);
+                    long max = m_maxLookupNanos.get();
+                    while (elapsed > max && !m_maxLookupNanos.compareAndSet(max, elapsed)) {
+                        max = m_maxLookupNanos.get();
+                    }
+                    m_inflight.remove(address);
+                }
             }
-        } else {
+        });
+    }
+
+    public String getHostnameOrAddress(InetAddress address) {
+        String hostname = getIfPresent(address);
+        if (hostname != null) {
             return hostname;
         }
+        if (NON_BLOCKING) {
+            getHostnameOrAddressAsync(address);
+            return address.getHostAddress();
+        }
 
-        //It's not in either cache, do the lookup and see if it succeeded.
-        hostname = DNS_RESOLVER.apply(address);
-        if (hostname.equals(address.getHostAddress())) {
-            m_failures.put(address, DUMMY);
-        } else {
-            m_successes.put(address, hostname);
+        //It's not in either cache, do the lookup here unless another thread is already doing it
+        final ListenableFutureTask<String> task = newLookup(address);
+        ListenableFutureTask<String> lookup = m_inflight.putIfAbsent(address, task);
+        if (lookup == null) {
+            lookup = task;
+            task.run();
+        }
+        try {
+            return lookup.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return address.getHostAddress();
+        } catch (ExecutionException e) {
+            return address.getHostAddress();
         }
+    }
 
-        return hostname;
+    /**
+     * Resolve the address without blocking the caller. The future completes with the hostname,
+     * or with the address if the lookup failed or could not be started because all lookup
+     * threads are busy.
+     */
+    public ListenableFuture<String> getHostnameOrAddressAsync(InetAddress address) {
+        String hostname = getIfPresent(address);
+        if (hostname != null) {
+            return Futures.immediateFuture(hostname);
+        }
+
+        final ListenableFutureTask<String> task = newLookup(address);
+        final ListenableFutureTask<String> lookup = m_inflight.putIfAbsent(address, task);
+        if (lookup != null) {
+            return lookup;
+        }
+        try {
+            submit(task);
+        } catch (RejectedExecutionException | IllegalStateException e) {
+            m_inflight.remove(address, task);
+            m_rejectedLookups.incrementAndGet();
+            return Futures.immediateFuture(address.getHostAddress());
+        }
+        return task;
+    }
+
+    /**
+     * Lookup counters: cache hits, lookups done, lookups that found no hostname, lookups
+     * rejected because all lookup threads were busy, total and maximum lookup time in microseconds
+     */
+    public long[] getLookupStats() {
+        return new long[] {
+                m_cacheHits.get(),
+                m_lookups.get(),
+                m_failedLookups.get(),
+                m_rejectedLookups.get(),
+                TimeUnit.NANOSECONDS.toMicros(m_lookupNanos.get()),
+                TimeUnit.NANOSECONDS.toMicros(m_maxLookupNanos.get()) };
     }
 
     public static String hostnameOrAddress(InetAddress address) {
         return m_instance.getHostnameOrAddress(address);
     }
+
+    public static ListenableFuture<String> hostnameOrAddressAsync(InetAddress address) {
+        return m_instance.getHostnameOrAddressAsync(address);
+    }
+
+    /**
+     * @return the lookup counters of the shared cache as a single line, or null if nothing was looked up
+     */
+    public static String getLookupSummary() {
+        final long stats[] = m_instance.getLookupStats();
+        if (stats[0] == 0 && stats[1] == 0 && stats[3] == 0) {
+            return null;
+        }
+        return String.format("hits=%d lookups=%d failed=%d rejected=%d avgMicros=%d maxMicros=%d",
+                stats[0], stats[1], stats[2], stats[3], stats[1] == 0 ? 0 : stats[4] / stats[1], stats[5]);
+    }
 }
@@ -89,6 +89,7 @@ import org.voltcore.logging.VoltLogger;
 import org.voltcore.network.VoltNetworkPool.IOStatsIntf;
 import org.voltcore.utils.LatencyWatchdog;
 import org.voltcore.utils.Pair;
+import org.voltcore.utils.ThreadPlacement;
 
 /** Produces work for registered ports that are selected for read, write */
 class VoltNetwork implements Runnable, IOStatsIntf
@@ -96,6 +97,13 @@ class VoltNetwork implements Runnable, IOStatsIntf
     private final Selector m_selector;
     private static final VoltLogger m_logger = new VoltLogger(VoltNetwork.class.getName());
     private static final VoltLogger networkLog = new VoltLogger("NETWORK");
+
+    /*
+     * Restores the old behavior of clearing a key's interest ops before running its port
+     * and setting them again afterwards, on every readiness event. Only exists so
+     * VoltNetworkThroughputMicrobench can compare the two.
+     */
+    static boolean REARM_INTEREST_OPS = Boolean.getBoolean("VOLTNETWORK_REARM_INTEREST_OPS");
     private final ConcurrentLinkedQueue<Runnable> m_tasks = new ConcurrentLinkedQueue<Runnable>();
     private volatile boolean m_shouldStop = false;//volatile boolean is sufficient
     private final Thread m_thread;
@@ -279,16 +287,25 @@ class VoltNetwork implements Runnable, IOStatsIntf
                 }
             });
         }
-        m_selector.wakeup();
+        wakeupIfNotNetworkThread();
+    }
+
+    /*
+     * The task queue is always drained after callbacks are invoked, so there is
+     * no need to wake the selector, and spin through an extra select, for tasks
+     * queued by the network thread itself
+     */
+    private void wakeupIfNotNetworkThread() {
+        if (Thread.currentThread() != m_thread) {
+            m_selector.wakeup();
+        }
     }
 
     @Override
     public void run() {
         final ThreadLocalRandom r = ThreadLocalRandom.current();
         if (m_coreBindId != null) {
-            // Remove Affinity for now to make this dependency dissapear from the client.
-            // Goal is to remove client dependency on this class in the medium term.
-            //PosixJNAAffinity.INSTANCE.setAffinity(m_coreBindId);
+            ThreadPlacement.bindCurrentThread(m_coreBindId);
         }
         try {
             while (m_shouldStop == false) {
@@ -390,7 +407,14 @@ class VoltNetwork implements Runnable, IOStatsIntf
         SelectionKey key = port.getKey();
 
         if (key.isValid()) {
-            key.interestOps (port.interestOps());
+            /*
+             * Only touch the key when the desired ops actually changed, every
+             * change costs an epoll_ctl (or equivalent) at the next select
+             */
+            final int interestOps = port.interestOps();
+            if (REARM_INTEREST_OPS || key.interestOps() != interestOps) {
+                key.interestOps(interestOps);
+            }
         } else {
             m_ports.remove(port);
             m_numPorts.decrementAndGet();
@@ -399,8 +423,15 @@ class VoltNetwork implements Runnable, IOStatsIntf
 
     private void callPort(final VoltPort port) {
         try {
+            /*
+             * Ports are run on the network thread between selects, so there is
+             * no need to clear interest ops while the port runs. installInterests
+             * applies whatever the port wants once it is done.
+             */
             port.lockForHandlingWork();
-            port.getKey().interestOps(0);
+            if (REARM_INTEREST_OPS) {
+                port.getKey().interestOps(0);
+            }
             port.run();
         } catch (CancelledKeyException e) {
             port.m_running = false;
@@ -488,6 +519,7 @@ class VoltNetwork implements Runnable, IOStatsIntf
         long totalMessagesRead = 0;
         long totalWritten = 0;
         long totalMessagesWritten = 0;
+        long totalWriteCalls = 0;
         for (VoltPort p : m_ports) {
             final long read = p.readStream().getBytesRead(interval);
             final long writeInfo[] = p.writeStream().getBytesAndMessagesWritten(interval);
@@ -496,6 +528,7 @@ class VoltNetwork implements Runnable, IOStatsIntf
             totalMessagesRead += messagesRead;
             totalWritten += writeInfo[0];
             totalMessagesWritten += writeInfo[1];
+            totalWriteCalls += writeInfo[2];
             retval.put(
                     p.connectionId(),
                     Pair.of(
@@ -504,7 +537,8 @@ class VoltNetwork implements Runnable, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1] }));
+                                    writeInfo[1],
+                                    writeInfo[2] }));
         }
         retval.put(
                 -1L,
@@ -514,7 +548,8 @@ class VoltNetwork implements Runnable, IOStatsIntf
                                 totalRead,
                                 totalMessagesRead,
                                 totalWritten,
-                                totalMessagesWritten }));
+                                totalMessagesWritten,
+                                totalWriteCalls }));
         return retval;
     }
 
@@ -541,7 +576,7 @@ class VoltNetwork implements Runnable, IOStatsIntf
 
     void queueTask(Runnable r) {
         m_tasks.offer(r);
-        m_selector.wakeup();
+        wakeupIfNotNetworkThread();
     }
 
     int numPorts() {
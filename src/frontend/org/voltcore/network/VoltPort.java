@@ -24,10 +24,12 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.Future;
-import java.util.concurrent.RejectedExecutionException;
 
 import org.voltcore.logging.VoltLogger;
 
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.MoreExecutors;
+
 /** Encapsulates a socket registration for a VoltNetwork */
 public class VoltPort implements Connection
 {
@@ -103,33 +105,37 @@ public class VoltPort implements Connection
 
     /**
      * Do a reverse DNS lookup of the remote end. Done in a separate thread unless synchronous is specified.
-     * If asynchronous lookup is requested the task may be dropped and resolution may never occur
+     * If asynchronous lookup is requested the lookup may be dropped and resolution may never occur
      */
     void resolveHostname(boolean synchronous) {
-        Runnable r = new Runnable() {
-            @Override
-            public void run() {
-                String remoteHost = ReverseDNSCache.hostnameOrAddress(m_remoteSocketAddress.getAddress());
-                if (!remoteHost.equals(m_remoteSocketAddress.getAddress().getHostAddress())) {
-                    m_remoteHostname = remoteHost;
-                    m_remoteHostAndAddressAndPort = remoteHost + m_remoteHostAndAddressAndPort;
-                    m_toString = VoltPort.this.toString() + ":" + m_remoteHostAndAddressAndPort;
-                }
-            }
-        };
         if (synchronous) {
-            r.run();
+            setRemoteHostname(ReverseDNSCache.hostnameOrAddress(m_remoteSocketAddress.getAddress()));
         } else {
             /*
              * Start the reverse DNS lookup in background because it might be
              * very slow if the hostname is not specified in local /etc/hosts.
+             * Connections from the same host share the lookup and no thread waits on it.
              */
-            try {
-                ReverseDNSCache.submit(r);
-            } catch (RejectedExecutionException e) {
-                networkLog.debug(
-                        "Reverse DNS lookup for " + m_remoteSocketAddress + " rejected because the queue was full");
-            }
+            final ListenableFuture<String> lookup =
+                    ReverseDNSCache.hostnameOrAddressAsync(m_remoteSocketAddress.getAddress());
+            lookup.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        setRemoteHostname(lookup.get());
+                    } catch (Exception e) {
+                        networkLog.debug("Reverse DNS lookup for " + m_remoteSocketAddress + " failed", e);
+                    }
+                }
+            }, MoreExecutors.directExecutor());
+        }
+    }
+
+    private void setRemoteHostname(String remoteHost) {
+        if (!remoteHost.equals(m_remoteSocketAddress.getAddress().getHostAddress())) {
+            m_remoteHostname = remoteHost;
+            m_remoteHostAndAddressAndPort = remoteHost + m_remoteHostAndAddressAndPort;
+            m_toString = super.toString() + ":" + m_remoteHostAndAddressAndPort;
         }
     }
 
@@ -178,6 +184,8 @@ public class VoltPort implements Connection
                             m_handler.handleMessage( message, this);
                             m_messagesRead++;
                         }
+                        // don't hold on to a large buffer while waiting for the rest of a message
+                        m_readStream.releaseLargeBuffers(m_pool);
                     }
                     catch (VoltProtocolHandler.BadMessageLength e) {
                         networkLog.error("Bad message length exception", e);
@@ -232,10 +240,10 @@ public class VoltPort implements Connection
         m_writeStream.swapAndSerializeQueuedWrites(m_pool);
 
         /*
-         * All interactions with write stream must be protected
-         * with a lock to ensure that interests ops are consistent with
-         * the state of writes queued to the stream. This prevent
-         * lost queued writes where the write is queued
+         * Draining is protected by the write stream lock so it doesn't
+         * interleave with shutdown. Interest ops are kept consistent with the
+         * writes queued to the stream by re-checking below after write selection
+         * is disabled. This prevents lost queued writes where the write is queued
          * but the write interest op is not set.
          */
         synchronized (m_writeStream) {
@@ -252,7 +260,15 @@ public class VoltPort implements Connection
             if (m_writeStream.isEmpty()) {
                 disableWriteSelection();
 
-                if (m_isShuttingDown) {
+                /*
+                 * Writers enqueue without holding the write stream lock, one of them may have
+                 * queued a write and set write interest after the check above. Setting interest
+                 * ops is serialized so checking again after disabling write selection is enough
+                 * to not strand it.
+                 */
+                if (!m_writeStream.isEmpty()) {
+                    enableWriteSelection();
+                } else if (m_isShuttingDown) {
                     m_channel.close();
                     //m_handler.stopped(this);
                     unregistered();
@@ -18,6 +18,7 @@
 package org.voltcore.utils;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 
 /**
@@ -28,4 +29,16 @@ public abstract class CompressionStrategy {
     public abstract byte[] compress(byte data[]) throws IOException;
     public abstract byte[] uncompress(byte data[]) throws IOException;
 
+    /*
+     * Buffer variants that avoid copying to and from byte arrays. The input is the range
+     * [position, limit) and is left untouched, the output is written from its position and
+     * its limit is set to the end of the output. Both buffers must either be direct or be
+     * backed by an array. The return value is the number of bytes written.
+     */
+    public abstract int compress(ByteBuffer uncompressed, ByteBuffer compressed) throws IOException;
+    public abstract int uncompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException;
+
+    public abstract int maxCompressedLength(int uncompressedLength);
+    public abstract int uncompressedLength(ByteBuffer compressed) throws IOException;
+
 }
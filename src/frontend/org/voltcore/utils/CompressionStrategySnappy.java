@@ -18,6 +18,7 @@
 package org.voltcore.utils;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.xerial.snappy.Snappy;
 
@@ -40,4 +41,42 @@ public class CompressionStrategySnappy extends CompressionStrategy {
     public byte[] uncompress(byte data[]) throws IOException {
         return Snappy.uncompress(data);
     }
+
+    @Override
+    public int compress(ByteBuffer uncompressed, ByteBuffer compressed) throws IOException {
+        if (uncompressed.isDirect() && compressed.isDirect()) {
+            return Snappy.compress(uncompressed, compressed);
+        }
+        final int size = Snappy.compress(
+                uncompressed.array(), uncompressed.arrayOffset() + uncompressed.position(), uncompressed.remaining(),
+                compressed.array(), compressed.arrayOffset() + compressed.position());
+        compressed.limit(compressed.position() + size);
+        return size;
+    }
+
+    @Override
+    public int uncompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException {
+        if (compressed.isDirect() && uncompressed.isDirect()) {
+            return Snappy.uncompress(compressed, uncompressed);
+        }
+        final int size = Snappy.uncompress(
+                compressed.array(), compressed.arrayOffset() + compressed.position(), compressed.remaining(),
+                uncompressed.array(), uncompressed.arrayOffset() + uncompressed.position());
+        uncompressed.limit(uncompressed.position() + size);
+        return size;
+    }
+
+    @Override
+    public int maxCompressedLength(int uncompressedLength) {
+        return Snappy.maxCompressedLength(uncompressedLength);
+    }
+
+    @Override
+    public int uncompressedLength(ByteBuffer compressed) throws IOException {
+        if (compressed.isDirect()) {
+            return Snappy.uncompressedLength(compressed);
+        }
+        return Snappy.uncompressedLength(
+                compressed.array(), compressed.arrayOffset() + compressed.position(), compressed.remaining());
+    }
 }
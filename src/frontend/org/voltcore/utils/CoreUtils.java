@@ -728,9 +728,7 @@ public class CoreUtils {
                     @Override
                     public void run() {
                         if (core != null) {
-                            // Remove Affinity for now to make this dependency dissapear from the client.
-                            // Goal is to remove client dependency on this class in the medium term.
-                            //PosixJNAAffinity.INSTANCE.setAffinity(core);
+                            ThreadPlacement.bindCurrentThread(core);
                         }
                         try {
                             r.run();
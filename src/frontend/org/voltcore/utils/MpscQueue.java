@@ -0,0 +1,134 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unbounded multi-producer single-consumer queue. Producers push onto a lock free stack
+ * with a single CAS and the consumer takes everything queued so far with a single getAndSet,
+ * reversing the batch so items are drained in the order they were offered.
+ *
+ * Only one thread at a time may call drainTo or close. Once closed, offers fail and the caller
+ * is responsible for disposing of the item it tried to offer.
+ */
+public class MpscQueue<E> {
+    private static final class Node<E> {
+        private final E m_item;
+        private Node<E> m_next;
+
+        private Node(E item) {
+            m_item = item;
+        }
+    }
+
+    private static final Node<Object> CLOSED = new Node<Object>(null);
+
+    private final AtomicReference<Node<E>> m_head = new AtomicReference<Node<E>>();
+
+    /*
+     * Updated after the fact by producers and the consumer so it can be
+     * momentarily off, good enough for backpressure and stats
+     */
+    private final AtomicInteger m_size = new AtomicInteger();
+
+    /**
+     * @return false if the queue has been closed and the item was not queued
+     */
+    public boolean offer(E item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        final Node<E> node = new Node<E>(item);
+        while (true) {
+            final Node<E> head = m_head.get();
+            if (head == CLOSED) {
+                return false;
+            }
+            node.m_next = head;
+            if (m_head.compareAndSet(head, node)) {
+                m_size.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Move everything queued so far to the end of the collection in the order it was offered.
+     * Consumer thread only.
+     * @return the number of items drained
+     */
+    public int drainTo(Collection<? super E> c) {
+        final Node<E> head = m_head.get();
+        if (head == null || head == CLOSED) {
+            return 0;
+        }
+        return drainStack(m_head.getAndSet(null), c);
+    }
+
+    /**
+     * Close the queue so that subsequent offers fail. Consumer thread only.
+     * @return anything that was still queued, in the order it was offered
+     */
+    @SuppressWarnings("unchecked")
+    public List<E> close() {
+        final List<E> remaining = new ArrayList<E>();
+        final Node<E> head = m_head.getAndSet((Node<E>)CLOSED);
+        if (head != CLOSED) {
+            drainStack(head, remaining);
+        }
+        return remaining;
+    }
+
+    private int drainStack(Node<E> head, Collection<? super E> c) {
+        Node<E> reversed = null;
+        while (head != null) {
+            final Node<E> next = head.m_next;
+            head.m_next = reversed;
+            reversed = head;
+            head = next;
+        }
+        int count = 0;
+        for (; reversed != null; reversed = reversed.m_next) {
+            c.add(reversed.m_item);
+            count++;
+        }
+        m_size.addAndGet(-count);
+        return count;
+    }
+
+    public boolean isEmpty() {
+        final Node<E> head = m_head.get();
+        return head == null || head == CLOSED;
+    }
+
+    public boolean isClosed() {
+        return m_head.get() == CLOSED;
+    }
+
+    /**
+     * Approximate number of queued items
+     */
+    public int size() {
+        return Math.max(0, m_size.get());
+    }
+}
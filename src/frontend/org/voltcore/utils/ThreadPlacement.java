@@ -0,0 +1,163 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.voltcore.logging.VoltLogger;
+
+/**
+ * Pins threads to the cores given by the networkbindings/executionbindings command line
+ * options and remembers where every bound thread ended up, along with the CPU socket
+ * (NUMA node) the cores belong to, so placement can be reported by @SystemInformation.
+ *
+ * The affinity library is looked up reflectively so the client, which shares the network
+ * code but never binds threads, does not need it on the classpath.
+ */
+public class ThreadPlacement {
+    private static final VoltLogger hostLog = new VoltLogger("HOST");
+
+    private static final String AFFINITY_CLASS = "vanilla.java.affinity.impl.PosixJNAAffinity";
+    private static final String CPU_TOPOLOGY_PATH = "/sys/devices/system/cpu/cpu%d/topology/physical_package_id";
+
+    private static final Map<String, String> m_placements = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Bind the calling thread to the given cores and record the placement under the thread's name.
+     * Failure to bind is logged and recorded rather than thrown, an unpinned thread still works.
+     * @param cores core list in the affinity format, e.g. "2", "2:3" or "4-7"
+     * @return true if the thread was bound
+     */
+    public static boolean bindCurrentThread(String cores) {
+        if (cores == null) {
+            return false;
+        }
+        final String threadName = Thread.currentThread().getName();
+        boolean bound = false;
+        try {
+            Class<?> affinityClass = Class.forName(AFFINITY_CLASS);
+            Object instance = affinityClass.getField("INSTANCE").get(null);
+            Method setAffinity = affinityClass.getMethod("setAffinity", String.class);
+            setAffinity.invoke(instance, cores);
+            bound = true;
+        } catch (Throwable t) {
+            hostLog.warn("Unable to bind thread " + threadName + " to cores " + cores, t);
+        }
+        StringBuilder sb = new StringBuilder(cores);
+        if (bound) {
+            String sockets = socketsOf(cores);
+            if (sockets != null) {
+                sb.append(" (socket ").append(sockets).append(')');
+            }
+        } else {
+            sb.append(" (unbound)");
+        }
+        m_placements.put(threadName, sb.toString());
+        return bound;
+    }
+
+    /**
+     * @return thread name to "cores (socket n)" for every thread bound so far, sorted by thread name
+     */
+    public static Map<String, String> getPlacements() {
+        return new TreeMap<String, String>(m_placements);
+    }
+
+    /**
+     * @return the placement of all bound threads as a single line, or null if none were bound
+     */
+    public static String getPlacementSummary() {
+        Map<String, String> placements = getPlacements();
+        if (placements.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> e : placements.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            sb.append(e.getKey()).append('=').append(e.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Resolve the CPU sockets the cores in an affinity string belong to using sysfs.
+     * @return comma separated socket ids, or null if the topology is not available
+     */
+    static String socketsOf(String cores) {
+        TreeSet<Integer> sockets = new TreeSet<Integer>();
+        try {
+            for (int core : parseCores(cores)) {
+                File f = new File(String.format(CPU_TOPOLOGY_PATH, core));
+                if (!f.canRead()) {
+                    return null;
+                }
+                sockets.add(Integer.valueOf(new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8).trim()));
+            }
+        } catch (Exception e) {
+            return null;
+        }
+        if (sockets.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Integer socket : sockets) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(socket);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parse the affinity format understood by PosixJNAAffinity: colon separated cores or
+     * ranges, where a range prefixed with ! skips every other core (hyperthread siblings).
+     */
+    static TreeSet<Integer> parseCores(String cores) {
+        TreeSet<Integer> result = new TreeSet<Integer>();
+        for (String affinity : cores.split(":")) {
+            String range[] = affinity.split("-");
+            if (range.length == 1) {
+                result.add(Integer.valueOf(range[0].trim()));
+                continue;
+            }
+            boolean skipEveryOther = range[0].startsWith("!");
+            if (skipEveryOther) {
+                range[0] = range[0].substring(1);
+            }
+            int start = Integer.valueOf(range[0].trim());
+            int end = Integer.valueOf(range[1].trim());
+            if (end < start) {
+                throw new IllegalArgumentException("Invalid core range " + affinity);
+            }
+            for (int ii = start; ii <= end; ii += skipEveryOther ? 2 : 1) {
+                result.add(ii);
+            }
+        }
+        return result;
+    }
+}
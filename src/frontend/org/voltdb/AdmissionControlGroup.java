@@ -16,6 +16,7 @@
  */
 package org.voltdb;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -40,6 +41,14 @@ import org.voltdb.dtxn.LatencyStats;
  * Admission control only limits the amount of work each group is willing to accept into the cluster.
  * Because there is no coordination between groups it is possible for all the work to end up at one node.
  * This is guaranteed to happen if one node is slow enough that it can't keep up with the workload.
+ *
+ * Optionally the group also bounds the number of outstanding single partition transactions
+ * per partition (MAX_PENDING_TXNS_PER_PARTITION). Like the other limits this is counted per group,
+ * and there is one group per network thread, so a server admits up to the limit times the number
+ * of network threads for a partition. Unlike the group wide limits, which stop
+ * reading from every connection, a partition over its limit only causes new work routed to
+ * that partition to be rejected with ClientResponse.PARTITION_OVERLOADED so that clients can
+ * back off the hot partition while work for the other partitions keeps flowing.
  */
 public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
 {
@@ -56,6 +65,23 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
 
     private static final VoltLogger hostLog = new VoltLogger("HOST");
 
+    /*
+     * Per partition limit on outstanding single partition transactions accepted through this group,
+     * which makes it a limit per network thread and not per server.
+     * A partition that goes over the limit stays overloaded until its outstanding count drops below
+     * 80% of the limit, same as the group wide limits. 0 disables per partition admission control.
+     */
+    static int MAX_PENDING_TXNS_PER_PARTITION = Integer.getInteger("MAX_PENDING_TXNS_PER_PARTITION", 0);
+    private final int LESS_THAN_MAX_PENDING_TXNS_PER_PARTITION = (int)(MAX_PENDING_TXNS_PER_PARTITION * .8);
+
+    /*
+     * Indexed by partition id, grown on demand. Partition ids are small and dense
+     * so this is cheaper than boxing them into a map on every transaction.
+     */
+    private int[] m_pendingPartitionTxnCounts = new int[0];
+    private boolean[] m_overloadedPartitions = new boolean[0];
+    private long m_partitionRejections = 0;
+
     private int m_pendingTxnCount = 0;
     private long m_pendingTxnBytes = 0;
     private boolean m_hadBackPressure = false;
@@ -121,6 +147,12 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
             public void reduceBackpressure(int messageSize) {}
             @Override
             public boolean queue(int bytes) { return false; }
+            @Override
+            public void partitionTxnAdmitted(int partitionId) {}
+            @Override
+            public void partitionTxnCompleted(int partitionId) {}
+            @Override
+            public boolean isPartitionOverloaded(int partitionId) { return false; }
         };
     }
 
@@ -226,6 +258,78 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
         }
     }
 
+    /*
+     * Invoked when a single partition transaction is routed to a partition. Marks the partition
+     * overloaded if that puts it over the per partition limit.
+     */
+    public void partitionTxnAdmitted(int partitionId)
+    {
+        assert(m_expectedThreadId == Thread.currentThread().getId());
+        if (MAX_PENDING_TXNS_PER_PARTITION <= 0) {
+            return;
+        }
+        if (partitionId >= m_pendingPartitionTxnCounts.length) {
+            int newLength = Math.max(partitionId + 1, m_pendingPartitionTxnCounts.length * 2);
+            m_pendingPartitionTxnCounts = Arrays.copyOf(m_pendingPartitionTxnCounts, newLength);
+            m_overloadedPartitions = Arrays.copyOf(m_overloadedPartitions, newLength);
+        }
+        if (++m_pendingPartitionTxnCounts[partitionId] > MAX_PENDING_TXNS_PER_PARTITION &&
+                !m_overloadedPartitions[partitionId]) {
+            hostLog.debug("Partition " + partitionId + " back pressure began");
+            m_overloadedPartitions[partitionId] = true;
+        }
+    }
+
+    /*
+     * Invoked when the response for, or the handle of, a single partition transaction
+     * is released. Clears the overloaded flag once the partition has drained enough.
+     */
+    public void partitionTxnCompleted(int partitionId)
+    {
+        assert(m_expectedThreadId == Thread.currentThread().getId());
+        if (partitionId >= m_pendingPartitionTxnCounts.length) {
+            return;
+        }
+        if (m_pendingPartitionTxnCounts[partitionId] > 0) {
+            m_pendingPartitionTxnCounts[partitionId]--;
+        }
+        if (m_overloadedPartitions[partitionId] &&
+                m_pendingPartitionTxnCounts[partitionId] < LESS_THAN_MAX_PENDING_TXNS_PER_PARTITION) {
+            hostLog.debug("Partition " + partitionId + " back pressure ended");
+            m_overloadedPartitions[partitionId] = false;
+        }
+    }
+
+    /*
+     * Invoked before routing a single partition transaction. Returns true, and counts the
+     * rejection, if new work for the partition should be turned away.
+     */
+    public boolean isPartitionOverloaded(int partitionId)
+    {
+        assert(m_expectedThreadId == Thread.currentThread().getId());
+        if (partitionId < m_overloadedPartitions.length && m_overloadedPartitions[partitionId]) {
+            m_partitionRejections++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Used by tests.
+     * @return
+     */
+    public int getPendingPartitionTxnCount(int partitionId) {
+        return partitionId < m_pendingPartitionTxnCounts.length ? m_pendingPartitionTxnCounts[partitionId] : 0;
+    }
+
+    /**
+     * Used by tests.
+     * @return
+     */
+    public long getPartitionRejections() {
+        return m_partitionRejections;
+    }
+
     /*
      * When accepting new connections this flag is used to decide whether read selection should be enabled.
      * Read selection should not be enabled if there is currently backpressure
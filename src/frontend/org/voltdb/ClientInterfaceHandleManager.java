@@ -65,7 +65,7 @@ public class ClientInterfaceHandleManager
 
     private HandleGenerator m_shortCircuitHG = new HandleGenerator(SHORT_CIRCUIT_PART_ID);
 
-    private final Map<Long, Iv2InFlight> m_shortCircuitReads = new HashMap<Long, Iv2InFlight>();
+    private final ShortCircuitReads m_shortCircuitReads = new ShortCircuitReads();
 
     private static class HandleGenerator
     {
@@ -109,8 +109,11 @@ public class ClientInterfaceHandleManager
         final long m_creationTimeNanos;
         final String m_procName;
         final long m_initiatorHSId;
+        // partition of a single partition txn, -1 for multi partition txns
+        final int m_partitionId;
         Iv2InFlight(long ciHandle, long clientHandle,
-                int messageSize, long creationTimeNanos, String procName, long initiatorHSId)
+                int messageSize, long creationTimeNanos, String procName, long initiatorHSId,
+                int partitionId)
         {
             m_ciHandle = ciHandle;
             m_clientHandle = clientHandle;
@@ -118,6 +121,144 @@ public class ClientInterfaceHandleManager
             m_creationTimeNanos = creationTimeNanos;
             m_procName = procName;
             m_initiatorHSId = initiatorHSId;
+            m_partitionId = partitionId;
+        }
+    }
+
+    /**
+     * Short circuit reads complete in any order, but their handles come from a
+     * single sequential generator, so track them in a ring indexed by sequence
+     * number instead of boxing every handle into a HashMap.  The ring covers the
+     * window from the oldest outstanding read to the next handle to be issued.
+     * A read that is still outstanding when the window would have to grow past
+     * MAX_RING_SIZE is moved to a small overflow map, so one straggler can't pin
+     * an ever growing ring.
+     */
+    static class ShortCircuitReads
+    {
+        static final int INITIAL_RING_SIZE = 16;
+        static final int MAX_RING_SIZE = 1 << 16;
+
+        private Iv2InFlight[] m_ring = new Iv2InFlight[INITIAL_RING_SIZE];
+        // sequence number of the oldest slot in the ring and of the next handle
+        private long m_head = 0;
+        private long m_tail = 0;
+        private final Map<Long, Iv2InFlight> m_overflow = new HashMap<Long, Iv2InFlight>();
+
+        private int slot(long seq)
+        {
+            return (int)(seq & (m_ring.length - 1));
+        }
+
+        void put(long ciHandle, Iv2InFlight inFlight)
+        {
+            long seq = getSeqNumFromHandle(ciHandle);
+            if (seq != m_tail) {
+                // generator wrapped, anything left in the ring is now out of sequence
+                spillAll();
+                m_head = seq;
+                m_tail = seq;
+            }
+            if (m_tail - m_head == m_ring.length) {
+                if (m_ring.length < MAX_RING_SIZE) {
+                    grow();
+                }
+                else {
+                    spillHead();
+                }
+            }
+            m_ring[slot(m_tail)] = inFlight;
+            m_tail++;
+        }
+
+        Iv2InFlight remove(long ciHandle)
+        {
+            long seq = getSeqNumFromHandle(ciHandle);
+            if (seq < m_head || seq >= m_tail) {
+                return m_overflow.isEmpty() ? null : m_overflow.remove(ciHandle);
+            }
+            int idx = slot(seq);
+            Iv2InFlight inFlight = m_ring[idx];
+            if (inFlight == null || inFlight.m_ciHandle != ciHandle) {
+                return null;
+            }
+            m_ring[idx] = null;
+            advanceHead();
+            return inFlight;
+        }
+
+        /**
+         * Remove and return every outstanding read not initiated by initiatorHSId
+         */
+        List<Iv2InFlight> removeNotFrom(long initiatorHSId)
+        {
+            List<Iv2InFlight> retval = new ArrayList<Iv2InFlight>();
+            for (long seq = m_head; seq < m_tail; seq++) {
+                int idx = slot(seq);
+                Iv2InFlight inFlight = m_ring[idx];
+                if (inFlight != null && inFlight.m_initiatorHSId != initiatorHSId) {
+                    m_ring[idx] = null;
+                    retval.add(inFlight);
+                }
+            }
+            advanceHead();
+            Iterator<Iv2InFlight> iter = m_overflow.values().iterator();
+            while (iter.hasNext()) {
+                Iv2InFlight inFlight = iter.next();
+                if (inFlight.m_initiatorHSId != initiatorHSId) {
+                    iter.remove();
+                    retval.add(inFlight);
+                }
+            }
+            return retval;
+        }
+
+        List<Iv2InFlight> values()
+        {
+            List<Iv2InFlight> retval = new ArrayList<Iv2InFlight>(m_overflow.values());
+            for (long seq = m_head; seq < m_tail; seq++) {
+                Iv2InFlight inFlight = m_ring[slot(seq)];
+                if (inFlight != null) {
+                    retval.add(inFlight);
+                }
+            }
+            return retval;
+        }
+
+        private void advanceHead()
+        {
+            while (m_head < m_tail && m_ring[slot(m_head)] == null) {
+                m_head++;
+            }
+        }
+
+        private void grow()
+        {
+            Iv2InFlight[] ring = new Iv2InFlight[m_ring.length * 2];
+            for (long seq = m_head; seq < m_tail; seq++) {
+                ring[(int)(seq & (ring.length - 1))] = m_ring[slot(seq)];
+            }
+            m_ring = ring;
+        }
+
+        private void spillHead()
+        {
+            int idx = slot(m_head);
+            m_overflow.put(m_ring[idx].m_ciHandle, m_ring[idx]);
+            m_ring[idx] = null;
+            m_head++;
+            advanceHead();
+        }
+
+        private void spillAll()
+        {
+            for (long seq = m_head; seq < m_tail; seq++) {
+                int idx = slot(seq);
+                if (m_ring[idx] != null) {
+                    m_overflow.put(m_ring[idx].m_ciHandle, m_ring[idx]);
+                    m_ring[idx] = null;
+                }
+            }
         }
     }
 
@@ -208,6 +349,7 @@ public class ClientInterfaceHandleManager
             boolean isShortCircuitRead)
     {
         assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
+        final int spPartitionId = isSinglePartition ? partitionId : -1;
         if (!isSinglePartition) {
             partitionId = MP_PART_ID;
         }
@@ -224,7 +366,8 @@ public class ClientInterfaceHandleManager
         long ciHandle =
                 isShortCircuitRead ? m_shortCircuitHG.getNextHandle() : partitionStuff.m_generator.getNextHandle();
         Iv2InFlight inFlight =
-                new Iv2InFlight(ciHandle, clientHandle, messageSize, creationTimeNanos, procName, initiatorHSId);
+                new Iv2InFlight(ciHandle, clientHandle, messageSize, creationTimeNanos, procName, initiatorHSId,
+                        spPartitionId);
 
         if (isShortCircuitRead) {
             /*
@@ -251,9 +394,23 @@ public class ClientInterfaceHandleManager
 
         m_outstandingTxns++;
         m_acg.increaseBackpressure(messageSize);
+        if (spPartitionId >= 0) {
+            m_acg.partitionTxnAdmitted(spPartitionId);
+        }
         return ciHandle;
     }
 
+    /*
+     * Return the admission control resources held by an in flight txn to the group
+     */
+    private void reduceBackpressure(Iv2InFlight inFlight)
+    {
+        m_acg.reduceBackpressure(inFlight.m_messageSize);
+        if (inFlight.m_partitionId >= 0) {
+            m_acg.partitionTxnCompleted(inFlight.m_partitionId);
+        }
+    }
+
     private static boolean getReadBit(long handle) {
         return (handle & READ_BIT) != 0;
     }
@@ -283,7 +440,7 @@ public class ClientInterfaceHandleManager
          */
         Iv2InFlight inflight = m_shortCircuitReads.remove(ciHandle);
         if (inflight != null) {
-            m_acg.reduceBackpressure(inflight.m_messageSize);
+            reduceBackpressure(inflight);
             m_outstandingTxns--;
             return inflight;
         }
@@ -319,7 +476,7 @@ public class ClientInterfaceHandleManager
                 buf.flip();
                 connection.writeStream().enqueue(buf);
                 m_outstandingTxns--;
-                m_acg.reduceBackpressure(inFlight.m_messageSize);
+                reduceBackpressure(inFlight);
             }
             else if (inFlight.m_ciHandle > ciHandle) {
                 // we've gone too far, need to jam this back into the front of the deque and run away.
@@ -329,7 +486,7 @@ public class ClientInterfaceHandleManager
                 break;
             }
             else {
-                m_acg.reduceBackpressure(inFlight.m_messageSize);
+                reduceBackpressure(inFlight);
                 m_outstandingTxns--;
                 return inFlight;
             }
@@ -352,7 +509,7 @@ public class ClientInterfaceHandleManager
         // done.  However, this is logically correct, so go ahead and allow it.
         Iv2InFlight inflight = m_shortCircuitReads.remove(ciHandle);
         if (inflight != null) {
-            m_acg.reduceBackpressure(inflight.m_messageSize);
+            reduceBackpressure(inflight);
             m_outstandingTxns--;
             return inflight;
         }
@@ -380,7 +537,7 @@ public class ClientInterfaceHandleManager
                 break;
             }
             else if (inFlight.m_ciHandle == ciHandle) {
-                m_acg.reduceBackpressure(inFlight.m_messageSize);
+                reduceBackpressure(inFlight);
                 m_outstandingTxns--;
                 iter.remove();
                 return inFlight;
@@ -407,16 +564,16 @@ public class ClientInterfaceHandleManager
         for (PartitionData pd : m_partitionStuff.values()) {
             for (Iv2InFlight inflight : pd.m_reads) {
                 m_outstandingTxns--;
-                m_acg.reduceBackpressure(inflight.m_messageSize);
+                reduceBackpressure(inflight);
             }
             for (Iv2InFlight inflight : pd.m_writes) {
                 m_outstandingTxns--;
-                m_acg.reduceBackpressure(inflight.m_messageSize);
+                reduceBackpressure(inflight);
             }
         }
         for (Iv2InFlight inflight : m_shortCircuitReads.values()) {
             m_outstandingTxns--;
-            m_acg.reduceBackpressure(inflight.m_messageSize);
+            reduceBackpressure(inflight);
         }
     }
 
@@ -439,7 +596,7 @@ public class ClientInterfaceHandleManager
                 i.remove();
                 retval.add(entry);
                 m_outstandingTxns--;
-                m_acg.reduceBackpressure(entry.m_messageSize);
+                reduceBackpressure(entry);
             }
         }
 
@@ -447,18 +604,10 @@ public class ClientInterfaceHandleManager
          * MP short circuit reads can be remote, which necessitate repair
          */
         if (partitionId == MpInitiator.MP_INIT_PID) {
-            Iterator<Map.Entry<Long, Iv2InFlight>> itr =
-                    m_shortCircuitReads.entrySet().iterator();
-            while (itr.hasNext()) {
-                Map.Entry<Long, Iv2InFlight> e = itr.next();
-                Iv2InFlight entry = e.getValue();
-
-                if (entry.m_initiatorHSId != initiatorHSId) {
-                    itr.remove();
-                    retval.add(entry);
-                    m_outstandingTxns--;
-                    m_acg.reduceBackpressure(entry.m_messageSize);
-                }
+            for (Iv2InFlight entry : m_shortCircuitReads.removeNotFrom(initiatorHSId)) {
+                retval.add(entry);
+                m_outstandingTxns--;
+                reduceBackpressure(entry);
             }
         }
 
@@ -473,7 +622,7 @@ public class ClientInterfaceHandleManager
                 i.remove();
                 retval.add(entry);
                 m_outstandingTxns--;
-                m_acg.reduceBackpressure(entry.m_messageSize);
+                reduceBackpressure(entry);
             }
         }
         return retval;
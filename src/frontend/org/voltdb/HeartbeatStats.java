@@ -0,0 +1,125 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.voltcore.utils.Pair;
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * Failure detection latency for each link to another host, so the heartbeat timeout
+ * can be tuned against what the cluster actually sees. Ping round trips cover the wire
+ * and both network threads, the message gap is what the dead host timeout is compared to,
+ * and network thread stalls and GC time on this host tell a local pause from a slow peer.
+ */
+public class HeartbeatStats extends StatsSource {
+    private Map<Integer, Pair<String, long[]>> m_heartbeatStats =
+        new HashMap<Integer, Pair<String, long[]>>();
+    private long m_gcMillis;
+    private long m_lastGcMillis;
+
+    public static interface Constants {
+        public final static String REMOTE_HOST_ID = "REMOTE_HOST_ID";
+        public final static String REMOTE_HOSTNAME = "REMOTE_HOSTNAME";
+        public final static String PINGS = "PINGS";
+        public final static String ROUND_TRIP_P50_MICROS = "ROUND_TRIP_P50_MICROS";
+        public final static String ROUND_TRIP_P99_MICROS = "ROUND_TRIP_P99_MICROS";
+        public final static String ROUND_TRIP_MAX_MICROS = "ROUND_TRIP_MAX_MICROS";
+        public final static String MAX_MESSAGE_GAP_MILLIS = "MAX_MESSAGE_GAP_MILLIS";
+        public final static String DEAD_HOST_TIMEOUT_MILLIS = "DEAD_HOST_TIMEOUT_MILLIS";
+        public final static String NETWORK_STALLS = "NETWORK_STALLS";
+        public final static String MAX_NETWORK_STALL_MILLIS = "MAX_NETWORK_STALL_MILLIS";
+        public final static String GC_MILLIS = "GC_MILLIS";
+    }
+
+    public HeartbeatStats() {
+        super(false);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(Constants.REMOTE_HOST_ID, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.REMOTE_HOSTNAME, VoltType.STRING));
+        columns.add(new ColumnInfo(Constants.PINGS, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.ROUND_TRIP_P50_MICROS, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.ROUND_TRIP_P99_MICROS, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.ROUND_TRIP_MAX_MICROS, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.MAX_MESSAGE_GAP_MILLIS, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.DEAD_HOST_TIMEOUT_MILLIS, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.NETWORK_STALLS, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.MAX_NETWORK_STALL_MILLIS, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.GC_MILLIS, VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final Pair<String, long[]> info = m_heartbeatStats.get(rowKey);
+        final long[] counters = info.getSecond();
+
+        rowValues[columnNameToIndex.get(Constants.REMOTE_HOST_ID)] = rowKey;
+        rowValues[columnNameToIndex.get(Constants.REMOTE_HOSTNAME)] = info.getFirst();
+        rowValues[columnNameToIndex.get(Constants.PINGS)] = counters[0];
+        rowValues[columnNameToIndex.get(Constants.ROUND_TRIP_P50_MICROS)] = counters[1];
+        rowValues[columnNameToIndex.get(Constants.ROUND_TRIP_P99_MICROS)] = counters[2];
+        rowValues[columnNameToIndex.get(Constants.ROUND_TRIP_MAX_MICROS)] = counters[3];
+        rowValues[columnNameToIndex.get(Constants.MAX_MESSAGE_GAP_MILLIS)] = counters[4];
+        rowValues[columnNameToIndex.get(Constants.DEAD_HOST_TIMEOUT_MILLIS)] = counters[5];
+        rowValues[columnNameToIndex.get(Constants.NETWORK_STALLS)] = counters[6];
+        rowValues[columnNameToIndex.get(Constants.MAX_NETWORK_STALL_MILLIS)] = counters[7];
+        // GC is per process, every row reports the same value
+        rowValues[columnNameToIndex.get(Constants.GC_MILLIS)] = m_gcMillis;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_heartbeatStats = VoltDB.instance().getHostMessenger().getHeartbeatStats(interval);
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcMillis += Math.max(gc.getCollectionTime(), 0);
+        }
+        m_gcMillis = interval ? gcMillis - m_lastGcMillis : gcMillis;
+        if (interval) {
+            m_lastGcMillis = gcMillis;
+        }
+        final Iterator<Integer> hostIds = m_heartbeatStats.keySet().iterator();
+        return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return hostIds.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                return hostIds.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -69,7 +69,11 @@ public class IOStats extends StatsSource {
         columns.add(new ColumnInfo("MESSAGES_READ", VoltType.BIGINT));
         columns.add(new ColumnInfo("BYTES_WRITTEN", VoltType.BIGINT));
         columns.add(new ColumnInfo("MESSAGES_WRITTEN", VoltType.BIGINT));
-
+        columns.add(new ColumnInfo("WRITE_CALLS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("COMPRESSION_INPUT_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("COMPRESSION_OUTPUT_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("COMPRESS_MICROS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("DECOMPRESS_MICROS", VoltType.BIGINT));
     }
 
     @Override
@@ -83,6 +87,13 @@ public class IOStats extends StatsSource {
         rowValues[columnNameToIndex.get("MESSAGES_READ")] = counters[1];
         rowValues[columnNameToIndex.get("BYTES_WRITTEN")] = counters[2];
         rowValues[columnNameToIndex.get("MESSAGES_WRITTEN")] = counters[3];
+        rowValues[columnNameToIndex.get("WRITE_CALLS")] = counters[4];
+        // Only links between hosts compress messages
+        final boolean hasCompression = counters.length > 5;
+        rowValues[columnNameToIndex.get("COMPRESSION_INPUT_BYTES")] = hasCompression ? counters[5] : 0L;
+        rowValues[columnNameToIndex.get("COMPRESSION_OUTPUT_BYTES")] = hasCompression ? counters[6] : 0L;
+        rowValues[columnNameToIndex.get("COMPRESS_MICROS")] = hasCompression ? counters[7] : 0L;
+        rowValues[columnNameToIndex.get("DECOMPRESS_MICROS")] = hasCompression ? counters[8] : 0L;
         super.updateStatsRow(rowKey, rowValues);
     }
 
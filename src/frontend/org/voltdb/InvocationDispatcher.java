@@ -71,7 +71,9 @@ import org.voltdb.compiler.AsyncCompilerWork.AsyncCompilerWorkCompletionHandler;
 import org.voltdb.compiler.CatalogChangeResult;
 import org.voltdb.compiler.CatalogChangeWork;
 import org.voltdb.iv2.Cartographer;
+import org.voltdb.iv2.InitiatorMailbox;
 import org.voltdb.iv2.Iv2Trace;
+import org.voltdb.iv2.ReplicaLagTracker;
 import org.voltdb.jni.ExecutionEngine;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.messaging.MultiPartitionParticipantMessage;
@@ -106,6 +108,7 @@ public final class InvocationDispatcher {
     private final Cartographer m_cartographer;
     private final ConcurrentMap<Long, ClientInterfaceHandleManager> m_cihm;
     private final AtomicReference<Map<Integer,Long>> m_localReplicas = new AtomicReference<>(ImmutableMap.of());
+    private final AtomicReference<Map<Integer,ReplicaLagTracker>> m_localReplicaLag = new AtomicReference<>(ImmutableMap.of());
     private final SnapshotDaemon m_snapshotDaemon;
     private final AtomicBoolean m_isInitialRestore = new AtomicBoolean(true);
     // used to decide if we should shortcut reads
@@ -230,15 +233,25 @@ public final class InvocationDispatcher {
                  * if single part reads can be delivered and executed at local replicas
                  */
                 final int thisHostId = CoreUtils.getHostIdFromHSId(m_mailbox.getHSId());
+                final HostMessenger messenger = VoltDB.instance().getHostMessenger();
                 ImmutableMap.Builder<Integer, Long> localReplicas = ImmutableMap.builder();
+                ImmutableMap.Builder<Integer, ReplicaLagTracker> localReplicaLag = ImmutableMap.builder();
                 for (int partition : m_cartographer.getPartitions()) {
                     for (Long replica : m_cartographer.getReplicasForPartition(partition)) {
                         if (CoreUtils.getHostIdFromHSId(replica) == thisHostId) {
                             localReplicas.put(partition, replica);
+                            Mailbox mailbox = messenger.getMailbox(replica);
+                            if (mailbox instanceof InitiatorMailbox) {
+                                ReplicaLagTracker lag = ((InitiatorMailbox)mailbox).getReplicaLagTracker();
+                                if (lag != null) {
+                                    localReplicaLag.put(partition, lag);
+                                }
+                            }
                         }
                     }
                 }
                 m_localReplicas.set(localReplicas.build());
+                m_localReplicaLag.set(localReplicaLag.build());
             }
 
         });
@@ -428,6 +441,16 @@ public final class InvocationDispatcher {
             // unable to hash to a site, return an error
             return getMispartitionedErrorResponse(task, catProc, e);
         }
+        if (catProc.getSinglepartition() && !catProc.getEverysite()) {
+            ClientInterfaceHandleManager cihm = m_cihm.get(handler.connectionId());
+            if (cihm != null && cihm.m_acg.isPartitionOverloaded(partition)) {
+                return new ClientResponseImpl(ClientResponseImpl.PARTITION_OVERLOADED,
+                        new VoltTable[0],
+                        "Partition " + partition + " has too many outstanding transactions on this network thread of the server. "
+                        + "The transaction was not started, it should be safe to resend it after backing off.",
+                        task.clientHandle);
+            }
+        }
         boolean success = createTransaction(handler.connectionId(),
                         task,
                         catProc.getReadonly(),
@@ -1471,7 +1494,9 @@ public final class InvocationDispatcher {
         /*
          * ReadLevel.FAST:
          * If this is a read only single part, check if there is a local replica,
-         * if there is, send it to the replica as a short circuit read
+         * if there is, send it to the replica as a short circuit read, unless
+         * ReplicaLagTracker.MAX_PENDING_WRITE_AGE_MS is set and the replica has a
+         * write pending for longer than that
          *
          * ReadLevel.SAFE:
          * Send the read to the partition leader always (reads & writes)
@@ -1481,6 +1506,9 @@ public final class InvocationDispatcher {
         if (isSinglePartition && !isEveryPartition) {
             if (isReadOnly && (m_defaultConsistencyReadLevel == ReadLevel.FAST)) {
                 initiatorHSId = m_localReplicas.get().get(partition);
+                if (initiatorHSId != null && isLocalReplicaTooStale(partition)) {
+                    initiatorHSId = null;
+                }
             }
             if (initiatorHSId != null) {
                 isShortCircuitRead = true;
@@ -1525,6 +1553,16 @@ public final class InvocationDispatcher {
         return true;
     }
 
+    private boolean isLocalReplicaTooStale(int partition)
+    {
+        if (ReplicaLagTracker.MAX_PENDING_WRITE_AGE_MS < 0) {
+            return false;
+        }
+        ReplicaLagTracker lag = m_localReplicaLag.get().get(partition);
+        return lag != null &&
+                lag.getOldestPendingWriteAgeMs(EstTime.currentTimeMillis()) > ReplicaLagTracker.MAX_PENDING_WRITE_AGE_MS;
+    }
+
     final static int getPartitionForProcedure(Procedure procedure, StoredProcedureInvocation task) {
         final CatalogContext.ProcedurePartitionInfo ppi =
                 (CatalogContext.ProcedurePartitionInfo)procedure.getAttachment();
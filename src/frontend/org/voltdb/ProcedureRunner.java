@@ -56,6 +56,7 @@ import org.voltdb.exceptions.SerializableException;
 import org.voltdb.exceptions.SpecifiedException;
 import org.voltdb.groovy.GroovyScriptProcedureDelegate;
 import org.voltdb.iv2.MpInitiator;
+import org.voltdb.iv2.MpTransactionState;
 import org.voltdb.iv2.UniqueIdGenerator;
 import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.planner.ActivePlanRepository;
@@ -274,6 +275,13 @@ public class ProcedureRunner {
 
         try {
             m_statsCollector.beginProcedure();
+            final long spilledBytesAtStart = m_site.getSpilledBytes();
+            final long predicatesAtStart = m_site.getPredicateCount();
+            final long compiledPredicatesAtStart = m_site.getCompiledPredicateCount();
+            final long predicateFragmentsAtStart = m_site.getPredicateFragmentCount();
+            final long predicateFragmentNanosAtStart = m_site.getPredicateFragmentNanos();
+            final long semiJoinFragmentsAtStart = m_site.getSemiJoinFragmentCount();
+            final long semiJoinPrunedRowsAtStart = m_site.getSemiJoinPrunedRows();
 
             VoltTable[] results = null;
 
@@ -390,6 +398,25 @@ public class ProcedureRunner {
             // Record statistics for procedure call.
             StoredProcedureInvocation invoc = (m_txnState != null ? m_txnState.getInvocation() : null);
             ParameterSet paramSet = (invoc != null ? invoc.getParams() : null);
+            m_statsCollector.addSpilledBytes(m_site.getSpilledBytes() - spilledBytesAtStart);
+            m_statsCollector.addPredicateStats(m_site.getPredicateCount() - predicatesAtStart,
+                    m_site.getCompiledPredicateCount() - compiledPredicatesAtStart,
+                    m_site.getPredicateFragmentCount() - predicateFragmentsAtStart,
+                    m_site.getPredicateFragmentNanos() - predicateFragmentNanosAtStart);
+            m_statsCollector.addSemiJoinStats(m_site.getSemiJoinFragmentCount() - semiJoinFragmentsAtStart,
+                    m_site.getSemiJoinPrunedRows() - semiJoinPrunedRowsAtStart);
+            if (m_txnState instanceof MpTransactionState) {
+                // Multi-partition fragments execute on the partition sites,
+                // which report their statistics back with the fragment responses.
+                final MpTransactionState mpTxnState = (MpTransactionState) m_txnState;
+                m_statsCollector.addPredicateStats(mpTxnState.getPredicateCount(),
+                        mpTxnState.getCompiledPredicateCount(),
+                        mpTxnState.getPredicateFragmentCount(),
+                        mpTxnState.getPredicateFragmentNanos());
+                m_statsCollector.addSemiJoinStats(mpTxnState.getSemiJoinFragmentCount(),
+                        mpTxnState.getSemiJoinPrunedRows());
+                mpTxnState.clearExecutionStats();
+            }
             m_statsCollector.endProcedure(abort, error, results, paramSet);
 
             // don't leave empty handed
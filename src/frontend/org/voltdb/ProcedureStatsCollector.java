@@ -119,6 +119,41 @@ class ProcedureStatsCollector extends SiteStatsSource {
     private long m_totalParameterSetSize = 0;
     private long m_lastTotalParameterSetSize = 0;
 
+    /**
+     * Bytes of temp table data spilled to disk by the procedure's SQL on this site
+     */
+    private long m_spilledBytes = 0;
+    private long m_lastSpilledBytes = 0;
+
+    /**
+     * Predicates in the fragments executed for the procedure, and how many of those
+     * the EE compiled. Only counted with compiled predicates enabled. A multi-partition
+     * procedure's fragments run on the partition sites, which report their counts
+     * back with the fragment responses, so its row carries the cluster-wide totals.
+     */
+    private long m_predicateCount = 0;
+    private long m_lastPredicateCount = 0;
+    private long m_compiledPredicateCount = 0;
+    private long m_lastCompiledPredicateCount = 0;
+
+    /**
+     * Fragments those predicates were in and their total execution time in nanoseconds,
+     * summed over the sites that executed them
+     */
+    private long m_predicateFragmentCount = 0;
+    private long m_lastPredicateFragmentCount = 0;
+    private long m_predicateFragmentNanos = 0;
+    private long m_lastPredicateFragmentNanos = 0;
+
+    /**
+     * Fragments executed for the procedure with scans filtered by the join keys
+     * of another input, and how many rows those scans left out
+     */
+    private long m_semiJoinFragmentCount = 0;
+    private long m_lastSemiJoinFragmentCount = 0;
+    private long m_semiJoinPrunedRows = 0;
+    private long m_lastSemiJoinPrunedRows = 0;
+
     /**
      * Whether to return results in intervals since polling or since the beginning
      */
@@ -210,6 +245,32 @@ class ProcedureStatsCollector extends SiteStatsSource {
         m_invocations++;
     }
 
+    /**
+     * Called before endProcedure with the bytes the invocation spilled to disk, if any.
+     */
+    public final void addSpilledBytes(long spilledBytes) {
+        m_spilledBytes += spilledBytes;
+    }
+
+    /**
+     * Called before endProcedure with the predicate statistics of the fragments the invocation executed.
+     */
+    public final void addPredicateStats(long predicates, long compiledPredicates,
+            long fragments, long fragmentNanos) {
+        m_predicateCount += predicates;
+        m_compiledPredicateCount += compiledPredicates;
+        m_predicateFragmentCount += fragments;
+        m_predicateFragmentNanos += fragmentNanos;
+    }
+
+    /**
+     * Called before endProcedure with the semi-join statistics of the fragments the invocation executed.
+     */
+    public final void addSemiJoinStats(long fragments, long prunedRows) {
+        m_semiJoinFragmentCount += fragments;
+        m_semiJoinPrunedRows += prunedRows;
+    }
+
     /**
      * Update the rowValues array with the latest statistical information.
      * This method is overrides the super class version
@@ -234,6 +295,13 @@ class ProcedureStatsCollector extends SiteStatsSource {
         long minParameterSetSize = m_minParameterSetSize;
         long maxParameterSetSize = m_maxParameterSetSize;
         long totalParameterSetSize = m_totalParameterSetSize;
+        long spilledBytes = m_spilledBytes;
+        long predicateCount = m_predicateCount;
+        long compiledPredicateCount = m_compiledPredicateCount;
+        long predicateFragmentCount = m_predicateFragmentCount;
+        long predicateFragmentNanos = m_predicateFragmentNanos;
+        long semiJoinFragmentCount = m_semiJoinFragmentCount;
+        long semiJoinPrunedRows = m_semiJoinPrunedRows;
 
         if (m_interval) {
             invocations = m_invocations - m_lastInvocations;
@@ -266,6 +334,27 @@ class ProcedureStatsCollector extends SiteStatsSource {
 
             totalParameterSetSize = m_totalParameterSetSize - m_lastTotalParameterSetSize;
             m_lastTotalParameterSetSize = m_totalParameterSetSize;
+
+            spilledBytes = m_spilledBytes - m_lastSpilledBytes;
+            m_lastSpilledBytes = m_spilledBytes;
+
+            predicateCount = m_predicateCount - m_lastPredicateCount;
+            m_lastPredicateCount = m_predicateCount;
+
+            compiledPredicateCount = m_compiledPredicateCount - m_lastCompiledPredicateCount;
+            m_lastCompiledPredicateCount = m_compiledPredicateCount;
+
+            predicateFragmentCount = m_predicateFragmentCount - m_lastPredicateFragmentCount;
+            m_lastPredicateFragmentCount = m_predicateFragmentCount;
+
+            predicateFragmentNanos = m_predicateFragmentNanos - m_lastPredicateFragmentNanos;
+            m_lastPredicateFragmentNanos = m_predicateFragmentNanos;
+
+            semiJoinFragmentCount = m_semiJoinFragmentCount - m_lastSemiJoinFragmentCount;
+            m_lastSemiJoinFragmentCount = m_semiJoinFragmentCount;
+
+            semiJoinPrunedRows = m_semiJoinPrunedRows - m_lastSemiJoinPrunedRows;
+            m_lastSemiJoinPrunedRows = m_semiJoinPrunedRows;
         }
 
         rowValues[columnNameToIndex.get("INVOCATIONS")] = invocations;
@@ -290,6 +379,14 @@ class ProcedureStatsCollector extends SiteStatsSource {
         rowValues[columnNameToIndex.get("MAX_RESULT_SIZE")] = maxResultSize;
         rowValues[columnNameToIndex.get("MIN_PARAMETER_SET_SIZE")] = minParameterSetSize;
         rowValues[columnNameToIndex.get("MAX_PARAMETER_SET_SIZE")] = maxParameterSetSize;
+        rowValues[columnNameToIndex.get("SPILLED_BYTES")] = spilledBytes;
+        rowValues[columnNameToIndex.get("PREDICATES")] = predicateCount;
+        rowValues[columnNameToIndex.get("COMPILED_PREDICATES")] = compiledPredicateCount;
+        rowValues[columnNameToIndex.get("AVG_FRAGMENT_EXECUTION_TIME")] = (predicateFragmentCount != 0) ?
+                (predicateFragmentNanos / predicateFragmentCount) : 0L;
+        rowValues[columnNameToIndex.get("SEMI_JOIN_PRUNED_ROWS")] = semiJoinPrunedRows;
+        rowValues[columnNameToIndex.get("AVG_SEMI_JOIN_PRUNED_ROWS")] = (semiJoinFragmentCount != 0) ?
+                (semiJoinPrunedRows / semiJoinFragmentCount) : 0L;
     }
 
     /**
@@ -314,6 +411,12 @@ class ProcedureStatsCollector extends SiteStatsSource {
         columns.add(new VoltTable.ColumnInfo("AVG_PARAMETER_SET_SIZE", VoltType.INTEGER));
         columns.add(new VoltTable.ColumnInfo("ABORTS", VoltType.BIGINT));
         columns.add(new VoltTable.ColumnInfo("FAILURES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("SPILLED_BYTES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("PREDICATES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("COMPILED_PREDICATES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("AVG_FRAGMENT_EXECUTION_TIME", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("SEMI_JOIN_PRUNED_ROWS", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("AVG_SEMI_JOIN_PRUNED_ROWS", VoltType.BIGINT));
     }
 
     @Override
@@ -101,6 +101,7 @@ import org.voltdb.common.NodeState;
 import org.voltdb.compiler.AdHocCompilerCache;
 import org.voltdb.compiler.AsyncCompilerAgent;
 import org.voltdb.compiler.ClusterConfig;
+import org.voltdb.compiler.LiveDatabaseEstimates;
 import org.voltdb.compiler.deploymentfile.ClusterType;
 import org.voltdb.compiler.deploymentfile.ConsistencyType;
 import org.voltdb.compiler.deploymentfile.DeploymentType;
@@ -1002,6 +1003,8 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             m_ioStats = new IOStats();
             getStatsAgent().registerStatsSource(StatsSelector.IOSTATS,
                     0, m_ioStats);
+            getStatsAgent().registerStatsSource(StatsSelector.HEARTBEAT,
+                    0, new HeartbeatStats());
             m_memoryStats = new MemoryStats();
             getStatsAgent().registerStatsSource(StatsSelector.MEMORY,
                     0, m_memoryStats);
@@ -1693,6 +1696,19 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             }
         }, 0, 6, TimeUnit.MINUTES));
 
+        // table and index statistics for the ad hoc planner
+        if (LiveDatabaseEstimates.ENABLED) {
+            m_periodicWorks.add(scheduleWork(new Runnable() {
+                @Override
+                public void run() {
+                    if (LiveDatabaseEstimates.refresh(getStatsAgent())) {
+                        m_catalogContext.m_ptool.clearCache();
+                    }
+                }
+            }, LiveDatabaseEstimates.REFRESH_INTERVAL_SECONDS,
+               LiveDatabaseEstimates.REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS));
+        }
+
         GCInspector.instance.start(m_periodicPriorityWorkThread);
     }
 
@@ -2970,6 +2986,10 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                 // in memory.
                 getStatsAgent().notifyOfCatalogUpdate();
 
+                // 4.1 Start the ad hoc planner over with the statistics of the new schema.
+                LiveDatabaseEstimates.reset();
+                LiveDatabaseEstimates.refresh(getStatsAgent());
+
                 // 5. MPIs don't run fragments. Update them here. Do
                 // this after flushing the stats -- this will re-register
                 // the MPI statistics.
@@ -128,6 +128,28 @@ public interface SiteProcedureConnection {
     public void setBatchTimeout(int batchTimeout);
     public int getBatchTimeout();
 
+    /**
+     * Bytes of temp table data the EE has spilled to disk since it started.
+     */
+    public long getSpilledBytes();
+
+    /**
+     * Predicates in the fragments the EE has executed with compiled predicates
+     * enabled, how many of those were compiled, and how many fragments took how
+     * many nanoseconds to execute.
+     */
+    public long getPredicateCount();
+    public long getCompiledPredicateCount();
+    public long getPredicateFragmentCount();
+    public long getPredicateFragmentNanos();
+
+    /**
+     * Fragments the EE has executed with scans filtered by the join keys of
+     * another input, and how many rows those scans left out.
+     */
+    public long getSemiJoinFragmentCount();
+    public long getSemiJoinPrunedRows();
+
     /**
      * Legacy recursable execution interface for MP transaction states.
      */
@@ -436,6 +436,12 @@ public class StatsAgent extends OpsAgent
         case IMPORTER:
             stats = collectStats(StatsSelector.IMPORTER, interval);
             break;
+        case MPQUEUE:
+            stats = collectStats(StatsSelector.MPQUEUE, interval);
+            break;
+        case HEARTBEAT:
+            stats = collectStats(StatsSelector.HEARTBEAT, interval);
+            break;
         default:
             // Should have been successfully groomed in collectStatsImpl().  Log something
             // for our information but let the null check below return harmlessly
@@ -54,5 +54,7 @@ public enum StatsSelector {
     CPU,            // Return CPU Stats
 
     COMMANDLOG,     // return number of outstanding bytes and txns on this node
-    IMPORTER
+    IMPORTER,
+    MPQUEUE,        // return MP read/write concurrency at the MPI, MP writes still run one at a time
+    HEARTBEAT       // return failure detection latency for each link to another host
 }
@@ -82,6 +82,15 @@ public interface ClientResponse {
      */
     public static final byte OPERATIONAL_FAILURE = -9;
 
+    /**
+     * Status code indicating that the partition the invocation was routed to has too much
+     * outstanding work on the server network thread that read the invocation. The limit is counted
+     * separately by each network thread of the server, not for the server as a whole. The invocation
+     * was never executed and work for other partitions is still being accepted, so the client should
+     * back off sending to this partition only and can then safely resend the invocation.
+     */
+    public static final byte PARTITION_OVERLOADED = -10;
+
     /**
      * Default value for the user specified app status code field
      */
@@ -674,7 +674,9 @@ class Distributer {
                 final byte status = response.getStatus();
                 boolean abort = false;
                 boolean error = false;
-                if (status == ClientResponse.USER_ABORT || status == ClientResponse.GRACEFUL_FAILURE) {
+                // PARTITION_OVERLOADED is a refusal to start the procedure, like a graceful failure
+                if (status == ClientResponse.USER_ABORT || status == ClientResponse.GRACEFUL_FAILURE ||
+                        status == ClientResponse.PARTITION_OVERLOADED) {
                     abort = true;
                 } else if (status != ClientResponse.SUCCESS) {
                     error = true;
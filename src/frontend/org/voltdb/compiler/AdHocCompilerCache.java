@@ -226,6 +226,15 @@ public class AdHocCompilerCache implements Serializable {
         m_planEvictions = 0;
     }
 
+    /**
+     * Drop every cached plan, e.g. after the data changed enough that
+     * the plans would be costed differently now.
+     */
+    public synchronized void clear() {
+        m_literalCache.clear();
+        m_coreCache.clear();
+    }
+
     /**
      * @param sql SQL literal
      * @return full, ready-to-go plan
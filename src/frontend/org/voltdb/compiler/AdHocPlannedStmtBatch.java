@@ -28,6 +28,7 @@ import org.voltcore.network.Connection;
 import org.voltdb.ClientInterface.ExplainMode;
 import org.voltdb.ParameterConverter;
 import org.voltdb.ParameterSet;
+import org.voltdb.VoltDB;
 import org.voltdb.VoltType;
 import org.voltdb.VoltTypeException;
 import org.voltdb.catalog.Database;
@@ -378,6 +379,13 @@ public class AdHocPlannedStmtBatch extends AsyncCompilerResult implements Clonea
                 pnt.getRootPlanNode().reattachFragment(collpnt.getRootPlanNode());
             }
             String result = pnt.getRootPlanNode().toExplainPlanString();
+            if (LiveDatabaseEstimates.ENABLED) {
+                String rowEstimates = LiveDatabaseEstimates.explainRowEstimates(pnt.getRootPlanNode(),
+                        VoltDB.instance().getStatsAgent());
+                if (rowEstimates != null) {
+                    result += "\n" + rowEstimates;
+                }
+            }
             return result;
         }
         catch (JSONException e) {
@@ -26,14 +26,37 @@ public class DatabaseEstimates {
         public long maxTuples = 1000000;
         public long minTuples = 100000;
         public ArrayList<ScalarValueHints> valueHints = new ArrayList<ScalarValueHints>();
+        // estimated number of distinct keys by index name, only for indexes that have statistics
+        public HashMap<String, Long> indexDistinctKeys = new HashMap<String, Long>();
+
+        /**
+         * @return the estimated number of distinct keys in the index, or 0 if unknown
+         */
+        public long getDistinctKeysForIndex(String indexName) {
+            Long keys = indexDistinctKeys.get(indexName);
+            return keys == null ? 0 : keys;
+        }
     }
 
     HashMap<String, TableEstimates> tables = new HashMap<String, TableEstimates>();
 
+    /**
+     * Tables without estimates get the defaults. The defaults are not added to this
+     * object so that a set of estimates can be shared with other threads once built.
+     */
     public TableEstimates getEstimatesForTable(String tableName) {
-        if (tables.containsKey(tableName) == false)
-            tables.put(tableName, new TableEstimates());
+        TableEstimates tableEstimates = tables.get(tableName);
+        if (tableEstimates == null) {
+            return new TableEstimates();
+        }
+        return tableEstimates;
+    }
+
+    public boolean hasEstimatesForTable(String tableName) {
+        return tables.containsKey(tableName);
+    }
 
-        return tables.get(tableName);
+    public void setEstimatesForTable(String tableName, TableEstimates tableEstimates) {
+        tables.put(tableName, tableEstimates);
     }
 }
@@ -0,0 +1,228 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.StatsAgent;
+import org.voltdb.StatsSelector;
+import org.voltdb.VoltTable;
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.AbstractScanPlanNode;
+import org.voltdb.plannodes.IndexScanPlanNode;
+
+/**
+ * Table cardinalities and index key counts taken from this host's TABLE and INDEX
+ * statistics, for costing ad hoc statements with the data actually in the database
+ * instead of the fixed {@link DatabaseEstimates} defaults.
+ *
+ * Every site reports the tables and indexes of its own partition, so the estimates are
+ * per partition: the average over the local copies of each partitioned table, and the
+ * full table for a replicated one. That is what each plan fragment will be reading.
+ *
+ * Off unless the server runs with -DENABLE_LIVE_STATISTICS=true. Only ad hoc planning
+ * uses the estimates; procedure statements are planned once, with the catalog.
+ */
+public class LiveDatabaseEstimates {
+    private static final VoltLogger compileLog = new VoltLogger("COMPILE");
+
+    public static final boolean ENABLED = Boolean.getBoolean("ENABLE_LIVE_STATISTICS");
+
+    /** How often the estimates are refreshed from the statistics */
+    public static final long REFRESH_INTERVAL_SECONDS = Long.getLong("LIVE_STATISTICS_REFRESH_SECONDS", 10);
+
+    // A table that grew or shrank by more than this factor since the estimates
+    // the cached ad hoc plans were costed with makes them worth planning again
+    static final double REPLAN_FACTOR = 2.0;
+
+    private static volatile DatabaseEstimates s_current = null;
+
+    /**
+     * @return the estimates to plan an ad hoc statement with, the defaults if
+     * live statistics are disabled or have not been collected yet
+     */
+    public static DatabaseEstimates getEstimates() {
+        DatabaseEstimates current = s_current;
+        if (!ENABLED || current == null) {
+            return new DatabaseEstimates();
+        }
+        return current;
+    }
+
+    /**
+     * Rebuild the estimates from the latest statistics the local sites have reported.
+     * @return true if a table changed enough that cached ad hoc plans should be dropped
+     */
+    public static boolean refresh(StatsAgent statsAgent) {
+        if (!ENABLED || statsAgent == null) {
+            return false;
+        }
+        final Long now = System.currentTimeMillis();
+        final VoltTable tableStats = statsAgent.getStatsAggregate(StatsSelector.TABLE, false, now);
+        final VoltTable indexStats = statsAgent.getStatsAggregate(StatsSelector.INDEX, false, now);
+        if (tableStats == null) {
+            return false;
+        }
+        final DatabaseEstimates previous = s_current;
+        final DatabaseEstimates current = fromStatistics(tableStats, indexStats);
+        s_current = current;
+        final boolean replan = previous != null && changedSignificantly(previous, current);
+        if (replan && compileLog.isDebugEnabled()) {
+            compileLog.debug("Table cardinalities changed, dropping cached ad hoc plans");
+        }
+        return replan;
+    }
+
+    /** Forget the estimates, used when the schema changes and by tests. */
+    public static void reset() {
+        s_current = null;
+    }
+
+    /**
+     * Build per partition estimates from TABLE and INDEX statistics tables, which
+     * have one row per table or index per local site.
+     */
+    static DatabaseEstimates fromStatistics(VoltTable tableStats, VoltTable indexStats) {
+        // table name -> {sum of tuple counts, number of copies}
+        Map<String, long[]> tupleCounts = new HashMap<String, long[]>();
+        tableStats.resetRowPosition();
+        while (tableStats.advanceRow()) {
+            accumulate(tupleCounts, tableStats.getString("TABLE_NAME"), tableStats.getLong("TUPLE_COUNT"));
+        }
+        tableStats.resetRowPosition();
+
+        DatabaseEstimates estimates = new DatabaseEstimates();
+        for (Entry<String, long[]> e : tupleCounts.entrySet()) {
+            DatabaseEstimates.TableEstimates tableEstimates = new DatabaseEstimates.TableEstimates();
+            // Keep empty tables at one tuple so no plan looks free.
+            tableEstimates.maxTuples = Math.max(1, e.getValue()[0] / e.getValue()[1]);
+            tableEstimates.minTuples = tableEstimates.maxTuples;
+            estimates.setEstimatesForTable(e.getKey(), tableEstimates);
+        }
+
+        if (indexStats != null) {
+            // table name -> index name -> {sum of distinct key estimates, number of copies}
+            Map<String, Map<String, long[]>> keyCounts = new HashMap<String, Map<String, long[]>>();
+            indexStats.resetRowPosition();
+            while (indexStats.advanceRow()) {
+                long distinctKeys = indexStats.getLong("DISTINCT_KEY_ESTIMATE");
+                if (distinctKeys < 0) {
+                    // not an index the EE can sample
+                    continue;
+                }
+                String tableName = indexStats.getString("TABLE_NAME");
+                Map<String, long[]> indexes = keyCounts.get(tableName);
+                if (indexes == null) {
+                    indexes = new HashMap<String, long[]>();
+                    keyCounts.put(tableName, indexes);
+                }
+                accumulate(indexes, indexStats.getString("INDEX_NAME"), distinctKeys);
+            }
+            indexStats.resetRowPosition();
+
+            for (Entry<String, Map<String, long[]>> tableEntry : keyCounts.entrySet()) {
+                if (!estimates.hasEstimatesForTable(tableEntry.getKey())) {
+                    continue;
+                }
+                DatabaseEstimates.TableEstimates tableEstimates = estimates.getEstimatesForTable(tableEntry.getKey());
+                for (Entry<String, long[]> e : tableEntry.getValue().entrySet()) {
+                    tableEstimates.indexDistinctKeys.put(e.getKey(), Math.max(1, e.getValue()[0] / e.getValue()[1]));
+                }
+            }
+        }
+        return estimates;
+    }
+
+    private static void accumulate(Map<String, long[]> sums, String name, long value) {
+        long[] sum = sums.get(name);
+        if (sum == null) {
+            sum = new long[2];
+            sums.put(name, sum);
+        }
+        sum[0] += value;
+        sum[1]++;
+    }
+
+    static boolean changedSignificantly(DatabaseEstimates before, DatabaseEstimates after) {
+        for (Entry<String, DatabaseEstimates.TableEstimates> e : after.tables.entrySet()) {
+            if (!before.hasEstimatesForTable(e.getKey())) {
+                return true;
+            }
+            double ratio = (double) e.getValue().maxTuples /
+                    before.getEstimatesForTable(e.getKey()).maxTuples;
+            if (ratio > REPLAN_FACTOR || ratio < 1 / REPLAN_FACTOR) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Describe the rows the planner estimated for each table and index scan in a plan
+     * next to the rows the tables actually hold now, for EXPLAIN.
+     * @return the description, or null if live statistics are disabled or not available
+     */
+    public static String explainRowEstimates(AbstractPlanNode root, StatsAgent statsAgent) {
+        DatabaseEstimates planned = s_current;
+        if (!ENABLED || planned == null || statsAgent == null) {
+            return null;
+        }
+        VoltTable tableStats = statsAgent.getStatsAggregate(StatsSelector.TABLE, false, System.currentTimeMillis());
+        if (tableStats == null) {
+            return null;
+        }
+        DatabaseEstimates actual = fromStatistics(tableStats, null);
+
+        // Sorted, and each table or index only once however often the plan scans it
+        Map<String, String> lines = new TreeMap<String, String>();
+        for (AbstractPlanNode node : root.findAllNodesOfClass(AbstractScanPlanNode.class)) {
+            AbstractScanPlanNode scan = (AbstractScanPlanNode) node;
+            String tableName = scan.getTargetTableName();
+            if (scan.isSubQuery() || tableName == null || !actual.hasEstimatesForTable(tableName)) {
+                // a subquery or a table without statistics yet
+                continue;
+            }
+            long actualRows = actual.getEstimatesForTable(tableName).maxTuples;
+            DatabaseEstimates.TableEstimates tableEstimates = planned.getEstimatesForTable(tableName);
+            lines.put(tableName, String.format(" %s: estimated %d rows, actual %d rows",
+                    tableName, tableEstimates.maxTuples, actualRows));
+            if (node instanceof IndexScanPlanNode) {
+                String indexName = ((IndexScanPlanNode) node).getTargetIndexName();
+                long distinctKeys = tableEstimates.getDistinctKeysForIndex(indexName);
+                if (distinctKeys > 0) {
+                    lines.put(tableName + "." + indexName,
+                            String.format(" %s using \"%s\": estimated %d distinct keys, %d rows per key",
+                                    tableName, indexName, distinctKeys,
+                                    Math.max(1, tableEstimates.maxTuples / distinctKeys)));
+                }
+            }
+        }
+        if (lines.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder("ROW ESTIMATES (per partition)");
+        for (String line : lines.values()) {
+            sb.append('\n').append(line);
+        }
+        return sb.toString();
+    }
+}
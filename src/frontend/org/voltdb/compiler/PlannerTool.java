@@ -104,6 +104,13 @@ public class PlannerTool {
         }
     }
 
+    /**
+     * Drop the cached ad hoc plans for this catalog so statements get planned again.
+     */
+    public void clearCache() {
+        m_cache.clear();
+    }
+
     public AdHocPlannedStatement planSqlForTest(String sqlIn) {
         StatementPartitioning infer = StatementPartitioning.inferPartitioning();
         return planSql(sqlIn, infer, false, null);
@@ -194,7 +201,7 @@ public class PlannerTool {
             //////////////////////
 
             TrivialCostModel costModel = new TrivialCostModel();
-            DatabaseEstimates estimates = new DatabaseEstimates();
+            DatabaseEstimates estimates = LiveDatabaseEstimates.getEstimates();
             QueryPlanner planner = new QueryPlanner(
                     sql, "PlannerTool", "PlannerToolProc", m_cluster, m_database,
                     partitioning, m_hsql, estimates, !VoltCompiler.DEBUG_MODE,
@@ -31,6 +31,7 @@ import java.util.Stack;
 import org.voltdb.VoltType;
 import org.voltdb.planner.PlanningErrorException;
 import org.voltdb.types.ExpressionType;
+import org.voltdb.types.QuantifierType;
 
 /**
  *
@@ -407,6 +408,69 @@ public abstract class ExpressionUtil {
         return containsMatchingTVE(expr, tableAlias);
     }
 
+    /**
+     * Return true if the EE can evaluate the scan predicate a batch of tuples at a time.
+     * That takes an AND/OR tree of comparisons between integer or timestamp columns,
+     * constants and parameters, or sums, differences and products of integer ones.
+     * The EE still checks the actual parameter types before each execution.
+     *
+     * @param expr
+     * @return true if the predicate can be evaluated in batches
+     */
+    public static boolean isBatchablePredicate(AbstractExpression expr) {
+        switch (expr.getExpressionType()) {
+        case CONJUNCTION_AND:
+        case CONJUNCTION_OR:
+            return isBatchablePredicate(expr.m_left) && isBatchablePredicate(expr.m_right);
+        case COMPARE_EQUAL:
+        case COMPARE_NOTEQUAL:
+        case COMPARE_LESSTHAN:
+        case COMPARE_GREATERTHAN:
+        case COMPARE_LESSTHANOREQUALTO:
+        case COMPARE_GREATERTHANOREQUALTO:
+            if ( ! (expr instanceof ComparisonExpression) ||
+                    ((ComparisonExpression) expr).getQuantifier() != QuantifierType.NONE) {
+                return false;
+            }
+            return isBatchableValue(expr.m_left, true) && isBatchableValue(expr.m_right, true);
+        default:
+            return false;
+        }
+    }
+
+    private static boolean isBatchableValue(AbstractExpression expr, boolean allowTimestamp) {
+        if (expr == null || expr.getValueType() == null) {
+            return false;
+        }
+        switch (expr.getValueType()) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+            break;
+        case TIMESTAMP:
+            if (allowTimestamp) {
+                break;
+            }
+            return false;
+        default:
+            return false;
+        }
+        switch (expr.getExpressionType()) {
+        case VALUE_TUPLE:
+            return expr instanceof TupleValueExpression;
+        case VALUE_CONSTANT:
+        case VALUE_PARAMETER:
+            return true;
+        case OPERATOR_PLUS:
+        case OPERATOR_MINUS:
+        case OPERATOR_MULTIPLY:
+            return isBatchableValue(expr.m_left, false) && isBatchableValue(expr.m_right, false);
+        default:
+            return false;
+        }
+    }
+
     /**
      *  Given two equal length lists of the expressions build a combined equivalence expression
      *  (le1, le2,..., leN) (re1, re2,..., reN) =>
@@ -218,6 +218,15 @@ public class FragmentTask extends TransactionTask
             return currentFragResponse;
         }
 
+        // The coordinating procedure runs on another site for multi-partition
+        // transactions, so measure the fragments here and ship the counts back.
+        final long predicatesAtStart = siteConnection.getPredicateCount();
+        final long compiledPredicatesAtStart = siteConnection.getCompiledPredicateCount();
+        final long predicateFragmentsAtStart = siteConnection.getPredicateFragmentCount();
+        final long predicateFragmentNanosAtStart = siteConnection.getPredicateFragmentNanos();
+        final long semiJoinFragmentsAtStart = siteConnection.getSemiJoinFragmentCount();
+        final long semiJoinPrunedRowsAtStart = siteConnection.getSemiJoinPrunedRows();
+
         for (int frag = 0; frag < m_fragmentMsg.getFragmentCount(); frag++)
         {
             byte[] planHash = m_fragmentMsg.getPlanHash(frag);
@@ -315,6 +324,13 @@ public class FragmentTask extends TransactionTask
                 }
             }
         }
+        currentFragResponse.setExecutionStats(
+                siteConnection.getPredicateCount() - predicatesAtStart,
+                siteConnection.getCompiledPredicateCount() - compiledPredicatesAtStart,
+                siteConnection.getPredicateFragmentCount() - predicateFragmentsAtStart,
+                siteConnection.getPredicateFragmentNanos() - predicateFragmentNanosAtStart,
+                siteConnection.getSemiJoinFragmentCount() - semiJoinFragmentsAtStart,
+                siteConnection.getSemiJoinPrunedRows() - semiJoinPrunedRowsAtStart);
         return currentFragResponse;
     }
 
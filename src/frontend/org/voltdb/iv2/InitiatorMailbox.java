@@ -164,6 +164,11 @@ public class InitiatorMailbox implements Mailbox
         return m_joinProducer;
     }
 
+    public ReplicaLagTracker getReplicaLagTracker()
+    {
+        return m_scheduler.getReplicaLagTracker();
+    }
+
     // enforce restriction on not allowing promotion during rejoin.
     public boolean acceptPromotion()
     {
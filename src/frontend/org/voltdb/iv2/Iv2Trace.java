@@ -101,6 +101,8 @@ public class Iv2Trace
                 return "SERVER_UNAVAILABLE";
             case ClientResponse.CONNECTION_TIMEOUT:
                 return "CONNECTION_TIMEOUT";
+            case ClientResponse.PARTITION_OVERLOADED:
+                return "PARTITION_OVERLOADED";
         }
         return "UNKNOWN_CLIENT_STATUS";
     }
@@ -605,6 +605,42 @@ public class MpRoSite implements Runnable, SiteProcedureConnection
         // don't need to do anything here I think?
     }
 
+    @Override
+    public long getSpilledBytes() {
+        // fragments run on the other sites
+        return 0;
+    }
+
+    @Override
+    public long getPredicateCount() {
+        return 0;
+    }
+
+    @Override
+    public long getCompiledPredicateCount() {
+        return 0;
+    }
+
+    @Override
+    public long getPredicateFragmentCount() {
+        return 0;
+    }
+
+    @Override
+    public long getPredicateFragmentNanos() {
+        return 0;
+    }
+
+    @Override
+    public long getSemiJoinFragmentCount() {
+        return 0;
+    }
+
+    @Override
+    public long getSemiJoinPrunedRows() {
+        return 0;
+    }
+
     @Override
     public void notifyOfSnapshotNonce(String nonce, long snapshotSpHandle) {
         // TODO Auto-generated method stub
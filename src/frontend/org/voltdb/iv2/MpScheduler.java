@@ -94,6 +94,11 @@ public class MpScheduler extends Scheduler
         m_pendingTasks.setMpRoSitePool(sitePool);
     }
 
+    MpQueueStats createQueueStats()
+    {
+        return new MpQueueStats(m_pendingTasks);
+    }
+
     void updateCatalog(String diffCmds, CatalogContext context, CatalogSpecificPlanner csp)
     {
         m_pendingTasks.updateCatalog(diffCmds, context, csp);
@@ -73,6 +73,14 @@ public class MpTransactionState extends TransactionState
     FragmentTaskMessage m_localWork = null;
     boolean m_haveDistributedInitTask = false;
     boolean m_isRestart = false;
+    // Execution statistics reported by the sites which ran this transaction's
+    // fragments, added to the procedure's statistics when it completes.
+    long m_predicates = 0;
+    long m_compiledPredicates = 0;
+    long m_predicateFragments = 0;
+    long m_predicateFragmentNanos = 0;
+    long m_semiJoinFragments = 0;
+    long m_semiJoinPrunedRows = 0;
 
     MpTransactionState(Mailbox mailbox,
                        TransactionInfoBaseMessage notice,
@@ -241,6 +249,7 @@ public class MpTransactionState extends TransactionState
                 FragmentResponseMessage msg = pollForResponses();
                 boolean expectedMsg = handleReceivedFragResponse(msg);
                 if (expectedMsg) {
+                    addExecutionStats(msg);
                     // Will roll-back and throw if this message has an exception
                     checkForException(msg);
                 }
@@ -266,6 +275,7 @@ public class MpTransactionState extends TransactionState
             // If this is a restarted TXN, verify that this is not a stale message from a different Dependency
             if (!m_isRestart || (msg.m_sourceHSId == m_buddyHSId &&
                     msg.getTableDependencyIdAtIndex(0) == m_localWork.getOutputDepId(0))) {
+                addExecutionStats(msg);
                 // Will roll-back and throw if this message has an exception
                 checkForException(msg);
                 break;
@@ -390,6 +400,60 @@ public class MpTransactionState extends TransactionState
         return expectedMsg;
     }
 
+    private void addExecutionStats(FragmentResponseMessage msg)
+    {
+        m_predicates += msg.getPredicateCount();
+        m_compiledPredicates += msg.getCompiledPredicateCount();
+        m_predicateFragments += msg.getPredicateFragmentCount();
+        m_predicateFragmentNanos += msg.getPredicateFragmentNanos();
+        m_semiJoinFragments += msg.getSemiJoinFragmentCount();
+        m_semiJoinPrunedRows += msg.getSemiJoinPrunedRows();
+    }
+
+    public long getPredicateCount()
+    {
+        return m_predicates;
+    }
+
+    public long getCompiledPredicateCount()
+    {
+        return m_compiledPredicates;
+    }
+
+    public long getPredicateFragmentCount()
+    {
+        return m_predicateFragments;
+    }
+
+    public long getPredicateFragmentNanos()
+    {
+        return m_predicateFragmentNanos;
+    }
+
+    public long getSemiJoinFragmentCount()
+    {
+        return m_semiJoinFragments;
+    }
+
+    public long getSemiJoinPrunedRows()
+    {
+        return m_semiJoinPrunedRows;
+    }
+
+    /**
+     * Called once the procedure has recorded the statistics above, so that
+     * a restarted transaction does not report them twice.
+     */
+    public void clearExecutionStats()
+    {
+        m_predicates = 0;
+        m_compiledPredicates = 0;
+        m_predicateFragments = 0;
+        m_predicateFragmentNanos = 0;
+        m_semiJoinFragments = 0;
+        m_semiJoinPrunedRows = 0;
+    }
+
     private boolean checkDoneReceivingFragResponses()
     {
         boolean done = true;
@@ -49,6 +49,13 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
 
     private MpRoSitePool m_sitePool = null;
 
+    // Concurrency counters reported through MpQueueStats.  All guarded by this.
+    private long m_readsStarted = 0;
+    private long m_writesStarted = 0;
+    private long m_readsDelayed = 0;
+    private long m_writesDelayed = 0;
+    private int m_peakConcurrentReads = 0;
+
     MpTransactionTaskQueue(SiteTaskerQueue queue, long initialTnxId)
     {
         super(queue, initialTnxId);
@@ -89,6 +96,19 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
         Iv2Trace.logTransactionTaskQueueOffer(task);
         m_backlog.addLast(task);
         taskQueueOffer();
+        // Only count tasks held back by a write in flight. Every MP write
+        // conflicts with every other MP transaction, so that write is the
+        // conflict. Waiting behind queued work, in flight reads or a full
+        // read pool is not counted.
+        if (!m_currentWrites.isEmpty() &&
+            !m_currentWrites.containsKey(task.getTxnId())) {
+            if (task.getTransactionState().isReadOnly()) {
+                ++m_readsDelayed;
+            }
+            else {
+                ++m_writesDelayed;
+            }
+        }
         return true;
     }
 
@@ -187,9 +207,13 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
             // We may not queue the next task, just peek to get the read-only state
             TransactionTask task = m_backlog.peekFirst();
             if (!task.getTransactionState().isReadOnly()) {
+                // Writes run alone, even if their partitions don't overlap the
+                // ones in flight: every MP write runs on the MPI site and sends
+                // its fragments and completion to all partitions
                 if (m_currentReads.isEmpty() && m_currentWrites.isEmpty()) {
                     task = m_backlog.pollFirst();
                     m_currentWrites.put(task.getTxnId(), task);
+                    ++m_writesStarted;
                     taskQueueOffer(task);
                     retval = true;
                 }
@@ -201,6 +225,8 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
                     task = m_backlog.pollFirst();
                     assert(task.getTransactionState().isReadOnly());
                     m_currentReads.put(task.getTxnId(), task);
+                    ++m_readsStarted;
+                    m_peakConcurrentReads = Math.max(m_peakConcurrentReads, m_currentReads.size());
                     taskQueueOffer(task);
                     retval = true;
                     // Prime the pump with the head task, if any.  If empty,
@@ -273,6 +299,22 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
         return m_backlog.size();
     }
 
+    /**
+     * Fill in the MP queue concurrency columns of a MpQueueStats row.
+     * Counters are cumulative since startup.
+     */
+    synchronized void populateStats(Map<String, Integer> columnNameToIndex, Object[] rowValues)
+    {
+        rowValues[columnNameToIndex.get(MpQueueStats.Constants.BACKLOG)] = m_backlog.size();
+        rowValues[columnNameToIndex.get(MpQueueStats.Constants.CURRENT_READS)] = m_currentReads.size();
+        rowValues[columnNameToIndex.get(MpQueueStats.Constants.CURRENT_WRITES)] = m_currentWrites.size();
+        rowValues[columnNameToIndex.get(MpQueueStats.Constants.READS_STARTED)] = m_readsStarted;
+        rowValues[columnNameToIndex.get(MpQueueStats.Constants.WRITES_STARTED)] = m_writesStarted;
+        rowValues[columnNameToIndex.get(MpQueueStats.Constants.PEAK_CONCURRENT_READS)] = m_peakConcurrentReads;
+        rowValues[columnNameToIndex.get(MpQueueStats.Constants.READS_DELAYED)] = m_readsDelayed;
+        rowValues[columnNameToIndex.get(MpQueueStats.Constants.WRITES_DELAYED)] = m_writesDelayed;
+    }
+
     @Override
     public String toString()
     {
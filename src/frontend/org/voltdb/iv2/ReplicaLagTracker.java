@@ -0,0 +1,168 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+/**
+ * Tracks the age of the oldest write a partition replica has received but not
+ * yet completed, which is used as an approximation of how far the replica has
+ * fallen behind its leader.  It is not staleness measured against the leader:
+ * a replica that has received every write the leader sent is seen as caught
+ * up once it has completed them, however long they took to arrive.  A replica
+ * with no pending writes has an age of zero.
+ *
+ * SP writes count until the replica responds to them.  An MP write counts from
+ * its first fragment until the replica has completed the whole transaction,
+ * since everything queued behind it waits until then.
+ *
+ * Updates come from the SpScheduler while it holds the deliver lock, so there
+ * is a single writer.  Readers on other threads (the ClientInterface deciding
+ * where to send a short circuit read) only see the published volatile.
+ */
+public class ReplicaLagTracker
+{
+    /**
+     * With FAST reads, a short circuit read only goes to the local replica if the
+     * oldest write that replica has pending is no more than this many milliseconds
+     * old, otherwise it goes to the leader. Negative means always use the local
+     * replica, and replicas don't track their pending writes at all.
+     */
+    public static final long MAX_PENDING_WRITE_AGE_MS =
+            Long.getLong("SHORT_CIRCUIT_READ_MAX_PENDING_WRITE_AGE_MS", -1);
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Ring of pending write SpHandles and the time each was received, in
+    // SpHandle order since replicas receive writes in order.  Completed
+    // entries stay behind an older pending MP write until it completes.
+    private long[] m_spHandles = new long[INITIAL_CAPACITY];
+    private long[] m_receivedMs = new long[INITIAL_CAPACITY];
+    private boolean[] m_isMp = new boolean[INITIAL_CAPACITY];
+    private boolean[] m_done = new boolean[INITIAL_CAPACITY];
+    private int m_head = 0;
+    private int m_size = 0;
+
+    // receive time of the oldest pending write, 0 if there is none
+    private volatile long m_oldestPendingMs = 0;
+
+    void writeReceived(long spHandle, long nowMs)
+    {
+        add(spHandle, nowMs, false);
+    }
+
+    /**
+     * The first fragment of an MP write transaction with this SpHandle arrived
+     */
+    void mpWriteReceived(long spHandle, long nowMs)
+    {
+        add(spHandle, nowMs, true);
+    }
+
+    /**
+     * The SP write with this SpHandle completed, along with any older ones that
+     * we haven't been told about.  MP writes only complete with mpWriteCompleted().
+     */
+    void writeCompleted(long spHandle)
+    {
+        for (int i = 0; i < m_size; i++) {
+            int idx = (m_head + i) & (m_spHandles.length - 1);
+            if (m_spHandles[idx] > spHandle) {
+                break;
+            }
+            if (!m_isMp[idx]) {
+                m_done[idx] = true;
+            }
+        }
+        retireDone();
+    }
+
+    /**
+     * The MP write transaction whose first fragment had this SpHandle completed
+     */
+    void mpWriteCompleted(long spHandle)
+    {
+        for (int i = 0; i < m_size; i++) {
+            int idx = (m_head + i) & (m_spHandles.length - 1);
+            if (m_spHandles[idx] == spHandle && m_isMp[idx]) {
+                m_done[idx] = true;
+                break;
+            }
+        }
+        retireDone();
+    }
+
+    /**
+     * Forget all pending writes, used when the replica becomes the leader
+     * and lag no longer means anything.
+     */
+    void clear()
+    {
+        m_head = 0;
+        m_size = 0;
+        m_oldestPendingMs = 0;
+    }
+
+    public long getOldestPendingWriteAgeMs(long nowMs)
+    {
+        long oldest = m_oldestPendingMs;
+        return oldest == 0 ? 0 : Math.max(0, nowMs - oldest);
+    }
+
+    private void add(long spHandle, long nowMs, boolean isMp)
+    {
+        if (m_size == m_spHandles.length) {
+            grow();
+        }
+        int idx = (m_head + m_size) & (m_spHandles.length - 1);
+        m_spHandles[idx] = spHandle;
+        m_receivedMs[idx] = nowMs;
+        m_isMp[idx] = isMp;
+        m_done[idx] = false;
+        if (m_size++ == 0) {
+            m_oldestPendingMs = nowMs;
+        }
+    }
+
+    private void retireDone()
+    {
+        while (m_size > 0 && m_done[m_head]) {
+            m_head = (m_head + 1) & (m_spHandles.length - 1);
+            m_size--;
+        }
+        m_oldestPendingMs = m_size == 0 ? 0 : m_receivedMs[m_head];
+    }
+
+    private void grow()
+    {
+        long[] spHandles = new long[m_spHandles.length * 2];
+        long[] receivedMs = new long[m_receivedMs.length * 2];
+        boolean[] isMp = new boolean[m_isMp.length * 2];
+        boolean[] done = new boolean[m_done.length * 2];
+        for (int i = 0; i < m_size; i++) {
+            int idx = (m_head + i) & (m_spHandles.length - 1);
+            spHandles[i] = m_spHandles[idx];
+            receivedMs[i] = m_receivedMs[idx];
+            isMp[i] = m_isMp[idx];
+            done[i] = m_done[idx];
+        }
+        m_spHandles = spHandles;
+        m_receivedMs = receivedMs;
+        m_isMp = isMp;
+        m_done = done;
+        m_head = 0;
+    }
+}
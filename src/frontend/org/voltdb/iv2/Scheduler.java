@@ -149,6 +149,15 @@ abstract public class Scheduler implements InitiatorMessageHandler
         return m_tasks;
     }
 
+    /**
+     * Lag tracking only means something for partition replicas, and only
+     * happens when a bound on it is configured
+     */
+    public ReplicaLagTracker getReplicaLagTracker()
+    {
+        return null;
+    }
+
     public void setStarvationTracker(StarvationTracker tracker) {
         m_tasks.setStarvationTracker(tracker);
     }
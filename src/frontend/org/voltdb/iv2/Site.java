@@ -17,6 +17,7 @@
 
 package org.voltdb.iv2;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
@@ -38,6 +39,7 @@ import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.EstTime;
 import org.voltcore.utils.Pair;
+import org.voltcore.utils.ThreadPlacement;
 import org.voltdb.BackendTarget;
 import org.voltdb.CatalogContext;
 import org.voltdb.CatalogSpecificPlanner;
@@ -82,6 +84,7 @@ import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Deployment;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.Table;
+import org.voltdb.compiler.LiveDatabaseEstimates;
 import org.voltdb.dtxn.SiteTracker;
 import org.voltdb.dtxn.TransactionState;
 import org.voltdb.dtxn.UndoAction;
@@ -101,8 +104,6 @@ import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.LogKeys;
 import org.voltdb.utils.MinimumRatioMaintainer;
 
-import vanilla.java.affinity.impl.PosixJNAAffinity;
-
 import com.google_voltpatches.common.base.Charsets;
 import com.google_voltpatches.common.base.Preconditions;
 
@@ -111,6 +112,13 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     private static final VoltLogger hostLog = new VoltLogger("HOST");
     private static final VoltLogger drLog = new VoltLogger("DRAGENT");
 
+    // Let queries that need more temp table memory than the limit spill to disk under voltdbroot
+    static final boolean TEMP_TABLE_SPILLING_ENABLED = Boolean.getBoolean("ENABLE_TEMP_TABLE_SPILLING");
+    static final String TEMP_TABLE_SPILL_DIRECTORY = "temp_table_spill";
+
+    // Have the EE compile simple predicates when it loads plan fragments
+    static final boolean COMPILED_PREDICATES_ENABLED = Boolean.getBoolean("ENABLE_COMPILED_PREDICATES");
+
     private static final double m_taskLogReplayRatio =
             Double.valueOf(System.getProperty("TASKLOG_REPLAY_RATIO", "0.6"));
 
@@ -707,6 +715,21 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             eeTemp.loadCatalog(m_startupConfig.m_timestamp, m_startupConfig.m_serializedCatalog);
             eeTemp.setBatchTimeout(m_context.cluster.getDeployment().get("deployment").
                             getSystemsettings().get("systemsettings").getQuerytimeout());
+            if (TEMP_TABLE_SPILLING_ENABLED) {
+                File spillDirectory = new File(VoltDB.instance().getVoltDBRootPath(), TEMP_TABLE_SPILL_DIRECTORY);
+                if (!spillDirectory.isDirectory() && !spillDirectory.mkdirs()) {
+                    hostLog.warn("Unable to create " + spillDirectory + ", temp tables will not spill to disk.");
+                }
+                else {
+                    eeTemp.setTempTableSpillDirectory(spillDirectory.getAbsolutePath());
+                }
+            }
+            if (COMPILED_PREDICATES_ENABLED) {
+                eeTemp.enableCompiledPredicates();
+            }
+            if (LiveDatabaseEstimates.ENABLED) {
+                eeTemp.enableDistinctKeyEstimates();
+            }
         }
         // just print error info an bail if we run into an error here
         catch (final Exception ex) {
@@ -728,7 +751,7 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             Thread.currentThread().setName("SP " + m_partitionId + " Site - " + CoreUtils.hsIdToString(m_siteId));
         }
         if (m_coreBindIds != null) {
-            PosixJNAAffinity.INSTANCE.setAffinity(m_coreBindIds);
+            ThreadPlacement.bindCurrentThread(m_coreBindIds);
         }
         initialize();
         m_startupConfig = null; // release the serializableCatalog.
@@ -1546,6 +1569,41 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         m_ee.setProcedureName(procedureName);
     }
 
+    @Override
+    public long getSpilledBytes() {
+        return m_ee.getSpilledBytes();
+    }
+
+    @Override
+    public long getPredicateCount() {
+        return m_ee.getPredicateCount();
+    }
+
+    @Override
+    public long getCompiledPredicateCount() {
+        return m_ee.getCompiledPredicateCount();
+    }
+
+    @Override
+    public long getPredicateFragmentCount() {
+        return m_ee.getPredicateFragmentCount();
+    }
+
+    @Override
+    public long getPredicateFragmentNanos() {
+        return m_ee.getPredicateFragmentNanos();
+    }
+
+    @Override
+    public long getSemiJoinFragmentCount() {
+        return m_ee.getSemiJoinFragmentCount();
+    }
+
+    @Override
+    public long getSemiJoinPrunedRows() {
+        return m_ee.getSemiJoinPrunedRows();
+    }
+
     @Override
     public void notifyOfSnapshotNonce(String nonce, long snapshotSpHandle) {
         m_initiatorMailbox.notifyOfSnapshotNonce(nonce, snapshotSpHandle);
@@ -148,6 +148,10 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     // used to decide if we should shortcut reads
     private Consistency.ReadLevel m_defaultConsistencyReadLevel;
     private BufferedReadLog m_bufferedReadLog = null;
+    // age of the oldest write this replica has pending, used to route short circuit
+    // reads, null unless that age is bounded for short circuit reads
+    private final ReplicaLagTracker m_replicaLag =
+            ReplicaLagTracker.MAX_PENDING_WRITE_AGE_MS >= 0 ? new ReplicaLagTracker() : null;
 
     // Need to track when command log replay is complete (even if not performed) so that
     // we know when we can start writing viable replay sets to the fault log.
@@ -183,6 +187,15 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     {
         super.setLeaderState(isLeader);
         m_snapMonitor.addInterest(this);
+        if (isLeader && m_replicaLag != null) {
+            m_replicaLag.clear();
+        }
+    }
+
+    @Override
+    public ReplicaLagTracker getReplicaLagTracker()
+    {
+        return m_replicaLag;
     }
 
     @Override
@@ -537,6 +550,9 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         else {
             setMaxSeenTxnId(msg.getSpHandle());
             newSpHandle = msg.getSpHandle();
+            if (m_replicaLag != null) {
+                m_replicaLag.writeReceived(newSpHandle, System.currentTimeMillis());
+            }
 
             // Don't update the uniqueID if this is a run-everywhere txn, because it has an MPI unique ID.
             if (UniqueIdGenerator.getPartitionIdFromUniqueId(msg.getUniqueId()) == m_partitionId) {
@@ -724,6 +740,9 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             // the initiatorHSId is the ClientInterface mailbox.
             // this will be on SPI without k-safety or replica only with k-safety
             assert(!message.isReadOnly());
+            if (!m_isLeader && m_replicaLag != null) {
+                m_replicaLag.writeCompleted(spHandle);
+            }
             setRepairLogTruncationHandle(spHandle);
             m_mailbox.send(message.getInitiatorHSId(), message);
         }
@@ -863,6 +882,9 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         if (txn == null) {
             txn = new ParticipantTransactionState(msg.getSpHandle(), msg, msg.isReadOnly());
             m_outstandingTxns.put(msg.getTxnId(), txn);
+            if (!m_isLeader && m_replicaLag != null && !txn.isReadOnly()) {
+                m_replicaLag.mpWriteReceived(txn.m_spHandle, System.currentTimeMillis());
+            }
             // Only want to send things to the command log if it satisfies this predicate
             // AND we've never seen anything for this transaction before.  We can't
             // actually log until we create a TransactionTask, though, so just keep track
@@ -1066,6 +1088,10 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 // fragment is done before the MP txn is fully committed.
                 assert txn.isDone() : "Counter " + counter + ", leader " + m_isLeader + ", " + msg;
                 setRepairLogTruncationHandle(txn.m_spHandle);
+                // everything queued behind an MP write waits until it is complete here
+                if (!m_isLeader && m_replicaLag != null && !txn.isReadOnly()) {
+                    m_replicaLag.mpWriteCompleted(txn.m_spHandle);
+                }
             }
         }
 
@@ -141,6 +141,9 @@ public class JDBC4Statement implements java.sql.Statement
                         throw SQLError.get(e, SQLError.GENERAL_ERROR, "UNEXPECTED_FAILURE", e.getMessage());
                     case ClientResponse.GRACEFUL_FAILURE:
                         throw SQLError.get(e, SQLError.GENERAL_ERROR, "GRACEFUL_FAILURE", e.getMessage());
+                    case ClientResponse.PARTITION_OVERLOADED:
+                        // The statement never ran, so let callers tell it apart and retry after backing off.
+                        throw SQLError.getTransient(e, SQLError.GENERAL_ERROR, "PARTITION_OVERLOADED", e.getMessage());
                     default:
                         throw SQLError.get(e, SQLError.GENERAL_ERROR, String.format("status=%d", (int)response.getStatus()), e.getMessage());
                     }
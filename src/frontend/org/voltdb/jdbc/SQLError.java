@@ -60,6 +60,11 @@ public class SQLError
         return new SQLException(Resources.getString("SQLState." + sqlState + "." + args.length, args), sqlState, cause);
     }
 
+    public static SQLException getTransient(Throwable cause, String sqlState, Object... args)
+    {
+        return new SQLTransientException(Resources.getString("SQLState." + sqlState + "." + args.length, args), sqlState, cause);
+    }
+
     public static SQLException noSupport()
     {
         return new SQLFeatureNotSupportedException();
@@ -46,6 +46,8 @@ import org.voltdb.types.PlanNodeType;
 import org.voltdb.utils.LogKeys;
 import org.voltdb.utils.VoltTableUtil;
 
+import com.google_voltpatches.common.base.Charsets;
+
 /**
  * Wrapper for native Execution Engine library. There are two implementations,
  * one using JNI and one using IPC. ExecutionEngine provides a consistent interface
@@ -64,7 +66,10 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         SP_JAVA_GET_DRID_TRACKER(4),
         SET_DRID_TRACKER(5),
         GENERATE_DR_EVENT(6),
-        RESET_DR_APPLIED_TRACKER(7);
+        RESET_DR_APPLIED_TRACKER(7),
+        SET_TEMP_TABLE_SPILL_DIRECTORY(8),
+        ENABLE_COMPILED_PREDICATES(9),
+        ENABLE_DISTINCT_KEY_ESTIMATES(10);
 
         private TaskType(int taskId) {
             this.taskId = taskId;
@@ -148,6 +153,19 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
     public long m_currMemoryInBytes = 0;
     public long m_peakMemoryInBytes = 0;
 
+    /** Bytes of temp table data spilled to disk by all fragments executed so far */
+    private long m_spilledBytes = 0;
+
+    /** Predicate statistics of all fragments executed so far with compiled predicates enabled */
+    private long m_predicateCount = 0;
+    private long m_compiledPredicateCount = 0;
+    private long m_predicateFragmentCount = 0;
+    private long m_predicateFragmentNanos = 0;
+
+    /** Fragments executed so far with scans filtered by the join keys of another input, and rows they left out */
+    private long m_semiJoinFragmentCount = 0;
+    private long m_semiJoinPrunedRows = 0;
+
     /** Make the EE clean and ready to do new transactional work. */
     public void resetDirtyStatus() {
         m_dirty = false;
@@ -382,6 +400,88 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         }
     }
 
+    /**
+     * Called by the EE after executing a fragment that spilled temp table data to disk.
+     */
+    public void fragmentSpilledBytes(int indexFromFragmentTask, long spilledBytes) {
+        m_spilledBytes += spilledBytes;
+    }
+
+    public long getSpilledBytes() {
+        return m_spilledBytes;
+    }
+
+    /**
+     * Called by the EE after executing each fragment when compiled predicates are enabled.
+     */
+    public void fragmentPredicateStats(int indexFromFragmentTask, int predicates,
+            int compiledPredicates, long executionNanos) {
+        m_predicateCount += predicates;
+        m_compiledPredicateCount += compiledPredicates;
+        m_predicateFragmentCount++;
+        m_predicateFragmentNanos += executionNanos;
+    }
+
+    public long getPredicateCount() {
+        return m_predicateCount;
+    }
+
+    public long getCompiledPredicateCount() {
+        return m_compiledPredicateCount;
+    }
+
+    public long getPredicateFragmentCount() {
+        return m_predicateFragmentCount;
+    }
+
+    public long getPredicateFragmentNanos() {
+        return m_predicateFragmentNanos;
+    }
+
+    /**
+     * Called by the EE after executing each fragment that has scans filtered by the join keys of another input.
+     */
+    public void fragmentSemiJoinPrunedRows(int indexFromFragmentTask, long prunedRows) {
+        m_semiJoinFragmentCount++;
+        m_semiJoinPrunedRows += prunedRows;
+    }
+
+    public long getSemiJoinFragmentCount() {
+        return m_semiJoinFragmentCount;
+    }
+
+    public long getSemiJoinPrunedRows() {
+        return m_semiJoinPrunedRows;
+    }
+
+    /**
+     * Have the EE compile the predicates of the plan fragments it loads
+     * from now on and report predicate statistics for each fragment.
+     */
+    public void enableCompiledPredicates() {
+        executeTask(TaskType.ENABLE_COMPILED_PREDICATES, getParamBufferForExecuteTask(0));
+    }
+
+    /**
+     * Have the EE sample its tree indexes for the DISTINCT_KEY_ESTIMATE
+     * column of the index statistics, which otherwise reports -1.
+     */
+    public void enableDistinctKeyEstimates() {
+        executeTask(TaskType.ENABLE_DISTINCT_KEY_ESTIMATES, getParamBufferForExecuteTask(0));
+    }
+
+    /**
+     * Let temp tables spill to files in the given directory instead of
+     * failing queries when they need more memory than the temp table limit.
+     */
+    public void setTempTableSpillDirectory(String directory) {
+        byte[] path = directory.getBytes(Charsets.UTF_8);
+        ByteBuffer paramBuffer = getParamBufferForExecuteTask(4 + path.length);
+        paramBuffer.putInt(path.length);
+        paramBuffer.put(path);
+        executeTask(TaskType.SET_TEMP_TABLE_SPILL_DIRECTORY, paramBuffer);
+    }
+
     public long fragmentProgressUpdate(int indexFromFragmentTask,
             int planNodeTypeAsInt,
             long tuplesProcessed,
@@ -57,6 +57,15 @@ public class FragmentResponseMessage extends VoltMessage {
     ArrayList<Integer> m_dependencyIds = new ArrayList<Integer>();
     ArrayList<VoltTable> m_dependencies = new ArrayList<VoltTable>();
     SerializableException m_exception;
+    // Execution statistics of the fragments, measured on the executing site
+    // and credited to the coordinating procedure's PROCEDURE statistics.
+    // Only serialized when at least one of them is non-zero.
+    long m_predicates = 0;
+    long m_compiledPredicates = 0;
+    long m_predicateFragments = 0;
+    long m_predicateFragmentNanos = 0;
+    long m_semiJoinFragments = 0;
+    long m_semiJoinPrunedRows = 0;
 
     /** Empty constructor for de-serialization */
     FragmentResponseMessage() {
@@ -86,6 +95,12 @@ public class FragmentResponseMessage extends VoltMessage {
         m_dirty = resp.m_dirty;
         m_recovering = resp.m_recovering;
         m_exception = resp.m_exception;
+        m_predicates = resp.m_predicates;
+        m_compiledPredicates = resp.m_compiledPredicates;
+        m_predicateFragments = resp.m_predicateFragments;
+        m_predicateFragmentNanos = resp.m_predicateFragmentNanos;
+        m_semiJoinFragments = resp.m_semiJoinFragments;
+        m_semiJoinPrunedRows = resp.m_semiJoinPrunedRows;
         m_subject = Subject.DEFAULT.getId();
     }
 
@@ -156,6 +171,51 @@ public class FragmentResponseMessage extends VoltMessage {
         return m_exception;
     }
 
+    /**
+     * Record the predicate and semi-join statistics of the fragments
+     * answered by this response, as measured on the executing site.
+     */
+    public void setExecutionStats(long predicates, long compiledPredicates,
+                                  long predicateFragments, long predicateFragmentNanos,
+                                  long semiJoinFragments, long semiJoinPrunedRows) {
+        m_predicates = predicates;
+        m_compiledPredicates = compiledPredicates;
+        m_predicateFragments = predicateFragments;
+        m_predicateFragmentNanos = predicateFragmentNanos;
+        m_semiJoinFragments = semiJoinFragments;
+        m_semiJoinPrunedRows = semiJoinPrunedRows;
+    }
+
+    public long getPredicateCount() {
+        return m_predicates;
+    }
+
+    public long getCompiledPredicateCount() {
+        return m_compiledPredicates;
+    }
+
+    public long getPredicateFragmentCount() {
+        return m_predicateFragments;
+    }
+
+    public long getPredicateFragmentNanos() {
+        return m_predicateFragmentNanos;
+    }
+
+    public long getSemiJoinFragmentCount() {
+        return m_semiJoinFragments;
+    }
+
+    public long getSemiJoinPrunedRows() {
+        return m_semiJoinPrunedRows;
+    }
+
+    private boolean hasExecutionStats() {
+        return m_predicates != 0 || m_compiledPredicates != 0 ||
+               m_predicateFragments != 0 || m_predicateFragmentNanos != 0 ||
+               m_semiJoinFragments != 0 || m_semiJoinPrunedRows != 0;
+    }
+
     @Override
     public int getSerializedSize()
     {
@@ -190,6 +250,12 @@ public class FragmentResponseMessage extends VoltMessage {
             msgsize += 4; //Still serialize exception length 0
         }
 
+        // one byte to indicate whether the execution statistics follow
+        msgsize += 1;
+        if (hasExecutionStats()) {
+            msgsize += 8 * 6;
+        }
+
         return msgsize;
     }
 
@@ -227,6 +293,18 @@ public class FragmentResponseMessage extends VoltMessage {
             buf.putInt(0);
         }
 
+        if (hasExecutionStats()) {
+            buf.put((byte) 1);
+            buf.putLong(m_predicates);
+            buf.putLong(m_compiledPredicates);
+            buf.putLong(m_predicateFragments);
+            buf.putLong(m_predicateFragmentNanos);
+            buf.putLong(m_semiJoinFragments);
+            buf.putLong(m_semiJoinPrunedRows);
+        } else {
+            buf.put((byte) 0);
+        }
+
         assert(buf.capacity() == buf.position());
         buf.limit(buf.position());
     }
@@ -252,6 +330,14 @@ public class FragmentResponseMessage extends VoltMessage {
             }
         }
         m_exception = SerializableException.deserializeFromBuffer(buf);
+        if (buf.get() != 0) {
+            m_predicates = buf.getLong();
+            m_compiledPredicates = buf.getLong();
+            m_predicateFragments = buf.getLong();
+            m_predicateFragmentNanos = buf.getLong();
+            m_semiJoinFragments = buf.getLong();
+            m_semiJoinPrunedRows = buf.getLong();
+        }
         assert(buf.capacity() == buf.position());
     }
 
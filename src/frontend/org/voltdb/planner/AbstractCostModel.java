@@ -32,4 +32,31 @@ public abstract class AbstractCostModel {
      * @return The computed cost of the plan.
      */
     public abstract double getPlanCost(PlanStatistics stats);
+
+    /**
+     * Hash joins are only worth planning when the cost model charges nested loop joins
+     * for comparing every outer tuple with the whole inner input. A plain sum of tuples
+     * read would make a hash join look no cheaper than the nested loop it replaces.
+     *
+     * @return True if the planner should offer hash joins as alternatives to nested loops.
+     */
+    public boolean isHashJoinEnabled() {
+        return false;
+    }
+
+    /**
+     * Sum a statistic across all levels of a plan.
+     *
+     * @param stats The statistics describing the work for a given plan.
+     * @param field The name of the statistic in question.
+     * @return The total, zero if no level has the statistic.
+     */
+    protected static long getTotalStatistic(PlanStatistics stats, StatsField field) {
+        long total = 0;
+        for (int i = 0; i < stats.getLevelCount(); i++) {
+            Long levelValueObj = stats.getStatisticsForLevel(i).get(field);
+            total += (levelValueObj == null) ? 0 : levelValueObj.longValue();
+        }
+        return total;
+    }
 }
@@ -0,0 +1,435 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.planner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.voltdb.catalog.ColumnRef;
+import org.voltdb.catalog.Index;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.ExpressionUtil;
+import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.planner.parseinfo.JoinNode;
+import org.voltdb.planner.parseinfo.StmtTableScan;
+import org.voltdb.types.ExpressionType;
+import org.voltdb.utils.CatalogUtil;
+
+/**
+ * Picks a few promising orders for an inner join of too many tables to plan every
+ * permutation. Each order is scored with a rough estimate of the rows the joins
+ * produce and the rows the inner scans read, so only the surviving orders are
+ * handed to the full planner and its cost model.
+ *
+ * Up to DP_MAX_TABLES tables, the best left-deep order for every subset of the
+ * tables is found by dynamic programming over the subsets, keeping only the
+ * cheapest order per subset. Beyond that, a greedy search starts from each table
+ * in turn and always adds the table that is cheapest to join next.
+ */
+class JoinOrderEnumerator {
+
+    /** Largest join solved exactly, 2^12 subsets plan in well under a millisecond */
+    static final int DP_MAX_TABLES = 12;
+
+    /** Number of join orders handed to the planner, in addition to the order as written */
+    static final int MAX_JOIN_ORDERS = 3;
+
+    // The same factors IndexScanPlanNode discounts an equality or range filtered index column by
+    static final double EQUALITY_SELECTIVITY = 0.1;
+    static final double RANGE_SELECTIVITY = 0.3;
+
+    private static class Predicate {
+        final long m_tables;
+        final double m_selectivity;
+
+        Predicate(long tables, double selectivity) {
+            m_tables = tables;
+            m_selectivity = selectivity;
+        }
+    }
+
+    private static class Candidate {
+        final List<Integer> m_order;
+        final double m_cost;
+
+        Candidate(List<Integer> order, double cost) {
+            m_order = order;
+            m_cost = cost;
+        }
+    }
+
+    private final DatabaseEstimates m_estimates;
+    private final boolean m_hashJoinEnabled;
+
+    // The sub-trees of the whole join tree, to look up what is behind a placeholder leaf
+    private final Map<Integer, JoinNode> m_subTreesById = new HashMap<Integer, JoinNode>();
+
+    // Per call state
+    private int m_tableCount;
+    private double[] m_tuples;
+    private double[] m_innerScanTuples;
+    private long[] m_indexedFrom;
+    private List<Predicate> m_predicates;
+
+    /**
+     * @param estimates table cardinalities, live ones if the database collects them
+     * @param hashJoinEnabled whether an inner table without a useful index can be hashed
+     * instead of being scanned once per outer tuple
+     * @param subTrees the sub-trees of the join tree, as split by JoinNode.extractSubTrees
+     */
+    JoinOrderEnumerator(DatabaseEstimates estimates, boolean hashJoinEnabled, List<JoinNode> subTrees) {
+        m_estimates = (estimates == null) ? new DatabaseEstimates() : estimates;
+        m_hashJoinEnabled = hashJoinEnabled;
+        for (JoinNode subTree : subTrees) {
+            m_subTreesById.put(subTree.getId(), subTree);
+        }
+    }
+
+    /**
+     * @param tableNodes the leaves of an inner join sub-tree in the order they are written
+     * @param filters all the join and where conditions of the sub-tree combined with AND
+     * @return the order as written, followed by up to MAX_JOIN_ORDERS other orders
+     * cheapest first
+     */
+    List<List<JoinNode>> generateJoinOrders(List<JoinNode> tableNodes, AbstractExpression filters) {
+        List<List<JoinNode>> joinOrders = new ArrayList<List<JoinNode>>();
+        joinOrders.add(tableNodes);
+        m_tableCount = tableNodes.size();
+        if (m_tableCount < 2 || m_tableCount >= Long.SIZE) {
+            return joinOrders;
+        }
+        analyze(tableNodes, filters);
+
+        List<Candidate> candidates = (m_tableCount <= DP_MAX_TABLES) ?
+                enumerateBySubsets() : enumerateGreedily();
+        Collections.sort(candidates, new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate c1, Candidate c2) {
+                return Double.compare(c1.m_cost, c2.m_cost);
+            }
+        });
+
+        List<List<Integer>> chosen = new ArrayList<List<Integer>>();
+        chosen.add(writtenOrder());
+        for (Candidate candidate : candidates) {
+            if (chosen.size() > MAX_JOIN_ORDERS) {
+                break;
+            }
+            if (chosen.contains(candidate.m_order)) {
+                continue;
+            }
+            chosen.add(candidate.m_order);
+            List<JoinNode> joinOrder = new ArrayList<JoinNode>();
+            for (int ii : candidate.m_order) {
+                joinOrder.add(tableNodes.get(ii));
+            }
+            joinOrders.add(joinOrder);
+        }
+        return joinOrders;
+    }
+
+    private List<Integer> writtenOrder() {
+        List<Integer> order = new ArrayList<Integer>();
+        for (int ii = 0; ii < m_tableCount; ++ii) {
+            order.add(ii);
+        }
+        return order;
+    }
+
+    /**
+     * Work out the estimated size of every table, which tables can be reached with an index
+     * from which other tables and the selectivity of each filter.
+     */
+    private void analyze(List<JoinNode> tableNodes, AbstractExpression filters) {
+        m_tuples = new double[m_tableCount];
+        m_innerScanTuples = new double[m_tableCount];
+        m_indexedFrom = new long[m_tableCount];
+        m_predicates = new ArrayList<Predicate>();
+
+        Map<String, Integer> aliasToTable = new HashMap<String, Integer>();
+        for (int ii = 0; ii < m_tableCount; ++ii) {
+            JoinNode tableNode = tableNodes.get(ii);
+            for (String alias : collectTableAliases(tableNode)) {
+                aliasToTable.put(alias, ii);
+            }
+            m_tuples[ii] = estimateTuples(tableNode);
+            m_innerScanTuples[ii] = m_tuples[ii];
+        }
+
+        for (AbstractExpression filter : ExpressionUtil.uncombineAny(filters)) {
+            long tables = 0;
+            for (TupleValueExpression tve : ExpressionUtil.getTupleValueExpressions(filter)) {
+                Integer table = aliasToTable.get(tve.getTableAlias());
+                if (table != null) {
+                    tables |= 1L << table;
+                }
+            }
+            if (tables == 0) {
+                continue;
+            }
+            if (filter.getExpressionType() != ExpressionType.COMPARE_EQUAL) {
+                m_predicates.add(new Predicate(tables, RANGE_SELECTIVITY));
+                continue;
+            }
+
+            AbstractExpression left = filter.getLeft();
+            AbstractExpression right = filter.getRight();
+            if (Long.bitCount(tables) == 1) {
+                int table = Long.numberOfTrailingZeros(tables);
+                TupleValueExpression column = (left instanceof TupleValueExpression) ? (TupleValueExpression) left :
+                        (right instanceof TupleValueExpression) ? (TupleValueExpression) right : null;
+                double selectivity = EQUALITY_SELECTIVITY;
+                if (column != null && ExpressionUtil.getTupleValueExpressions(filter).size() == 1) {
+                    // A column compared to a constant or parameter
+                    Index index = findLeadingIndex(tableNodes.get(table), column);
+                    if (index != null) {
+                        selectivity = indexSelectivity(tableNodes.get(table), index, m_tuples[table]);
+                        m_innerScanTuples[table] = Math.max(1.0, m_tuples[table] * selectivity);
+                    }
+                }
+                m_predicates.add(new Predicate(tables, selectivity));
+                continue;
+            }
+
+            if (Long.bitCount(tables) == 2 &&
+                    left instanceof TupleValueExpression && right instanceof TupleValueExpression) {
+                // An equi-join between two tables. It keeps 1 / the larger number of
+                // distinct values on either side, or the default if neither is known.
+                int leftTable = aliasToTable.get(((TupleValueExpression) left).getTableAlias());
+                int rightTable = aliasToTable.get(((TupleValueExpression) right).getTableAlias());
+                double selectivity = EQUALITY_SELECTIVITY;
+                Index leftIndex = findLeadingIndex(tableNodes.get(leftTable), (TupleValueExpression) left);
+                if (leftIndex != null) {
+                    m_indexedFrom[leftTable] |= 1L << rightTable;
+                    selectivity = Math.min(selectivity,
+                            indexSelectivity(tableNodes.get(leftTable), leftIndex, m_tuples[leftTable]));
+                }
+                Index rightIndex = findLeadingIndex(tableNodes.get(rightTable), (TupleValueExpression) right);
+                if (rightIndex != null) {
+                    m_indexedFrom[rightTable] |= 1L << leftTable;
+                    selectivity = Math.min(selectivity,
+                            indexSelectivity(tableNodes.get(rightTable), rightIndex, m_tuples[rightTable]));
+                }
+                m_predicates.add(new Predicate(tables, selectivity));
+                continue;
+            }
+            m_predicates.add(new Predicate(tables, EQUALITY_SELECTIVITY));
+        }
+    }
+
+    /**
+     * The table aliases under a leaf. A placeholder for a sub-tree of a different join type
+     * stands for all the tables of that sub-tree.
+     */
+    private List<String> collectTableAliases(JoinNode tableNode) {
+        List<String> aliases = new ArrayList<String>();
+        if (tableNode.getTableScan() != null) {
+            aliases.add(tableNode.getTableAlias());
+            return aliases;
+        }
+        JoinNode subTree = m_subTreesById.get(-tableNode.getId());
+        if (subTree != null) {
+            for (JoinNode leaf : subTree.generateLeafNodesJoinOrder()) {
+                aliases.addAll(collectTableAliases(leaf));
+            }
+        }
+        return aliases;
+    }
+
+    private double estimateTuples(JoinNode tableNode) {
+        StmtTableScan scan = tableNode.getTableScan();
+        if (scan != null) {
+            return Math.max(1, m_estimates.getEstimatesForTable(scan.getTableName()).maxTuples);
+        }
+        // An outer join sub-tree produces at least every row of its outer-most table
+        JoinNode subTree = m_subTreesById.get(-tableNode.getId());
+        if (subTree != null) {
+            return estimateTuples(subTree.generateLeafNodesJoinOrder().get(0));
+        }
+        return Math.max(1, new DatabaseEstimates.TableEstimates().maxTuples);
+    }
+
+    /**
+     * @return an index of the table that leads with the column, unique ones first
+     */
+    private static Index findLeadingIndex(JoinNode tableNode, TupleValueExpression column) {
+        StmtTableScan scan = tableNode.getTableScan();
+        if (scan == null || column.getColumnName() == null) {
+            return null;
+        }
+        Index found = null;
+        for (Index index : scan.getIndexes()) {
+            if ( ! index.getExpressionsjson().isEmpty() || ! index.getPredicatejson().isEmpty()) {
+                continue;
+            }
+            List<ColumnRef> indexedColumns = CatalogUtil.getSortedCatalogItems(index.getColumns(), "index");
+            if (indexedColumns.isEmpty() ||
+                    ! indexedColumns.get(0).getColumn().getTypeName().equals(column.getColumnName())) {
+                continue;
+            }
+            if (index.getUnique() && indexedColumns.size() == 1) {
+                return index;
+            }
+            if (found == null) {
+                found = index;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Fraction of the table an equality match on the leading column of the index finds.
+     */
+    private double indexSelectivity(JoinNode tableNode, Index index, double tuples) {
+        if (index.getUnique() && index.getColumns().size() == 1) {
+            return 1.0 / tuples;
+        }
+        if (index.getColumns().size() == 1) {
+            long distinctKeys = m_estimates.getEstimatesForTable(tableNode.getTableScan().getTableName())
+                    .getDistinctKeysForIndex(index.getTypeName());
+            if (distinctKeys > 0) {
+                return 1.0 / distinctKeys;
+            }
+        }
+        return EQUALITY_SELECTIVITY;
+    }
+
+    /**
+     * @return the estimated rows of the join of the tables in the mask with one more table
+     */
+    private double joinTuples(long tables, double tuples, int table) {
+        long joined = tables | (1L << table);
+        double result = tuples * m_tuples[table];
+        for (Predicate predicate : m_predicates) {
+            if ((predicate.m_tables & (1L << table)) != 0 && (predicate.m_tables & ~joined) == 0) {
+                result *= predicate.m_selectivity;
+            }
+        }
+        return Math.max(1.0, result);
+    }
+
+    /**
+     * @return the cost of joining one more table to the tables in the mask: the rows
+     * produced plus the rows read from the new table
+     */
+    private double joinCost(long tables, double tuples, int table, double joinedTuples) {
+        if (tables == 0) {
+            return m_innerScanTuples[table];
+        }
+        double innerCost;
+        if ((m_indexedFrom[table] & tables) != 0) {
+            // One index probe per outer row, the matches are in the join output
+            innerCost = tuples;
+        }
+        else if (m_hashJoinEnabled) {
+            innerCost = tuples + m_innerScanTuples[table];
+        }
+        else {
+            innerCost = tuples * m_innerScanTuples[table];
+        }
+        return joinedTuples + innerCost;
+    }
+
+    /**
+     * Find the cheapest left-deep order of every subset of the tables, smallest subsets first.
+     * @return the cheapest order ending with each of the tables
+     */
+    private List<Candidate> enumerateBySubsets() {
+        final int subsetCount = 1 << m_tableCount;
+        double[] tuples = new double[subsetCount];
+        double[] cost = new double[subsetCount];
+        byte[] lastTable = new byte[subsetCount];
+        tuples[0] = 1.0;
+        for (int subset = 1; subset < subsetCount; ++subset) {
+            // The rows of a join do not depend on the order
+            int anyTable = Integer.numberOfTrailingZeros(subset);
+            int rest = subset & ~(1 << anyTable);
+            tuples[subset] = joinTuples(rest, tuples[rest], anyTable);
+
+            cost[subset] = Double.MAX_VALUE;
+            lastTable[subset] = (byte) anyTable;
+            for (int table = 0; table < m_tableCount; ++table) {
+                if ((subset & (1 << table)) == 0) {
+                    continue;
+                }
+                int outer = subset & ~(1 << table);
+                double subsetCost = cost[outer] + joinCost(outer, tuples[outer], table, tuples[subset]);
+                if (subsetCost < cost[subset]) {
+                    cost[subset] = subsetCost;
+                    lastTable[subset] = (byte) table;
+                }
+            }
+        }
+
+        final int all = subsetCount - 1;
+        List<Candidate> candidates = new ArrayList<Candidate>();
+        for (int table = 0; table < m_tableCount; ++table) {
+            int outer = all & ~(1 << table);
+            List<Integer> order = new ArrayList<Integer>();
+            for (int subset = outer; subset != 0; subset &= ~(1 << lastTable[subset])) {
+                order.add(0, (int) lastTable[subset]);
+            }
+            order.add(table);
+            candidates.add(new Candidate(order,
+                    cost[outer] + joinCost(outer, tuples[outer], table, tuples[all])));
+        }
+        return candidates;
+    }
+
+    /**
+     * Build one order starting from each table by always joining the cheapest table next.
+     */
+    private List<Candidate> enumerateGreedily() {
+        List<Candidate> candidates = new ArrayList<Candidate>();
+        for (int first = 0; first < m_tableCount; ++first) {
+            List<Integer> order = new ArrayList<Integer>();
+            order.add(first);
+            long tables = 1L << first;
+            double tuples = joinTuples(0, 1.0, first);
+            double cost = joinCost(0, 1.0, first, tuples);
+            while (order.size() < m_tableCount) {
+                int bestTable = -1;
+                double bestCost = Double.MAX_VALUE;
+                double bestTuples = 0;
+                for (int table = 0; table < m_tableCount; ++table) {
+                    if ((tables & (1L << table)) != 0) {
+                        continue;
+                    }
+                    double joinedTuples = joinTuples(tables, tuples, table);
+                    double joinCost = joinCost(tables, tuples, table, joinedTuples);
+                    if (bestTable < 0 || joinCost < bestCost) {
+                        bestTable = table;
+                        bestCost = joinCost;
+                        bestTuples = joinedTuples;
+                    }
+                }
+                order.add(bestTable);
+                tables |= 1L << bestTable;
+                tuples = bestTuples;
+                cost += bestCost;
+            }
+            candidates.add(new Candidate(order, cost));
+        }
+        return candidates;
+    }
+}
@@ -1362,6 +1362,7 @@ public class ParsedSelectStmt extends AbstractParsedStmt {
                 m_tableAliasListAsJoinOrder.size() > StatementCompiler.DEFAULT_MAX_JOIN_TABLES) {
             // When there are large number of table joins, give up the all permutations.
             // By default, try the join order with the SQL query table order first.
+            // SelectSubPlanAssembler adds the few other orders that look cheapest.
             m_hasLargeNumberOfTableJoins = true;
 
             StringBuilder sb = new StringBuilder();
@@ -37,6 +37,8 @@ import org.voltdb.catalog.Constraint;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Index;
 import org.voltdb.catalog.Table;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.DeterminismMode;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.AggregateExpression;
 import org.voltdb.expressions.ConstantValueExpression;
@@ -59,6 +61,7 @@ import org.voltdb.plannodes.AbstractScanPlanNode;
 import org.voltdb.plannodes.AggregatePlanNode;
 import org.voltdb.plannodes.DeletePlanNode;
 import org.voltdb.plannodes.HashAggregatePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.InsertPlanNode;
 import org.voltdb.plannodes.LimitPlanNode;
@@ -145,6 +148,16 @@ public class PlanAssembler {
      */
     private boolean m_bestAndOnlyPlanWasGenerated = false;
 
+    /**
+     * Flag when this assembler plans a FROM clause subquery, which has no parent statement.
+     */
+    private boolean m_plansFromSubquery = false;
+
+    /**
+     * Replicated tables with fewer rows than this, or with no statistics, are still scanned by one site.
+     */
+    static final long PARALLEL_SCAN_MIN_TUPLES = Long.getLong("PARALLEL_SCAN_MIN_TUPLES", 100000);
+
     /**
      *
      * @param catalogCluster
@@ -294,7 +307,8 @@ public class PlanAssembler {
                 ((BranchNode)m_parsedSelect.m_joinTree).toLeftJoin();
 
             }
-            m_subAssembler = new SelectSubPlanAssembler(m_catalogDb, m_parsedSelect, m_partitioning);
+            m_subAssembler = new SelectSubPlanAssembler(m_catalogDb, m_parsedSelect, m_partitioning,
+                    m_planSelector);
 
             // Process the GROUP BY information, decide whether it is group by the partition column
             if (isPartitionColumnInGroupbyList(m_parsedSelect.m_groupByColumns)) {
@@ -822,6 +836,7 @@ public class PlanAssembler {
         StatementPartitioning currentPartitioning = (StatementPartitioning)m_partitioning.clone();
         PlanAssembler assembler = new PlanAssembler(
                 m_catalogCluster, m_catalogDb, currentPartitioning, planSelector);
+        assembler.m_plansFromSubquery = true;
         CompiledPlan compiledPlan = assembler.getBestCostPlan(subQuery);
         // make sure we got a winner
         if (compiledPlan == null) {
@@ -925,6 +940,93 @@ public class PlanAssembler {
         return parentPlan;
     }
 
+    /**
+     * When the server runs with -DENABLE_PARALLEL_REPLICATED_SCANS=true, a multi-partition
+     * read of a single large replicated table can have every partition scan a slice of
+     * its own copy, instead of one site scanning it all. The rows are sliced by hashing a
+     * column with the hashinator, so the slices don't depend on how each copy is laid
+     * out in memory, and together they cover the table exactly once.
+     * The rows come back in no particular order, so statements that have to be
+     * deterministic, the ones of read-write procedures, are left alone. So are statements
+     * that can run on one partition, and tables without live statistics to tell that
+     * they are large: the catalog defaults would make even a small table look large.
+     * @param root the access plan of the statement
+     * @return true if the root is such a scan, which is now marked to scan a slice
+     */
+    private boolean parallelizeReplicatedScan(AbstractPlanNode root) {
+        if ( ! Boolean.getBoolean("ENABLE_PARALLEL_REPLICATED_SCANS") ||
+                m_planSelector.m_detMode != DeterminismMode.FASTER ||
+                m_partitioning.wasSpecifiedAsSingle() ||
+                m_partitioning.isInferredSingle() ||
+                m_plansFromSubquery ||
+                m_parsedSelect.m_parentStmt != null ||
+                m_parsedSelect.isParentUnionClause() ||
+                m_parsedSelect.m_tableList.size() != 1 ||
+                m_parsedSelect.hasSubquery() ||
+                m_parsedSelect.hasWindowedExpression() ||
+                m_parsedSelect.m_mvFixInfo.needed()) {
+            return false;
+        }
+        if ( ! (root instanceof SeqScanPlanNode)) {
+            return false;
+        }
+        SeqScanPlanNode scan = (SeqScanPlanNode) root;
+        if (scan.isSubQuery() || ! scan.getTableScan().getIsReplicated()) {
+            return false;
+        }
+        Table table = m_parsedSelect.m_tableList.get(0);
+        DatabaseEstimates estimates = m_planSelector.m_estimates;
+        if (estimates == null || ! estimates.hasEstimatesForTable(table.getTypeName()) ||
+                estimates.getEstimatesForTable(table.getTypeName()).maxTuples < PARALLEL_SCAN_MIN_TUPLES) {
+            return false;
+        }
+        Column sliceColumn = getSliceColumn(table);
+        if (sliceColumn == null) {
+            return false;
+        }
+        scan.setParallelSliceColumn(sliceColumn);
+        return true;
+    }
+
+    /**
+     * Pick the column to slice a replicated table by: the first primary key column
+     * if it can be hashinated, as it is likely to spread the rows evenly, or else the
+     * first column that can.
+     * @return the column or null if no column can be hashinated
+     */
+    private static Column getSliceColumn(Table table) {
+        for (Constraint constraint : table.getConstraints()) {
+            if (constraint.getType() == ConstraintType.PRIMARY_KEY.getValue()) {
+                List<ColumnRef> keyColumns =
+                        CatalogUtil.getSortedCatalogItems(constraint.getIndex().getColumns(), "index");
+                if ( ! keyColumns.isEmpty() && isHashinatable(keyColumns.get(0).getColumn())) {
+                    return keyColumns.get(0).getColumn();
+                }
+            }
+        }
+        for (Column column : CatalogUtil.getSortedCatalogItems(table.getColumns(), "index")) {
+            if (isHashinatable(column)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    // The types a table can be partitioned on
+    private static boolean isHashinatable(Column column) {
+        switch (VoltType.get((byte) column.getType())) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+        case STRING:
+        case VARBINARY:
+            return true;
+        default:
+            return false;
+        }
+    }
+
     private CompiledPlan getNextSelectPlan() {
         assert (m_subAssembler != null);
 
@@ -994,16 +1096,18 @@ public class PlanAssembler {
                 if (m_parsedSelect.m_mvFixInfo.needed()) {
                     mvFixInfoCoordinatorNeeded = false;
                     AbstractPlanNode receiveNode = receivers.get(0);
-                    if (receiveNode.getParent(0) instanceof NestLoopPlanNode) {
+                    if (receiveNode.getParent(0) instanceof NestLoopPlanNode ||
+                            receiveNode.getParent(0) instanceof HashJoinPlanNode) {
                         if (subSelectRoot.hasInlinedIndexScanOfTable(m_parsedSelect.m_mvFixInfo.getMVTableName())) {
                             return getNextSelectPlan();
                         }
                         List<AbstractPlanNode> nljs = receiveNode.findAllNodesOfType(PlanNodeType.NESTLOOP);
                         List<AbstractPlanNode> nlijs = receiveNode.findAllNodesOfType(PlanNodeType.NESTLOOPINDEX);
+                        List<AbstractPlanNode> hjs = receiveNode.findAllNodesOfType(PlanNodeType.HASHJOIN);
 
                         // outer join edge case does not have any join plan node under receive node.
                         // This is like a single table case.
-                        if (nljs.size() + nlijs.size() == 0) {
+                        if (nljs.size() + nlijs.size() + hjs.size() == 0) {
                             mvFixInfoEdgeCaseOuterJoin = true;
                         }
                         root = handleMVBasedMultiPartQuery(reAggNode, root, mvFixInfoEdgeCaseOuterJoin);
@@ -1043,6 +1147,16 @@ public class PlanAssembler {
                 }
             }
         }
+        else if (parallelizeReplicatedScan(root)) {
+            // Every partition scans its own slice of its copy of the table,
+            // so the plan is distributed like a scan of a partitioned table.
+            root = SubPlanAssembler.addSendReceivePair(root);
+            if (m_parsedSelect.mayNeedAvgPushdown()) {
+                m_parsedSelect.switchOptimalSuiteForAvgPushdown();
+            }
+            m_parsedSelect.m_mvFixInfo.setNeeded(false);
+            root = handleAggregationOperators(root);
+        }
         else {
             /*
              * There is no receive node and root is a single partition plan.
@@ -181,6 +181,16 @@ public class PlanSelector implements Cloneable {
         outputPlan(plan, planGraph, filename);
     }
 
+    /**
+     * Cost part of a plan, such as the scans and joins of a select, to compare it
+     * with alternatives for the same part before the rest of the plan is built.
+     */
+    double estimateSubPlanCost(AbstractPlanNode subPlan) {
+        PlanStatistics stats = new PlanStatistics();
+        subPlan.computeEstimatesRecursively(stats, m_cluster, m_db, m_estimates, m_paramHints);
+        return m_costModel.getPlanCost(stats);
+    }
+
     public void finalizeOutput() {
         if (m_quietPlanner) {
             return;
@@ -436,6 +436,9 @@ public class QueryPlanner {
             ((ParsedSelectStmt)parsedStmt).checkPlanColumnMatch(columns);
         }
 
+        // Filter the inner scans of joins by the keys of their outer inputs
+        SemiJoinReducer.apply(bestPlan);
+
         // Output the best plan debug info
         assembler.finalizeBestCostPlan();
 
@@ -26,6 +26,8 @@ import java.util.List;
 import java.util.Set;
 
 import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.StatementCompiler;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.ExpressionUtil;
 import org.voltdb.expressions.TupleValueExpression;
@@ -37,10 +39,12 @@ import org.voltdb.planner.parseinfo.SubqueryLeafNode;
 import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractReceivePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.MaterializedScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
+import org.voltdb.types.ExpressionType;
 import org.voltdb.types.JoinType;
 import org.voltdb.types.PlanNodeType;
 import org.voltdb.utils.PermutationGenerator;
@@ -62,17 +66,61 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
     /** The list of all possible join orders, assembled by queueAllJoinOrders */
     private ArrayDeque<JoinNode> m_joinOrders = new ArrayDeque<JoinNode>();
 
+    /** Whether the cost model can tell hash joins from nested loop joins */
+    private final boolean m_hashJoinEnabled;
+
+    /** Costs sub-plans when there are too many combinations of access paths to plan them all */
+    private final PlanSelector m_planSelector;
+
+    /** Beyond this many combinations of access paths for one join order, search them by cost */
+    static final int MAX_ACCESS_PATH_COMBINATIONS = 256;
+
+    /**
+     * Whether joins of too many tables to permute are planned in the orders that look
+     * cheapest, instead of only in the order written.
+     * Set with -DENABLE_COST_BASED_JOIN_ORDER=true.
+     */
+    private final boolean m_costBasedJoinOrder;
+
+    /**
+     * Whether joins of that many tables, in any order, search their access paths by cost
+     * when there are too many combinations of them to plan. Set with the same property.
+     */
+    private final boolean m_accessPathsByCost;
+
+    /** Set while re-planning a set of access paths with hash joins wherever possible */
+    private boolean m_useHashJoins = false;
+
+    /** Set by getSelectSubPlanForJoin when a nested loop join could have been a hash join */
+    private boolean m_hashJoinCandidate = false;
+
     /**
      *
      * @param db The catalog's Database object.
      * @param selectStmt The parsed and dissected statement object describing the sql to execute.
      * @param partitioning in/out param first element is partition key value, forcing a single-partition statement if non-null,
      * second may be an inferred partition key if no explicit single-partitioning was specified
+     * @param planSelector its cost model and estimates pick the join orders and access paths
+     * of large joins, and whether to offer hash joins as alternatives to nested loop joins
      */
-    SelectSubPlanAssembler(Database db, ParsedSelectStmt selectStmt, StatementPartitioning partitioning)
+    SelectSubPlanAssembler(Database db, ParsedSelectStmt selectStmt, StatementPartitioning partitioning,
+                           PlanSelector planSelector)
     {
         super(db, selectStmt, partitioning);
-        if (selectStmt.hasJoinOrder()) {
+        m_planSelector = planSelector;
+        m_hashJoinEnabled = planSelector.m_costModel.isHashJoinEnabled();
+        boolean costBased = Boolean.getBoolean("ENABLE_COST_BASED_JOIN_ORDER");
+        m_costBasedJoinOrder = costBased && selectStmt.m_joinOrder == null && selectStmt.hasJoinOrder();
+        m_accessPathsByCost = costBased &&
+                selectStmt.m_tableAliasListAsJoinOrder.size() > StatementCompiler.DEFAULT_MAX_JOIN_TABLES;
+        if (m_costBasedJoinOrder) {
+            // Too many tables to try all the permutations. Starting from the
+            // fallback order the statement settled on, only plan the orders
+            // that look cheapest.
+            assert(selectStmt.getJoinOrder().size() == 1);
+            m_joinOrders = queueJoinOrders(selectStmt.getJoinOrder().get(0),
+                    planSelector.m_estimates, m_hashJoinEnabled);
+        } else if (selectStmt.hasJoinOrder()) {
             // If a join order was provided or large number of tables join
             m_joinOrders.addAll(selectStmt.getJoinOrder());
         } else {
@@ -86,6 +134,20 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
      * TODO(XIN): takes at least 3.3% cpu of planner. Optimize it when possible.
      */
     public static ArrayDeque<JoinNode> queueJoinOrders(JoinNode joinNode, boolean findAll) {
+        return queueJoinOrders(joinNode, findAll, null, false);
+    }
+
+    /**
+     * Instead of every permutation, queue the join order of the tree as it is and the few
+     * join orders a JoinOrderEnumerator estimates to be cheapest.
+     */
+    static ArrayDeque<JoinNode> queueJoinOrders(JoinNode joinNode, DatabaseEstimates estimates,
+            boolean hashJoinEnabled) {
+        return queueJoinOrders(joinNode, true, estimates, hashJoinEnabled);
+    }
+
+    private static ArrayDeque<JoinNode> queueJoinOrders(JoinNode joinNode, boolean findAll,
+            DatabaseEstimates estimates, boolean hashJoinEnabled) {
         assert(joinNode != null);
 
         // Clone the original
@@ -93,8 +155,10 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         // Split join tree into a set of subtrees. The join type for all nodes in a subtree is the same
         List<JoinNode> subTrees = clonedTree.extractSubTrees();
         assert(!subTrees.isEmpty());
+        JoinOrderEnumerator enumerator = (estimates == null) ? null :
+            new JoinOrderEnumerator(estimates, hashJoinEnabled, subTrees);
         // Generate possible join orders for each sub-tree separately
-        ArrayList<List<JoinNode>> joinOrderList = generateJoinOrders(subTrees);
+        ArrayList<List<JoinNode>> joinOrderList = generateJoinOrders(subTrees, enumerator);
         // Reassemble the all possible combinations of the sub-tree and queue them
         ArrayDeque<JoinNode> joinOrders = new ArrayDeque<JoinNode>();
         queueSubJoinOrders(joinOrderList, 0, new ArrayList<JoinNode>(), joinOrders, findAll);
@@ -133,22 +197,24 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
      * (table nodes) of the tree without breaking the joins semantic.
      *
      * @param subTrees the list of join trees.
+     * @param enumerator picks the join orders of inner joins instead of permuting them, may be null
      * @return The list containing the list of trees of all possible permutations of the input trees
      */
-    private static ArrayList<List<JoinNode>> generateJoinOrders(List<JoinNode> subTrees) {
+    private static ArrayList<List<JoinNode>> generateJoinOrders(List<JoinNode> subTrees,
+            JoinOrderEnumerator enumerator) {
         ArrayList<List<JoinNode>> permutations = new ArrayList<>();
         for (JoinNode subTree : subTrees) {
-            permutations.add(generateJoinOrdersForTree(subTree));
+            permutations.add(generateJoinOrdersForTree(subTree, enumerator));
         }
         return permutations;
     }
 
-    private static List<JoinNode> generateJoinOrdersForTree(JoinNode subTree) {
+    private static List<JoinNode> generateJoinOrdersForTree(JoinNode subTree, JoinOrderEnumerator enumerator) {
         if (subTree instanceof BranchNode) {
             BranchNode branchSubTree = (BranchNode) subTree;
             JoinType joinType = branchSubTree.getJoinType();
             if (joinType == JoinType.INNER) {
-                return generateInnerJoinOrdersForTree(subTree);
+                return generateInnerJoinOrdersForTree(subTree, enumerator);
             } else if (joinType == JoinType.LEFT) {
                 return generateOuterJoinOrdersForTree(subTree);
             } else if (joinType == JoinType.FULL) {
@@ -160,7 +226,7 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
             }
         } else {
             // Single tables and subqueries
-            return generateInnerJoinOrdersForTree(subTree);
+            return generateInnerJoinOrdersForTree(subTree, enumerator);
         }
     }
 
@@ -169,18 +235,22 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
      * can be obtained by the permutation of the original tables.
      *
      * @param subTree join tree
+     * @param enumerator picks the join orders instead of permuting the tables, may be null
      * @return list of valid join orders
      */
-    private static List<JoinNode> generateInnerJoinOrdersForTree(JoinNode subTree) {
+    private static List<JoinNode> generateInnerJoinOrdersForTree(JoinNode subTree,
+            JoinOrderEnumerator enumerator) {
+        //Collect all the join/where conditions to reassign them later
+        AbstractExpression combinedWhereExpr = subTree.getAllFilters();
         // Get a list of the leaf nodes(tables) to permute them
         List<JoinNode> tableNodes = subTree.generateLeafNodesJoinOrder();
-        List<List<JoinNode>> joinOrders = PermutationGenerator.generatePurmutations(tableNodes);
+        List<List<JoinNode>> joinOrders = (enumerator == null) ?
+                PermutationGenerator.generatePurmutations(tableNodes) :
+                enumerator.generateJoinOrders(tableNodes, combinedWhereExpr);
         List<JoinNode> newTrees = new ArrayList<JoinNode>();
         for (List<JoinNode> joinOrder: joinOrders) {
             newTrees.add(JoinNode.reconstructJoinTreeFromTableNodes(joinOrder, JoinType.INNER));
         }
-        //Collect all the join/where conditions to reassign them later
-        AbstractExpression combinedWhereExpr = subTree.getAllFilters();
         List<JoinNode> treePermutations = new ArrayList<>();
         for (JoinNode newTree : newTrees) {
             if (combinedWhereExpr != null) {
@@ -330,7 +400,99 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         generateAccessPaths(joinTree);
 
         List<JoinNode> nodes = joinTree.generateAllNodesJoinOrder();
-        generateSubPlanForJoinNodeRecursively(joinTree, 0, nodes);
+        if (m_accessPathsByCost && countAccessPathCombinations(nodes) > MAX_ACCESS_PATH_COMBINATIONS) {
+            generateSubPlanForJoinNodeByCost(joinTree, nodes);
+        } else {
+            generateSubPlanForJoinNodeRecursively(joinTree, 0, nodes);
+        }
+    }
+
+    private static long countAccessPathCombinations(List<JoinNode> nodes) {
+        long combinations = 1;
+        for (JoinNode node : nodes) {
+            combinations *= Math.max(1, node.m_accessPaths.size());
+            if (combinations > MAX_ACCESS_PATH_COMBINATIONS) {
+                break;
+            }
+        }
+        return combinations;
+    }
+
+    /**
+     * Instead of planning every combination of access paths, which grows exponentially
+     * with the number of tables, start from the sequential scans and keep switching one
+     * node at a time to the access path that makes the sub-plan cheapest until no switch
+     * helps any more. Only the plans for the cheapest combination found are added.
+     */
+    private void generateSubPlanForJoinNodeByCost(JoinNode rootNode, List<JoinNode> nodes) {
+        for (JoinNode node : nodes) {
+            // The naive path comes first
+            node.m_currentAccessPath = node.m_accessPaths.get(0);
+        }
+        double bestCost = estimateSubPlanCost(rootNode);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (JoinNode node : nodes) {
+                AccessPath bestPath = node.m_currentAccessPath;
+                for (AccessPath path : node.m_accessPaths) {
+                    if (path == bestPath) {
+                        continue;
+                    }
+                    node.m_currentAccessPath = path;
+                    double cost = estimateSubPlanCost(rootNode);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestPath = path;
+                        improved = true;
+                    }
+                }
+                node.m_currentAccessPath = bestPath;
+            }
+        }
+        addPlansForCurrentAccessPaths(rootNode);
+    }
+
+    /**
+     * @return the cost of the cheaper of the nested loop and hash join sub-plans
+     * for the current access paths, or Double.MAX_VALUE if there is no plan for them
+     */
+    private double estimateSubPlanCost(JoinNode rootNode) {
+        double cost = Double.MAX_VALUE;
+        m_hashJoinCandidate = false;
+        AbstractPlanNode plan = getSelectSubPlanForJoinNode(rootNode);
+        if (plan != null) {
+            cost = m_planSelector.estimateSubPlanCost(plan);
+            if (m_hashJoinCandidate) {
+                m_useHashJoins = true;
+                plan = getSelectSubPlanForJoinNode(rootNode);
+                m_useHashJoins = false;
+                if (plan != null) {
+                    cost = Math.min(cost, m_planSelector.estimateSubPlanCost(plan));
+                }
+            }
+        }
+        return cost;
+    }
+
+    private void addPlansForCurrentAccessPaths(JoinNode rootNode) {
+        m_hashJoinCandidate = false;
+        AbstractPlanNode plan = getSelectSubPlanForJoinNode(rootNode);
+        if (plan == null) {
+            return;
+        }
+        m_plans.add(plan);
+        if (m_hashJoinCandidate) {
+            // Offer the same access paths again, this time with every
+            // eligible nested loop join replaced by a hash join, and
+            // let the cost model pick.
+            m_useHashJoins = true;
+            plan = getSelectSubPlanForJoinNode(rootNode);
+            m_useHashJoins = false;
+            if (plan != null) {
+                m_plans.add(plan);
+            }
+        }
     }
 
     /**
@@ -530,11 +692,7 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         if (nodes.size() == nextNode + 1) {
             for (AccessPath path : joinNode.m_accessPaths) {
                 joinNode.m_currentAccessPath = path;
-                AbstractPlanNode plan = getSelectSubPlanForJoinNode(rootNode);
-                if (plan == null) {
-                    continue;
-                }
-                m_plans.add(plan);
+                addPlansForCurrentAccessPaths(rootNode);
             }
             return;
         }
@@ -704,7 +862,6 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
 
         AbstractJoinPlanNode ajNode = null;
         if (canHaveNLJ) {
-            NestLoopPlanNode nljNode = new NestLoopPlanNode();
             // get all the clauses that join the applicable two tables
             // Copy innerAccessPath.joinExprs to leave it unchanged,
             // avoiding accumulation of redundant expressions when
@@ -745,7 +902,25 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
                 // the inner node ONLY, that can not be pushed down.
                 joinClauses.addAll(innerAccessPath.otherExprs);
             }
-            nljNode.setJoinPredicate(ExpressionUtil.combinePredicates(joinClauses));
+
+            // An equi-join that would otherwise compare every outer tuple with
+            // the whole inner result can hash one input and probe it with the other.
+            AbstractJoinPlanNode nljNode = null;
+            if (m_hashJoinEnabled && joinNode.getJoinType() != JoinType.FULL) {
+                List<AbstractExpression> otherClauses = new ArrayList<AbstractExpression>();
+                HashJoinPlanNode hjNode = getHashJoinPlanNode(joinNode, joinClauses, otherClauses);
+                if (hjNode != null) {
+                    m_hashJoinCandidate = true;
+                    if (m_useHashJoins) {
+                        hjNode.setJoinPredicate(ExpressionUtil.combinePredicates(otherClauses));
+                        nljNode = hjNode;
+                    }
+                }
+            }
+            if (nljNode == null) {
+                nljNode = new NestLoopPlanNode();
+                nljNode.setJoinPredicate(ExpressionUtil.combinePredicates(joinClauses));
+            }
 
             // combine the tails plan graph with the new head node
             nljNode.addAndLinkChild(outerPlan);
@@ -792,6 +967,69 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         return ajNode;
     }
 
+    /**
+     * Build a hash join node from the equality join clauses that compare an expression
+     * of the outer tables with an expression of the inner tables of the same type.
+     * Type equality is required because the EE hashes and compares the key values
+     * without any promotion.
+     *
+     * @param joinNode A parent join node.
+     * @param joinClauses The join clauses of the join node.
+     * @param otherClauses Output list of the join clauses that can not be hashed.
+     * @return A hash join node with its hash expressions set, or null if no clause can be hashed.
+     */
+    private static HashJoinPlanNode getHashJoinPlanNode(BranchNode joinNode,
+                                                        List<AbstractExpression> joinClauses,
+                                                        List<AbstractExpression> otherClauses)
+    {
+        Collection<String> outerTables = joinNode.getLeftNode().generateTableJoinOrder();
+        Collection<String> innerTables = joinNode.getRightNode().generateTableJoinOrder();
+        HashJoinPlanNode hjNode = null;
+        for (AbstractExpression clause : joinClauses) {
+            if (clause.getExpressionType() == ExpressionType.COMPARE_EQUAL &&
+                    ! clause.hasSubquerySubexpression() &&
+                    clause.getLeft().getValueType() == clause.getRight().getValueType()) {
+                AbstractExpression outerExpr = null;
+                AbstractExpression innerExpr = null;
+                if (isExpressionOfTables(clause.getLeft(), outerTables) &&
+                        isExpressionOfTables(clause.getRight(), innerTables)) {
+                    outerExpr = clause.getLeft();
+                    innerExpr = clause.getRight();
+                }
+                else if (isExpressionOfTables(clause.getRight(), outerTables) &&
+                        isExpressionOfTables(clause.getLeft(), innerTables)) {
+                    outerExpr = clause.getRight();
+                    innerExpr = clause.getLeft();
+                }
+                if (outerExpr != null) {
+                    if (hjNode == null) {
+                        hjNode = new HashJoinPlanNode();
+                    }
+                    hjNode.addHashExpressions(outerExpr, innerExpr);
+                    continue;
+                }
+            }
+            otherClauses.add(clause);
+        }
+        return hjNode;
+    }
+
+    /**
+     * @return true if the expression references columns and only columns of the given tables
+     */
+    private static boolean isExpressionOfTables(AbstractExpression expr, Collection<String> tableAliases) {
+        List<TupleValueExpression> tves = ExpressionUtil.getTupleValueExpressions(expr);
+        if (tves.isEmpty()) {
+            return false;
+        }
+        for (TupleValueExpression tve : tves) {
+            if ( ! tableAliases.contains(tve.getTableAlias())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * A method to filter out single-TVE expressions.
      *
@@ -0,0 +1,189 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.planner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Column;
+import org.voltdb.catalog.Table;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.ExpressionUtil;
+import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.planner.parseinfo.StmtTargetTableScan;
+import org.voltdb.plannodes.AbstractJoinPlanNode;
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.AbstractReceivePlanNode;
+import org.voltdb.plannodes.AggregatePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
+import org.voltdb.plannodes.IndexScanPlanNode;
+import org.voltdb.plannodes.NestLoopPlanNode;
+import org.voltdb.plannodes.SeqScanPlanNode;
+import org.voltdb.types.ExpressionType;
+import org.voltdb.types.JoinType;
+import org.voltdb.types.PlanNodeType;
+
+/// An end-stage plan rewriter for the partition fragment of a multi-partition
+/// plan. Where a join's outer input is a filtered scan, typically of a
+/// replicated table, and its inner input is a sequential scan of a partitioned
+/// table, the EE builds a Bloom filter of the outer input's join keys before
+/// the inner scan runs, and the scan leaves out the rows whose key is not in
+/// it. Those rows could not join, so they are never copied into the scan's
+/// temp table, nor looped over once per outer row by a nested loop join.
+/// It only applies when the server runs with -DENABLE_SEMI_JOIN_FILTERS=true.
+public class SemiJoinReducer {
+
+    /**
+     * Filter the inner scans of the joins of the partition fragment, if any.
+     * The plan's column indexes have to be resolved.
+     */
+    public static void apply(CompiledPlan plan)
+    {
+        if ( ! Boolean.getBoolean("ENABLE_SEMI_JOIN_FILTERS")) {
+            return;
+        }
+        List<AbstractPlanNode> receives = plan.rootPlanGraph.findAllNodesOfClass(AbstractReceivePlanNode.class);
+        if (receives.size() != 1) {
+            return;
+        }
+        for (AbstractPlanNode join : receives.get(0).findAllNodesOfClass(AbstractJoinPlanNode.class)) {
+            if (join instanceof NestLoopPlanNode || join instanceof HashJoinPlanNode) {
+                reduce((AbstractJoinPlanNode) join);
+            }
+        }
+    }
+
+    private static void reduce(AbstractJoinPlanNode join)
+    {
+        // Rows of the inner input that join nothing only show up in FULL joins.
+        if (join.getJoinType() != JoinType.INNER && join.getJoinType() != JoinType.LEFT) {
+            return;
+        }
+        AbstractPlanNode outer = join.getChild(0);
+        if ( ! (join.getChild(1) instanceof SeqScanPlanNode)) {
+            return;
+        }
+        SeqScanPlanNode inner = (SeqScanPlanNode) join.getChild(1);
+        if (inner.isSubQuery() || inner.getTableScan().getIsReplicated() ||
+                inner.getInlinePlanNode(PlanNodeType.LIMIT) != null ||
+                AggregatePlanNode.getInlineAggregationNode(inner) != null) {
+            return;
+        }
+        // The EE executes the leaves of a plan first, so a leaf outer input
+        // is sure to have its keys ready when the inner scan runs.
+        if ( ! isSelectiveScan(outer) ||
+                outer.getEstimatedOutputTupleCount() > inner.getEstimatedOutputTupleCount()) {
+            return;
+        }
+        Table table = ((StmtTargetTableScan) inner.getTableScan()).getTargetTable();
+        for (TupleValueExpression[] keys : getEquiJoinKeys(join)) {
+            TupleValueExpression outerKey = keys[0];
+            TupleValueExpression innerKey = keys[1];
+            Column column = table.getColumns().getIgnoreCase(innerKey.getColumnName());
+            if (column == null || ! innerKey.getTableAlias().equals(inner.getTargetTableAlias())) {
+                continue;
+            }
+            VoltType type = VoltType.get((byte) column.getType());
+            if (outerKey.getValueType() == type && isFilterable(type)) {
+                inner.setSemiJoinFilter(outerKey.getColumnIndex(), column);
+                return;
+            }
+        }
+    }
+
+    // A scan with filters that make it return only some of its table's rows
+    private static boolean isSelectiveScan(AbstractPlanNode node)
+    {
+        if (node.getChildCount() != 0) {
+            return false;
+        }
+        if (node instanceof SeqScanPlanNode) {
+            SeqScanPlanNode scan = (SeqScanPlanNode) node;
+            return ! scan.isSubQuery() && scan.getPredicate() != null;
+        }
+        if (node instanceof IndexScanPlanNode) {
+            IndexScanPlanNode scan = (IndexScanPlanNode) node;
+            return ! scan.getSearchKeyExpressions().isEmpty() ||
+                    scan.getEndExpression() != null || scan.getPredicate() != null;
+        }
+        return false;
+    }
+
+    // Pairs of outer and inner columns that have to be equal for a row to join
+    private static List<TupleValueExpression[]> getEquiJoinKeys(AbstractJoinPlanNode join)
+    {
+        List<TupleValueExpression[]> keys = new ArrayList<TupleValueExpression[]>();
+        if (join instanceof HashJoinPlanNode) {
+            HashJoinPlanNode hashJoin = (HashJoinPlanNode) join;
+            for (int ii = 0; ii < hashJoin.getOuterHashExpressions().size(); ++ii) {
+                addKeys(keys, hashJoin.getOuterHashExpressions().get(ii),
+                        hashJoin.getInnerHashExpressions().get(ii));
+            }
+            return keys;
+        }
+        List<AbstractExpression> conjuncts = new ArrayList<AbstractExpression>();
+        if (join.getJoinPredicate() != null) {
+            conjuncts.addAll(ExpressionUtil.uncombinePredicate(join.getJoinPredicate()));
+        }
+        // The WHERE filters of an outer join apply to the null padded rows too
+        if (join.getJoinType() == JoinType.INNER && join.getWherePredicate() != null) {
+            conjuncts.addAll(ExpressionUtil.uncombinePredicate(join.getWherePredicate()));
+        }
+        for (AbstractExpression conjunct : conjuncts) {
+            if (conjunct.getExpressionType() == ExpressionType.COMPARE_EQUAL) {
+                addKeys(keys, conjunct.getLeft(), conjunct.getRight());
+            }
+        }
+        return keys;
+    }
+
+    private static void addKeys(List<TupleValueExpression[]> keys,
+            AbstractExpression left, AbstractExpression right)
+    {
+        if ( ! (left instanceof TupleValueExpression) || ! (right instanceof TupleValueExpression)) {
+            return;
+        }
+        TupleValueExpression leftKey = (TupleValueExpression) left;
+        TupleValueExpression rightKey = (TupleValueExpression) right;
+        if (leftKey.getTableIndex() == 0 && rightKey.getTableIndex() == 1) {
+            keys.add(new TupleValueExpression[] { leftKey, rightKey });
+        }
+        else if (leftKey.getTableIndex() == 1 && rightKey.getTableIndex() == 0) {
+            keys.add(new TupleValueExpression[] { rightKey, leftKey });
+        }
+    }
+
+    // Types whose equal values always hash the same in the EE
+    private static boolean isFilterable(VoltType type)
+    {
+        switch (type) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+        case TIMESTAMP:
+        case DECIMAL:
+        case STRING:
+        case VARBINARY:
+            return true;
+        default:
+            return false;
+        }
+    }
+}
@@ -27,6 +27,7 @@ public enum StatsField {
     TUPLES_WRITTEN,
     TREE_INDEX_LEVELS_TRAVERSED,
     HASH_VALUES_COMPUTED,
+    TUPLE_PAIRS_COMPARED,
     MESSAGES_SENT,
     BYTES_SENT
 }
@@ -17,25 +17,39 @@
 
 package org.voltdb.planner;
 
-import java.util.HashMap;
-
 /**
  * The trivial cost model returns one for any plan. In theory this will
  * always select the first plan given to it, but it doesn't really matter.
  *
+ * When hash joins are enabled (-DENABLE_HASH_JOIN=true), the tuple pairs
+ * compared by nested loop joins and the values hashed by hash joins are
+ * added to the tuples read, so the planner can tell when a hash join pays off.
  */
 public class TrivialCostModel extends AbstractCostModel {
 
+    private final boolean m_hashJoinEnabled;
+
+    public TrivialCostModel() {
+        this(Boolean.getBoolean("ENABLE_HASH_JOIN"));
+    }
+
+    public TrivialCostModel(boolean hashJoinEnabled) {
+        m_hashJoinEnabled = hashJoinEnabled;
+    }
+
     @Override
-    public double getPlanCost(PlanStatistics stats) {
-        double cost = 0;
+    public boolean isHashJoinEnabled() {
+        return m_hashJoinEnabled;
+    }
 
+    @Override
+    public double getPlanCost(PlanStatistics stats) {
         // just add up the total tuples read for the plan
-        for (int i = 0; i < stats.getLevelCount(); i++) {
-            HashMap<StatsField, Long> level = stats.getStatisticsForLevel(i);
-            Long levelValueObj = level.get(StatsField.TUPLES_READ);
-            long levelValue = (levelValueObj == null) ? 0 : levelValueObj.longValue();
-            cost += levelValue;
+        double cost = getTotalStatistic(stats, StatsField.TUPLES_READ);
+
+        if (m_hashJoinEnabled) {
+            cost += getTotalStatistic(stats, StatsField.TUPLE_PAIRS_COMPARED);
+            cost += getTotalStatistic(stats, StatsField.HASH_VALUES_COMPUTED);
         }
 
         return cost;
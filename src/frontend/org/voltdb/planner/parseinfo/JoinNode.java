@@ -320,6 +320,7 @@ public abstract class JoinNode implements Cloneable {
      */
     public static JoinNode reconstructJoinTreeFromTableNodes(List<JoinNode> tableNodes, JoinType joinType) {
         JoinNode root = null;
+        int placeholderCount = 0;
         for (JoinNode leafNode : tableNodes) {
             JoinNode node = leafNode.cloneWithoutFilters();
             if (root == null) {
@@ -328,7 +329,10 @@ public abstract class JoinNode implements Cloneable {
                 // We only care about the root node id to be able to reconnect the sub-trees
                 // The intermediate node id can be anything. For the final root node its id
                 // will be set later to the original tree's root id
-                root = new BranchNode(-node.m_id, joinType, root, node);
+                // Except the id of a sub-tree root: negating the id of a placeholder node
+                // gives exactly that, and reconnecting the sub-tree would replace the wrong node.
+                int id = (node.m_id < 0) ? Integer.MIN_VALUE + placeholderCount++ : -node.m_id;
+                root = new BranchNode(id, joinType, root, node);
             }
         }
         return root;
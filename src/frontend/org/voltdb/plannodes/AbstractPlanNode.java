@@ -401,6 +401,13 @@ public abstract class AbstractPlanNode implements JSONString, Comparable<Abstrac
 
         computeCostEstimates(childOutputTupleCountEstimate, cluster, db, estimates, paramHints);
         stats.incrementStatistic(0, StatsField.TUPLES_READ, m_estimatedProcessedTupleCount);
+        computeExtraStatistics(stats);
+
+        // An inlined hash aggregate sizes its hash table from the tuples this node produces.
+        AbstractPlanNode inlineHashAggregate = m_inlineNodes.get(PlanNodeType.HASHAGGREGATE);
+        if (inlineHashAggregate != null) {
+            inlineHashAggregate.computeCostEstimates(m_estimatedOutputTupleCount, cluster, db, estimates, paramHints);
+        }
     }
 
     /**
@@ -419,6 +426,14 @@ public abstract class AbstractPlanNode implements JSONString, Comparable<Abstrac
         m_estimatedProcessedTupleCount = childOutputTupleCountEstimate;
     }
 
+    /**
+     * Record the work this node does beyond reading its input tuples, such as the
+     * tuple pairs a join compares. Called right after computeCostEstimates, so the
+     * estimates of this node and its children are up to date.
+     */
+    protected void computeExtraStatistics(PlanStatistics stats) {
+    }
+
     public long getEstimatedOutputTupleCount() {
         return m_estimatedOutputTupleCount;
     }
@@ -49,7 +49,8 @@ public abstract class AbstractScanPlanNode extends AbstractPlanNode {
         TARGET_TABLE_NAME,
         TARGET_TABLE_ALIAS,
         SUBQUERY_INDICATOR,
-        PREDICATE_FALSE;
+        PREDICATE_FALSE,
+        PREDICATE_BATCHABLE;
     }
 
     // Store the columns from the table as an internal NodeSchema
@@ -450,6 +451,11 @@ public abstract class AbstractScanPlanNode extends AbstractPlanNode {
             if (ConstantValueExpression.isBooleanFalse(m_predicate)) {
                 stringer.key(Members.PREDICATE_FALSE.name()).value("TRUE");
             }
+            // Only when the server runs with -DENABLE_BATCH_PREDICATES=true
+            else if (Boolean.getBoolean("ENABLE_BATCH_PREDICATES") &&
+                    ExpressionUtil.isBatchablePredicate(m_predicate)) {
+                stringer.key(Members.PREDICATE_BATCHABLE.name()).value("TRUE");
+            }
             stringer.key(Members.PREDICATE.name());
             stringer.value(m_predicate);
         }
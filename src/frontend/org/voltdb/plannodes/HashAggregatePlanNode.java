@@ -17,9 +17,22 @@
 
 package org.voltdb.plannodes;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltdb.catalog.Cluster;
+import org.voltdb.catalog.ColumnRef;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Index;
+import org.voltdb.catalog.Table;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.ScalarValueHints;
 import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.types.ExpressionType;
 import org.voltdb.types.PlanNodeType;
 
@@ -28,6 +41,14 @@ import org.voltdb.types.PlanNodeType;
  *
  */
 public class HashAggregatePlanNode extends AggregatePlanNode {
+
+    public enum Members {
+        ESTIMATED_GROUP_COUNT;
+    }
+
+    // Number of groups expected from index statistics, 0 if there are none to go by
+    private long m_estimatedGroupCount = 0;
+
     public HashAggregatePlanNode() {
         super();
     }
@@ -55,6 +76,7 @@ public class HashAggregatePlanNode extends AggregatePlanNode {
                     aggregateExpressions.get(i));
         }
         setOutputSchema(origin.getOutputSchema());
+        m_estimatedGroupCount = origin.m_estimatedGroupCount;
     }
 
     @Override
@@ -62,4 +84,92 @@ public class HashAggregatePlanNode extends AggregatePlanNode {
         return PlanNodeType.HASHAGGREGATE;
     }
 
+    public long getEstimatedGroupCount() {
+        return m_estimatedGroupCount;
+    }
+
+    @Override
+    public void computeCostEstimates(long childOutputTupleCountEstimate,
+                                     Cluster cluster,
+                                     Database db,
+                                     DatabaseEstimates estimates,
+                                     ScalarValueHints[] paramHints)
+    {
+        super.computeCostEstimates(childOutputTupleCountEstimate, cluster, db, estimates, paramHints);
+        m_estimatedGroupCount = estimateGroupCount(db, estimates);
+        if (childOutputTupleCountEstimate > 0) {
+            m_estimatedGroupCount = Math.min(m_estimatedGroupCount, childOutputTupleCountEstimate);
+        }
+    }
+
+    /**
+     * When the groups are by the columns of an index of a table that has
+     * statistics, there are as many groups as distinct keys in the index.
+     * Otherwise there is no telling, and this returns 0.
+     */
+    private long estimateGroupCount(Database db, DatabaseEstimates estimates) {
+        if (db == null || estimates == null || m_groupByExpressions.isEmpty()) {
+            return 0;
+        }
+        String tableName = null;
+        Set<String> groupByColumns = new HashSet<>();
+        for (AbstractExpression expr : m_groupByExpressions) {
+            if ( ! (expr instanceof TupleValueExpression)) {
+                return 0;
+            }
+            TupleValueExpression tve = (TupleValueExpression) expr;
+            if (tableName == null) {
+                tableName = tve.getTableName();
+            }
+            else if ( ! tableName.equals(tve.getTableName())) {
+                return 0;
+            }
+            groupByColumns.add(tve.getColumnName());
+        }
+        Table table = db.getTables().getIgnoreCase(tableName);
+        if (table == null) {
+            // grouping the output of a subquery or a join
+            return 0;
+        }
+        DatabaseEstimates.TableEstimates tableEstimates = estimates.getEstimatesForTable(table.getTypeName());
+        for (Index index : table.getIndexes()) {
+            if ( ! index.getExpressionsjson().isEmpty() || ! index.getPredicatejson().isEmpty() ||
+                    index.getColumns().size() != groupByColumns.size()) {
+                continue;
+            }
+            boolean matches = true;
+            for (ColumnRef colRef : index.getColumns()) {
+                if ( ! groupByColumns.contains(colRef.getColumn().getTypeName())) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                long distinctKeys = tableEstimates.getDistinctKeysForIndex(index.getTypeName());
+                if (distinctKeys > 0) {
+                    return distinctKeys;
+                }
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void toJSONString(JSONStringer stringer) throws JSONException {
+        super.toJSONString(stringer);
+        // Only when the server runs with -DENABLE_ARENA_HASH_AGGREGATION=true,
+        // the EE keeps the groups in a hash table sized for the estimate.
+        if (Boolean.getBoolean("ENABLE_ARENA_HASH_AGGREGATION")) {
+            stringer.key(Members.ESTIMATED_GROUP_COUNT.name()).value(m_estimatedGroupCount);
+        }
+    }
+
+    @Override
+    public void loadFromJSONObject(JSONObject jobj, Database db) throws JSONException {
+        super.loadFromJSONObject(jobj, db);
+        if ( ! jobj.isNull(Members.ESTIMATED_GROUP_COUNT.name())) {
+            m_estimatedGroupCount = jobj.getLong(Members.ESTIMATED_GROUP_COUNT.name());
+        }
+    }
+
 }
@@ -0,0 +1,201 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.plannodes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONString;
+import org.json_voltpatches.JSONStringer;
+import org.voltdb.catalog.Cluster;
+import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.ScalarValueHints;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.planner.PlanStatistics;
+import org.voltdb.planner.StatsField;
+import org.voltdb.types.JoinType;
+import org.voltdb.types.PlanNodeType;
+import org.voltdb.types.SortDirectionType;
+
+/**
+ * Equi-join of two arbitrary inputs. The EE builds a hash table keyed on
+ * the inner hash expressions of one input and probes it with the other,
+ * so each input is read exactly once instead of once per outer tuple.
+ *
+ * The outer and inner hash expressions are pairwise equal under the join;
+ * any other join conditions stay in the join predicate and are applied to
+ * each matching pair. For INNER joins the EE is free to build on whichever
+ * input turns out to be smaller, so the output is never considered ordered.
+ */
+public class HashJoinPlanNode extends AbstractJoinPlanNode {
+
+    public enum Members {
+        OUTER_HASH_EXPRESSIONS,
+        INNER_HASH_EXPRESSIONS;
+    }
+
+    private List<AbstractExpression> m_outerHashExpressions = new ArrayList<AbstractExpression>();
+    private List<AbstractExpression> m_innerHashExpressions = new ArrayList<AbstractExpression>();
+
+    public HashJoinPlanNode() {
+        super();
+    }
+
+    @Override
+    public PlanNodeType getPlanNodeType() {
+        return PlanNodeType.HASHJOIN;
+    }
+
+    @Override
+    public void validate() throws Exception {
+        super.validate();
+
+        if (m_outerHashExpressions.isEmpty() ||
+                m_outerHashExpressions.size() != m_innerHashExpressions.size()) {
+            throw new Exception("ERROR: Hash join requires matching outer and inner hash expressions");
+        }
+        if (m_joinType != JoinType.INNER && m_joinType != JoinType.LEFT) {
+            throw new Exception("ERROR: Hash join does not support " + m_joinType + " joins");
+        }
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            expr.validate();
+        }
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            expr.validate();
+        }
+    }
+
+    public List<AbstractExpression> getOuterHashExpressions() {
+        return m_outerHashExpressions;
+    }
+
+    public List<AbstractExpression> getInnerHashExpressions() {
+        return m_innerHashExpressions;
+    }
+
+    /**
+     * Add a pair of expressions that must be equal for an outer and an inner tuple to join.
+     * @param outerExpr an expression that only references the outer input
+     * @param innerExpr an expression of the same type that only references the inner input
+     */
+    public void addHashExpressions(AbstractExpression outerExpr, AbstractExpression innerExpr) {
+        m_outerHashExpressions.add((AbstractExpression) outerExpr.clone());
+        m_innerHashExpressions.add((AbstractExpression) innerExpr.clone());
+    }
+
+    @Override
+    public void resolveColumnIndexes() {
+        super.resolveColumnIndexes();
+
+        final NodeSchema outer_schema = m_children.get(0).getOutputSchema();
+        final NodeSchema inner_schema = m_children.get(1).getOutputSchema();
+        resolvePredicate(m_outerHashExpressions, outer_schema, inner_schema);
+        resolvePredicate(m_innerHashExpressions, outer_schema, inner_schema);
+    }
+
+    @Override
+    public boolean isOutputOrdered(List<AbstractExpression> sortExpressions, List<SortDirectionType> sortDirections) {
+        return false;
+    }
+
+    @Override
+    public void resolveSortDirection() {
+        m_sortDirection = SortDirectionType.INVALID;
+    }
+
+    @Override
+    public void computeCostEstimates(long childOutputTupleCountEstimate,
+                                     Cluster cluster,
+                                     Database db,
+                                     DatabaseEstimates estimates,
+                                     ScalarValueHints[] paramHints)
+    {
+        m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
+        // Both inputs are read once, the same as for a nested loop over a cached inner input.
+        // The hash table costs are accounted separately in computeExtraStatistics.
+        assert(m_children.size() == 2);
+        m_estimatedProcessedTupleCount = discountEstimatedProcessedTupleCount(m_children.get(0)) +
+                m_children.get(1).m_estimatedProcessedTupleCount;
+    }
+
+    @Override
+    protected void computeExtraStatistics(PlanStatistics stats) {
+        // Every input tuple is hashed once, either to build the table or to probe it.
+        stats.incrementStatistic(0, StatsField.HASH_VALUES_COMPUTED,
+                m_children.get(0).getEstimatedOutputTupleCount() +
+                m_children.get(1).getEstimatedOutputTupleCount());
+    }
+
+    @Override
+    public void toJSONString(JSONStringer stringer) throws JSONException
+    {
+        super.toJSONString(stringer);
+        stringer.key(Members.OUTER_HASH_EXPRESSIONS.name()).array();
+        for (AbstractExpression ae : m_outerHashExpressions) {
+            assert (ae instanceof JSONString);
+            stringer.value(ae);
+        }
+        stringer.endArray();
+        stringer.key(Members.INNER_HASH_EXPRESSIONS.name()).array();
+        for (AbstractExpression ae : m_innerHashExpressions) {
+            assert (ae instanceof JSONString);
+            stringer.value(ae);
+        }
+        stringer.endArray();
+    }
+
+    @Override
+    public void loadFromJSONObject(JSONObject jobj, Database db) throws JSONException
+    {
+        super.loadFromJSONObject(jobj, db);
+        m_outerHashExpressions.clear();
+        m_innerHashExpressions.clear();
+        AbstractExpression.loadFromJSONArrayChild(m_outerHashExpressions, jobj,
+                Members.OUTER_HASH_EXPRESSIONS.name(), null);
+        AbstractExpression.loadFromJSONArrayChild(m_innerHashExpressions, jobj,
+                Members.INNER_HASH_EXPRESSIONS.name(), null);
+    }
+
+    @Override
+    public void findAllExpressionsOfClass(Class< ? extends AbstractExpression> aeClass, Set<AbstractExpression> collected) {
+        super.findAllExpressionsOfClass(aeClass, collected);
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            collected.addAll(expr.findAllSubexpressionsOfClass(aeClass));
+        }
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            collected.addAll(expr.findAllSubexpressionsOfClass(aeClass));
+        }
+    }
+
+    @Override
+    protected String explainPlanForNode(String indent) {
+        StringBuilder sb = new StringBuilder("HASH " + m_joinType.toString() + " JOIN on ");
+        String sep = "";
+        for (int i = 0; i < m_outerHashExpressions.size(); i++) {
+            sb.append(sep).append(m_outerHashExpressions.get(i).explain("!?"))
+              .append(" = ").append(m_innerHashExpressions.get(i).explain("!?"));
+            sep = " AND ";
+        }
+        return sb.toString() + explainFilters(indent);
+    }
+
+}
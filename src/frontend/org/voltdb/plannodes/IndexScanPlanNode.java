@@ -634,7 +634,20 @@ public class IndexScanPlanNode extends AbstractScanPlanNode {
             // Using a factor of 0.1 per FULLY covered (equality-filtered) column,
             // the effective scale factor for a single PARTIALLY covered (range-filtered) column
             // comes to SQRT(0.1) which is just under 32% FTW!
-            tuplesToRead += (int) (tableEstimates.maxTuples * 0.90 * Math.pow(0.10, keyWidth));
+            final long distinctKeys = tableEstimates.getDistinctKeysForIndex(m_catalogIndex.getTypeName());
+            if (distinctKeys > 0) {
+                // With index statistics, replace the 0.1 factor of each equality-filtered column
+                // with its share of the measured key selectivity, assuming the distinct keys are
+                // spread evenly over the indexed columns. A range-filtered column keeps the heuristic.
+                final double perColumnSelectivity = Math.pow(distinctKeys, -1.0 / colCount);
+                final double equalityColumns = Math.floor(keyWidth);
+                tuplesToRead += (int) (tableEstimates.maxTuples * 0.90 *
+                        Math.pow(perColumnSelectivity, equalityColumns) *
+                        Math.pow(0.10, keyWidth - equalityColumns));
+            }
+            else {
+                tuplesToRead += (int) (tableEstimates.maxTuples * 0.90 * Math.pow(0.10, keyWidth));
+            }
             // "Covering cell" indexes get a special adjustment to make them look more favorable
             // than non-unique range filters in particular.
             // I can't quite justify that rationally, but it "seems reasonable". --paul
@@ -21,6 +21,8 @@ import org.voltdb.catalog.Cluster;
 import org.voltdb.catalog.Database;
 import org.voltdb.compiler.DatabaseEstimates;
 import org.voltdb.compiler.ScalarValueHints;
+import org.voltdb.planner.PlanStatistics;
+import org.voltdb.planner.StatsField;
 import org.voltdb.types.PlanNodeType;
 import org.voltdb.types.SortDirectionType;
 
@@ -50,6 +52,14 @@ public class NestLoopPlanNode extends AbstractJoinPlanNode {
                 m_children.get(1).m_estimatedProcessedTupleCount;
     }
 
+    @Override
+    protected void computeExtraStatistics(PlanStatistics stats) {
+        // The inner result is cached but every outer tuple is compared with all of it.
+        double pairs = (double) m_children.get(0).getEstimatedOutputTupleCount() *
+                m_children.get(1).getEstimatedOutputTupleCount();
+        stats.incrementStatistic(0, StatsField.TUPLE_PAIRS_COMPARED, (long) Math.min(pairs, Long.MAX_VALUE / 2));
+    }
+
     @Override
     protected String explainPlanForNode(String indent) {
         return "NEST LOOP " + this.m_joinType.toString() + " JOIN" +
@@ -19,7 +19,11 @@ package org.voltdb.plannodes;
 
 import java.util.List;
 
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
 import org.voltdb.catalog.Cluster;
+import org.voltdb.catalog.Column;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Table;
 import org.voltdb.compiler.DatabaseEstimates;
@@ -33,6 +37,22 @@ import org.voltdb.types.SortDirectionType;
 
 public class SeqScanPlanNode extends AbstractScanPlanNode {
 
+    public enum Members {
+        PARALLEL_SLICE_COLUMN,
+        SEMI_JOIN_SOURCE_COLUMN,
+        SEMI_JOIN_PROBE_COLUMN;
+    }
+
+    // For a replicated table scanned by every partition at once, the column whose
+    // hash decides which partition's slice each row is in, or null for a full scan.
+    private Column m_parallelSliceColumn = null;
+
+    // For the inner scan of a join, the column whose values the EE looks up in a filter
+    // of the join keys of the outer input, and the output column of the outer input
+    // holding those keys. Rows whose value is not among the keys can't join.
+    private Column m_semiJoinProbeColumn = null;
+    private int m_semiJoinSourceColumn = -1;
+
     public SeqScanPlanNode() {
         super();
     }
@@ -58,6 +78,38 @@ public class SeqScanPlanNode extends AbstractScanPlanNode {
         return PlanNodeType.SEQSCAN;
     }
 
+    /**
+     * Make each partition scan only the rows of this replicated table that the
+     * partition's hashinator range would hold if the table were partitioned on the column.
+     * @param column the column to slice the table by, or null to scan it all
+     */
+    public void setParallelSliceColumn(Column column) {
+        m_parallelSliceColumn = column;
+    }
+
+    public Column getParallelSliceColumn() {
+        return m_parallelSliceColumn;
+    }
+
+    /**
+     * Have the EE leave out the rows of this inner scan of a join whose value of a
+     * join key column is not among the values of the matching column of the outer input.
+     * @param sourceColumn the index of the key column in the outer input's output schema
+     * @param probeColumn the key column of the scanned table
+     */
+    public void setSemiJoinFilter(int sourceColumn, Column probeColumn) {
+        m_semiJoinSourceColumn = sourceColumn;
+        m_semiJoinProbeColumn = probeColumn;
+    }
+
+    public Column getSemiJoinProbeColumn() {
+        return m_semiJoinProbeColumn;
+    }
+
+    public int getSemiJoinSourceColumn() {
+        return m_semiJoinSourceColumn;
+    }
+
     /**
      * Accessor for flag marking the plan as guaranteeing an identical result/effect
      * when "replayed" against the same database state, such as during replication or CL recovery.
@@ -112,13 +164,56 @@ public class SeqScanPlanNode extends AbstractScanPlanNode {
         super.resolveColumnIndexes();
     }
 
+    @Override
+    public void toJSONString(JSONStringer stringer) throws JSONException {
+        super.toJSONString(stringer);
+        if (m_parallelSliceColumn != null) {
+            stringer.key(Members.PARALLEL_SLICE_COLUMN.name()).value(m_parallelSliceColumn.getIndex());
+        }
+        if (m_semiJoinProbeColumn != null) {
+            stringer.key(Members.SEMI_JOIN_SOURCE_COLUMN.name()).value(m_semiJoinSourceColumn);
+            stringer.key(Members.SEMI_JOIN_PROBE_COLUMN.name()).value(m_semiJoinProbeColumn.getIndex());
+        }
+    }
+
+    @Override
+    public void loadFromJSONObject(JSONObject jobj, Database db) throws JSONException {
+        super.loadFromJSONObject(jobj, db);
+        if (jobj.has(Members.PARALLEL_SLICE_COLUMN.name())) {
+            m_parallelSliceColumn = getColumn(db, jobj.getInt(Members.PARALLEL_SLICE_COLUMN.name()));
+        }
+        if (jobj.has(Members.SEMI_JOIN_PROBE_COLUMN.name())) {
+            m_semiJoinProbeColumn = getColumn(db, jobj.getInt(Members.SEMI_JOIN_PROBE_COLUMN.name()));
+            m_semiJoinSourceColumn = jobj.getInt(Members.SEMI_JOIN_SOURCE_COLUMN.name());
+        }
+    }
+
+    private Column getColumn(Database db, int index) {
+        for (Column column : db.getTables().get(m_targetTableName).getColumns()) {
+            if (column.getIndex() == index) {
+                return column;
+            }
+        }
+        return null;
+    }
+
     @Override
     protected String explainPlanForNode(String indent) {
         String tableName = m_targetTableName == null? m_targetTableAlias: m_targetTableName;
         if (m_targetTableAlias != null && !m_targetTableAlias.equals(tableName)) {
             tableName += " (" + m_targetTableAlias +")";
         }
-        return "SEQUENTIAL SCAN of \"" + tableName + "\"" + explainPredicate("\n" + indent + " filter by ");
+        String slice = "";
+        if (m_parallelSliceColumn != null) {
+            slice = " (the slice of each partition by " + m_parallelSliceColumn.getTypeName() + ")";
+        }
+        String semiJoin = "";
+        if (m_semiJoinProbeColumn != null) {
+            semiJoin = " (skipping rows whose " + m_semiJoinProbeColumn.getTypeName() +
+                    " matches no outer join key)";
+        }
+        return "SEQUENTIAL SCAN of \"" + tableName + "\"" + slice + semiJoin +
+                explainPredicate("\n" + indent + " filter by ");
     }
 
 }
@@ -32,7 +32,9 @@ import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONObject;
 import org.voltcore.common.Constants;
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.network.ReverseDNSCache;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.ThreadPlacement;
 import org.voltdb.DependencyPair;
 import org.voltdb.ParameterSet;
 import org.voltdb.ProcInfo;
@@ -440,6 +442,16 @@ public class SystemInformation extends VoltSystemProcedure
         if (hubAppender != null)
             port = hubAppender.getPort();
         vt.addRow(hostId, "LOG4JPORT", Integer.toString(port));
+        // Cores and sockets of threads pinned with the network/execution bindings
+        String placement = ThreadPlacement.getPlacementSummary();
+        if (placement != null) {
+            vt.addRow(hostId, "THREADPLACEMENT", placement);
+        }
+        // Reverse DNS cache hits and lookup latency
+        String reverseDNS = ReverseDNSCache.getLookupSummary();
+        if (reverseDNS != null) {
+            vt.addRow(hostId, "REVERSEDNS", reverseDNS);
+        }
         //Add license information
         if (MiscUtils.isPro()) {
             vt.addRow(hostId, "LICENSE", VoltDB.instance().getLicenseInformation());
@@ -0,0 +1,311 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+
+#include "catalog/cluster.h"
+#include "catalog/table.h"
+#include "common/serializeio.h"
+#include "plannodes/abstractplannode.h"
+#include "storage/persistenttable.h"
+#include "storage/temptable.h"
+#include "test_utils/plan_testing_baseclass.h"
+#include "test_utils/LoadTableFrom.hpp"
+
+#include <vector>
+
+namespace {
+/*
+ * Plan for this query:
+ *     select A, SUM(B), COUNT(*) from AAA group by A order by A;
+ * as a hash aggregate over a sequential scan.
+ */
+const char *plan_string =
+    "{\n"
+    "    \"EXECUTE_LIST\": [\n"
+    "        1,\n"
+    "        2,\n"
+    "        3,\n"
+    "        4\n"
+    "    ],\n"
+    "    \"PLAN_NODES\": [\n"
+    "        {\n"
+    "            \"CHILDREN_IDS\": [3],\n"
+    "            \"ID\": 4,\n"
+    "            \"PLAN_NODE_TYPE\": \"SEND\"\n"
+    "        },\n"
+    "        {\n"
+    "            \"CHILDREN_IDS\": [2],\n"
+    "            \"ID\": 3,\n"
+    "            \"PLAN_NODE_TYPE\": \"ORDERBY\",\n"
+    "            \"SORT_COLUMNS\": [{\n"
+    "                \"SORT_DIRECTION\": \"ASC\",\n"
+    "                \"SORT_EXPRESSION\": {\n"
+    "                    \"COLUMN_IDX\": 0,\n"
+    "                    \"TYPE\": 32,\n"
+    "                    \"VALUE_TYPE\": 5\n"
+    "                }\n"
+    "            }]\n"
+    "        },\n"
+    "        {\n"
+    "            \"AGGREGATE_COLUMNS\": [\n"
+    "                {\n"
+    "                    \"AGGREGATE_DISTINCT\": 0,\n"
+    "                    \"AGGREGATE_EXPRESSION\": {\n"
+    "                        \"COLUMN_IDX\": 1,\n"
+    "                        \"TYPE\": 32,\n"
+    "                        \"VALUE_TYPE\": 5\n"
+    "                    },\n"
+    "                    \"AGGREGATE_OUTPUT_COLUMN\": 1,\n"
+    "                    \"AGGREGATE_TYPE\": \"AGGREGATE_SUM\"\n"
+    "                },\n"
+    "                {\n"
+    "                    \"AGGREGATE_DISTINCT\": 0,\n"
+    "                    \"AGGREGATE_OUTPUT_COLUMN\": 2,\n"
+    "                    \"AGGREGATE_TYPE\": \"AGGREGATE_COUNT_STAR\"\n"
+    "                }\n"
+    "            ],\n"
+    "            \"CHILDREN_IDS\": [1],\n"
+    "            \"GROUPBY_EXPRESSIONS\": [{\n"
+    "                \"COLUMN_IDX\": 0,\n"
+    "                \"TYPE\": 32,\n"
+    "                \"VALUE_TYPE\": 5\n"
+    "            }],\n"
+    "            \"ID\": 2,\n"
+    "            \"OUTPUT_SCHEMA\": [\n"
+    "                {\n"
+    "                    \"COLUMN_NAME\": \"A\",\n"
+    "                    \"EXPRESSION\": {\n"
+    "                        \"COLUMN_IDX\": 0,\n"
+    "                        \"TYPE\": 32,\n"
+    "                        \"VALUE_TYPE\": 5\n"
+    "                    }\n"
+    "                },\n"
+    "                {\n"
+    "                    \"COLUMN_NAME\": \"C2\",\n"
+    "                    \"EXPRESSION\": {\n"
+    "                        \"COLUMN_IDX\": 1,\n"
+    "                        \"TYPE\": 32,\n"
+    "                        \"VALUE_TYPE\": 6\n"
+    "                    }\n"
+    "                },\n"
+    "                {\n"
+    "                    \"COLUMN_NAME\": \"C3\",\n"
+    "                    \"EXPRESSION\": {\n"
+    "                        \"COLUMN_IDX\": 2,\n"
+    "                        \"TYPE\": 32,\n"
+    "                        \"VALUE_TYPE\": 6\n"
+    "                    }\n"
+    "                }\n"
+    "            ],\n"
+    "            \"PLAN_NODE_TYPE\": \"HASHAGGREGATE\"\n"
+    "        },\n"
+    "        {\n"
+    "            \"ID\": 1,\n"
+    "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+    "            \"TARGET_TABLE_ALIAS\": \"AAA\",\n"
+    "            \"TARGET_TABLE_NAME\": \"AAA\"\n"
+    "        }\n"
+    "    ]\n"
+    "}\n";
+
+/**
+ * The catalog string below reflects this DDL.
+ *
+ * CREATE TABLE AAA (
+ *    A  INTEGER,
+ *    B  INTEGER
+ * );
+ */
+const char *catalog_string =
+    "add / clusters cluster\n"
+    "set /clusters#cluster localepoch 1199145600\n"
+    "set $PREV securityEnabled false\n"
+    "set $PREV httpdportno 0\n"
+    "set $PREV jsonapi false\n"
+    "set $PREV networkpartition false\n"
+    "set $PREV voltRoot \"\"\n"
+    "set $PREV exportOverflow \"\"\n"
+    "set $PREV drOverflow \"\"\n"
+    "set $PREV adminport 0\n"
+        "set $PREV adminstartup false\n"
+    "set $PREV heartbeatTimeout 0\n"
+    "set $PREV useddlschema false\n"
+    "set $PREV drConsumerEnabled false\n"
+    "set $PREV drProducerEnabled false\n"
+        "set $PREV drClusterId 0\n"
+    "set $PREV drProducerPort 0\n"
+    "set $PREV drMasterHost \"\"\n"
+    "set $PREV drFlushInterval 0\n"
+    "add /clusters#cluster databases database\n"
+    "set /clusters#cluster/databases#database schema \"eJxlikEKwDAQAu99zcaMpLkm9P9f6i7kUCiijCjdwjSDFZkNsYuTUgrd6aPqTJ56M7Cl/Vn1W0Ozr+sFDbMUTA==\"\n"
+    "set $PREV isActiveActiveDRed false\n"
+    "set $PREV securityprovider \"\"\n"
+    "add /clusters#cluster/databases#database groups administrator\n"
+    "set /clusters#cluster/databases#database/groups#administrator admin true\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database groups user\n"
+    "set /clusters#cluster/databases#database/groups#user admin false\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database tables AAA\n"
+    "set /clusters#cluster/databases#database/tables#AAA isreplicated true\n"
+    "set $PREV partitioncolumn null\n"
+    "set $PREV estimatedtuplecount 0\n"
+    "set $PREV materializer null\n"
+    "set $PREV signature \"AAA|ii\"\n"
+    "set $PREV tuplelimit 2147483647\n"
+    "set $PREV isDRed false\n"
+    "add /clusters#cluster/databases#database/tables#AAA columns A\n"
+    "set /clusters#cluster/databases#database/tables#AAA/columns#A index 0\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"A\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV matview null\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#AAA columns B\n"
+    "set /clusters#cluster/databases#database/tables#AAA/columns#B index 1\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"B\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV matview null\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n";
+
+const int NUM_GROUPS = 50000;
+const int ROWS_PER_GROUP = 2;
+// Spills past 2M, well short of what the groups take in memory.
+const int64_t TEMP_TABLE_MEMORY = 1024 * 1024 * 4;
+}
+
+/**
+ * Remembers the bytes the engine reports as spilled.
+ */
+class SpillingTopend : public EngineTestTopend {
+public:
+    SpillingTopend() : m_spilledBytes(0) { }
+
+    static SpillingTopend *newInstance() {
+        return new SpillingTopend();
+    }
+
+    void fragmentSpilledBytes(int32_t batchIndex, int64_t spilledBytes) {
+        m_spilledBytes += spilledBytes;
+    }
+
+    int64_t m_spilledBytes;
+};
+
+class AggregateHashExecutorTest : public PlanTestingBaseClass<SpillingTopend> {
+public:
+    AggregateHashExecutorTest()
+        : m_AAA(NULL),
+          m_AAA_id(-1) { }
+
+    ~AggregateHashExecutorTest() { }
+
+    /**
+     * AAA has ROWS_PER_GROUP rows for each A in 0 .. NUM_GROUPS - 1,
+     * with B = A, A + NUM_GROUPS, ...
+     */
+    void initialize(int64_t tempTableMemory) {
+        PlanTestingBaseClass<SpillingTopend>::initialize(catalog_string, 0, NULL,
+                                                         (uint32_t)time(NULL),
+                                                         tempTableMemory);
+        std::vector<int32_t> input_AAA;
+        for (int row = 0; row < NUM_GROUPS * ROWS_PER_GROUP; ++row) {
+            input_AAA.push_back(row % NUM_GROUPS);
+            input_AAA.push_back(row);
+        }
+        initializeTableOfInt("AAA", &m_AAA, &m_AAA_id, NUM_GROUPS * ROWS_PER_GROUP, 2, &input_AAA[0]);
+    }
+
+    void setSpillDirectory(const std::string &directory) {
+        char taskBuffer[256];
+        voltdb::ReferenceSerializeOutput taskOutput(taskBuffer, sizeof(taskBuffer));
+        taskOutput.writeTextString(directory);
+        voltdb::ReferenceSerializeInputBE taskInfo(taskBuffer, taskOutput.size());
+        m_engine->executeTask(voltdb::TASK_TYPE_SET_TEMP_TABLE_SPILL_DIRECTORY, taskInfo);
+    }
+
+    void validateGroups() {
+        std::vector<int32_t> output;
+        for (int group = 0; group < NUM_GROUPS; ++group) {
+            int32_t sum = 0;
+            for (int ii = 0; ii < ROWS_PER_GROUP; ++ii) {
+                sum += group + ii * NUM_GROUPS;
+            }
+            output.push_back(group);
+            output.push_back(sum);
+            output.push_back(ROWS_PER_GROUP);
+        }
+        validateResult(&output[0], NUM_GROUPS, 3);
+    }
+
+protected:
+    voltdb::PersistentTable *m_AAA;
+    int                      m_AAA_id;
+};
+
+/*
+ * Without a spill directory all the groups are aggregated in memory.
+ */
+TEST_F(AggregateHashExecutorTest, testInMemory) {
+    initialize(TEMP_TABLE_MEMORY);
+    ASSERT_EQ(ENGINE_ERRORCODE_SUCCESS, executeFragment(100, plan_string));
+    validateGroups();
+    EXPECT_EQ(0, m_topend->m_spilledBytes);
+}
+
+/*
+ * With one, the rows of the groups that don't fit go to partitions on
+ * disk and are aggregated a partition at a time, with the same results.
+ * The sort above the aggregate may spill as well.
+ */
+TEST_F(AggregateHashExecutorTest, testSpilledPartitions) {
+    initialize(TEMP_TABLE_MEMORY);
+    setSpillDirectory("/tmp");
+    ASSERT_EQ(ENGINE_ERRORCODE_SUCCESS, executeFragment(100, plan_string));
+    validateGroups();
+    EXPECT_TRUE(m_topend->m_spilledBytes > 0);
+}
+
+int main() {
+     return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,147 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+
+#include "common/Pool.hpp"
+#include "common/TupleSchemaBuilder.h"
+#include "common/ValueFactory.hpp"
+#include "common/tabletuple.h"
+#include "executors/AggregateHashTable.h"
+#include "test_utils/ScopedTupleSchema.hpp"
+
+#include <set>
+#include <vector>
+
+using namespace voltdb;
+
+class AggregateHashTableTest : public Test
+{
+public:
+    AggregateHashTableTest()
+        : m_schema(buildSchema())
+        , m_table(&m_pool)
+    {
+    }
+
+    // Group by A BIGINT, B INTEGER
+    static TupleSchema* buildSchema()
+    {
+        TupleSchemaBuilder builder(2);
+        builder.setColumnAtIndex(0, VALUE_TYPE_BIGINT);
+        builder.setColumnAtIndex(1, VALUE_TYPE_INTEGER);
+        return builder.build();
+    }
+
+    // Keys live in the pool, like the group by keys of the executor.
+    TableTuple key(int64_t a, int32_t b)
+    {
+        char* storage = reinterpret_cast<char*>(
+                m_pool.allocateZeroes(m_schema->tupleLength() + TUPLE_HEADER_SIZE));
+        TableTuple tuple(storage, m_schema.get());
+        tuple.setNValue(0, ValueFactory::getBigIntValue(a));
+        tuple.setNValue(1, ValueFactory::getIntegerValue(b));
+        return tuple;
+    }
+
+    // The table only keeps the row pointers, any distinct addresses will do.
+    AggregateRow* row(int ii)
+    {
+        return reinterpret_cast<AggregateRow*>(&m_rows[ii]);
+    }
+
+protected:
+    ScopedTupleSchema m_schema;
+    Pool m_pool;
+    AggregateHashTable m_table;
+    char m_rows[10000];
+};
+
+TEST_F(AggregateHashTableTest, GrowsFromNoEstimate)
+{
+    const int groups = 10000;
+    m_table.reset(0);
+    for (int ii = 0; ii < groups; ++ii) {
+        TableTuple k = key(ii, ii % 7);
+        EXPECT_EQ(NULL, m_table.find(k, AggregateHashTable::hash(k)));
+        m_table.insert(k, AggregateHashTable::hash(k), row(ii));
+    }
+    EXPECT_EQ(groups, m_table.size());
+    EXPECT_TRUE(m_table.slotCount() > m_table.size());
+
+    for (int ii = 0; ii < groups; ++ii) {
+        TableTuple k = key(ii, ii % 7);
+        EXPECT_EQ(row(ii), m_table.find(k, AggregateHashTable::hash(k)));
+    }
+    TableTuple missing = key(1, 2);
+    EXPECT_EQ(NULL, m_table.find(missing, AggregateHashTable::hash(missing)));
+
+    // Every group is in exactly one slot.
+    std::set<AggregateRow*> seen;
+    for (std::size_t slot = 0; slot < m_table.slotCount(); ++slot) {
+        if (m_table.rowAt(slot) != NULL) {
+            EXPECT_TRUE(seen.insert(m_table.rowAt(slot)).second);
+        }
+    }
+    EXPECT_EQ(groups, seen.size());
+}
+
+TEST_F(AggregateHashTableTest, PresizedFromEstimate)
+{
+    m_table.reset(5000);
+    TableTuple first = key(0, 0);
+    m_table.insert(first, AggregateHashTable::hash(first), row(0));
+    const std::size_t slots = m_table.slotCount();
+    EXPECT_TRUE(slots >= 10000);
+    for (int ii = 1; ii < 5000; ++ii) {
+        TableTuple k = key(ii, 0);
+        m_table.insert(k, AggregateHashTable::hash(k), row(ii));
+    }
+    // As many groups as estimated fit without growing.
+    EXPECT_EQ(slots, m_table.slotCount());
+    EXPECT_EQ(5000, m_table.size());
+
+    m_table.reset(5000);
+    EXPECT_EQ(0, m_table.size());
+    EXPECT_EQ(0, m_table.slotCount());
+    EXPECT_EQ(NULL, m_table.find(first, AggregateHashTable::hash(first)));
+}
+
+TEST_F(AggregateHashTableTest, CollidingHashes)
+{
+    // Keys with the same hash share a probe sequence and are told apart by value.
+    m_table.reset(0);
+    for (int ii = 0; ii < 100; ++ii) {
+        m_table.insert(key(ii, -ii), 42, row(ii));
+    }
+    for (int ii = 0; ii < 100; ++ii) {
+        EXPECT_EQ(row(ii), m_table.find(key(ii, -ii), 42));
+    }
+    EXPECT_EQ(NULL, m_table.find(key(0, 1), 42));
+    EXPECT_EQ(100, m_table.size());
+}
+
+int main()
+{
+    return TestSuite::globalInstance()->runAll();
+}
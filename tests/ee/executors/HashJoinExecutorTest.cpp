@@ -0,0 +1,373 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+
+#include "catalog/cluster.h"
+#include "catalog/table.h"
+#include "plannodes/abstractplannode.h"
+#include "storage/persistenttable.h"
+#include "storage/temptable.h"
+#include "test_utils/plan_testing_baseclass.h"
+#include "test_utils/LoadTableFrom.hpp"
+
+#include <string>
+#include <vector>
+
+namespace {
+
+/**
+ * Plan for
+ *     select * from OUTER_TABLE <joinType> join INNER_TABLE
+ *         on OUTER_TABLE.A = INNER_TABLE.A;
+ * as a hash join of two sequential scans.
+ */
+std::string hashJoinPlan(const std::string &joinType,
+                         const std::string &outerTable,
+                         const std::string &innerTable) {
+    return
+        "{\n"
+        "    \"EXECUTE_LIST\": [\n"
+        "        1,\n"
+        "        2,\n"
+        "        3,\n"
+        "        4\n"
+        "    ],\n"
+        "    \"PLAN_NODES\": [\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [3],\n"
+        "            \"ID\": 4,\n"
+        "            \"PLAN_NODE_TYPE\": \"SEND\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"CHILDREN_IDS\": [\n"
+        "                1,\n"
+        "                2\n"
+        "            ],\n"
+        "            \"ID\": 3,\n"
+        "            \"INNER_HASH_EXPRESSIONS\": [{\n"
+        "                \"COLUMN_IDX\": 0,\n"
+        "                \"TABLE_IDX\": 1,\n"
+        "                \"TYPE\": 32,\n"
+        "                \"VALUE_TYPE\": 5\n"
+        "            }],\n"
+        "            \"JOIN_TYPE\": \"" + joinType + "\",\n"
+        "            \"OUTER_HASH_EXPRESSIONS\": [{\n"
+        "                \"COLUMN_IDX\": 0,\n"
+        "                \"TYPE\": 32,\n"
+        "                \"VALUE_TYPE\": 5\n"
+        "            }],\n"
+        "            \"OUTPUT_SCHEMA\": [\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"B\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"A\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 0,\n"
+        "                        \"TABLE_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                },\n"
+        "                {\n"
+        "                    \"COLUMN_NAME\": \"B\",\n"
+        "                    \"EXPRESSION\": {\n"
+        "                        \"COLUMN_IDX\": 1,\n"
+        "                        \"TABLE_IDX\": 1,\n"
+        "                        \"TYPE\": 32,\n"
+        "                        \"VALUE_TYPE\": 5\n"
+        "                    }\n"
+        "                }\n"
+        "            ],\n"
+        "            \"PLAN_NODE_TYPE\": \"HASHJOIN\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"ID\": 1,\n"
+        "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+        "            \"TARGET_TABLE_ALIAS\": \"" + outerTable + "\",\n"
+        "            \"TARGET_TABLE_NAME\": \"" + outerTable + "\"\n"
+        "        },\n"
+        "        {\n"
+        "            \"ID\": 2,\n"
+        "            \"PLAN_NODE_TYPE\": \"SEQSCAN\",\n"
+        "            \"TARGET_TABLE_ALIAS\": \"" + innerTable + "\",\n"
+        "            \"TARGET_TABLE_NAME\": \"" + innerTable + "\"\n"
+        "        }\n"
+        "    ]\n"
+        "}\n";
+}
+
+/**
+ * The catalog string below reflects this DDL.
+ *
+ * CREATE TABLE AAA (
+ *    A  INTEGER,
+ *    B  INTEGER
+ * );
+ * CREATE TABLE BBB (
+ *    A  INTEGER,
+ *    B  INTEGER
+ * );
+ */
+const char *catalog_string =
+    "add / clusters cluster\n"
+    "set /clusters#cluster localepoch 1199145600\n"
+    "set $PREV securityEnabled false\n"
+    "set $PREV httpdportno 0\n"
+    "set $PREV jsonapi false\n"
+    "set $PREV networkpartition false\n"
+    "set $PREV voltRoot \"\"\n"
+    "set $PREV exportOverflow \"\"\n"
+    "set $PREV drOverflow \"\"\n"
+    "set $PREV adminport 0\n"
+        "set $PREV adminstartup false\n"
+    "set $PREV heartbeatTimeout 0\n"
+    "set $PREV useddlschema false\n"
+    "set $PREV drConsumerEnabled false\n"
+    "set $PREV drProducerEnabled false\n"
+        "set $PREV drClusterId 0\n"
+    "set $PREV drProducerPort 0\n"
+    "set $PREV drMasterHost \"\"\n"
+    "set $PREV drFlushInterval 0\n"
+    "add /clusters#cluster databases database\n"
+    "set /clusters#cluster/databases#database schema \"eJytjUEKgEAMA+++ppudoHvUxf9/yRY8COJNhoaUBEK3MM1gRWpDzPLpEoW2vJv6GZzVZsWW5iPVKw2NfsTO94qKP1aWC1vJKQE=\"\n"
+    "set $PREV isActiveActiveDRed false\n"
+    "set $PREV securityprovider \"\"\n"
+    "add /clusters#cluster/databases#database groups administrator\n"
+    "set /clusters#cluster/databases#database/groups#administrator admin true\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database groups user\n"
+    "set /clusters#cluster/databases#database/groups#user admin false\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database tables AAA\n"
+    "set /clusters#cluster/databases#database/tables#AAA isreplicated true\n"
+    "set $PREV partitioncolumn null\n"
+    "set $PREV estimatedtuplecount 0\n"
+    "set $PREV materializer null\n"
+    "set $PREV signature \"AAA|ii\"\n"
+    "set $PREV tuplelimit 2147483647\n"
+    "set $PREV isDRed false\n"
+    "add /clusters#cluster/databases#database/tables#AAA columns A\n"
+    "set /clusters#cluster/databases#database/tables#AAA/columns#A index 0\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"A\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV matview null\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#AAA columns B\n"
+    "set /clusters#cluster/databases#database/tables#AAA/columns#B index 1\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"B\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV matview null\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database tables BBB\n"
+    "set /clusters#cluster/databases#database/tables#BBB isreplicated true\n"
+    "set $PREV partitioncolumn null\n"
+    "set $PREV estimatedtuplecount 0\n"
+    "set $PREV materializer null\n"
+    "set $PREV signature \"BBB|ii\"\n"
+    "set $PREV tuplelimit 2147483647\n"
+    "set $PREV isDRed false\n"
+    "add /clusters#cluster/databases#database/tables#BBB columns A\n"
+    "set /clusters#cluster/databases#database/tables#BBB/columns#A index 0\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"A\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV matview null\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#BBB columns B\n"
+    "set /clusters#cluster/databases#database/tables#BBB/columns#B index 1\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"B\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV matview null\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV inbytes false\n";
+
+const int32_t NULL_INT = INT32_MIN;
+
+// Enough BBB rows that a hash table over them does not fit in SMALL_TEMP_TABLE_MEMORY.
+const int NUM_ROWS_BBB = 50000;
+// Room for one output block and a hash table over AAA, but not one over BBB.
+const int64_t SMALL_TEMP_TABLE_MEMORY = 1024 * 1024;
+}
+
+class HashJoinExecutorTest : public PlanTestingBaseClass<EngineTestTopend> {
+public:
+    HashJoinExecutorTest()
+        : m_AAA(NULL),
+          m_AAA_id(-1),
+          m_BBB(NULL),
+          m_BBB_id(-1) { }
+
+    ~HashJoinExecutorTest() { }
+
+    /**
+     * AAA is small and has a NULL key and a key with no match in BBB.
+     * BBB is big, has the keys 0 .. NUM_ROWS_BBB - 1 with B = 10 * A, and a NULL key.
+     */
+    void initialize(int64_t tempTableMemory) {
+        PlanTestingBaseClass<EngineTestTopend>::initialize(catalog_string, 0, NULL,
+                                                           (uint32_t)time(NULL),
+                                                           tempTableMemory);
+        const int NUM_ROWS_AAA = 5;
+        const int NUM_COLS     = 2;
+        int32_t input_AAA[NUM_ROWS_AAA][NUM_COLS] = {
+            {         1,  10},
+            {         2,  20},
+            {         3,  30},
+            {  NULL_INT,  40},
+            {        -5,  50}
+        };
+        initializeTableOfInt("AAA", &m_AAA, &m_AAA_id, NUM_ROWS_AAA, NUM_COLS, (int32_t *)input_AAA);
+
+        std::vector<int32_t> input_BBB;
+        for (int row = 0; row < NUM_ROWS_BBB; ++row) {
+            input_BBB.push_back(row);
+            input_BBB.push_back(10 * row);
+        }
+        input_BBB.push_back(NULL_INT);
+        input_BBB.push_back(-1);
+        initializeTableOfInt("BBB", &m_BBB, &m_BBB_id, NUM_ROWS_BBB + 1, NUM_COLS, &input_BBB[0]);
+    }
+
+protected:
+    voltdb::PersistentTable *m_AAA;
+    int                      m_AAA_id;
+    voltdb::PersistentTable *m_BBB;
+    int                      m_BBB_id;
+};
+
+/*
+ * Both inner joins only fit in the temp table memory when the hash table
+ * is built on AAA, whichever side of the join it is on. The NULL keys
+ * in either table don't match each other.
+ */
+TEST_F(HashJoinExecutorTest, testInnerJoinBuildsOnSmallerSide) {
+    initialize(SMALL_TEMP_TABLE_MEMORY);
+    const int NUM_ROWS = 3;
+    const int NUM_COLS = 4;
+    int32_t output[NUM_ROWS][NUM_COLS] = {
+        {  1,  10,  1,  10},
+        {  2,  20,  2,  20},
+        {  3,  30,  3,  30}
+    };
+
+    // Built on the outer table, probed in BBB order
+    ASSERT_EQ(ENGINE_ERRORCODE_SUCCESS,
+              executeFragment(100, hashJoinPlan("INNER", "AAA", "BBB").c_str()));
+    validateResult((int32_t *)output, NUM_ROWS, NUM_COLS);
+
+    // Built on the inner table, probed in BBB order
+    ASSERT_EQ(ENGINE_ERRORCODE_SUCCESS,
+              executeFragment(101, hashJoinPlan("INNER", "BBB", "AAA").c_str()));
+    validateResult((int32_t *)output, NUM_ROWS, NUM_COLS);
+}
+
+/*
+ * Outer tuples without a match, including the one with a NULL key,
+ * are padded with NULLs in the order of the outer table.
+ */
+TEST_F(HashJoinExecutorTest, testLeftJoinPadsUnmatchedOuterTuples) {
+    initialize(voltdb::DEFAULT_TEMP_TABLE_MEMORY);
+    const int NUM_ROWS = 5;
+    const int NUM_COLS = 4;
+    int32_t output[NUM_ROWS][NUM_COLS] = {
+        {         1,  10,         1,        10},
+        {         2,  20,         2,        20},
+        {         3,  30,         3,        30},
+        {  NULL_INT,  40,  NULL_INT,  NULL_INT},
+        {        -5,  50,  NULL_INT,  NULL_INT}
+    };
+    ASSERT_EQ(ENGINE_ERRORCODE_SUCCESS,
+              executeFragment(100, hashJoinPlan("LEFT", "AAA", "BBB").c_str()));
+    validateResult((int32_t *)output, NUM_ROWS, NUM_COLS);
+}
+
+/*
+ * A left join always builds on its inner table, so one over BBB runs
+ * out of temp table memory and fails the fragment. The engine can still
+ * run joins that fit afterwards.
+ */
+TEST_F(HashJoinExecutorTest, testHashTableOverTempTableLimit) {
+    initialize(SMALL_TEMP_TABLE_MEMORY);
+    ASSERT_EQ(ENGINE_ERRORCODE_ERROR,
+              executeFragment(100, hashJoinPlan("LEFT", "AAA", "BBB").c_str()));
+
+    const int NUM_ROWS = 3;
+    const int NUM_COLS = 4;
+    int32_t output[NUM_ROWS][NUM_COLS] = {
+        {  1,  10,  1,  10},
+        {  2,  20,  2,  20},
+        {  3,  30,  3,  30}
+    };
+    ASSERT_EQ(ENGINE_ERRORCODE_SUCCESS,
+              executeFragment(101, hashJoinPlan("INNER", "AAA", "BBB").c_str()));
+    validateResult((int32_t *)output, NUM_ROWS, NUM_COLS);
+}
+
+int main() {
+     return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,270 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+
+#include "common/SQLException.h"
+#include "common/TupleSchema.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "executors/orderbyexecutor.h"
+#include "expressions/tuplevalueexpression.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+#include "storage/temptable.h"
+#include "storage/TempTableLimits.h"
+
+#include "boost/scoped_ptr.hpp"
+
+#include <algorithm>
+#include <cstdlib>
+#include <vector>
+#include <string>
+
+namespace voltdb {
+
+// Two integer columns: the sort key and the position of the row in the input.
+static TempTable* createTempTable(const std::string& tableName, TempTableLimits* limits) {
+    std::vector<ValueType> all_types(2, VALUE_TYPE_INTEGER);
+    std::vector<bool> column_allow_null(2, true);
+    std::vector<int32_t> all_inline_lengths(2, NValue::getTupleStorageSize(VALUE_TYPE_INTEGER));
+    TupleSchema* schema = TupleSchema::createTupleSchemaForTest(all_types,
+                                                                all_inline_lengths,
+                                                                column_allow_null);
+    std::vector<std::string> names;
+    names.push_back("KEY");
+    names.push_back("POS");
+    return TableFactory::buildTempTable(tableName, schema, names, limits);
+}
+
+class OrderByExecutorTest : public Test
+{
+public:
+    OrderByExecutorTest()
+        : m_input(createTempTable("input", NULL))
+        , m_output(createTempTable("output", NULL))
+        , m_key(0, 0)
+        , m_dirs(1, SORT_DIRECTION_TYPE_ASC)
+        , m_comparer(m_keys, m_dirs)
+    {
+        m_keys.push_back(&m_key);
+    }
+
+    void addInput(const std::vector<int>& keys) {
+        TableTuple tuple(m_input->tempTuple());
+        for (size_t ii = 0; ii < keys.size(); ++ii) {
+            tuple.setNValue(0, ValueFactory::getIntegerValue(keys[ii]));
+            tuple.setNValue(1, ValueFactory::getIntegerValue(static_cast<int32_t>(ii)));
+            m_input->insertTempTuple(tuple);
+        }
+    }
+
+    // Checks that the output holds the keys sorted[offset, offset + limit),
+    // each on a distinct input row that really had that key.
+    void validateOutput(const std::vector<int>& keys, int limit, int offset) {
+        std::vector<int> sorted(keys);
+        std::sort(sorted.begin(), sorted.end());
+        const size_t first = std::min(static_cast<size_t>(offset), sorted.size());
+        const size_t last = limit < 0 ? sorted.size() :
+            std::min(first + static_cast<size_t>(limit), sorted.size());
+        ASSERT_EQ(last - first, m_output->activeTupleCount());
+
+        std::vector<bool> seen(keys.size(), false);
+        TableIterator iterator = m_output->iterator();
+        TableTuple tuple(m_output->schema());
+        size_t ii = first;
+        while (iterator.next(tuple)) {
+            const int key = ValuePeeker::peekInteger(tuple.getNValue(0));
+            const int pos = ValuePeeker::peekInteger(tuple.getNValue(1));
+            EXPECT_EQ(sorted[ii], key);
+            ASSERT_TRUE(pos >= 0 && pos < static_cast<int>(keys.size()));
+            EXPECT_EQ(keys[pos], key);
+            EXPECT_FALSE(seen[pos]);
+            seen[pos] = true;
+            ++ii;
+        }
+    }
+
+    void sortWithLimit(int limit, int offset, TempTableLimits* limits) {
+        OrderByExecutor::sortWithLimit(m_input.get(), m_output.get(), m_comparer,
+                                       limit, offset, limits, NULL);
+    }
+
+protected:
+    boost::scoped_ptr<TempTable> m_input;
+    boost::scoped_ptr<TempTable> m_output;
+    TupleValueExpression m_key;
+    std::vector<AbstractExpression*> m_keys;
+    std::vector<SortDirectionType> m_dirs;
+    AbstractExecutor::TupleComparer m_comparer;
+};
+
+TEST_F(OrderByExecutorTest, LimitOnly)
+{
+    std::vector<int> keys;
+    for (int ii = 0; ii < 1000; ++ii) {
+        keys.push_back(::rand() % 5000);
+    }
+    addInput(keys);
+    TempTableLimits limits;
+    sortWithLimit(10, -1, &limits);
+    validateOutput(keys, 10, 0);
+    // The heap is only as big as the limit, and is released when the sort is done
+    EXPECT_EQ(10 * sizeof(TableTuple), limits.getPeakMemoryInBytes());
+    EXPECT_EQ(0, limits.getAllocated());
+}
+
+TEST_F(OrderByExecutorTest, OffsetPastInput)
+{
+    std::vector<int> keys;
+    keys.push_back(4);
+    keys.push_back(2);
+    keys.push_back(0);
+    keys.push_back(3);
+    keys.push_back(1);
+    addInput(keys);
+
+    TempTableLimits limits;
+    sortWithLimit(3, 5, &limits);
+    validateOutput(keys, 3, 5);
+    EXPECT_EQ(0, m_output->activeTupleCount());
+
+    sortWithLimit(3, 10, &limits);
+    EXPECT_EQ(0, m_output->activeTupleCount());
+    // The heap never holds more than the input, however far the offset reaches
+    EXPECT_EQ(5 * sizeof(TableTuple), limits.getPeakMemoryInBytes());
+    EXPECT_EQ(0, limits.getAllocated());
+}
+
+TEST_F(OrderByExecutorTest, LimitPlusOffsetPastInput)
+{
+    std::vector<int> keys;
+    keys.push_back(4);
+    keys.push_back(2);
+    keys.push_back(0);
+    keys.push_back(3);
+    keys.push_back(1);
+    addInput(keys);
+
+    TempTableLimits limits;
+    sortWithLimit(4, 2, &limits);
+    validateOutput(keys, 4, 2);
+    EXPECT_EQ(3, m_output->activeTupleCount());
+    EXPECT_EQ(5 * sizeof(TableTuple), limits.getPeakMemoryInBytes());
+    EXPECT_EQ(0, limits.getAllocated());
+}
+
+TEST_F(OrderByExecutorTest, DuplicateKeys)
+{
+    std::vector<int> keys;
+    for (int ii = 0; ii < 300; ++ii) {
+        keys.push_back(ii % 3);
+    }
+    addInput(keys);
+
+    // The window starts and ends in the middle of runs of equal keys
+    sortWithLimit(150, 50, NULL);
+    validateOutput(keys, 150, 50);
+
+    m_output->deleteAllTempTuples();
+    sortWithLimit(1, 299, NULL);
+    validateOutput(keys, 1, 299);
+}
+
+TEST_F(OrderByExecutorTest, HeapOverLimit)
+{
+    std::vector<int> keys;
+    for (int ii = 0; ii < 100; ++ii) {
+        keys.push_back(ii);
+    }
+    addInput(keys);
+
+    // Room for a heap of 10 tuples but not of 20
+    TempTableLimits limits(15 * sizeof(TableTuple));
+    sortWithLimit(5, 5, &limits);
+    validateOutput(keys, 5, 5);
+    EXPECT_EQ(0, limits.getAllocated());
+
+    m_output->deleteAllTempTuples();
+    bool threw = false;
+    try {
+        sortWithLimit(10, 10, &limits);
+    }
+    catch (SQLException& sqle) {
+        threw = true;
+    }
+    EXPECT_TRUE(threw);
+    // The failed charge is given back when the sort unwinds
+    EXPECT_EQ(0, limits.getAllocated());
+    EXPECT_EQ(0, m_output->activeTupleCount());
+}
+
+TEST_F(OrderByExecutorTest, SortBySpilling)
+{
+    // The input is about 2.6M, past the 2M spill threshold, so some of it
+    // is read back from disk as the sort consumes it, and the sort itself
+    // goes through runs of a quarter of the threshold on disk.
+    TempTableLimits limits(1024 * 1024 * 4, -1, "/tmp");
+    boost::scoped_ptr<TempTable> input(createTempTable("input", &limits));
+    boost::scoped_ptr<TempTable> output(createTempTable("output", &limits));
+    const int tupleCount = 300000;
+    TableTuple tuple(input->tempTuple());
+    for (int ii = 0; ii < tupleCount; ++ii) {
+        tuple.setNValue(0, ValueFactory::getIntegerValue(::rand() % 1000));
+        tuple.setNValue(1, ValueFactory::getIntegerValue(ii));
+        input->insertTempTuple(tuple);
+    }
+    EXPECT_TRUE(limits.getSpilledBytes() > 0);
+    limits.resetSpilledBytes();
+
+    OrderByExecutor::sortBySpilling(input.get(), output.get(), m_comparer, &limits, NULL);
+    // Every input tuple went to disk in a sorted run
+    EXPECT_TRUE(limits.getSpilledBytes() >= static_cast<int64_t>(tupleCount) * tuple.tupleLength());
+
+    ASSERT_EQ(tupleCount, output->activeTupleCount());
+    std::vector<bool> seen(tupleCount, false);
+    TableIterator iterator = output->iteratorDeletingAsWeGo();
+    int lastKey = -1;
+    while (iterator.next(tuple)) {
+        const int key = ValuePeeker::peekInteger(tuple.getNValue(0));
+        const int pos = ValuePeeker::peekInteger(tuple.getNValue(1));
+        ASSERT_TRUE(key >= lastKey);
+        ASSERT_TRUE(pos >= 0 && pos < tupleCount);
+        ASSERT_FALSE(seen[pos]);
+        seen[pos] = true;
+        lastKey = key;
+    }
+
+    input->deleteAllTempTuples();
+    output->deleteAllTempTuples();
+    // Only the first block of each table is kept
+    EXPECT_EQ(2 * 128 * 1024, limits.getAllocated());
+}
+
+} // namespace voltdb
+
+int main()
+{
+    return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,126 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+#include "harness.h"
+
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/tabletuple.h"
+#include "executors/SemiJoinFilter.h"
+#include "storage/tablefactory.h"
+#include "storage/temptable.h"
+
+#include "boost/scoped_ptr.hpp"
+
+#include <string>
+#include <vector>
+
+using namespace voltdb;
+
+class SemiJoinFilterTest : public Test
+{
+public:
+    // The outer input of a join: ID BIGINT, KEY BIGINT
+    SemiJoinFilterTest()
+    {
+        std::vector<ValueType> types(2, VALUE_TYPE_BIGINT);
+        std::vector<int32_t> lengths(2, NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+        std::vector<bool> allowNull(2, true);
+        TupleSchema* schema = TupleSchema::createTupleSchemaForTest(types, lengths, allowNull);
+        std::vector<std::string> names;
+        names.push_back("ID");
+        names.push_back("KEY");
+        m_table.reset(TableFactory::buildTempTable("OUTER", schema, names, NULL));
+    }
+
+    void addRow(int64_t id, const NValue& key)
+    {
+        TableTuple tuple = m_table->tempTuple();
+        tuple.setNValue(0, ValueFactory::getBigIntValue(id));
+        tuple.setNValue(1, key);
+        m_table->insertTempTuple(tuple);
+    }
+
+protected:
+    boost::scoped_ptr<TempTable> m_table;
+    SemiJoinFilter m_filter;
+};
+
+TEST_F(SemiJoinFilterTest, EmptyInputMatchesNothing)
+{
+    m_filter.build(m_table.get(), 1);
+    EXPECT_EQ(0, m_filter.keyCount());
+    for (int64_t ii = 0; ii < 1000; ++ii) {
+        EXPECT_FALSE(m_filter.mayContain(ValueFactory::getBigIntValue(ii)));
+    }
+}
+
+TEST_F(SemiJoinFilterTest, KeysAreNeverLeftOut)
+{
+    // Every tenth value is a key, some of them twice
+    for (int64_t ii = 0; ii < 10000; ii += 10) {
+        addRow(ii, ValueFactory::getBigIntValue(ii));
+        if (ii % 100 == 0) {
+            addRow(ii + 1, ValueFactory::getBigIntValue(ii));
+        }
+    }
+    addRow(-1, NValue::getNullValue(VALUE_TYPE_BIGINT));
+    m_filter.build(m_table.get(), 1);
+    EXPECT_EQ(1100, m_filter.keyCount());
+
+    int falsePositives = 0;
+    for (int64_t ii = 0; ii < 10000; ++ii) {
+        bool mayContain = m_filter.mayContain(ValueFactory::getBigIntValue(ii));
+        if (ii % 10 == 0) {
+            EXPECT_TRUE(mayContain);
+        }
+        else if (mayContain) {
+            ++falsePositives;
+        }
+    }
+    // About one in 300 values that are not keys
+    EXPECT_TRUE(falsePositives < 9000 / 50);
+
+    // NULL never joins, though the outer input has a NULL key
+    EXPECT_FALSE(m_filter.mayContain(NValue::getNullValue(VALUE_TYPE_BIGINT)));
+}
+
+TEST_F(SemiJoinFilterTest, RebuildForgetsOldKeys)
+{
+    addRow(1, ValueFactory::getBigIntValue(12345));
+    m_filter.build(m_table.get(), 1);
+    EXPECT_TRUE(m_filter.mayContain(ValueFactory::getBigIntValue(12345)));
+
+    m_table->deleteAllTempTuples();
+    addRow(1, ValueFactory::getBigIntValue(67890));
+    m_filter.build(m_table.get(), 1);
+    EXPECT_EQ(1, m_filter.keyCount());
+    EXPECT_TRUE(m_filter.mayContain(ValueFactory::getBigIntValue(67890)));
+    EXPECT_FALSE(m_filter.mayContain(ValueFactory::getBigIntValue(12345)));
+}
+
+int main()
+{
+    return TestSuite::globalInstance()->runAll();
+}
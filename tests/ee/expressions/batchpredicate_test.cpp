@@ -0,0 +1,272 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+#include "common/tabletuple.h"
+#include "common/SQLException.h"
+#include "common/ThreadLocalPool.h"
+#include "common/TupleSchemaBuilder.h"
+#include "common/ValueFactory.hpp"
+#include "expressions/BatchPredicate.h"
+#include "expressions/comparisonexpression.h"
+#include "expressions/conjunctionexpression.h"
+#include "expressions/constantvalueexpression.h"
+#include "expressions/operatorexpression.h"
+#include "expressions/tuplevalueexpression.h"
+#include "test_utils/ScopedTupleSchema.hpp"
+
+#include "boost/scoped_ptr.hpp"
+
+#include <cstdlib>
+#include <vector>
+
+using namespace voltdb;
+
+/*
+ * Every batch predicate has to select exactly the tuples for which the
+ * expression it was compiled from evaluates to TRUE one tuple at a time.
+ */
+class BatchPredicateTest : public Test
+{
+public:
+    BatchPredicateTest()
+        : m_schema(buildSchema())
+    {
+    }
+
+    // A BIGINT, B INTEGER, C TINYINT, D DOUBLE
+    static TupleSchema* buildSchema()
+    {
+        TupleSchemaBuilder builder(4);
+        builder.setColumnAtIndex(0, VALUE_TYPE_BIGINT);
+        builder.setColumnAtIndex(1, VALUE_TYPE_INTEGER);
+        builder.setColumnAtIndex(2, VALUE_TYPE_TINYINT);
+        builder.setColumnAtIndex(3, VALUE_TYPE_DOUBLE);
+        return builder.build();
+    }
+
+    // Some NULL in each column, and small values so the comparisons go both ways.
+    void fillTuples(int count)
+    {
+        TableTuple tuple(m_schema.get());
+        m_data.assign(count * tuple.tupleLength(), 0);
+        m_tuples.clear();
+        for (int ii = 0; ii < count; ++ii) {
+            char* address = &m_data[ii * tuple.tupleLength()];
+            m_tuples.push_back(address);
+            tuple.move(address);
+            tuple.setNValue(0, ::rand() % 8 == 0 ? ValueFactory::getNullValue() :
+                            ValueFactory::getBigIntValue(::rand() % 40 - 20));
+            tuple.setNValue(1, ::rand() % 8 == 0 ? ValueFactory::getNullValue() :
+                            ValueFactory::getIntegerValue(::rand() % 40 - 20));
+            tuple.setNValue(2, ::rand() % 8 == 0 ? ValueFactory::getNullValue() :
+                            ValueFactory::getTinyIntValue(static_cast<int8_t>(::rand() % 40 - 20)));
+            tuple.setNValue(3, ValueFactory::getDoubleValue(0));
+        }
+    }
+
+    void setBigInt(int index, int64_t value)
+    {
+        TableTuple tuple(m_tuples[index], m_schema.get());
+        tuple.setNValue(0, ValueFactory::getBigIntValue(value));
+    }
+
+    // Compare the batch predicate with the expression over all the tuples,
+    // a batch at a time.
+    void checkAgrees(const boost::scoped_ptr<AbstractExpression>& predicate)
+    {
+        boost::scoped_ptr<BatchPredicate> batch(BatchPredicate::compile(predicate.get(), m_schema.get()));
+        ASSERT_TRUE(batch != NULL);
+        ASSERT_TRUE(batch->bind());
+        std::vector<char> selected(BatchPredicate::BATCH_SIZE);
+        int selectedCount = 0;
+        for (size_t first = 0; first < m_tuples.size(); first += BatchPredicate::BATCH_SIZE) {
+            int count = static_cast<int>(std::min(m_tuples.size() - first,
+                                                  static_cast<size_t>(BatchPredicate::BATCH_SIZE)));
+            ASSERT_TRUE(batch->evaluate(&m_tuples[first], count, &selected[0]));
+            for (int ii = 0; ii < count; ++ii) {
+                TableTuple tuple(m_tuples[first + ii], m_schema.get());
+                EXPECT_EQ(predicate->eval(&tuple, NULL).isTrue(), selected[ii] != 0);
+                selectedCount += selected[ii];
+            }
+        }
+        // Make sure the data exercised both outcomes
+        EXPECT_TRUE(selectedCount > 0);
+        EXPECT_TRUE(selectedCount < static_cast<int>(m_tuples.size()));
+    }
+
+    static AbstractExpression* column(int index, ValueType type)
+    {
+        TupleValueExpression* tve = new TupleValueExpression(0, index);
+        tve->setValueType(type);
+        return tve;
+    }
+
+    static AbstractExpression* bigint(int64_t value)
+    {
+        return new ConstantValueExpression(ValueFactory::getBigIntValue(value));
+    }
+
+protected:
+    ThreadLocalPool m_pool;
+    ScopedTupleSchema m_schema;
+    std::vector<char> m_data;
+    std::vector<char*> m_tuples;
+};
+
+TEST_F(BatchPredicateTest, Comparisons)
+{
+    // Several batches, the last one partly full
+    fillTuples(BatchPredicate::BATCH_SIZE * 2 + 100);
+
+    boost::scoped_ptr<AbstractExpression> predicate(
+            new ComparisonExpression<CmpGt>(EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+                                            column(0, VALUE_TYPE_BIGINT), column(1, VALUE_TYPE_INTEGER)));
+    checkAgrees(predicate);
+
+    predicate.reset(new ComparisonExpression<CmpLte>(EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO,
+                                                     column(2, VALUE_TYPE_TINYINT), bigint(3)));
+    checkAgrees(predicate);
+
+    predicate.reset(new ComparisonExpression<CmpNe>(EXPRESSION_TYPE_COMPARE_NOTEQUAL,
+                                                    column(1, VALUE_TYPE_INTEGER), bigint(0)));
+    checkAgrees(predicate);
+}
+
+TEST_F(BatchPredicateTest, ConjunctionsAndArithmetic)
+{
+    fillTuples(BatchPredicate::BATCH_SIZE * 3);
+
+    // A > 5 AND B < 10, where a NULL on either side is not TRUE
+    boost::scoped_ptr<AbstractExpression> predicate(
+            new ConjunctionExpression<ConjunctionAnd>(EXPRESSION_TYPE_CONJUNCTION_AND,
+                new ComparisonExpression<CmpGt>(EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+                                                column(0, VALUE_TYPE_BIGINT), bigint(5)),
+                new ComparisonExpression<CmpLt>(EXPRESSION_TYPE_COMPARE_LESSTHAN,
+                                                column(1, VALUE_TYPE_INTEGER), bigint(10))));
+    checkAgrees(predicate);
+
+    // A * 3 - B >= C OR B = 7, where NULL OR TRUE is TRUE
+    AbstractExpression* product = new OperatorExpression<OpMultiply>(EXPRESSION_TYPE_OPERATOR_MULTIPLY,
+            column(0, VALUE_TYPE_BIGINT), bigint(3));
+    product->setValueType(VALUE_TYPE_BIGINT);
+    AbstractExpression* difference = new OperatorExpression<OpMinus>(EXPRESSION_TYPE_OPERATOR_MINUS,
+            product, column(1, VALUE_TYPE_INTEGER));
+    difference->setValueType(VALUE_TYPE_BIGINT);
+    predicate.reset(new ConjunctionExpression<ConjunctionOr>(EXPRESSION_TYPE_CONJUNCTION_OR,
+            new ComparisonExpression<CmpGte>(EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO,
+                                             difference, column(2, VALUE_TYPE_TINYINT)),
+            new ComparisonExpression<CmpEq>(EXPRESSION_TYPE_COMPARE_EQUAL,
+                                            column(1, VALUE_TYPE_INTEGER), bigint(7))));
+    checkAgrees(predicate);
+}
+
+TEST_F(BatchPredicateTest, NullConstant)
+{
+    fillTuples(100);
+
+    // Nothing equals NULL, not even a NULL column
+    boost::scoped_ptr<AbstractExpression> predicate(
+            new ComparisonExpression<CmpEq>(EXPRESSION_TYPE_COMPARE_EQUAL,
+                                            column(0, VALUE_TYPE_BIGINT),
+                                            new ConstantValueExpression(ValueFactory::getNullValue())));
+    boost::scoped_ptr<BatchPredicate> batch(BatchPredicate::compile(predicate.get(), m_schema.get()));
+    ASSERT_TRUE(batch != NULL);
+    ASSERT_TRUE(batch->bind());
+    std::vector<char> selected(m_tuples.size(), 1);
+    ASSERT_TRUE(batch->evaluate(&m_tuples[0], static_cast<int>(m_tuples.size()), &selected[0]));
+    for (size_t ii = 0; ii < m_tuples.size(); ++ii) {
+        TableTuple tuple(m_tuples[ii], m_schema.get());
+        EXPECT_FALSE(predicate->eval(&tuple, NULL).isTrue());
+        EXPECT_EQ(0, selected[ii]);
+    }
+}
+
+TEST_F(BatchPredicateTest, OverflowFallsBack)
+{
+    fillTuples(BatchPredicate::BATCH_SIZE);
+    const int overflowing = 100;
+    setBigInt(overflowing, INT64_MAX / 2 + 1);
+
+    // A * 2 > 0
+    AbstractExpression* product = new OperatorExpression<OpMultiply>(EXPRESSION_TYPE_OPERATOR_MULTIPLY,
+            column(0, VALUE_TYPE_BIGINT), bigint(2));
+    product->setValueType(VALUE_TYPE_BIGINT);
+    boost::scoped_ptr<AbstractExpression> predicate(
+            new ComparisonExpression<CmpGt>(EXPRESSION_TYPE_COMPARE_GREATERTHAN, product, bigint(0)));
+    boost::scoped_ptr<BatchPredicate> batch(BatchPredicate::compile(predicate.get(), m_schema.get()));
+    ASSERT_TRUE(batch != NULL);
+    ASSERT_TRUE(batch->bind());
+
+    // The batch with the overflow has to be evaluated one tuple at a time...
+    std::vector<char> selected(BatchPredicate::BATCH_SIZE);
+    EXPECT_FALSE(batch->evaluate(&m_tuples[0], BatchPredicate::BATCH_SIZE, &selected[0]));
+
+    // ...which raises the usual error for that tuple and agrees on the others.
+    for (int ii = 0; ii < BatchPredicate::BATCH_SIZE; ++ii) {
+        TableTuple tuple(m_tuples[ii], m_schema.get());
+        bool threw = false;
+        try {
+            predicate->eval(&tuple, NULL);
+        }
+        catch (const SQLException&) {
+            threw = true;
+        }
+        EXPECT_EQ(ii == overflowing, threw);
+    }
+
+    // The batches before and after it are fine
+    EXPECT_TRUE(batch->evaluate(&m_tuples[0], overflowing, &selected[0]));
+    EXPECT_TRUE(batch->evaluate(&m_tuples[overflowing + 1],
+                                BatchPredicate::BATCH_SIZE - overflowing - 1, &selected[0]));
+    for (int ii = overflowing + 1; ii < BatchPredicate::BATCH_SIZE; ++ii) {
+        TableTuple tuple(m_tuples[ii], m_schema.get());
+        EXPECT_EQ(predicate->eval(&tuple, NULL).isTrue(), selected[ii - overflowing - 1] != 0);
+    }
+}
+
+TEST_F(BatchPredicateTest, NotBatched)
+{
+    // DOUBLE columns are not batched
+    boost::scoped_ptr<AbstractExpression> predicate(
+            new ComparisonExpression<CmpEq>(EXPRESSION_TYPE_COMPARE_EQUAL,
+                                            column(3, VALUE_TYPE_DOUBLE), bigint(1)));
+    EXPECT_TRUE(BatchPredicate::compile(predicate.get(), m_schema.get()) == NULL);
+
+    // Neither is NOT, which would make a NULL comparison TRUE
+    predicate.reset(new OperatorNotExpression(
+            new ComparisonExpression<CmpEq>(EXPRESSION_TYPE_COMPARE_EQUAL,
+                                            column(0, VALUE_TYPE_BIGINT), bigint(1))));
+    EXPECT_TRUE(BatchPredicate::compile(predicate.get(), m_schema.get()) == NULL);
+
+    // A DOUBLE constant compiles, but can't be bound
+    predicate.reset(new ComparisonExpression<CmpEq>(EXPRESSION_TYPE_COMPARE_EQUAL,
+            column(0, VALUE_TYPE_BIGINT), new ConstantValueExpression(ValueFactory::getDoubleValue(1.5))));
+    boost::scoped_ptr<BatchPredicate> batch(BatchPredicate::compile(predicate.get(), m_schema.get()));
+    ASSERT_TRUE(batch != NULL);
+    EXPECT_FALSE(batch->bind());
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
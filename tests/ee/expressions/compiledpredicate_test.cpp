@@ -0,0 +1,249 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+#include "common/tabletuple.h"
+#include "common/SQLException.h"
+#include "common/ThreadLocalPool.h"
+#include "common/TupleSchemaBuilder.h"
+#include "common/ValueFactory.hpp"
+#include "expressions/CompiledPredicate.h"
+#include "expressions/comparisonexpression.h"
+#include "expressions/conjunctionexpression.h"
+#include "expressions/constantvalueexpression.h"
+#include "expressions/operatorexpression.h"
+#include "expressions/parametervalueexpression.h"
+#include "expressions/tuplevalueexpression.h"
+#include "test_utils/ScopedTupleSchema.hpp"
+
+#include "boost/scoped_ptr.hpp"
+
+using namespace voltdb;
+
+/*
+ * Each predicate is built twice, once to be compiled and once to be
+ * evaluated as it is, and both have to agree on every tuple.
+ */
+class CompiledPredicateTest : public Test
+{
+public:
+    CompiledPredicateTest()
+        : m_schema(buildSchema())
+        , m_storage(m_schema.get())
+    {
+    }
+
+    // A BIGINT, B INTEGER, C DOUBLE
+    static TupleSchema* buildSchema()
+    {
+        TupleSchemaBuilder builder(3);
+        builder.setColumnAtIndex(0, VALUE_TYPE_BIGINT);
+        builder.setColumnAtIndex(1, VALUE_TYPE_INTEGER);
+        builder.setColumnAtIndex(2, VALUE_TYPE_DOUBLE);
+        return builder.build();
+    }
+
+    void setTuple(const NValue& a, const NValue& b, const NValue& c)
+    {
+        const TableTuple& tuple = m_storage.tuple();
+        tuple.setNValue(0, a);
+        tuple.setNValue(1, b);
+        tuple.setNValue(2, c);
+    }
+
+    // Evaluate both versions of the predicate against the current tuple
+    // and return the result of the compiled one.
+    NValue check(const boost::scoped_ptr<AbstractExpression>& compiled,
+                 const boost::scoped_ptr<AbstractExpression>& original)
+    {
+        const TableTuple& tuple = m_storage.tuple();
+        NValue expected = original->eval(&tuple, NULL);
+        NValue actual = compiled->eval(&tuple, NULL);
+        EXPECT_EQ(expected.isNull(), actual.isNull());
+        if ( ! expected.isNull()) {
+            EXPECT_EQ(expected.isTrue(), actual.isTrue());
+        }
+        return actual;
+    }
+
+    static AbstractExpression* column(int index, ValueType type)
+    {
+        TupleValueExpression* tve = new TupleValueExpression(0, index);
+        tve->setValueType(type);
+        return tve;
+    }
+
+    static AbstractExpression* bigint(int64_t value)
+    {
+        return new ConstantValueExpression(ValueFactory::getBigIntValue(value));
+    }
+
+    // A > 5 AND B < 10
+    static AbstractExpression* conjunction()
+    {
+        return new ConjunctionExpression<ConjunctionAnd>(EXPRESSION_TYPE_CONJUNCTION_AND,
+                new ComparisonExpression<CmpGt>(EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+                                                column(0, VALUE_TYPE_BIGINT), bigint(5)),
+                new ComparisonExpression<CmpLt>(EXPRESSION_TYPE_COMPARE_LESSTHAN,
+                                                column(1, VALUE_TYPE_INTEGER), bigint(10)));
+    }
+
+protected:
+    ThreadLocalPool m_pool;
+    ScopedTupleSchema m_schema;
+    StandAloneTupleStorage m_storage;
+};
+
+TEST_F(CompiledPredicateTest, Conjunction)
+{
+    boost::scoped_ptr<AbstractExpression> compiled(conjunction());
+    boost::scoped_ptr<AbstractExpression> original(conjunction());
+    ASSERT_TRUE(CompiledPredicate::compile(compiled));
+    // Compiling it again does nothing
+    ASSERT_FALSE(CompiledPredicate::compile(compiled));
+
+    setTuple(ValueFactory::getBigIntValue(6), ValueFactory::getIntegerValue(9), ValueFactory::getDoubleValue(0));
+    EXPECT_TRUE(check(compiled, original).isTrue());
+    setTuple(ValueFactory::getBigIntValue(5), ValueFactory::getIntegerValue(9), ValueFactory::getDoubleValue(0));
+    EXPECT_TRUE(check(compiled, original).isFalse());
+    setTuple(ValueFactory::getBigIntValue(6), ValueFactory::getIntegerValue(10), ValueFactory::getDoubleValue(0));
+    EXPECT_TRUE(check(compiled, original).isFalse());
+}
+
+TEST_F(CompiledPredicateTest, Nulls)
+{
+    boost::scoped_ptr<AbstractExpression> compiled(conjunction());
+    boost::scoped_ptr<AbstractExpression> original(conjunction());
+    ASSERT_TRUE(CompiledPredicate::compile(compiled));
+
+    // NULL AND TRUE is NULL
+    setTuple(ValueFactory::getNullValue(), ValueFactory::getIntegerValue(9), ValueFactory::getDoubleValue(0));
+    EXPECT_TRUE(check(compiled, original).isNull());
+    // NULL AND FALSE is FALSE
+    setTuple(ValueFactory::getNullValue(), ValueFactory::getIntegerValue(10), ValueFactory::getDoubleValue(0));
+    EXPECT_TRUE(check(compiled, original).isFalse());
+    // FALSE AND NULL is FALSE
+    setTuple(ValueFactory::getBigIntValue(1), ValueFactory::getNullValue(), ValueFactory::getDoubleValue(0));
+    EXPECT_TRUE(check(compiled, original).isFalse());
+
+    // A > 5 OR B < 10
+    compiled.reset(new ConjunctionExpression<ConjunctionOr>(EXPRESSION_TYPE_CONJUNCTION_OR,
+            new ComparisonExpression<CmpGt>(EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+                                            column(0, VALUE_TYPE_BIGINT), bigint(5)),
+            new ComparisonExpression<CmpLt>(EXPRESSION_TYPE_COMPARE_LESSTHAN,
+                                            column(1, VALUE_TYPE_INTEGER), bigint(10))));
+    original.reset(new ConjunctionExpression<ConjunctionOr>(EXPRESSION_TYPE_CONJUNCTION_OR,
+            new ComparisonExpression<CmpGt>(EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+                                            column(0, VALUE_TYPE_BIGINT), bigint(5)),
+            new ComparisonExpression<CmpLt>(EXPRESSION_TYPE_COMPARE_LESSTHAN,
+                                            column(1, VALUE_TYPE_INTEGER), bigint(10))));
+    ASSERT_TRUE(CompiledPredicate::compile(compiled));
+
+    // NULL OR TRUE is TRUE
+    setTuple(ValueFactory::getNullValue(), ValueFactory::getIntegerValue(9), ValueFactory::getDoubleValue(0));
+    EXPECT_TRUE(check(compiled, original).isTrue());
+    // NULL OR FALSE is NULL
+    setTuple(ValueFactory::getNullValue(), ValueFactory::getIntegerValue(10), ValueFactory::getDoubleValue(0));
+    EXPECT_TRUE(check(compiled, original).isNull());
+}
+
+TEST_F(CompiledPredicateTest, MixedArithmetic)
+{
+    // C + 0.5 >= A * 2
+    boost::scoped_ptr<AbstractExpression> compiled;
+    boost::scoped_ptr<AbstractExpression> original;
+    for (int ii = 0; ii < 2; ++ii) {
+        AbstractExpression* left = new OperatorExpression<OpPlus>(EXPRESSION_TYPE_OPERATOR_PLUS,
+                column(2, VALUE_TYPE_DOUBLE),
+                new ConstantValueExpression(ValueFactory::getDoubleValue(0.5)));
+        left->setValueType(VALUE_TYPE_DOUBLE);
+        AbstractExpression* right = new OperatorExpression<OpMultiply>(EXPRESSION_TYPE_OPERATOR_MULTIPLY,
+                column(0, VALUE_TYPE_BIGINT), bigint(2));
+        right->setValueType(VALUE_TYPE_BIGINT);
+        (ii == 0 ? compiled : original).reset(
+                new ComparisonExpression<CmpGte>(EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO, left, right));
+    }
+    ASSERT_TRUE(CompiledPredicate::compile(compiled));
+
+    setTuple(ValueFactory::getBigIntValue(3), ValueFactory::getIntegerValue(0), ValueFactory::getDoubleValue(5.5));
+    EXPECT_TRUE(check(compiled, original).isTrue());
+    setTuple(ValueFactory::getBigIntValue(3), ValueFactory::getIntegerValue(0), ValueFactory::getDoubleValue(5.4));
+    EXPECT_TRUE(check(compiled, original).isFalse());
+    setTuple(ValueFactory::getBigIntValue(3), ValueFactory::getIntegerValue(0), ValueFactory::getNullValue());
+    EXPECT_TRUE(check(compiled, original).isNull());
+
+    // An overflow is left to the original expression, which reports it
+    setTuple(ValueFactory::getBigIntValue(INT64_MAX / 2 + 1), ValueFactory::getIntegerValue(0),
+             ValueFactory::getDoubleValue(0));
+    bool threw = false;
+    try {
+        const TableTuple& tuple = m_storage.tuple();
+        compiled->eval(&tuple, NULL);
+    }
+    catch (const SQLException&) {
+        threw = true;
+    }
+    EXPECT_TRUE(threw);
+}
+
+TEST_F(CompiledPredicateTest, Parameters)
+{
+    NValue param = ValueFactory::getBigIntValue(7);
+    boost::scoped_ptr<AbstractExpression> compiled(
+            new ComparisonExpression<CmpEq>(EXPRESSION_TYPE_COMPARE_EQUAL,
+                                            column(0, VALUE_TYPE_BIGINT), new ParameterValueExpression(0, &param)));
+    boost::scoped_ptr<AbstractExpression> original(
+            new ComparisonExpression<CmpEq>(EXPRESSION_TYPE_COMPARE_EQUAL,
+                                            column(0, VALUE_TYPE_BIGINT), new ParameterValueExpression(0, &param)));
+    ASSERT_TRUE(CompiledPredicate::compile(compiled));
+    EXPECT_TRUE(compiled->hasParameter());
+
+    setTuple(ValueFactory::getBigIntValue(7), ValueFactory::getIntegerValue(0), ValueFactory::getDoubleValue(0));
+    EXPECT_TRUE(check(compiled, original).isTrue());
+    // The parameter is read for every tuple, not when the predicate was compiled
+    param = ValueFactory::getBigIntValue(8);
+    EXPECT_TRUE(check(compiled, original).isFalse());
+    param = ValueFactory::getNullValue();
+    EXPECT_TRUE(check(compiled, original).isNull());
+}
+
+TEST_F(CompiledPredicateTest, NotCompiled)
+{
+    // Strings are not compiled
+    boost::scoped_ptr<AbstractExpression> predicate(
+            new ComparisonExpression<CmpEq>(EXPRESSION_TYPE_COMPARE_EQUAL,
+                                            column(0, VALUE_TYPE_VARCHAR), bigint(1)));
+    EXPECT_FALSE(CompiledPredicate::compile(predicate));
+    EXPECT_EQ(EXPRESSION_TYPE_COMPARE_EQUAL, predicate->getExpressionType());
+
+    // Neither is anything that is not a comparison
+    predicate.reset(new OperatorIsNullExpression(column(0, VALUE_TYPE_BIGINT)));
+    EXPECT_FALSE(CompiledPredicate::compile(predicate));
+
+    predicate.reset();
+    EXPECT_FALSE(CompiledPredicate::compile(predicate));
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
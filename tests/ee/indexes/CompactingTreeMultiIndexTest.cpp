@@ -255,6 +255,78 @@ TEST_F(CompactingTreeMultiIndexTest, SimpleDeleteTuple) {
     delete tuple4;
 }
 
+// Estimate the distinct keys of a countable index with few keys, many keys,
+// and one key holding most of the entries.
+TEST_F(CompactingTreeMultiIndexTest, EstimateDistinctKeys) {
+    vector<int> columnIndices;
+    vector<ValueType> columnTypes;
+    vector<int32_t> columnLengths;
+    vector<bool> columnAllowNull;
+
+    columnIndices.push_back(0);
+    columnTypes.push_back(VALUE_TYPE_BIGINT);
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+    columnAllowNull.push_back(false);
+
+    TupleSchema *schema = TupleSchema::createTupleSchemaForTest(columnTypes,
+                                                         columnLengths,
+                                                         columnAllowNull);
+    TableIndexScheme scheme("test_index", BALANCED_TREE_INDEX,
+                            columnIndices, TableIndex::simplyIndexColumns(),
+                            false, true, schema);
+    TableIndexScheme uncountedScheme("test_index_uncounted", BALANCED_TREE_INDEX,
+                            columnIndices, TableIndex::simplyIndexColumns(),
+                            false, false, schema);
+
+    const int count = 20000;
+    TableTuple tuple(schema);
+    const int length = tuple.tupleLength();
+    char *data = new char[length * count];
+    memset(data, 0, length * count);
+
+    // every key spans a whole block of the index, which sampling the
+    // start of the index in key order would overestimate
+    TableIndex *index = TableIndexFactory::getInstance(scheme);
+    TableIndex *uncounted = TableIndexFactory::getInstance(uncountedScheme);
+    EXPECT_EQ(0, index->estimateDistinctKeys(1000));
+    for (int ii = 0; ii < count; ii++) {
+        tuple.move(data + length * ii);
+        tuple.setNValue(0, ValueFactory::getBigIntValue(ii % 10));
+        index->addEntry(&tuple, NULL);
+        uncounted->addEntry(&tuple, NULL);
+    }
+    EXPECT_EQ(10, index->estimateDistinctKeys(1000));
+    EXPECT_EQ(-1, uncounted->estimateDistinctKeys(1000));
+    delete index;
+    delete uncounted;
+
+    // one key per two entries, exact when every entry is sampled
+    index = TableIndexFactory::getInstance(scheme);
+    for (int ii = 0; ii < count; ii++) {
+        tuple.move(data + length * ii);
+        tuple.setNValue(0, ValueFactory::getBigIntValue(ii / 2));
+        index->addEntry(&tuple, NULL);
+    }
+    EXPECT_EQ(count / 2, index->estimateDistinctKeys(count));
+    int64_t estimate = index->estimateDistinctKeys(1000);
+    EXPECT_TRUE(estimate > count / 2 * 9 / 10 && estimate < count / 2 * 11 / 10);
+    delete index;
+
+    // nine out of ten entries share one key, the rest are all different
+    index = TableIndexFactory::getInstance(scheme);
+    for (int ii = 0; ii < count; ii++) {
+        tuple.move(data + length * ii);
+        tuple.setNValue(0, ValueFactory::getBigIntValue(ii < count * 9 / 10 ? -1 : ii));
+        index->addEntry(&tuple, NULL);
+    }
+    estimate = index->estimateDistinctKeys(1000);
+    EXPECT_TRUE(estimate > (count / 10 + 1) * 9 / 10 && estimate < (count / 10 + 1) * 11 / 10);
+    delete index;
+
+    delete[] data;
+    TupleSchema::freeTupleSchema(schema);
+}
+
 static int VERBOSE = 0;
 
 // create three types of index and test their performace of delete
@@ -22,11 +22,21 @@
  */
 
 #include "storage/TempTableLimits.h"
+#include "storage/SpillFile.h"
 
 #include "harness.h"
 #include "common/SQLException.h"
+#include "common/TupleSchema.h"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
 #include "logging/LogManager.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+#include "storage/temptable.h"
 
+#include "boost/scoped_ptr.hpp"
+
+#include <cstring>
 #include <sstream>
 
 using namespace voltdb;
@@ -125,6 +135,103 @@ TEST_F(TempTableLimitsTest, CheckLimitException)
     EXPECT_TRUE(threw);
 }
 
+TEST_F(TempTableLimitsTest, CheckSpilling)
+{
+    TempTableLimits noSpill(1024 * 10);
+    EXPECT_FALSE(noSpill.spillingEnabled());
+    EXPECT_FALSE(noSpill.shouldSpill(1024 * 20));
+
+    TempTableLimits dut(1024 * 10, -1, "/tmp"); // spill past half the 10K limit
+    EXPECT_TRUE(dut.spillingEnabled());
+    EXPECT_EQ(1024 * 5, dut.getSpillThreshold());
+    dut.increaseAllocated(1024 * 4);
+    EXPECT_FALSE(dut.shouldSpill(512));
+    EXPECT_TRUE(dut.shouldSpill(1024 * 2));
+
+    // Tuples written to runs sharing a file come back in order, run by run
+    const int tupleLength = 12;
+    SpillFile file(&dut);
+    SpilledTupleRun first(&file, tupleLength, 3);
+    SpilledTupleRun second(&file, tupleLength, 3);
+    char tuple[tupleLength];
+    for (int ii = 0; ii < 10; ++ii) {
+        ::memset(tuple, ii, tupleLength);
+        first.append(tuple);
+        ::memset(tuple, 100 + ii, tupleLength);
+        second.append(tuple);
+    }
+    first.finishWriting();
+    second.finishWriting();
+    EXPECT_EQ(10, first.tupleCount());
+    EXPECT_EQ(2 * 10 * tupleLength, dut.getSpilledBytes());
+    for (int ii = 0; ii < 10; ++ii) {
+        const char* data = second.next();
+        ASSERT_TRUE(data != NULL);
+        EXPECT_EQ(100 + ii, data[tupleLength - 1]);
+        data = first.next();
+        ASSERT_TRUE(data != NULL);
+        EXPECT_EQ(ii, data[0]);
+    }
+    EXPECT_TRUE(first.next() == NULL);
+    EXPECT_TRUE(second.next() == NULL);
+
+    dut.resetSpilledBytes();
+    EXPECT_EQ(0, dut.getSpilledBytes());
+}
+
+TEST_F(TempTableLimitsTest, CheckSpilledBlocksReadBack)
+{
+    // Temp table blocks are 128K, so the table is about 3M and spills past 2M.
+    const int64_t blockSize = 128 * 1024;
+    const int tupleCount = 180000;
+    TempTableLimits dut(1024 * 1024 * 4, -1, "/tmp");
+
+    std::vector<ValueType> columnTypes(2, VALUE_TYPE_BIGINT);
+    std::vector<int32_t> columnSizes(2, NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+    std::vector<bool> allowNull(2, true);
+    TupleSchema* schema = TupleSchema::createTupleSchemaForTest(columnTypes, columnSizes, allowNull);
+    std::vector<std::string> names;
+    names.push_back("A");
+    names.push_back("B");
+    boost::scoped_ptr<TempTable> table(TableFactory::buildTempTable("spilling", schema, names, &dut));
+
+    for (int pass = 0; pass < 2; ++pass) {
+        TableTuple tuple(table->tempTuple());
+        for (int ii = 0; ii < tupleCount; ++ii) {
+            tuple.setNValue(0, ValueFactory::getBigIntValue(ii));
+            tuple.setNValue(1, ValueFactory::getBigIntValue(ii * 2));
+            table->insertTempTuple(tuple);
+        }
+        EXPECT_TRUE(dut.getSpilledBytes() > 0);
+        EXPECT_TRUE(dut.getAllocated() <= dut.getSpillThreshold() + blockSize);
+        const int64_t allocatedBeforeScan = dut.getAllocated();
+        int64_t peakDuringScan = allocatedBeforeScan;
+
+        // A plain scan keeps the blocks it reads back, a deleting one frees them as it goes.
+        const bool deleteAsGo = pass == 1;
+        TableIterator iterator = deleteAsGo ? table->iteratorDeletingAsWeGo() : table->iterator();
+        int count = 0;
+        while (iterator.next(tuple)) {
+            ASSERT_EQ(count, ValuePeeker::peekBigInt(tuple.getNValue(0)));
+            ASSERT_EQ(count * 2, ValuePeeker::peekBigInt(tuple.getNValue(1)));
+            ++count;
+            peakDuringScan = std::max(peakDuringScan, dut.getAllocated());
+        }
+        EXPECT_EQ(tupleCount, count);
+        if (deleteAsGo) {
+            EXPECT_TRUE(peakDuringScan <= allocatedBeforeScan + blockSize);
+        }
+        else {
+            EXPECT_TRUE(dut.getAllocated() > dut.getSpillThreshold() + blockSize);
+        }
+
+        // Emptying the table gives back everything but the first block.
+        table->deleteAllTempTuples();
+        EXPECT_EQ(blockSize, dut.getAllocated());
+        dut.resetSpilledBytes();
+    }
+}
+
 int main()
 {
     return TestSuite::globalInstance()->runAll();
@@ -0,0 +1,137 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.messaging.TestMessaging.MsgTest;
+import org.voltcore.utils.PortGenerator;
+
+/**
+ * Starts two host messengers in this process and has sender threads on the first push
+ * messages to an equal number of mailboxes on the second as fast as they can. Run it with
+ * different link counts to see how cross host message throughput scales with the number
+ * of connections per host pair.
+ *
+ * Usage: HostMessengerLinkMicrobench [links per host] [senders] [seconds] [message size]
+ */
+public class HostMessengerLinkMicrobench {
+
+    public static void main(String[] args) throws Exception {
+        final int linksPerHost = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        final int senders = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        final int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        final int messageSize = args.length > 3 ? Integer.parseInt(args[3]) : 1024;
+
+        List<HostMessenger.Config> configs = HostMessenger.Config.generate(new PortGenerator(), 2);
+        for (HostMessenger.Config config : configs) {
+            config.factory = new TestMessaging.MessageFactory();
+            config.linksPerHost = linksPerHost;
+        }
+        final HostMessenger msg1 = new HostMessenger(configs.get(0), null);
+        msg1.start();
+        final HostMessenger msg2 = new HostMessenger(configs.get(1), null);
+        msg2.start();
+        msg1.waitForGroupJoin(2);
+        msg2.waitForGroupJoin(2);
+
+        // Give the joining host time to open its additional links
+        final ForeignHost fh = msg1.m_foreignHosts.values().iterator().next();
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (fh.getNetworks().size() < linksPerHost && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        MsgTest.initWithSize(messageSize);
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong received = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final long endMillis[] = new long[1];
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int ii = 0; ii < senders; ii++) {
+            final Mailbox source = msg1.createMailbox();
+            final Mailbox destination = msg2.createMailbox();
+            Thread sender = new Thread("Sender " + ii) {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    while (System.currentTimeMillis() < endMillis[0]) {
+                        // bound the amount in flight so the benchmark measures the links, not the heap
+                        while (sent.get() - received.get() > 10000L * senders) {
+                            Thread.yield();
+                        }
+                        MsgTest mt = new MsgTest();
+                        mt.setValues();
+                        source.send(destination.getHSId(), mt);
+                        sent.incrementAndGet();
+                    }
+                }
+            };
+            Thread receiver = new Thread("Receiver " + ii) {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    while (true) {
+                        if (destination.recvBlocking(100) != null) {
+                            received.incrementAndGet();
+                        } else if (System.currentTimeMillis() > endMillis[0]) {
+                            return;
+                        }
+                    }
+                }
+            };
+            sender.start();
+            receiver.start();
+            threads.add(sender);
+            threads.add(receiver);
+        }
+
+        final long startMillis = System.currentTimeMillis();
+        endMillis[0] = startMillis + seconds * 1000L;
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        final double elapsed = (System.currentTimeMillis() - startMillis) / 1000.0;
+        System.out.printf("%d links, %d senders, %d byte messages%n", fh.getNetworks().size(), senders, messageSize);
+        System.out.printf("%.0f messages/sec, %.1f MB/sec%n",
+                received.get() / elapsed, received.get() * (double)messageSize / elapsed / (1024 * 1024));
+
+        msg1.shutdown();
+        msg2.shutdown();
+        System.exit(0);
+    }
+}
@@ -24,8 +24,11 @@
 package org.voltcore.messaging;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -173,6 +176,207 @@ public class TestMessaging extends TestCase {
         msg2.shutdown();
     }
 
+    public void testCompressedMessages() throws Exception {
+        ForeignHost.COMPRESSION_THRESHOLD = 1024;
+        HostMessenger msg1 = null;
+        HostMessenger msg2 = null;
+        try {
+            List<HostMessenger.Config> configs = getConfigs(2);
+            msg1 = new HostMessenger(configs.get(0), null);
+            msg1.start();
+            msg2 = new HostMessenger(configs.get(1), null);
+            msg2.start();
+            msg1.waitForGroupJoin(2);
+            msg2.waitForGroupJoin(2);
+
+            Mailbox mb1 = msg1.createMailbox();
+            Mailbox mb2 = msg2.createMailbox();
+
+            // Small messages go out as is, large compressible ones are compressed
+            for (int size : new int[] { 16, 64 * 1024 }) {
+                MsgTest.globalValue = new byte[size];
+                for (int i = 0; i < size; i++) {
+                    MsgTest.globalValue[i] = (byte)(i % 16);
+                }
+                MsgTest mt = new MsgTest();
+                mt.setValues();
+                mb1.send(mb2.getHSId(), mt);
+                MsgTest mt2 = null;
+                while (mt2 == null) {
+                    mt2 = (MsgTest) mb2.recv();
+                }
+                assertTrue(mt2.verify());
+            }
+
+            long stats[] = msg1.m_foreignHosts.values().iterator().next().getCompressionStats(false);
+            // Agreement traffic on the link may be compressed as well
+            assertTrue(stats[0] >= 64 * 1024 + 1);
+            assertTrue(stats[1] > 0 && stats[1] < stats[0]);
+
+            // Interval stats only report what happened since the last interval
+            msg1.m_foreignHosts.values().iterator().next().getCompressionStats(true);
+            stats = msg1.m_foreignHosts.values().iterator().next().getCompressionStats(true);
+            assertEquals(0, stats[0]);
+            assertEquals(0, stats[1]);
+        } finally {
+            ForeignHost.COMPRESSION_THRESHOLD = 0;
+            if (msg1 != null) {
+                msg1.shutdown();
+            }
+            if (msg2 != null) {
+                msg2.shutdown();
+            }
+        }
+    }
+
+    public void testHeartbeatStats() throws Exception {
+        HostMessenger.PING_INTERVAL = 10;
+        HostMessenger msg1 = null;
+        HostMessenger msg2 = null;
+        try {
+            List<HostMessenger.Config> configs = getConfigs(2);
+            msg1 = new HostMessenger(configs.get(0), null);
+            msg1.start();
+            msg2 = new HostMessenger(configs.get(1), null);
+            msg2.start();
+            msg1.waitForGroupJoin(2);
+            msg2.waitForGroupJoin(2);
+
+            // Both sides ping each other and record the round trips
+            for (HostMessenger hm : new HostMessenger[] { msg1, msg2 }) {
+                long stats[] = null;
+                for (int ii = 0; ii < 500; ii++) {
+                    stats = hm.getHeartbeatStats(false).values().iterator().next().getSecond();
+                    if (stats[0] >= 5) {
+                        break;
+                    }
+                    Thread.sleep(10);
+                }
+                assertTrue(stats[0] >= 5);
+                assertTrue(stats[1] <= stats[2] && stats[2] <= stats[3]);
+                assertEquals(8, stats.length);
+            }
+
+            // Interval stats only report what happened since the last interval
+            final ForeignHost fh = msg1.m_foreignHosts.get(msg2.getHostId());
+            fh.getHeartbeatStats(true);
+            final long interval[] = fh.getHeartbeatStats(true);
+            final long total[] = fh.getHeartbeatStats(false);
+            assertTrue(interval[0] < total[0]);
+        } finally {
+            HostMessenger.PING_INTERVAL = 1000;
+            if (msg1 != null) {
+                msg1.shutdown();
+            }
+            if (msg2 != null) {
+                msg2.shutdown();
+            }
+        }
+    }
+
+    public void testMultipleLinks() throws Exception {
+        List<HostMessenger.Config> configs = getConfigs(2);
+        for (HostMessenger.Config config : configs) {
+            config.linksPerHost = 3;
+        }
+        HostMessenger msg1 = new HostMessenger(configs.get(0), null);
+        msg1.start();
+        HostMessenger msg2 = new HostMessenger(configs.get(1), null);
+        msg2.start();
+        try {
+            msg1.waitForGroupJoin(2);
+            msg2.waitForGroupJoin(2);
+
+            Mailbox source = msg1.createMailbox();
+            Mailbox destinations[] = new Mailbox[6];
+            long destinationHSIds[] = new long[destinations.length];
+            for (int ii = 0; ii < destinations.length; ii++) {
+                destinations[ii] = msg2.createMailbox();
+                destinationHSIds[ii] = destinations[ii].getHSId();
+            }
+
+            // Send while the additional links are still being attached, each site must see its messages in order
+            final int messages = 3000;
+            for (int seq = 0; seq < messages; seq++) {
+                MsgTest mt = new MsgTest();
+                mt.m_localValue = ByteBuffer.allocate(4).putInt(seq).array();
+                if (seq % 10 == 0) {
+                    source.send(destinationHSIds, mt);
+                } else {
+                    source.send(destinationHSIds[seq % destinationHSIds.length], mt);
+                }
+            }
+            for (int ii = 0; ii < destinations.length; ii++) {
+                int expected = 0;
+                int last = -1;
+                for (int seq = 0; seq < messages; seq++) {
+                    if (seq % 10 == 0 || seq % destinations.length == ii) {
+                        expected++;
+                    }
+                }
+                for (int received = 0; received < expected; received++) {
+                    MsgTest mt = null;
+                    while (mt == null) {
+                        mt = (MsgTest) destinations[ii].recv();
+                    }
+                    int seq = ByteBuffer.wrap(mt.m_localValue).getInt();
+                    assertTrue(seq > last);
+                    last = seq;
+                }
+            }
+
+            // Both ends end up reading and writing on all three links
+            for (HostMessenger hm : new HostMessenger[] { msg1, msg2 }) {
+                ForeignHost fh = hm.m_foreignHosts.values().iterator().next();
+                long deadline = System.currentTimeMillis() + 10000;
+                while (fh.getNetworks().size() < 3 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertEquals(3, fh.getNetworks().size());
+            }
+        } finally {
+            msg1.shutdown();
+            msg2.shutdown();
+        }
+    }
+
+    public void testLinkNotAcceptedByRemoteHost() throws Exception {
+        List<HostMessenger.Config> configs = getConfigs(2);
+        HostMessenger msg1 = new HostMessenger(configs.get(0), null);
+        msg1.start();
+        HostMessenger msg2 = new HostMessenger(configs.get(1), null);
+        msg2.start();
+        ServerSocketChannel nowhere = ServerSocketChannel.open();
+        try {
+            msg1.waitForGroupJoin(2);
+            msg2.waitForGroupJoin(2);
+
+            // A link the remote host never hears of, as if it had rejected it
+            nowhere.bind(new InetSocketAddress("localhost", 0));
+            SocketChannel socket = SocketChannel.open(nowhere.getLocalAddress());
+            ForeignHost fh = msg1.m_foreignHosts.values().iterator().next();
+            fh.attachLink(1, 2, socket);
+
+            // Messages for the link's stripe keep going over the first link
+            Mailbox source = msg1.createMailbox();
+            Mailbox destinations[] = new Mailbox[4];
+            for (int ii = 0; ii < destinations.length; ii++) {
+                destinations[ii] = msg2.createMailbox();
+                MsgTest mt = new MsgTest();
+                mt.m_localValue = new byte[] { (byte) ii };
+                source.send(destinations[ii].getHSId(), mt);
+            }
+            for (Mailbox destination : destinations) {
+                assertNotNull(destination.recvBlocking(10000));
+            }
+            assertEquals(1, fh.getNetworks().size());
+        } finally {
+            nowhere.close();
+            msg1.shutdown();
+            msg2.shutdown();
+        }
+    }
+
     public void testMultiMailbox() throws Exception {
         List<HostMessenger.Config> configs = getConfigs(3);
         HostMessenger msg1 = new HostMessenger(configs.get(0), null);
@@ -0,0 +1,178 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.network;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.voltcore.utils.DeferredSerialization;
+
+/**
+ * Drives many producer threads enqueueing responses into a single NIOWriteStream
+ * while one thread plays the network thread, serializing and draining to a channel
+ * that accepts everything. Reports enqueue throughput so changes to the enqueue path
+ * can be compared.
+ *
+ * Usage: NIOWriteStreamEnqueueMicrobench [producers] [messages per producer] [message size]
+ */
+public class NIOWriteStreamEnqueueMicrobench {
+
+    private static class SinkChannel implements GatheringByteChannel {
+        long m_bytes = 0;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int remaining = src.remaining();
+            src.position(src.limit());
+            m_bytes += remaining;
+            return remaining;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            long written = 0;
+            for (int ii = offset; ii < offset + length; ii++) {
+                written += write(srcs[ii]);
+            }
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    private static class BenchPort extends VoltPort {
+        BenchPort(NetworkDBBPool pool) throws IOException {
+            super(null, null, new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 21212), pool);
+        }
+
+        @Override
+        public void setInterests(int opsToAdd, int opsToRemove) {}
+    }
+
+    private static class Response implements DeferredSerialization {
+        private final int m_size;
+
+        Response(int size) {
+            m_size = size;
+        }
+
+        @Override
+        public void serialize(ByteBuffer buf) {
+            buf.putInt(m_size - 4);
+            while (buf.hasRemaining()) {
+                buf.put((byte)0);
+            }
+        }
+
+        @Override
+        public void cancel() {}
+
+        @Override
+        public int getSerializedSize() {
+            return m_size;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int producers = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        final int messagesPerProducer = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        final int messageSize = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        final NetworkDBBPool pool = new NetworkDBBPool();
+        final NIOWriteStream stream = new NIOWriteStream(new BenchPort(pool));
+        final SinkChannel channel = new SinkChannel();
+        final AtomicBoolean producing = new AtomicBoolean(true);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread network = new Thread("Network") {
+            @Override
+            public void run() {
+                try {
+                    start.await();
+                    while (producing.get() || !stream.isEmpty()) {
+                        stream.swapAndSerializeQueuedWrites(pool);
+                        stream.drainTo(channel);
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        network.start();
+
+        ArrayList<Thread> threads = new ArrayList<Thread>();
+        for (int ii = 0; ii < producers; ii++) {
+            Thread t = new Thread("Producer " + ii) {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int jj = 0; jj < messagesPerProducer; jj++) {
+                        stream.enqueue(new Response(messageSize));
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+
+        final long startNanos = System.nanoTime();
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        final long enqueueNanos = System.nanoTime() - startNanos;
+        producing.set(false);
+        network.join();
+        final long drainNanos = System.nanoTime() - startNanos;
+        stream.shutdown();
+        pool.clear();
+
+        final long messages = (long)producers * messagesPerProducer;
+        System.out.printf("%d producers, %d messages of %d bytes%n", producers, messages, messageSize);
+        System.out.printf("Enqueue: %.0f messages/sec%n", messages / (enqueueNanos / 1000000000.0));
+        System.out.printf("Enqueue and drain: %.0f messages/sec, %d bytes drained%n",
+                messages / (drainNanos / 1000000000.0), channel.m_bytes);
+    }
+}
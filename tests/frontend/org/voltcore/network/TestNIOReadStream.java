@@ -53,6 +53,7 @@ package org.voltcore.network;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.ByteBuffer;
 import org.voltcore.network.NIOReadStream;
+import org.voltcore.utils.DBBPool.BBContainer;
 import junit.framework.TestCase;
 import java.io.IOException;
 
@@ -212,6 +213,127 @@ public class TestNIOReadStream extends TestCase {
         assertEquals(-1, stream.fillFrom(channel, 42));
     }*/
 
+    public void testAdaptiveReadBufferSize() throws IOException {
+        NetworkDBBPool smallPool = new NetworkDBBPool(64, 16);
+        try {
+            // a read larger than the regular buffers sizes the next buffer to fit it
+            channel.nextRead = new byte[200];
+            assertEquals(200, stream.read(channel, Integer.MAX_VALUE, smallPool));
+            assertEquals(200, stream.dataAvailable());
+            assertEquals(256, stream.getReadBufferSize());
+            stream.getBytes(new byte[200]);
+
+            // and it takes several small reads to shrink each step back down
+            int expected[] = new int[] { 128, 64, 32, 0 };
+            for (int size : expected) {
+                int previous = stream.getReadBufferSize();
+                int reads = 0;
+                while (stream.getReadBufferSize() == previous) {
+                    channel.nextRead = new byte[4];
+                    assertEquals(4, stream.read(channel, Integer.MAX_VALUE, smallPool));
+                    stream.getBytes(new byte[4]);
+                    reads++;
+                }
+                assertEquals(size, stream.getReadBufferSize());
+                assertTrue(reads > 1);
+            }
+        } finally {
+            stream.shutdown();
+            smallPool.clear();
+        }
+    }
+
+    public void testReadBufferSizeIgnoresBufferedBytes() throws IOException {
+        NetworkDBBPool smallPool = new NetworkDBBPool(64, 16);
+        try {
+            channel.nextRead = new byte[200];
+            assertEquals(200, stream.read(channel, Integer.MAX_VALUE, smallPool));
+            assertEquals(256, stream.getReadBufferSize());
+
+            // small reads of an incomplete message fill up the large buffer that is kept
+            // between reads, but only the size of each read counts
+            for (int ii = 0; ii < 64; ii++) {
+                channel.nextRead = new byte[4];
+                assertEquals(4, stream.read(channel, Integer.MAX_VALUE, smallPool));
+                assertTrue(stream.getReadBufferSize() <= 256);
+            }
+            assertEquals(200 + 64 * 4, stream.dataAvailable());
+            assertEquals(0, stream.getReadBufferSize());
+        } finally {
+            stream.shutdown();
+            smallPool.clear();
+        }
+    }
+
+    public void testReleaseLargeBuffersWhenIdle() throws IOException {
+        NetworkDBBPool smallPool = new NetworkDBBPool(64, 16);
+        try {
+            channel.nextRead = new byte[200];
+            assertEquals(200, stream.read(channel, Integer.MAX_VALUE, smallPool));
+            stream.getBytes(new byte[200]);
+            assertEquals(256, stream.getReadBufferSize());
+
+            // the next read goes into a large buffer, and is the start of a message that is
+            // still incomplete
+            channel.nextRead = new byte[] { 1, 2, 3, 4, 5, 6 };
+            assertEquals(6, stream.read(channel, Integer.MAX_VALUE, smallPool));
+            assertEquals(256, stream.getBufferedCapacity());
+            stream.getBytes(new byte[2]);
+
+            // while waiting for the rest the unread bytes move to a regular buffer
+            stream.releaseLargeBuffers(smallPool);
+            assertEquals(16, stream.getBufferedCapacity());
+            assertEquals(4, stream.dataAvailable());
+
+            channel.nextRead = new byte[] { 7, 8 };
+            assertEquals(2, stream.read(channel, Integer.MAX_VALUE, smallPool));
+            byte[] rest = new byte[6];
+            stream.getBytes(rest);
+            for (int ii = 0; ii < rest.length; ii++) {
+                assertEquals(ii + 3, rest[ii]);
+            }
+            assertEquals(0, stream.getBufferedCapacity());
+
+            // more than fits in a regular buffer stays where it is
+            channel.nextRead = new byte[40];
+            assertEquals(40, stream.read(channel, Integer.MAX_VALUE, smallPool));
+            int capacity = stream.getBufferedCapacity();
+            stream.releaseLargeBuffers(smallPool);
+            assertEquals(capacity, stream.getBufferedCapacity());
+            assertEquals(40, stream.dataAvailable());
+        } finally {
+            stream.shutdown();
+            smallPool.clear();
+        }
+    }
+
+    public void testLargeBufferBudget() {
+        NetworkDBBPool smallPool = new NetworkDBBPool(64, 16);
+        long savedBudget = NetworkDBBPool.LARGE_BUDGET;
+        long allocated = NetworkDBBPool.getLargeBytesAllocated();
+        try {
+            BBContainer large = smallPool.acquire(100);
+            assertEquals(128, large.b().capacity());
+            assertEquals(allocated + 128, NetworkDBBPool.getLargeBytesAllocated());
+
+            // with the budget used up callers get a regular buffer
+            NetworkDBBPool.LARGE_BUDGET = NetworkDBBPool.getLargeBytesAllocated();
+            BBContainer regular = smallPool.acquire(100);
+            assertEquals(16, regular.b().capacity());
+            regular.discard();
+
+            // returned large buffers are reused and freed with the pool
+            large.discard();
+            large = smallPool.acquire(128);
+            assertEquals(128, large.b().capacity());
+            large.discard();
+            smallPool.clear();
+            assertEquals(allocated, NetworkDBBPool.getLargeBytesAllocated());
+        } finally {
+            NetworkDBBPool.LARGE_BUDGET = savedBudget;
+        }
+    }
+
     private void assertStreamIsEmpty() throws IOException {
         assertEquals(0, stream.read(channel, Integer.MAX_VALUE, pool));
         assertEquals(0, stream.dataAvailable());
@@ -50,6 +50,7 @@
 
 package org.voltcore.network;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -126,6 +127,10 @@ public class TestNIOWriteStream extends TestCase {
         public static int SINK = 0;     // accept all data
         public static int FULL = 1;     // accept no data
         public static int PARTIAL = 2;  // accept some data
+        public static int GATHER = 3;   // accept up to gatherBudget bytes across all buffers
+
+        public int gatherBudget = Integer.MAX_VALUE;
+        public final ByteArrayOutputStream gathered = new ByteArrayOutputStream();
 
         @Override
         public int write(ByteBuffer src) throws IOException {
@@ -163,31 +168,7 @@ public class TestNIOWriteStream extends TestCase {
 
         @Override
         public long write(ByteBuffer src[]) throws IOException {
-            if (!m_open) throw new IOException();
-            if (closeAfter > 0 && ++writeCount >= closeAfter) {
-                m_open = false;
-            }
-
-            if (m_behavior == SINK) {
-                int remaining = src[0].remaining();
-                src[0].position(src[0].limit());
-                return remaining;
-            }
-            else if (m_behavior == FULL) {
-                return 0;
-            }
-            else if (m_behavior == PARTIAL) {
-                if (wrotePartial) {
-                    return 0;
-                } else {
-                    wrotePartial = true;
-                }
-                ByteBuffer copy = ByteBuffer.allocate(src[0].remaining());
-                src[0].get(copy.array(), 0, src[0].remaining()/2);
-                return src[0].remaining();
-            }
-            assert(false);
-            return -1;
+            return write(src, 0, src.length);
         }
 
         @Override
@@ -203,8 +184,19 @@ public class TestNIOWriteStream extends TestCase {
         @Override
         public long write(ByteBuffer[] srcs, int offset, int length)
                 throws IOException {
-            // TODO Auto-generated method stub
-            return 0;
+            if (m_behavior != GATHER) {
+                return write(srcs[offset]);
+            }
+            if (!m_open) throw new IOException();
+            long written = 0;
+            for (int ii = offset; ii < offset + length && gatherBudget > 0; ii++) {
+                while (srcs[ii].hasRemaining() && gatherBudget > 0) {
+                    gathered.write(srcs[ii].get());
+                    gatherBudget--;
+                    written++;
+                }
+            }
+            return written;
         }
     }
 
@@ -258,6 +250,44 @@ public class TestNIOWriteStream extends TestCase {
         wstream.shutdown();
     }
 
+    public void testBackpressureKeptForQueuedWrites() throws IOException {
+        MockChannel channel = new MockChannel(MockChannel.SINK, 0);
+        MockPort port = new MockPort();
+        final int[] transitions = new int[2];
+        NIOWriteStream wstream = new NIOWriteStream(port,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        transitions[0]++;
+                    }
+                },
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        transitions[1]++;
+                    }
+                }, null);
+
+        //More writes queued than the limit, none serialized yet
+        for (int ii = 0; ii < 101; ii++) {
+            wstream.enqueue(ByteBuffer.wrap(new byte[] { 5 }));
+        }
+        assertTrue(wstream.hadBackPressure());
+        assertEquals(1, transitions[1]);
+
+        //Draining with no serialized buffers must not end backpressure while the writes are queued
+        assertEquals(0, wstream.drainTo(channel));
+        assertTrue(wstream.hadBackPressure());
+        assertEquals(0, transitions[0]);
+
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(101, wstream.drainTo(channel));
+        assertFalse(wstream.hadBackPressure());
+        assertEquals(1, transitions[0]);
+        assertEquals(1, transitions[1]);
+        wstream.shutdown();
+    }
+
     public void testPartial() throws IOException {
         MockChannel channel = new MockChannel(MockChannel.PARTIAL, 0);
         MockPort port = new MockPort();
@@ -452,4 +482,65 @@ public class TestNIOWriteStream extends TestCase {
         assertEquals(0, queue.get());
     }
 
+    public void testGatheringWrite() throws IOException {
+        MockChannel channel = new MockChannel(MockChannel.GATHER, 0);
+        MockPort port = new MockPort();
+        NIOWriteStream wstream = new NIOWriteStream(port);
+
+        //Spans three 4 byte pool buffers
+        ByteBuffer tmp = ByteBuffer.allocate(10);
+        for (int ii = 0; ii < 10; ii++) {
+            tmp.put((byte)ii);
+        }
+        tmp.flip();
+        wstream.enqueue(tmp);
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(10, wstream.drainTo(channel));
+        assertTrue(wstream.isEmpty());
+
+        //One call to write everything, one buffer per message written
+        long[] written = wstream.getBytesAndMessagesWritten(false);
+        assertEquals(10, written[0]);
+        assertEquals(3, written[1]);
+        assertEquals(1, written[2]);
+        wstream.shutdown();
+    }
+
+    public void testPartialGatheringWrite() throws IOException {
+        MockChannel channel = new MockChannel(MockChannel.GATHER, 0);
+        channel.gatherBudget = 6;
+        MockPort port = new MockPort();
+        NIOWriteStream wstream = new NIOWriteStream(port);
+
+        ByteBuffer tmp = ByteBuffer.allocate(10);
+        for (int ii = 0; ii < 10; ii++) {
+            tmp.put((byte)ii);
+        }
+        tmp.flip();
+        wstream.enqueue(tmp);
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(6, wstream.drainTo(channel));
+        assertFalse(wstream.isEmpty());
+        assertTrue(wstream.hadBackPressure());
+
+        //The untouched last buffer goes back on the queue and can still be appended to
+        ByteBuffer tmp2 = ByteBuffer.allocate(1);
+        tmp2.put((byte)10);
+        tmp2.flip();
+        wstream.enqueue(tmp2);
+        wstream.swapAndSerializeQueuedWrites(pool);
+
+        channel.gatherBudget = Integer.MAX_VALUE;
+        assertEquals(5, wstream.drainTo(channel));
+        assertTrue(wstream.isEmpty());
+        assertFalse(wstream.hadBackPressure());
+
+        byte[] bytes = channel.gathered.toByteArray();
+        assertEquals(11, bytes.length);
+        for (int ii = 0; ii < bytes.length; ii++) {
+            assertEquals(ii, bytes[ii]);
+        }
+        assertEquals(3, wstream.getBytesAndMessagesWritten(false)[1]);
+        wstream.shutdown();
+    }
 }
@@ -33,8 +33,12 @@ import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channel;
 import java.nio.channels.SelectionKey;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google_voltpatches.common.base.Function;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
 import junit.framework.TestCase;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -98,4 +102,37 @@ public class TestReverseDNSCache extends TestCase {
         toggleDNSResolver("foozle");
         assertFalse("foozle".equals(ReverseDNSCache.hostnameOrAddress(addr)));
     }
+
+    @Test
+    public void testAsyncLookupIsShared() throws Exception {
+        final InetAddress addr = getAddress(44);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger lookups = new AtomicInteger();
+        resolverField.set(null, new Function<InetAddress, String>() {
+            @Override
+            public String apply(java.net.InetAddress inetAddress) {
+                lookups.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "sharedname";
+            }
+        });
+        try {
+            ListenableFuture<String> first = ReverseDNSCache.hostnameOrAddressAsync(addr);
+            ListenableFuture<String> second = ReverseDNSCache.hostnameOrAddressAsync(addr);
+            // Neither caller waits on the lookup, and they share it
+            assertFalse(first.isDone());
+            assertSame(first, second);
+            release.countDown();
+            assertEquals("sharedname", first.get(10, TimeUnit.SECONDS));
+            assertEquals("sharedname", ReverseDNSCache.hostnameOrAddressAsync(addr).get());
+            assertEquals(1, lookups.get());
+        } finally {
+            release.countDown();
+            toggleDNSResolver(null);
+        }
+    }
 }
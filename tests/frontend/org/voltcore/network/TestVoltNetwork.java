@@ -142,6 +142,7 @@ public class TestVoltNetwork extends TestCase {
         @Override
         public SelectionKey interestOps(int interestOps) {
             m_interestOps = interestOps;
+            m_interestOpsUpdates++;
             return this;
         }
 
@@ -166,6 +167,7 @@ public class TestVoltNetwork extends TestCase {
         }
 
         public int m_interestOps;
+        public int m_interestOpsUpdates;
         public int m_readyOps;
         public Object m_fakeAttachment;
     }
@@ -262,6 +264,29 @@ public class TestVoltNetwork extends TestCase {
         assertEquals(selectionKey.interestOps(), vp.interestOps());
     }
 
+    public void testInstallUnchangedInterests() throws Exception {
+        MockSelector selector = new MockSelector();
+        VoltNetwork vn = new VoltNetwork(selector);
+        MockVoltPort vp = new MockVoltPort(vn, new MockInputHandler());
+        MockSelectionKey selectionKey = new MockSelectionKey();
+        vp.m_selectionKey = selectionKey;
+
+        vp.setInterests(SelectionKey.OP_READ, 0);
+        vn.installInterests(vp);
+        assertEquals(SelectionKey.OP_READ, selectionKey.interestOps());
+        assertEquals(1, selectionKey.m_interestOpsUpdates);
+
+        // the key already has the ops the port wants, nothing to update
+        vn.installInterests(vp);
+        vn.installInterests(vp);
+        assertEquals(1, selectionKey.m_interestOpsUpdates);
+
+        vp.setInterests(SelectionKey.OP_WRITE, 0);
+        vn.installInterests(vp);
+        assertEquals(SelectionKey.OP_READ | SelectionKey.OP_WRITE, selectionKey.interestOps());
+        assertEquals(2, selectionKey.m_interestOpsUpdates);
+    }
+
     public void testInvokeCallbacks() throws Exception{
         MockSelector selector = new MockSelector();
         VoltNetwork vn = new VoltNetwork(selector);               // network with fake selector
@@ -0,0 +1,189 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.network;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Many-connection echo workload against a single VoltNetwork, in the spirit of
+ * org.voltdb.TCPThroughput but going through VoltPort and NIOWriteStream. Every client
+ * thread owns a share of the connections and keeps one message in flight on each of them.
+ * The workload is run once with the selection key re-armed on every readiness event,
+ * the old behavior, and once with interest ops only changed when a port wants different
+ * ops, so the two can be compared on the same machine.
+ *
+ * Usage: VoltNetworkThroughputMicrobench [connections] [client threads] [seconds] [message size]
+ */
+public class VoltNetworkThroughputMicrobench {
+
+    private static class EchoHandler extends VoltProtocolHandler {
+        @Override
+        public int getMaxRead() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void handleMessage(ByteBuffer message, Connection c) {
+            ByteBuffer response = ByteBuffer.allocate(4 + message.remaining());
+            response.putInt(message.remaining());
+            response.put(message);
+            response.flip();
+            c.writeStream().enqueue(response);
+        }
+
+        @Override
+        public Runnable onBackPressure() {
+            return null;
+        }
+
+        @Override
+        public Runnable offBackPressure() {
+            return null;
+        }
+
+        @Override
+        public QueueMonitor writestreamMonitor() {
+            return null;
+        }
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf) < 0) {
+                throw new IOException("Connection closed by the network");
+            }
+        }
+    }
+
+    private static long run(final int connections, final int clientThreads, final int seconds,
+            final int messageSize) throws Exception {
+        final VoltNetwork network = new VoltNetwork(0, null, "Microbench");
+        network.start();
+        final ServerSocketChannel server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+        final ArrayList<SocketChannel> clients = new ArrayList<SocketChannel>();
+        final ArrayList<Connection> serverConnections = new ArrayList<Connection>();
+        for (int ii = 0; ii < connections; ii++) {
+            SocketChannel client = SocketChannel.open(server.socket().getLocalSocketAddress());
+            client.socket().setTcpNoDelay(true);
+            clients.add(client);
+            SocketChannel accepted = server.accept();
+            accepted.socket().setTcpNoDelay(true);
+            serverConnections.add(network.registerChannel(
+                    accepted, new EchoHandler(), SelectionKey.OP_READ, ReverseDNSPolicy.NONE));
+        }
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong roundTrips = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        ArrayList<Thread> threads = new ArrayList<Thread>();
+        for (int ii = 0; ii < clientThreads; ii++) {
+            final int thread = ii;
+            Thread t = new Thread("Client " + ii) {
+                @Override
+                public void run() {
+                    ArrayList<SocketChannel> mine = new ArrayList<SocketChannel>();
+                    for (int jj = thread; jj < clients.size(); jj += clientThreads) {
+                        mine.add(clients.get(jj));
+                    }
+                    final ByteBuffer request = ByteBuffer.allocateDirect(4 + messageSize);
+                    request.putInt(messageSize);
+                    final ByteBuffer response = ByteBuffer.allocateDirect(4 + messageSize);
+                    long count = 0;
+                    try {
+                        start.await();
+                        while (running.get()) {
+                            for (SocketChannel c : mine) {
+                                request.clear();
+                                while (request.hasRemaining()) {
+                                    c.write(request);
+                                }
+                            }
+                            for (SocketChannel c : mine) {
+                                response.clear();
+                                readFully(c, response);
+                                count++;
+                            }
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    roundTrips.addAndGet(count);
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+
+        start.countDown();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        for (Connection c : serverConnections) {
+            c.unregister().get();
+        }
+        for (SocketChannel c : clients) {
+            c.close();
+        }
+        server.close();
+        network.shutdown();
+        return roundTrips.get();
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int connections = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        final int clientThreads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        final int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        final int messageSize = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        System.out.printf("%d connections, %d client threads, %d byte messages, %d seconds per run%n",
+                connections, clientThreads, messageSize, seconds);
+        // Warm up both paths before measuring either
+        for (boolean rearm : new boolean[] { true, false }) {
+            VoltNetwork.REARM_INTEREST_OPS = rearm;
+            run(connections, clientThreads, Math.max(1, seconds / 4), messageSize);
+        }
+        for (boolean rearm : new boolean[] { true, false }) {
+            VoltNetwork.REARM_INTEREST_OPS = rearm;
+            final long roundTrips = run(connections, clientThreads, seconds, messageSize);
+            System.out.printf("%s: %.0f round trips/sec%n",
+                    rearm ? "Re-arm interest ops per event" : "Change interest ops only when needed",
+                    roundTrips / (double)seconds);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+public class TestMpscQueue extends TestCase {
+
+    public void testDrainOrder() {
+        MpscQueue<Integer> queue = new MpscQueue<Integer>();
+        assertTrue(queue.isEmpty());
+        List<Integer> drained = new ArrayList<Integer>();
+        assertEquals(0, queue.drainTo(drained));
+
+        for (int ii = 0; ii < 10; ii++) {
+            assertTrue(queue.offer(ii));
+        }
+        assertEquals(10, queue.size());
+        assertFalse(queue.isEmpty());
+
+        assertEquals(10, queue.drainTo(drained));
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+
+        //Batches append after what was already drained
+        queue.offer(10);
+        queue.offer(11);
+        assertEquals(2, queue.drainTo(drained));
+        assertEquals(12, drained.size());
+        for (int ii = 0; ii < drained.size(); ii++) {
+            assertEquals(ii, drained.get(ii).intValue());
+        }
+    }
+
+    public void testClose() {
+        MpscQueue<Integer> queue = new MpscQueue<Integer>();
+        queue.offer(1);
+        queue.offer(2);
+        List<Integer> remaining = queue.close();
+        assertEquals(2, remaining.size());
+        assertEquals(1, remaining.get(0).intValue());
+        assertEquals(2, remaining.get(1).intValue());
+
+        assertTrue(queue.isClosed());
+        assertTrue(queue.isEmpty());
+        assertFalse(queue.offer(3));
+        assertEquals(0, queue.drainTo(new ArrayList<Integer>()));
+        assertTrue(queue.close().isEmpty());
+    }
+
+    public void testConcurrentProducers() throws Exception {
+        final int producers = 16;
+        final int perProducer = 100000;
+        final MpscQueue<long[]> queue = new MpscQueue<long[]>();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int ii = 0; ii < producers; ii++) {
+            final int producer = ii;
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int jj = 0; jj < perProducer; jj++) {
+                        queue.offer(new long[] { producer, jj });
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+
+        //Each producer's items must come out in the order that producer offered them
+        long[] nextExpected = new long[producers];
+        int total = 0;
+        List<long[]> batch = new ArrayList<long[]>();
+        while (total < producers * perProducer) {
+            batch.clear();
+            total += queue.drainTo(batch);
+            for (long[] item : batch) {
+                assertEquals(nextExpected[(int)item[0]]++, item[1]);
+            }
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertTrue(queue.isEmpty());
+        for (long next : nextExpected) {
+            assertEquals(perProducer, next);
+        }
+    }
+}
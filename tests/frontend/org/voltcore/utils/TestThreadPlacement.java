@@ -0,0 +1,62 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+public class TestThreadPlacement extends TestCase {
+
+    public void testParseCores() {
+        assertEquals(new TreeSet<Integer>(Arrays.asList(3)), ThreadPlacement.parseCores("3"));
+        assertEquals(new TreeSet<Integer>(Arrays.asList(1, 4)), ThreadPlacement.parseCores("1:4"));
+        assertEquals(new TreeSet<Integer>(Arrays.asList(4, 5, 6, 7)), ThreadPlacement.parseCores("4-7"));
+        //Skip hyperthread siblings
+        assertEquals(new TreeSet<Integer>(Arrays.asList(4, 6, 8)), ThreadPlacement.parseCores("!4-8"));
+        assertEquals(new TreeSet<Integer>(Arrays.asList(0, 5, 7)), ThreadPlacement.parseCores("0:!5-7"));
+        try {
+            ThreadPlacement.parseCores("7-4");
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    public void testPlacementIsRecorded() throws Exception {
+        assertFalse(ThreadPlacement.bindCurrentThread(null));
+        Thread t = new Thread("TestThreadPlacement") {
+            @Override
+            public void run() {
+                //Binding may fail in a sandbox without the native library, it is recorded either way
+                ThreadPlacement.bindCurrentThread("0");
+            }
+        };
+        t.start();
+        t.join();
+        String placement = ThreadPlacement.getPlacements().get("TestThreadPlacement");
+        assertNotNull(placement);
+        assertTrue(placement.startsWith("0"));
+        assertTrue(ThreadPlacement.getPlacementSummary().contains("TestThreadPlacement=0"));
+    }
+}
@@ -133,6 +133,52 @@ public class TestAdmissionControlGroup extends TestCase {
 
     }
 
+    public void testPartitionBackpressure() {
+        int saved = AdmissionControlGroup.MAX_PENDING_TXNS_PER_PARTITION;
+        AdmissionControlGroup.MAX_PENDING_TXNS_PER_PARTITION = 10;
+        try {
+            AdmissionControlGroup pacg = new AdmissionControlGroup(1024 * 1024 * 8, 1000);
+            ACGMember pmember = new ACGMember();
+            pacg.addMember(pmember);
+
+            for (int ii = 0; ii < 10; ii++) {
+                pacg.partitionTxnAdmitted(3);
+            }
+            assertFalse(pacg.isPartitionOverloaded(3));
+            pacg.partitionTxnAdmitted(3);
+            assertTrue(pacg.isPartitionOverloaded(3));
+            assertEquals(11, pacg.getPendingPartitionTxnCount(3));
+
+            //Only the hot partition is turned away and the connections are left alone
+            assertFalse(pacg.isPartitionOverloaded(0));
+            assertFalse(pacg.isPartitionOverloaded(100));
+            assertEquals(0, pmember.onBackpressure);
+            assertFalse(pacg.hasBackPressure());
+
+            //For the condition to end it has to go to less .8 of max
+            for (int ii = 0; ii < 3; ii++) {
+                pacg.partitionTxnCompleted(3);
+            }
+            assertTrue(pacg.isPartitionOverloaded(3));
+            pacg.partitionTxnCompleted(3);
+            assertFalse(pacg.isPartitionOverloaded(3));
+            assertEquals(2, pacg.getPartitionRejections());
+
+            //Completions for partitions never admitted shouldn't go negative
+            pacg.partitionTxnCompleted(50);
+            assertEquals(0, pacg.getPendingPartitionTxnCount(50));
+        } finally {
+            AdmissionControlGroup.MAX_PENDING_TXNS_PER_PARTITION = saved;
+        }
+    }
+
+    public void testPartitionBackpressureDisabled() {
+        for (int ii = 0; ii < 100000; ii++) {
+            acg.partitionTxnAdmitted(1);
+        }
+        assertFalse(acg.isPartitionOverloaded(1));
+    }
+
     public void testArgs() {
         try {
             acg.increaseBackpressure(-1);
@@ -116,4 +116,91 @@ public class TestClientInterfaceHandleManager {
             assertEquals(31337 + i, inf.m_clientHandle);
         }
     }
+
+    @Test
+    public void testShortCircuitReadsOutOfOrder() throws Exception
+    {
+        Connection mockConnection = mock(Connection.class);
+        ClientInterfaceHandleManager dut =
+                new ClientInterfaceHandleManager(
+                        false,
+                        mockConnection,
+                        null,
+                        AdmissionControlGroup.getDummy());
+        // enough outstanding reads to grow the ring a few times
+        List<Long> handles = new ArrayList<Long>();
+        for (int i = 0; i < 100; i++) {
+            handles.add(dut.getHandle(true, 3, 1000 + i, 10, 10l, "foo", 0, true, true));
+        }
+        assertEquals(100, dut.getOutstandingTxns());
+        // complete the odd ones, then the even ones in reverse
+        for (int i = 1; i < 100; i += 2) {
+            assertEquals(1000 + i, dut.findHandle(handles.get(i)).m_clientHandle);
+        }
+        for (int i = 98; i >= 0; i -= 2) {
+            assertEquals(1000 + i, dut.findHandle(handles.get(i)).m_clientHandle);
+        }
+        assertEquals(0, dut.getOutstandingTxns());
+        // nothing left to find
+        assertNull(dut.findHandle(handles.get(0)));
+    }
+
+    @Test
+    public void testShortCircuitReadStraggler() throws Exception
+    {
+        ClientInterfaceHandleManager.ShortCircuitReads reads =
+                new ClientInterfaceHandleManager.ShortCircuitReads();
+        // one read never completes while a ring's worth of reads pass it by
+        long straggler = makeShortCircuitHandle(0);
+        reads.put(straggler, makeInFlight(straggler, 0));
+        int total = ClientInterfaceHandleManager.ShortCircuitReads.MAX_RING_SIZE * 2;
+        for (int i = 1; i < total; i++) {
+            long handle = makeShortCircuitHandle(i);
+            reads.put(handle, makeInFlight(handle, i));
+            assertEquals(i, reads.remove(handle).m_clientHandle);
+        }
+        assertEquals(1, reads.values().size());
+        assertEquals(0, reads.remove(straggler).m_clientHandle);
+        assertTrue(reads.values().isEmpty());
+    }
+
+    @Test
+    public void testManyConnections() throws Exception
+    {
+        final int connections = 10000;
+        final int perConnection = 20;
+        List<ClientInterfaceHandleManager> cihms = new ArrayList<ClientInterfaceHandleManager>();
+        List<List<Long>> handles = new ArrayList<List<Long>>();
+        AdmissionControlGroup acg = AdmissionControlGroup.getDummy();
+        for (int c = 0; c < connections; c++) {
+            Connection mockConnection = mock(Connection.class);
+            ClientInterfaceHandleManager dut =
+                    new ClientInterfaceHandleManager(false, mockConnection, null, acg);
+            List<Long> connHandles = new ArrayList<Long>();
+            for (int i = 0; i < perConnection; i++) {
+                // mix of short circuit reads, partitioned reads and writes
+                connHandles.add(dut.getHandle(true, i % 8, i, 10, 10l, "foo", 0, i % 3 != 0, i % 3 == 1));
+            }
+            cihms.add(dut);
+            handles.add(connHandles);
+        }
+        for (int c = connections - 1; c >= 0; c--) {
+            ClientInterfaceHandleManager dut = cihms.get(c);
+            for (int i = 0; i < perConnection; i++) {
+                assertEquals(i, dut.findHandle(handles.get(c).get(i)).m_clientHandle);
+            }
+            assertEquals(0, dut.getOutstandingTxns());
+        }
+    }
+
+    private static long makeShortCircuitHandle(long seq)
+    {
+        return ((long)ClientInterfaceHandleManager.SHORT_CIRCUIT_PART_ID <<
+                ClientInterfaceHandleManager.PART_ID_SHIFT) | seq;
+    }
+
+    private static ClientInterfaceHandleManager.Iv2InFlight makeInFlight(long ciHandle, long clientHandle)
+    {
+        return new ClientInterfaceHandleManager.Iv2InFlight(ciHandle, clientHandle, 10, 10l, "foo", 0, -1);
+    }
 }
@@ -0,0 +1,118 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import junit.framework.TestCase;
+
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+public class TestLiveDatabaseEstimates extends TestCase {
+
+    private static VoltTable tableStats(Object[]... rows) {
+        VoltTable t = new VoltTable(new ColumnInfo("TABLE_NAME", VoltType.STRING),
+                                    new ColumnInfo("TUPLE_COUNT", VoltType.BIGINT));
+        for (Object[] row : rows) {
+            t.addRow(row);
+        }
+        return t;
+    }
+
+    private static VoltTable indexStats(Object[]... rows) {
+        VoltTable t = new VoltTable(new ColumnInfo("TABLE_NAME", VoltType.STRING),
+                                    new ColumnInfo("INDEX_NAME", VoltType.STRING),
+                                    new ColumnInfo("DISTINCT_KEY_ESTIMATE", VoltType.BIGINT));
+        for (Object[] row : rows) {
+            t.addRow(row);
+        }
+        return t;
+    }
+
+    public void testFromStatistics() {
+        // Two local partitions of T, one replicated R that is empty
+        VoltTable tables = tableStats(new Object[] { "T", 100L },
+                                      new Object[] { "T", 300L },
+                                      new Object[] { "R", 0L });
+        VoltTable indexes = indexStats(new Object[] { "T", "T_IDX", 10L },
+                                       new Object[] { "T", "T_IDX", 30L },
+                                       new Object[] { "T", "T_HASH", -1L },
+                                       new Object[] { "R", "R_IDX", 0L },
+                                       new Object[] { "GONE", "GONE_IDX", 5L });
+
+        DatabaseEstimates estimates = LiveDatabaseEstimates.fromStatistics(tables, indexes);
+
+        assertTrue(estimates.hasEstimatesForTable("T"));
+        DatabaseEstimates.TableEstimates t = estimates.getEstimatesForTable("T");
+        assertEquals(200, t.maxTuples);
+        assertEquals(200, t.minTuples);
+        assertEquals(20, t.getDistinctKeysForIndex("T_IDX"));
+        // An index the EE could not sample keeps the default costing
+        assertEquals(0, t.getDistinctKeysForIndex("T_HASH"));
+
+        // Empty tables and indexes are floored at one so nothing looks free
+        DatabaseEstimates.TableEstimates r = estimates.getEstimatesForTable("R");
+        assertEquals(1, r.maxTuples);
+        assertEquals(1, r.getDistinctKeysForIndex("R_IDX"));
+
+        // Index statistics for a table without table statistics are ignored
+        assertFalse(estimates.hasEstimatesForTable("GONE"));
+
+        // Unknown tables get the defaults without being added to the snapshot
+        DatabaseEstimates.TableEstimates unknown = estimates.getEstimatesForTable("UNKNOWN");
+        assertEquals(new DatabaseEstimates.TableEstimates().maxTuples, unknown.maxTuples);
+        assertFalse(estimates.hasEstimatesForTable("UNKNOWN"));
+    }
+
+    public void testChangedSignificantly() {
+        DatabaseEstimates before = LiveDatabaseEstimates.fromStatistics(
+                tableStats(new Object[] { "T", 1000L }, new Object[] { "R", 10L }), null);
+
+        DatabaseEstimates same = LiveDatabaseEstimates.fromStatistics(
+                tableStats(new Object[] { "T", 1900L }, new Object[] { "R", 6L }), null);
+        assertFalse(LiveDatabaseEstimates.changedSignificantly(before, same));
+
+        DatabaseEstimates grown = LiveDatabaseEstimates.fromStatistics(
+                tableStats(new Object[] { "T", 2100L }, new Object[] { "R", 10L }), null);
+        assertTrue(LiveDatabaseEstimates.changedSignificantly(before, grown));
+
+        DatabaseEstimates shrunk = LiveDatabaseEstimates.fromStatistics(
+                tableStats(new Object[] { "T", 1000L }, new Object[] { "R", 4L }), null);
+        assertTrue(LiveDatabaseEstimates.changedSignificantly(before, shrunk));
+
+        DatabaseEstimates newTable = LiveDatabaseEstimates.fromStatistics(
+                tableStats(new Object[] { "T", 1000L }, new Object[] { "R", 10L },
+                           new Object[] { "S", 10L }), null);
+        assertTrue(LiveDatabaseEstimates.changedSignificantly(before, newTable));
+    }
+
+    public void testDisabledByDefault() {
+        // Without -DENABLE_LIVE_STATISTICS the planner always sees the defaults
+        if (LiveDatabaseEstimates.ENABLED) {
+            return;
+        }
+        assertFalse(LiveDatabaseEstimates.getEstimates().hasEstimatesForTable("T"));
+        assertFalse(LiveDatabaseEstimates.refresh(null));
+    }
+}
@@ -320,6 +320,61 @@ public class TestMpTransactionState extends TestCase
         System.out.println(results);
     }
 
+    @Test
+    public void testExecutionStatsFromParticipatingSites() throws IOException
+    {
+        long txnId = 1234l;
+        int batch_size = 2;
+        Iv2InitiateTaskMessage taskmsg =
+            new Iv2InitiateTaskMessage(
+                    0,
+                    -1,
+                    (txnId -1),
+                    txnId,
+                    System.currentTimeMillis(),
+                    true,
+                    false,
+                    new StoredProcedureInvocation(),
+                    0,
+                    0,
+                    false);
+        int hsids = 3;
+        buddyHSId = 0;
+        long[] non_local = configureHSIds(hsids);
+
+        MpTestPlan plan = createTestPlan(batch_size, true, false, false, non_local);
+        // every site, including the local buddy, reports the fragments it ran
+        for (FragmentResponseMessage msg : plan.generatedResponses) {
+            msg.setExecutionStats(3, 2, 2, 100, 1, 40);
+        }
+
+        Mailbox mailbox = mock(Mailbox.class);
+        SiteProcedureConnection siteConnection = mock(SiteProcedureConnection.class);
+
+        MpTransactionState dut =
+            new MpTransactionState(mailbox, taskmsg, allHsids, partMasters, buddyHSId, false);
+
+        dut.setupProcedureResume(true, plan.depsToResume);
+        dut.createLocalFragmentWork(plan.localWork, false);
+        dut.createAllParticipatingFragmentWork(plan.remoteWork);
+        for (FragmentResponseMessage msg : plan.generatedResponses) {
+            dut.offerReceivedFragmentResponse(msg);
+        }
+        dut.recursableRun(siteConnection);
+
+        // three remote responses and the borrow task response
+        assertEquals(12, dut.getPredicateCount());
+        assertEquals(8, dut.getCompiledPredicateCount());
+        assertEquals(8, dut.getPredicateFragmentCount());
+        assertEquals(400, dut.getPredicateFragmentNanos());
+        assertEquals(4, dut.getSemiJoinFragmentCount());
+        assertEquals(160, dut.getSemiJoinPrunedRows());
+
+        dut.clearExecutionStats();
+        assertEquals(0, dut.getSemiJoinFragmentCount());
+        assertEquals(0, dut.getPredicateFragmentNanos());
+    }
+
     @Test
     public void testSingleReplicatedReadFragment() throws IOException
     {
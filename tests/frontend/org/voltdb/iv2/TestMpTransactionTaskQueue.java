@@ -40,6 +40,8 @@ import java.util.List;
 import junit.framework.TestCase;
 
 import org.junit.Test;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
 
 public class TestMpTransactionTaskQueue extends TestCase
 {
@@ -150,4 +152,63 @@ public class TestMpTransactionTaskQueue extends TestCase
         verify(m_MPpool).doWork(eq(readtxnid), any(TransactionTask.class));
         verify(m_MPpool).doWork(eq(readtxnid2), any(TransactionTask.class));
     }
+
+    VoltTable getQueueStats(MpQueueStats stats)
+    {
+        VoltTable table = new VoltTable(stats.getColumnSchema().toArray(new ColumnInfo[0]));
+        for (Object[] row : stats.getStatsRows(false, System.currentTimeMillis())) {
+            table.addRow(row);
+        }
+        table.advanceRow();
+        return table;
+    }
+
+    // Stats reflect the reads and writes started and those held back by a write in flight
+    @Test
+    public void testConcurrencyStats()
+    {
+        MpQueueStats stats = new MpQueueStats(m_dut);
+        TxnEgo txnId = TxnEgo.makeZero(MpInitiator.MP_INIT_PID);
+        List<Long> reads = new ArrayList<Long>();
+        for (int i = 0; i < 3; i++) {
+            txnId = txnId.makeNext();
+            reads.add(txnId.getTxnId());
+            m_dut.offer(makeTransactionTask(txnId.getTxnId(), true));
+        }
+        // write waits for the reads, read waits for the queued write,
+        // neither is held back by a write in flight
+        txnId = txnId.makeNext();
+        m_dut.offer(makeTransactionTask(txnId.getTxnId(), false));
+        txnId = txnId.makeNext();
+        m_dut.offer(makeTransactionTask(txnId.getTxnId(), true));
+
+        VoltTable table = getQueueStats(stats);
+        assertEquals(2, table.getLong(MpQueueStats.Constants.BACKLOG));
+        assertEquals(3, table.getLong(MpQueueStats.Constants.CURRENT_READS));
+        assertEquals(0, table.getLong(MpQueueStats.Constants.CURRENT_WRITES));
+        assertEquals(3, table.getLong(MpQueueStats.Constants.READS_STARTED));
+        assertEquals(0, table.getLong(MpQueueStats.Constants.WRITES_STARTED));
+        assertEquals(3, table.getLong(MpQueueStats.Constants.PEAK_CONCURRENT_READS));
+        assertEquals(0, table.getLong(MpQueueStats.Constants.READS_DELAYED));
+        assertEquals(0, table.getLong(MpQueueStats.Constants.WRITES_DELAYED));
+
+        for (long txnid : reads) {
+            m_dut.flush(txnid);
+        }
+        table = getQueueStats(stats);
+        assertEquals(1, table.getLong(MpQueueStats.Constants.BACKLOG));
+        assertEquals(0, table.getLong(MpQueueStats.Constants.CURRENT_READS));
+        assertEquals(1, table.getLong(MpQueueStats.Constants.CURRENT_WRITES));
+        assertEquals(1, table.getLong(MpQueueStats.Constants.WRITES_STARTED));
+
+        // now the write is in flight, new work of either kind is held back by it
+        txnId = txnId.makeNext();
+        m_dut.offer(makeTransactionTask(txnId.getTxnId(), false));
+        txnId = txnId.makeNext();
+        m_dut.offer(makeTransactionTask(txnId.getTxnId(), true));
+        table = getQueueStats(stats);
+        assertEquals(3, table.getLong(MpQueueStats.Constants.BACKLOG));
+        assertEquals(1, table.getLong(MpQueueStats.Constants.READS_DELAYED));
+        assertEquals(1, table.getLong(MpQueueStats.Constants.WRITES_DELAYED));
+    }
 }
@@ -0,0 +1,98 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class TestReplicaLagTracker extends TestCase
+{
+    @Test
+    public void testLagFollowsOldestPendingWrite()
+    {
+        ReplicaLagTracker dut = new ReplicaLagTracker();
+        assertEquals(0, dut.getOldestPendingWriteAgeMs(1000));
+
+        dut.writeReceived(10, 1000);
+        dut.writeReceived(11, 1005);
+        dut.writeReceived(12, 1020);
+        assertEquals(30, dut.getOldestPendingWriteAgeMs(1030));
+
+        // completing a write retires it and anything older
+        dut.writeCompleted(11);
+        assertEquals(10, dut.getOldestPendingWriteAgeMs(1030));
+
+        dut.writeCompleted(12);
+        assertEquals(0, dut.getOldestPendingWriteAgeMs(1030));
+    }
+
+    @Test
+    public void testMpWriteHoldsBackLaterWrites()
+    {
+        ReplicaLagTracker dut = new ReplicaLagTracker();
+        dut.writeReceived(10, 1000);
+        dut.mpWriteReceived(11, 1010);
+        dut.writeReceived(12, 1020);
+        dut.writeReceived(13, 1030);
+
+        // SP completions don't complete the MP write, even when later SP writes are done
+        dut.writeCompleted(13);
+        assertEquals(40, dut.getOldestPendingWriteAgeMs(1050));
+
+        // once the MP transaction is complete so is everything behind it
+        dut.mpWriteCompleted(11);
+        assertEquals(0, dut.getOldestPendingWriteAgeMs(1050));
+
+        // an MP write completing only retires itself
+        dut.mpWriteReceived(20, 2000);
+        dut.writeReceived(21, 2010);
+        dut.mpWriteCompleted(20);
+        assertEquals(40, dut.getOldestPendingWriteAgeMs(2050));
+        dut.writeCompleted(21);
+        assertEquals(0, dut.getOldestPendingWriteAgeMs(2050));
+    }
+
+    @Test
+    public void testGrowAndClear()
+    {
+        ReplicaLagTracker dut = new ReplicaLagTracker();
+        // wrap the ring before it has to grow
+        for (int i = 0; i < 50; i++) {
+            dut.writeReceived(i, i);
+            dut.writeCompleted(i);
+        }
+        for (int i = 50; i < 1050; i++) {
+            dut.writeReceived(i, i);
+        }
+        assertEquals(1000, dut.getOldestPendingWriteAgeMs(1050));
+        dut.writeCompleted(549);
+        assertEquals(500, dut.getOldestPendingWriteAgeMs(1050));
+
+        dut.clear();
+        assertEquals(0, dut.getOldestPendingWriteAgeMs(1050));
+        dut.writeReceived(2000, 2000);
+        assertEquals(5, dut.getOldestPendingWriteAgeMs(2005));
+    }
+}
@@ -0,0 +1,109 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.messaging;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import org.voltcore.messaging.VoltMessage;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.ClientResponse;
+
+/**
+ * Measures time and bytes allocated per message for a serialize/deserialize round trip
+ * of the messages on the single and multi partition transaction paths. Serialization
+ * goes into one reused buffer the way the network write stream does it, so what is
+ * reported is the cost of the message code itself.
+ *
+ * Usage: MessageSerializationMicrobench [iterations]
+ */
+public class MessageSerializationMicrobench {
+
+    private static final VoltDbMessageFactory m_factory = new VoltDbMessageFactory();
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void run(String name, VoltMessage msg, int iterations) throws Exception {
+        final ByteBuffer buf = ByteBuffer.allocate(msg.getSerializedSize());
+        // warm up
+        for (int ii = 0; ii < iterations; ii++) {
+            roundTrip(msg, buf);
+        }
+        final long startBytes = allocatedBytes();
+        final long start = System.nanoTime();
+        for (int ii = 0; ii < iterations; ii++) {
+            roundTrip(msg, buf);
+        }
+        final long nanos = System.nanoTime() - start;
+        final long bytes = allocatedBytes() - startBytes;
+        System.out.printf("%-24s %6d bytes on wire %8.1f ns/msg %8.1f bytes allocated/msg%n",
+                name, buf.capacity(), nanos / (double)iterations, bytes / (double)iterations);
+    }
+
+    private static VoltMessage roundTrip(VoltMessage msg, ByteBuffer buf) throws Exception {
+        buf.clear();
+        msg.flattenToBuffer(buf);
+        buf.flip();
+        return m_factory.createMessageFromBuffer(buf, -1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setClientHandle(25);
+        spi.setProcName("Insert");
+        spi.setParams(57, "a string parameter", 3.14);
+
+        Iv2InitiateTaskMessage itask = new Iv2InitiateTaskMessage(23, 8, 10L, 100045, 99, true, false, spi, 2101, 3101, false);
+        itask.setSpHandle(31337);
+        run("Iv2InitiateTaskMessage", itask, iterations);
+
+        VoltTable table = new VoltTable(
+                new VoltTable.ColumnInfo("id", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("name", VoltType.STRING));
+        for (int ii = 0; ii < 10; ii++) {
+            table.addRow(ii, "row " + ii);
+        }
+        InitiateResponseMessage iresponse = new InitiateResponseMessage(itask);
+        iresponse.setResults(new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { table }, null));
+        iresponse.setClientHandle(99);
+        run("InitiateResponseMessage", iresponse, iterations);
+
+        FragmentTaskMessage ft = new FragmentTaskMessage(9, 70654312, -75, 99, false, false, false);
+        ft.addFragment(new byte[20], 12, ByteBuffer.allocate(0));
+        run("FragmentTaskMessage", ft, iterations);
+
+        FragmentResponseMessage fr = new FragmentResponseMessage(ft, 23);
+        fr.setStatus(FragmentResponseMessage.SUCCESS, null);
+        fr.addDependency(12, table);
+        run("FragmentResponseMessage", fr, iterations);
+    }
+}
@@ -330,6 +330,33 @@ public class TestVoltMessageSerialization extends TestCase {
         VoltTable t1 = fr.getTableAtIndex(0);
         VoltTable t2 = fr2.getTableAtIndex(0);
         assertEquals(t1.fetchRow(0).getString(0), t2.fetchRow(0).getString(0));
+
+        // no execution statistics were set
+        assertEquals(0, fr2.getPredicateCount());
+        assertEquals(0, fr2.getSemiJoinFragmentCount());
+    }
+
+    public void testFragmentResponseWithExecutionStats() throws IOException {
+        FragmentTaskMessage ft = new FragmentTaskMessage(15, 12, 37, 99, false, false, false);
+
+        FragmentResponseMessage fr = new FragmentResponseMessage(ft, 23);
+        fr.setStatus(FragmentResponseMessage.SUCCESS, null);
+        fr.addDependency(99, new VoltTable(new VoltTable.ColumnInfo("bearhugg", VoltType.STRING)));
+        fr.setExecutionStats(5, 4, 3, 1234567, 2, 987);
+
+        FragmentResponseMessage fr2 = (FragmentResponseMessage) checkVoltMessage(fr);
+
+        assertEquals(5, fr2.getPredicateCount());
+        assertEquals(4, fr2.getCompiledPredicateCount());
+        assertEquals(3, fr2.getPredicateFragmentCount());
+        assertEquals(1234567, fr2.getPredicateFragmentNanos());
+        assertEquals(2, fr2.getSemiJoinFragmentCount());
+        assertEquals(987, fr2.getSemiJoinPrunedRows());
+
+        // the IV2 copy constructor keeps them for the sysproc dependency union
+        FragmentResponseMessage fr3 = new FragmentResponseMessage(fr2);
+        assertEquals(2, fr3.getSemiJoinFragmentCount());
+        assertEquals(987, fr3.getSemiJoinPrunedRows());
     }
 
     public void testMembershipNotice() throws IOException {
@@ -0,0 +1,128 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.planner;
+
+import java.io.File;
+import java.io.FileWriter;
+
+/**
+ * Used for manually measuring how long the planner takes to choose a join order and how
+ * good the chosen order is, for joins of 2 to MAX_TABLES tables.
+ * For each join size and query shape it prints the average planning time, the cost of the
+ * chosen plan and the cost of the plan with the tables joined in the order written.
+ * Eventually this kind of test should be part of a broader performance tracking framework.
+ */
+public class JoinOrderPerfTest extends PlannerTestCase {
+
+    private static final int MAX_TABLES = Integer.getInteger("joinorderperf.maxtables", 16);
+    private static final int ITERATIONS = Integer.getInteger("joinorderperf.iterations", 20);
+
+    private enum Shape {
+        // J1 <- J2 <- J3 ..., each table refers to the one before it
+        CHAIN,
+        // J1 is the fact table, every other table is a dimension of it
+        STAR,
+        // a chain with the only selective filter on the last table written
+        CHAIN_FILTER_LAST
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        System.setProperty("ENABLE_COST_BASED_JOIN_ORDER", "true");
+        // Every table has a primary key, every other table an index on the column
+        // that refers to the previous table, so some joins can use an index and some can't.
+        File ddl = File.createTempFile("joinorderperf", ".sql");
+        ddl.deleteOnExit();
+        FileWriter writer = new FileWriter(ddl);
+        for (int ii = 1; ii <= MAX_TABLES; ++ii) {
+            writer.write("CREATE TABLE J" + ii + " (ID INTEGER NOT NULL, PARENT_ID INTEGER NOT NULL, " +
+                    "FACT_ID INTEGER NOT NULL, VAL INTEGER, PRIMARY KEY (ID));\n");
+            if (ii % 2 == 0) {
+                writer.write("CREATE INDEX J" + ii + "_PARENT ON J" + ii + " (PARENT_ID);\n");
+            }
+        }
+        writer.close();
+        setupSchema(true, ddl.toURI().toURL(), "joinorderperf");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        System.clearProperty("ENABLE_COST_BASED_JOIN_ORDER");
+        super.tearDown();
+    }
+
+    private static String query(Shape shape, int tables) {
+        StringBuilder sb = new StringBuilder("SELECT J1.VAL FROM J1");
+        for (int ii = 2; ii <= tables; ++ii) {
+            sb.append(", J").append(ii);
+        }
+        String where = " WHERE ";
+        for (int ii = 2; ii <= tables; ++ii) {
+            if (shape == Shape.STAR) {
+                sb.append(where).append("J").append(ii).append(".ID = J1.FACT_ID");
+            }
+            else {
+                sb.append(where).append("J").append(ii).append(".PARENT_ID = J").append(ii - 1).append(".ID");
+            }
+            where = " AND ";
+        }
+        if (shape == Shape.CHAIN_FILTER_LAST) {
+            sb.append(where).append("J").append(tables).append(".ID = ?");
+        }
+        else {
+            sb.append(where).append("J1.VAL > ?");
+        }
+        return sb.toString();
+    }
+
+    private static String writtenOrder(int tables) {
+        StringBuilder sb = new StringBuilder("J1");
+        for (int ii = 2; ii <= tables; ++ii) {
+            sb.append(",J").append(ii);
+        }
+        return sb.toString();
+    }
+
+    public void testJoinOrderPlanning() {
+        System.out.printf("%-18s %6s %12s %14s %14s\n",
+                "shape", "tables", "plan ms", "chosen cost", "written cost");
+        for (Shape shape : Shape.values()) {
+            for (int tables = 2; tables <= MAX_TABLES; ++tables) {
+                String sql = query(shape, tables);
+                // warm up
+                CompiledPlan plan = compileAdHocPlan(sql);
+                long start = System.nanoTime();
+                for (int ii = 0; ii < ITERATIONS; ++ii) {
+                    plan = compileAdHocPlan(sql);
+                }
+                double millis = (System.nanoTime() - start) / 1000000.0 / ITERATIONS;
+                CompiledPlan written = compileAdHocPlanWithJoinOrder(sql, writtenOrder(tables));
+                System.out.printf("%-18s %6d %12.2f %14.0f %14.0f\n",
+                        shape, tables, millis, plan.cost, written.cost);
+                // The order as written is always one of the candidates
+                assertTrue(plan.cost <= written.cost);
+            }
+        }
+    }
+}
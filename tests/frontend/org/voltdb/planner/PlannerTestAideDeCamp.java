@@ -61,6 +61,8 @@ public class PlannerTestAideDeCamp {
 
     private CompiledPlan m_currentPlan = null;
 
+    private DatabaseEstimates m_estimates = null;
+
     /**
      * Loads the schema at ddlurl and setups a voltcompiler / hsql instance.
      * @param ddlurl URL to the schema/ddl file.
@@ -86,6 +88,13 @@ public class PlannerTestAideDeCamp {
         return db;
     }
 
+    /**
+     * Plan the following statements with these estimates instead of the defaults.
+     */
+    void setDatabaseEstimates(DatabaseEstimates estimates) {
+        m_estimates = estimates;
+    }
+
     /**
      * Compile a statement and return the head of the plan.
      * @param sql
@@ -101,6 +110,11 @@ public class PlannerTestAideDeCamp {
         return m_currentPlan;
     }
 
+    CompiledPlan compileAdHocPlan(String sql, String joinOrder) {
+        compile(sql, 0, joinOrder, true, false, DeterminismMode.SAFER);
+        return m_currentPlan;
+    }
+
     List<AbstractPlanNode> compile(String sql, int paramCount, boolean inferPartitioning, boolean singlePartition, String joinOrder) {
         return compile(sql, paramCount, joinOrder, inferPartitioning, singlePartition, DeterminismMode.SAFER);
     }
@@ -135,7 +149,7 @@ public class PlannerTestAideDeCamp {
         // name will look like "basename-stmt-#"
         String name = catalogStmt.getParent().getTypeName() + "-" + catalogStmt.getTypeName();
 
-        DatabaseEstimates estimates = new DatabaseEstimates();
+        DatabaseEstimates estimates = (m_estimates == null) ? new DatabaseEstimates() : m_estimates;
         TrivialCostModel costModel = new TrivialCostModel();
         StatementPartitioning partitioning;
         if (inferPartitioning) {
@@ -37,6 +37,7 @@ import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 import org.json_voltpatches.JSONException;
 import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
 import org.voltdb.compiler.DeterminismMode;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.TupleValueExpression;
@@ -138,6 +139,22 @@ public class PlannerTestCase extends TestCase {
         return cp;
     }
 
+    /**
+     * Compile an ad hoc statement with the tables joined in the given order.
+     */
+    protected CompiledPlan compileAdHocPlanWithJoinOrder(String sql, String joinOrder) {
+        CompiledPlan cp = null;
+        try {
+            cp = m_aide.compileAdHocPlan(sql, joinOrder);
+            assertTrue(cp != null);
+        }
+        catch (Exception ex) {
+            ex.printStackTrace();
+            fail(ex.getMessage());
+        }
+        return cp;
+    }
+
     protected CompiledPlan compileAdHocPlan(String sql,
                                             boolean inferPartitioning,
                                             boolean forcedSP) {
@@ -282,6 +299,14 @@ public class PlannerTestCase extends TestCase {
         return m_aide.getDatabase();
     }
 
+    /**
+     * Plan the following statements with these table estimates, as if they
+     * came from live statistics, instead of the catalog defaults.
+     */
+    protected void setDatabaseEstimates(DatabaseEstimates estimates) {
+        m_aide.setDatabaseEstimates(estimates);
+    }
+
     protected void printExplainPlan(List<AbstractPlanNode> planNodes) {
         for (AbstractPlanNode apn: planNodes) {
             System.out.println(apn.toExplainPlanString());
@@ -419,6 +419,38 @@ public class TestJoinOrder extends PlannerTestCase {
 
     }
 
+    public void testLargeJoinOrderByCost() {
+        // Too many tables to try every order. The written order scans T1 to T5 before it gets
+        // to the only filter, the cheapest order starts from the single row of I7 instead.
+        String sql = "select * FROM T1, T2, T3, T4, T5, I6, I7 " +
+                "WHERE I7.G = ? AND I6.F = I7.G AND T5.E = I6.F AND T4.D = T5.E " +
+                "AND T3.C = T4.D AND T2.B = T3.C AND T1.A = T2.B";
+        // Off by default, the order as written is kept: I6 and I7 are inline index scans of
+        // the two outermost NESTLOOP INDEX joins, so they are explained first
+        validJoinOrder(compile(sql).toExplainPlanString(), "I7", "I6", "T1", "T2", "T3", "T4", "T5");
+
+        System.setProperty("ENABLE_COST_BASED_JOIN_ORDER", "true");
+        try {
+            String explain = compile(sql).toExplainPlanString();
+            // I6 is the inline index scan of a NESTLOOP INDEX join with I7, so it is explained first
+            validJoinOrder(explain, "I6", "I7", "T5", "T4", "T3", "T2", "T1");
+            assertTrue(explain.contains("INDEX SCAN of \"I7\" using its primary key index"));
+
+            // The order as written is still planned, and wins when it is no worse
+            sql = "select * FROM I7, T1, T2, T3, T4, T5, T6 WHERE I7.G = ?";
+            explain = compile(sql).toExplainPlanString();
+            validJoinOrder(explain, "I7", "T1", "T2", "T3", "T4", "T5", "T6");
+
+            // The outer joins keep their order, but joining T6 and T7 first is cheaper
+            sql = "select * FROM T1, T2, T3 LEFT JOIN T4 ON T3.C = T4.D LEFT JOIN T5 ON T3.C = T5.E, T6,T7";
+            explain = compile(sql).toExplainPlanString();
+            validJoinOrder(explain, "T7", "T6", "T1", "T2", "T3", "T4", "T5");
+        }
+        finally {
+            System.clearProperty("ENABLE_COST_BASED_JOIN_ORDER");
+        }
+    }
+
     @Override
     protected void setUp() throws Exception {
         setupSchema(true, TestJoinOrder.class.getResource("testplans-joinorder-ddl.sql"), "testjoinorder");
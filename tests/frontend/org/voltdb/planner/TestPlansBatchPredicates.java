@@ -0,0 +1,92 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.planner;
+
+import java.util.List;
+
+import org.voltdb.expressions.ExpressionUtil;
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.AbstractScanPlanNode;
+import org.voltdb.types.PlanNodeType;
+
+public class TestPlansBatchPredicates extends PlannerTestCase {
+
+    private AbstractScanPlanNode scanOf(String sql, PlanNodeType scanType) {
+        AbstractPlanNode pn = compile(sql);
+        List<AbstractPlanNode> scans = pn.findAllNodesOfType(scanType);
+        assertEquals(1, scans.size());
+        AbstractScanPlanNode scan = (AbstractScanPlanNode) scans.get(0);
+        assertNotNull(scan.getPredicate());
+        return scan;
+    }
+
+    private void checkBatchable(String sql, PlanNodeType scanType, boolean batchable) {
+        AbstractScanPlanNode scan = scanOf(sql, scanType);
+        assertEquals(sql, batchable, ExpressionUtil.isBatchablePredicate(scan.getPredicate()));
+        assertEquals(sql, batchable, scan.toJSONString().contains("PREDICATE_BATCHABLE"));
+    }
+
+    public void testDisabledByDefault() {
+        System.clearProperty("ENABLE_BATCH_PREDICATES");
+        AbstractScanPlanNode scan = scanOf("select ID from T where SI > 5", PlanNodeType.SEQSCAN);
+        assertTrue(ExpressionUtil.isBatchablePredicate(scan.getPredicate()));
+        assertFalse(scan.toJSONString().contains("PREDICATE_BATCHABLE"));
+    }
+
+    public void testBatchablePredicates() {
+        checkBatchable("select ID from T where SI > ?", PlanNodeType.SEQSCAN, true);
+        checkBatchable("select ID from T where TI = 1 and SI < ID", PlanNodeType.SEQSCAN, true);
+        checkBatchable("select ID from T where SI + TI * 2 >= ? or ID <> 3", PlanNodeType.SEQSCAN, true);
+        checkBatchable("select ID from T where TS < ?", PlanNodeType.SEQSCAN, true);
+        // The filter left over after the index lookup
+        checkBatchable("select ID from T where BI = ? and SI - ID > 5", PlanNodeType.INDEXSCAN, true);
+    }
+
+    public void testNonBatchablePredicates() {
+        // Other column types
+        checkBatchable("select ID from T where F > 1.5", PlanNodeType.SEQSCAN, false);
+        checkBatchable("select ID from T where V = 'abc'", PlanNodeType.SEQSCAN, false);
+        // Other operators
+        checkBatchable("select ID from T where SI / 2 > 3", PlanNodeType.SEQSCAN, false);
+        checkBatchable("select ID from T where not (SI > 5)", PlanNodeType.SEQSCAN, false);
+        checkBatchable("select ID from T where SI is null", PlanNodeType.SEQSCAN, false);
+        checkBatchable("select ID from T where SI in (1, 2, 3)", PlanNodeType.SEQSCAN, false);
+        // Only part of the predicate qualifies
+        checkBatchable("select ID from T where SI > 5 and V = 'abc'", PlanNodeType.SEQSCAN, false);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        System.setProperty("ENABLE_BATCH_PREDICATES", "true");
+        setupSchema(TestPlansBatchPredicates.class.getResource("testplans-batchpredicate-ddl.sql"),
+                "testplansbatchpredicates", false);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        System.clearProperty("ENABLE_BATCH_PREDICATES");
+        super.tearDown();
+    }
+
+}
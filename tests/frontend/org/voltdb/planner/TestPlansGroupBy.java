@@ -26,6 +26,7 @@ package org.voltdb.planner;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.voltdb.compiler.DatabaseEstimates;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
@@ -1548,6 +1549,44 @@ public class TestPlansGroupBy extends PlannerTestCase {
         checkQueriesPlansAreTheSame(sql, sql_rewrote);
     }
 
+    public void testHashAggregateGroupCountEstimate() {
+        // COL_RF_HASH is not ordered, so F_VAL3 is grouped by a hash aggregate
+        AbstractPlanNode pn = compile("SELECT F_VAL3, COUNT(*) FROM RF GROUP BY F_VAL3");
+        List<AbstractPlanNode> aggs = pn.findAllNodesOfType(PlanNodeType.HASHAGGREGATE);
+        assertEquals(1, aggs.size());
+        HashAggregatePlanNode hashAgg = (HashAggregatePlanNode) aggs.get(0);
+
+        // No statistics, no estimate
+        DatabaseEstimates estimates = new DatabaseEstimates();
+        hashAgg.computeCostEstimates(100000, null, getDatabase(), estimates, null);
+        assertEquals(0, hashAgg.getEstimatedGroupCount());
+
+        // Statistics of an index on other columns don't help
+        DatabaseEstimates.TableEstimates rfEstimates = new DatabaseEstimates.TableEstimates();
+        rfEstimates.indexDistinctKeys.put("COL_RF_TREE1", 20L);
+        estimates.setEstimatesForTable("RF", rfEstimates);
+        hashAgg.computeCostEstimates(100000, null, getDatabase(), estimates, null);
+        assertEquals(0, hashAgg.getEstimatedGroupCount());
+
+        // As many groups as keys in the index on the group by column,
+        // but no more than input rows
+        rfEstimates.indexDistinctKeys.put("COL_RF_HASH", 500L);
+        hashAgg.computeCostEstimates(100000, null, getDatabase(), estimates, null);
+        assertEquals(500, hashAgg.getEstimatedGroupCount());
+        hashAgg.computeCostEstimates(100, null, getDatabase(), estimates, null);
+        assertEquals(100, hashAgg.getEstimatedGroupCount());
+
+        // The EE only gets the estimate when the arena hash table is enabled
+        assertFalse(hashAgg.toJSONString().contains("ESTIMATED_GROUP_COUNT"));
+        System.setProperty("ENABLE_ARENA_HASH_AGGREGATION", "true");
+        try {
+            assertTrue(hashAgg.toJSONString().contains("\"ESTIMATED_GROUP_COUNT\":100"));
+        }
+        finally {
+            System.clearProperty("ENABLE_ARENA_HASH_AGGREGATION");
+        }
+    }
+
     public void testENG389_Having() {
         boolean asItWas = AbstractExpression.disableVerboseExplainForDebugging();
         //      CREATE VIEW V_P1 (V_A1, V_B1, V_CNT, V_SUM_C1, V_SUM_D1)
@@ -0,0 +1,118 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package org.voltdb.planner;
+
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
+import org.voltdb.plannodes.NestLoopIndexPlanNode;
+import org.voltdb.plannodes.NestLoopPlanNode;
+import org.voltdb.plannodes.SeqScanPlanNode;
+import org.voltdb.types.JoinType;
+import org.voltdb.types.PlanNodeType;
+
+public class TestPlansHashJoin extends PlannerTestCase {
+
+    public void testDisabledByDefault() {
+        System.clearProperty("ENABLE_HASH_JOIN");
+        AbstractPlanNode pn = compile("select * FROM R1 JOIN R2 ON R1.C = R2.C");
+        assertTrue(pn.getChild(0).getChild(0) instanceof NestLoopPlanNode);
+    }
+
+    public void testBasicHashJoin() {
+        AbstractPlanNode pn = compile("select * FROM R1 JOIN R2 ON R1.C = R2.C");
+        AbstractPlanNode n = pn.getChild(0).getChild(0);
+        assertTrue(n instanceof HashJoinPlanNode);
+        HashJoinPlanNode hj = (HashJoinPlanNode) n;
+        assertEquals(JoinType.INNER, hj.getJoinType());
+        assertEquals(1, hj.getOuterHashExpressions().size());
+        // The hashed equality is not re-evaluated as a join predicate
+        assertNull(hj.getJoinPredicate());
+        for (int ii = 0; ii < 2; ii++) {
+            assertTrue(n.getChild(ii) instanceof SeqScanPlanNode);
+        }
+        assertEquals(5, pn.getOutputSchema().getColumns().size());
+
+        // Multi-column equi-joins hash on every column pair
+        pn = compile("select * FROM R1 JOIN R2 ON R1.A = R2.A AND R1.C = R2.C");
+        hj = (HashJoinPlanNode) pn.getChild(0).getChild(0);
+        assertEquals(2, hj.getOuterHashExpressions().size());
+        assertEquals(2, hj.getInnerHashExpressions().size());
+
+        // Each side of the equality must only reference its own input
+        pn = compile("select * FROM R1 X, R2, R1 Y WHERE X.C = R2.C AND R2.A = Y.A");
+        assertEquals(2, pn.findAllNodesOfType(PlanNodeType.HASHJOIN).size());
+    }
+
+    public void testNonHashableJoins() {
+        // No equality
+        AbstractPlanNode pn = compile("select * FROM R1 JOIN R2 ON R1.C > R2.C");
+        assertTrue(pn.getChild(0).getChild(0) instanceof NestLoopPlanNode);
+
+        // R1.C + 1 is a BIGINT and R2.C an INTEGER, their hashes would not match
+        pn = compile("select * FROM R1 JOIN R2 ON R1.C + 1 = R2.C");
+        assertTrue(pn.getChild(0).getChild(0) instanceof NestLoopPlanNode);
+
+        // FULL joins need every unmatched tuple of both inputs
+        pn = compile("select * FROM R1 FULL JOIN R2 ON R1.C = R2.C");
+        assertTrue(pn.getChild(0).getChild(0) instanceof NestLoopPlanNode);
+    }
+
+    public void testIndexStillWins() {
+        // An index on the inner join column beats building a hash table
+        AbstractPlanNode pn = compile("select * FROM R1 JOIN R3 ON R1.A = R3.A");
+        AbstractPlanNode n = pn.getChild(0).getChild(0);
+        assertTrue(n instanceof NestLoopIndexPlanNode);
+    }
+
+    public void testOuterHashJoin() {
+        AbstractPlanNode pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.C = R2.C AND R2.A > R1.D");
+        AbstractPlanNode n = pn.getChild(0).getChild(0);
+        assertTrue(n instanceof HashJoinPlanNode);
+        HashJoinPlanNode hj = (HashJoinPlanNode) n;
+        assertEquals(JoinType.LEFT, hj.getJoinType());
+        // The rest of the ON clause is applied to each matching pair
+        assertNotNull(hj.getJoinPredicate());
+    }
+
+    public void testOrderByIsNotEliminated() {
+        // The hash join does not preserve the order of either input
+        AbstractPlanNode pn = compile("select * FROM R1 JOIN R2 ON R1.C = R2.C ORDER BY R1.A");
+        assertEquals(1, pn.findAllNodesOfType(PlanNodeType.HASHJOIN).size());
+        assertEquals(1, pn.findAllNodesOfType(PlanNodeType.ORDERBY).size());
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        System.setProperty("ENABLE_HASH_JOIN", "true");
+        setupSchema(TestJoinOrder.class.getResource("testplans-join-ddl.sql"), "testplanshashjoin", false);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        System.clearProperty("ENABLE_HASH_JOIN");
+        super.tearDown();
+    }
+
+}
@@ -184,6 +184,12 @@ public class TestPlansLimit extends PlannerTestCase {
         // Replicated table
         pns = compileToFragments("select A1 from R1 order by A1 limit 1");
         checkInlineLimitWithOrderby(pns, false);
+
+        // The sort keeps only limit + offset tuples when both are inlined
+        pns = compileToFragments("select A1 from R1 order by A1 limit 3 offset 2");
+        checkInlineLimitWithOrderby(pns, false);
+        pns = compileToFragments("select A1 from P1 order by A1 limit 3 offset 2");
+        checkInlineLimitWithOrderby(pns, true);
     }
 
 
@@ -0,0 +1,184 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.planner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.DeterminismMode;
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.AggregatePlanNode;
+import org.voltdb.plannodes.SeqScanPlanNode;
+import org.voltdb.types.ExpressionType;
+import org.voltdb.types.PlanNodeType;
+
+public class TestPlansParallelReplicatedScans extends PlannerTestCase {
+
+    // Read-only procedures and ad hoc statements don't have to be deterministic.
+    // A read of replicated tables is only multi-partition if it was asked to be.
+    private List<AbstractPlanNode> compileReadOnly(String sql) {
+        return fragmentsOf(compileAdHocPlan(sql, false, false, DeterminismMode.FASTER));
+    }
+
+    private static List<AbstractPlanNode> fragmentsOf(CompiledPlan plan) {
+        List<AbstractPlanNode> pns = new ArrayList<>();
+        pns.add(plan.rootPlanGraph);
+        if (plan.subPlanGraph != null) {
+            pns.add(plan.subPlanGraph);
+        }
+        return pns;
+    }
+
+    private SeqScanPlanNode slicedScanOf(String sql, String sliceColumn) {
+        List<AbstractPlanNode> pns = compileReadOnly(sql);
+        assertEquals(sql, 2, pns.size());
+        assertTrue(pns.get(0).findAllNodesOfType(PlanNodeType.SEQSCAN).isEmpty());
+        List<AbstractPlanNode> scans = pns.get(1).findAllNodesOfType(PlanNodeType.SEQSCAN);
+        assertEquals(1, scans.size());
+        SeqScanPlanNode scan = (SeqScanPlanNode) scans.get(0);
+        assertEquals(sql, sliceColumn, scan.getParallelSliceColumn().getTypeName());
+        assertTrue(scan.toJSONString().contains("PARALLEL_SLICE_COLUMN"));
+        return scan;
+    }
+
+    private void checkNotSliced(List<AbstractPlanNode> pns) {
+        assertEquals(1, pns.size());
+        for (AbstractPlanNode scan : pns.get(0).findAllNodesOfType(PlanNodeType.SEQSCAN)) {
+            assertNull(((SeqScanPlanNode) scan).getParallelSliceColumn());
+            assertFalse(scan.toJSONString().contains("PARALLEL_SLICE_COLUMN"));
+        }
+    }
+
+    public void testDisabledByDefault() {
+        System.clearProperty("ENABLE_PARALLEL_REPLICATED_SCANS");
+        checkNotSliced(compileReadOnly("select sum(F) from R where F > ?"));
+    }
+
+    public void testSlicedScans() {
+        // Slices go by the primary key, or else the first column that can be hashinated
+        slicedScanOf("select ID, V from R where F > ?", "ID");
+        slicedScanOf("select F from R_NOKEY", "B");
+
+        // Aggregation is pushed down to the slices like for a partitioned table
+        SeqScanPlanNode scan = slicedScanOf("select count(*), sum(F), max(V) from R where F > ?", "ID");
+        assertNotNull(scan.getInlinePlanNode(PlanNodeType.AGGREGATE));
+        assertEquals(1, findAllAggPlanNodes(compileReadOnly("select count(*), sum(F), max(V) from R").get(0)).size());
+        scan = slicedScanOf("select V, avg(F) from R group by V", "ID");
+        assertNotNull(scan.getInlinePlanNode(PlanNodeType.HASHAGGREGATE));
+
+        // So are limits
+        slicedScanOf("select ID from R order by F limit 10", "ID");
+        List<AbstractPlanNode> pns = compileReadOnly("select ID from R order by F limit 10");
+        assertEquals(1, pns.get(0).findAllNodesOfType(PlanNodeType.LIMIT).size());
+        assertEquals(1, pns.get(1).findAllNodesOfType(PlanNodeType.LIMIT).size());
+
+        String explain = buildExplainPlan(compileReadOnly("select ID from R where F > 1.5"));
+        assertTrue(explain, explain.contains("(the slice of each partition by ID)"));
+    }
+
+    public void testSlicedAggregates() {
+        // Groups are merged and sorted on the coordinator
+        String sql = "select Z, max(A) from R_TREE group by Z order by Z";
+        SeqScanPlanNode scan = slicedScanOf(sql, "A");
+        assertNotNull(scan.getInlinePlanNode(PlanNodeType.HASHAGGREGATE));
+        List<AbstractPlanNode> pns = compileReadOnly(sql);
+        assertEquals(1, pns.get(0).findAllNodesOfType(PlanNodeType.ORDERBY).size());
+        assertEquals(1, pns.get(0).findAllNodesOfType(PlanNodeType.HASHAGGREGATE).size());
+
+        // AVG is split into SUM and COUNT for the slices
+        sql = "select V, avg(F) from R group by V order by V";
+        scan = slicedScanOf(sql, "ID");
+        AggregatePlanNode agg = (AggregatePlanNode) scan.getInlinePlanNode(PlanNodeType.HASHAGGREGATE);
+        assertEquals(Arrays.asList(ExpressionType.AGGREGATE_SUM, ExpressionType.AGGREGATE_COUNT),
+                agg.getAggregateTypes());
+        slicedScanOf("select avg(F) from R_NOKEY", "B");
+        slicedScanOf("select B, max(F) from R_NOKEY group by B order by B", "B");
+    }
+
+    public void testNotSliced() {
+        // No column to slice by
+        checkNotSliced(compileReadOnly("select F from R_FLOATS"));
+        // An index scan
+        checkNotSliced(compileReadOnly("select F from R where ID = ?"));
+        // Joins, subqueries and unions
+        checkNotSliced(compileReadOnly("select R.F from R, R_NOKEY where R.ID = R_NOKEY.B"));
+        checkNotSliced(compileReadOnly("select F from R where ID in (select B from R_NOKEY)"));
+        checkNotSliced(compileReadOnly("select F from R union select F from R_NOKEY"));
+        // A partitioned table is scanned by every partition anyway
+        List<AbstractPlanNode> pns = compileReadOnly("select F from P");
+        assertEquals(2, pns.size());
+        assertNull(((SeqScanPlanNode) pns.get(1).findAllNodesOfType(PlanNodeType.SEQSCAN).get(0)).getParallelSliceColumn());
+        // A single partition statement
+        CompiledPlan plan = compileAdHocPlan("select F from R", false, true, DeterminismMode.FASTER);
+        checkNotSliced(Collections.singletonList(plan.rootPlanGraph));
+        // A statement of a read-write procedure
+        checkNotSliced(compileToFragments("select F from R"));
+        // An ad hoc statement that can run on one partition
+        checkNotSliced(fragmentsOf(compileAdHocPlan("select F from R", true, false, DeterminismMode.FASTER)));
+        // A FROM clause subquery
+        checkNotSliced(compileReadOnly("select * from (select Z, max(A) from R_TREE group by Z) sqy"));
+        checkNotSliced(compileReadOnly("select * from (select Z, max(A) from R_TREE group by Z order by Z) sqy"));
+    }
+
+    public void testOnlyLargeTablesWithStatistics() {
+        // The catalog defaults don't tell how large a table is
+        setDatabaseEstimates(new DatabaseEstimates());
+        checkNotSliced(compileReadOnly("select F from R where F > ?"));
+        // Nor do small tables gain from it
+        setDatabaseEstimates(estimatesOf(PlanAssembler.PARALLEL_SCAN_MIN_TUPLES - 1));
+        checkNotSliced(compileReadOnly("select F from R where F > ?"));
+        setDatabaseEstimates(estimatesOf(PlanAssembler.PARALLEL_SCAN_MIN_TUPLES));
+        slicedScanOf("select F from R where F > ?", "ID");
+    }
+
+    // As if live statistics had counted this many rows in each replicated table
+    private static DatabaseEstimates estimatesOf(long tuples) {
+        DatabaseEstimates estimates = new DatabaseEstimates();
+        for (String table : new String[] {"R", "R_NOKEY", "R_FLOATS", "R_TREE"}) {
+            DatabaseEstimates.TableEstimates tableEstimates = new DatabaseEstimates.TableEstimates();
+            tableEstimates.maxTuples = tuples;
+            tableEstimates.minTuples = tuples;
+            estimates.setEstimatesForTable(table, tableEstimates);
+        }
+        return estimates;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        System.setProperty("ENABLE_PARALLEL_REPLICATED_SCANS", "true");
+        setupSchema(TestPlansParallelReplicatedScans.class.getResource("testplans-parallelreplicated-ddl.sql"),
+                "testplansparallelreplicated", false);
+        setDatabaseEstimates(estimatesOf(1000000));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        System.clearProperty("ENABLE_PARALLEL_REPLICATED_SCANS");
+        super.tearDown();
+    }
+
+}
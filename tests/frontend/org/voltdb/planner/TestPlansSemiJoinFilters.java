@@ -0,0 +1,109 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.planner;
+
+import java.util.List;
+
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.SeqScanPlanNode;
+import org.voltdb.types.PlanNodeType;
+
+public class TestPlansSemiJoinFilters extends PlannerTestCase {
+
+    private SeqScanPlanNode scanOf(List<AbstractPlanNode> pns, String tableName) {
+        for (AbstractPlanNode scan : pns.get(pns.size() - 1).findAllNodesOfType(PlanNodeType.SEQSCAN)) {
+            if (tableName.equals(((SeqScanPlanNode) scan).getTargetTableName())) {
+                return (SeqScanPlanNode) scan;
+            }
+        }
+        fail("No sequential scan of " + tableName);
+        return null;
+    }
+
+    private SeqScanPlanNode filteredScanOf(String sql, String tableName, String probeColumn) {
+        List<AbstractPlanNode> pns = compileToFragments(sql);
+        assertEquals(sql, 2, pns.size());
+        SeqScanPlanNode scan = scanOf(pns, tableName);
+        assertNotNull(sql, scan.getSemiJoinProbeColumn());
+        assertEquals(sql, probeColumn, scan.getSemiJoinProbeColumn().getTypeName());
+        assertTrue(scan.getSemiJoinSourceColumn() >= 0);
+        assertTrue(scan.toJSONString().contains("SEMI_JOIN_PROBE_COLUMN"));
+        String explain = buildExplainPlan(pns);
+        assertTrue(explain, explain.contains("(skipping rows whose " + probeColumn + " matches no outer join key)"));
+        return scan;
+    }
+
+    private void checkNotFiltered(String sql) {
+        for (AbstractPlanNode pn : compileToFragments(sql)) {
+            for (AbstractPlanNode scan : pn.findAllNodesOfType(PlanNodeType.SEQSCAN)) {
+                assertNull(sql, ((SeqScanPlanNode) scan).getSemiJoinProbeColumn());
+                assertFalse(sql, scan.toJSONString().contains("SEMI_JOIN_PROBE_COLUMN"));
+            }
+        }
+    }
+
+    public void testDisabledByDefault() {
+        System.clearProperty("ENABLE_SEMI_JOIN_FILTERS");
+        checkNotFiltered("select P.V from R join P on R.NAME = P.R_NAME where R.ID = ?");
+    }
+
+    public void testFilteredScans() {
+        // The keys of the replicated table's rows that are left after its filter
+        SeqScanPlanNode scan = filteredScanOf("select P.V from R join P on R.NAME = P.R_NAME where R.ID = ?",
+                "P", "R_NAME");
+        AbstractPlanNode outer = scan.getParent(0).getChild(0);
+        assertEquals(PlanNodeType.INDEXSCAN, outer.getPlanNodeType());
+        assertEquals("NAME", outer.getOutputSchema().getColumns().get(scan.getSemiJoinSourceColumn()).getColumnName());
+        // Or of the filtered rows of a co-partitioned table
+        scan = filteredScanOf("select P.V from P join P2 on P.ID = P2.ID where P2.R_ID = ?", "P", "ID");
+        outer = scan.getParent(0).getChild(0);
+        assertEquals("ID", outer.getOutputSchema().getColumns().get(scan.getSemiJoinSourceColumn()).getColumnName());
+    }
+
+    public void testNotFiltered() {
+        // The inner side is looked up by an index
+        checkNotFiltered("select P.V from R join P on R.ID = P.R_ID where R.REGION = ?");
+        checkNotFiltered("select P.V from R join P on R.ID = P.BIG_R_ID where R.REGION = ?");
+        // The outer side isn't filtered, so every key would pass
+        checkNotFiltered("select P.V from R join P on R.NAME = P.R_NAME");
+        // The join is on the coordinator
+        checkNotFiltered("select P.V from R left join P on R.NAME = P.R_NAME where R.ID = ?");
+        // A single partition statement
+        checkNotFiltered("select P.V from R join P on R.NAME = P.R_NAME where R.ID = ? and P.ID = ?");
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        System.setProperty("ENABLE_SEMI_JOIN_FILTERS", "true");
+        setupSchema(TestPlansSemiJoinFilters.class.getResource("testplans-semijoin-ddl.sql"),
+                "testplanssemijoin", false);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        System.clearProperty("ENABLE_SEMI_JOIN_FILTERS");
+        super.tearDown();
+    }
+
+}
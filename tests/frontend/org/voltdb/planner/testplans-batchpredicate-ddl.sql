@@ -0,0 +1,10 @@
+CREATE TABLE T (
+	ID INTEGER NOT NULL,
+	TI TINYINT,
+	SI SMALLINT,
+	BI BIGINT,
+	TS TIMESTAMP,
+	F FLOAT,
+	V VARCHAR(32)
+);
+CREATE INDEX T_BI ON T (BI);
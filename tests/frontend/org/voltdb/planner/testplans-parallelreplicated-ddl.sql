@@ -0,0 +1,25 @@
+CREATE TABLE R (
+	ID INTEGER NOT NULL,
+	V VARCHAR(32),
+	F FLOAT,
+	PRIMARY KEY (ID)
+);
+CREATE TABLE R_NOKEY (
+	F FLOAT,
+	B BIGINT
+);
+CREATE TABLE R_FLOATS (
+	F FLOAT,
+	D DECIMAL
+);
+CREATE TABLE P (
+	ID INTEGER NOT NULL,
+	F FLOAT
+);
+PARTITION TABLE P ON COLUMN ID;
+CREATE TABLE R_TREE (
+	A BIGINT NOT NULL,
+	B BIGINT NOT NULL,
+	Z BIGINT NOT NULL
+);
+CREATE INDEX R_TREE_AB ON R_TREE (A, B);
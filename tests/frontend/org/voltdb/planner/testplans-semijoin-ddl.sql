@@ -0,0 +1,22 @@
+CREATE TABLE R (
+	ID INTEGER NOT NULL,
+	REGION INTEGER,
+	NAME VARCHAR(32),
+	F FLOAT,
+	PRIMARY KEY (ID)
+);
+CREATE TABLE P (
+	ID INTEGER NOT NULL,
+	R_ID INTEGER,
+	R_NAME VARCHAR(32),
+	BIG_R_ID BIGINT,
+	F FLOAT,
+	V VARCHAR(64)
+);
+PARTITION TABLE P ON COLUMN ID;
+CREATE TABLE P2 (
+	ID INTEGER NOT NULL,
+	R_ID INTEGER,
+	V VARCHAR(64)
+);
+PARTITION TABLE P2 ON COLUMN ID;
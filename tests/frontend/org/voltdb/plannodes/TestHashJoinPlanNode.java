@@ -0,0 +1,118 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.plannodes;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+
+import org.json_voltpatches.JSONObject;
+import org.voltdb.VoltType;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.types.JoinType;
+import org.voltdb.types.PlanNodeType;
+import org.voltdb.types.SortDirectionType;
+
+public class TestHashJoinPlanNode extends TestCase
+{
+    static final String TABLE1 = "table1";
+    static final String[] T1COLS = { "t1col0", "t1col1", "t1col2" };
+
+    static final String TABLE2 = "table2";
+    static final String[] T2COLS = { "t2col0", "t2col1" };
+
+    private static TupleValueExpression tve(String table, String column, int index) {
+        TupleValueExpression tve = new TupleValueExpression(table, table, column, column, index);
+        tve.setValueType(VoltType.INTEGER);
+        tve.setValueSize(VoltType.INTEGER.getLengthInBytesForFixedTypes());
+        return tve;
+    }
+
+    private static HashJoinPlanNode makeJoin() {
+        HashJoinPlanNode dut = new HashJoinPlanNode();
+        dut.addAndLinkChild(new MockPlanNode(TABLE1, T1COLS));
+        dut.addAndLinkChild(new MockPlanNode(TABLE2, T2COLS));
+        // table1.t1col2 = table2.t2col1
+        dut.addHashExpressions(tve(TABLE1, T1COLS[2], 2), tve(TABLE2, T2COLS[1], 1));
+        return dut;
+    }
+
+    public void testResolveHashExpressions() throws Exception
+    {
+        HashJoinPlanNode dut = makeJoin();
+        dut.generateOutputSchema(null);
+        dut.resolveColumnIndexes();
+        dut.resolveSortDirection();
+        dut.validate();
+
+        TupleValueExpression outer = (TupleValueExpression) dut.getOuterHashExpressions().get(0);
+        TupleValueExpression inner = (TupleValueExpression) dut.getInnerHashExpressions().get(0);
+        assertEquals(0, outer.getTableIndex());
+        assertEquals(2, outer.getColumnIndex());
+        assertEquals(1, inner.getTableIndex());
+        assertEquals(1, inner.getColumnIndex());
+        assertEquals(T1COLS.length + T2COLS.length, dut.getOutputSchema().size());
+
+        // The EE may build on either input, so the outer ordering is never preserved
+        assertEquals(SortDirectionType.INVALID, dut.getSortDirection());
+        assertFalse(dut.isOutputOrdered(new ArrayList<AbstractExpression>(),
+                                         new ArrayList<SortDirectionType>()));
+    }
+
+    public void testJSONRoundTrip() throws Exception
+    {
+        HashJoinPlanNode dut = makeJoin();
+        dut.setJoinType(JoinType.LEFT);
+        dut.generateOutputSchema(null);
+        dut.resolveColumnIndexes();
+
+        JSONObject jobj = new JSONObject(dut.toJSONString());
+        assertEquals(PlanNodeType.HASHJOIN.name(), jobj.getString("PLAN_NODE_TYPE"));
+
+        HashJoinPlanNode loaded = new HashJoinPlanNode();
+        loaded.loadFromJSONObject(jobj, null);
+        assertEquals(JoinType.LEFT, loaded.getJoinType());
+        assertEquals(1, loaded.getOuterHashExpressions().size());
+        TupleValueExpression outer = (TupleValueExpression) loaded.getOuterHashExpressions().get(0);
+        TupleValueExpression inner = (TupleValueExpression) loaded.getInnerHashExpressions().get(0);
+        assertEquals(0, outer.getTableIndex());
+        assertEquals(2, outer.getColumnIndex());
+        assertEquals(1, inner.getTableIndex());
+        assertEquals(1, inner.getColumnIndex());
+    }
+
+    public void testFullJoinIsRejected() throws Exception
+    {
+        HashJoinPlanNode dut = makeJoin();
+        dut.setJoinType(JoinType.FULL);
+        dut.generateOutputSchema(null);
+        dut.resolveColumnIndexes();
+        try {
+            dut.validate();
+            fail("FULL hash join should not validate");
+        }
+        catch (Exception expected) {
+        }
+    }
+}
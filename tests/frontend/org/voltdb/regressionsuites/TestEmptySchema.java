@@ -76,7 +76,7 @@ public class TestEmptySchema extends RegressionSuite
         assertEquals(expectedSchema.length, results[0].getColumnCount());
         validateSchema(results[0], expectedTable);
 
-        expectedSchema = new ColumnInfo[12];
+        expectedSchema = new ColumnInfo[13];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -89,6 +89,7 @@ public class TestEmptySchema extends RegressionSuite
         expectedSchema[9] = new ColumnInfo("IS_COUNTABLE", VoltType.TINYINT);
         expectedSchema[10] = new ColumnInfo("ENTRY_COUNT", VoltType.BIGINT);
         expectedSchema[11] = new ColumnInfo("MEMORY_ESTIMATE", VoltType.BIGINT);
+        expectedSchema[12] = new ColumnInfo("DISTINCT_KEY_ESTIMATE", VoltType.BIGINT);
         expectedTable = new VoltTable(expectedSchema);
 
         results = client.callProcedure("@Statistics", "INDEX", 0).getResults();
@@ -285,7 +285,7 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         System.out.println("\n\nTESTING MEMORY STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[14];
+        ColumnInfo[] expectedSchema = new ColumnInfo[15];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -300,6 +300,7 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         expectedSchema[11] = new ColumnInfo("POOLEDMEMORY", VoltType.BIGINT);
         expectedSchema[12] = new ColumnInfo("PHYSICALMEMORY", VoltType.BIGINT);
         expectedSchema[13] = new ColumnInfo("JAVAMAXHEAP", VoltType.INTEGER);
+        expectedSchema[14] = new ColumnInfo("NETWORKBUFFERS", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -329,7 +330,7 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         // Based on doc, not code
         // HOST_ID, SITE_ID, and PARTITION_ID all differ.  Fixed to match
         // reality so tests would pass, but, ugh.
-        ColumnInfo[] expectedSchema = new ColumnInfo[9];
+        ColumnInfo[] expectedSchema = new ColumnInfo[14];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -339,6 +340,11 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         expectedSchema[6] = new ColumnInfo("MESSAGES_READ", VoltType.BIGINT);
         expectedSchema[7] = new ColumnInfo("BYTES_WRITTEN", VoltType.BIGINT);
         expectedSchema[8] = new ColumnInfo("MESSAGES_WRITTEN", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("WRITE_CALLS", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("COMPRESSION_INPUT_BYTES", VoltType.BIGINT);
+        expectedSchema[11] = new ColumnInfo("COMPRESSION_OUTPUT_BYTES", VoltType.BIGINT);
+        expectedSchema[12] = new ColumnInfo("COMPRESS_MICROS", VoltType.BIGINT);
+        expectedSchema[13] = new ColumnInfo("DECOMPRESS_MICROS", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -352,6 +358,36 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         validateSchema(results[0], expectedTable);
     }
 
+    public void testHeartbeatStatistics() throws Exception {
+        System.out.println("\n\nTESTING HEARTBEAT STATS\n\n\n");
+        Client client  = getFullyConnectedClient();
+
+        ColumnInfo[] expectedSchema = new ColumnInfo[14];
+        expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
+        expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
+        expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
+        expectedSchema[3] = new ColumnInfo("REMOTE_HOST_ID", VoltType.INTEGER);
+        expectedSchema[4] = new ColumnInfo("REMOTE_HOSTNAME", VoltType.STRING);
+        expectedSchema[5] = new ColumnInfo("PINGS", VoltType.BIGINT);
+        expectedSchema[6] = new ColumnInfo("ROUND_TRIP_P50_MICROS", VoltType.BIGINT);
+        expectedSchema[7] = new ColumnInfo("ROUND_TRIP_P99_MICROS", VoltType.BIGINT);
+        expectedSchema[8] = new ColumnInfo("ROUND_TRIP_MAX_MICROS", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("MAX_MESSAGE_GAP_MILLIS", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("DEAD_HOST_TIMEOUT_MILLIS", VoltType.BIGINT);
+        expectedSchema[11] = new ColumnInfo("NETWORK_STALLS", VoltType.BIGINT);
+        expectedSchema[12] = new ColumnInfo("MAX_NETWORK_STALL_MILLIS", VoltType.BIGINT);
+        expectedSchema[13] = new ColumnInfo("GC_MILLIS", VoltType.BIGINT);
+        VoltTable expectedTable = new VoltTable(expectedSchema);
+
+        VoltTable[] results = client.callProcedure("@Statistics", "heartbeat", 0).getResults();
+        System.out.println("Test heartbeat table: " + results[0].toString());
+        // one aggregate table returned
+        assertEquals(1, results.length);
+        validateSchema(results[0], expectedTable);
+        // every host has a row for each of the other hosts
+        assertEquals(HOSTS * (HOSTS - 1), results[0].getRowCount());
+    }
+
     public void testTopoStatistics() throws Exception {
         System.out.println("\n\nTESTING TOPO STATS\n\n\n");
         Client client  = getFullyConnectedClient();
@@ -138,7 +138,7 @@ public class TestStatisticsSuiteDatabaseElementStats extends StatisticsTestSuite
         System.out.println("\n\nTESTING INDEX STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[12];
+        ColumnInfo[] expectedSchema = new ColumnInfo[13];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -151,6 +151,7 @@ public class TestStatisticsSuiteDatabaseElementStats extends StatisticsTestSuite
         expectedSchema[9] = new ColumnInfo("IS_COUNTABLE", VoltType.TINYINT);
         expectedSchema[10] = new ColumnInfo("ENTRY_COUNT", VoltType.BIGINT);
         expectedSchema[11] = new ColumnInfo("MEMORY_ESTIMATE", VoltType.BIGINT);
+        expectedSchema[12] = new ColumnInfo("DISTINCT_KEY_ESTIMATE", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -180,7 +181,7 @@ public class TestStatisticsSuiteDatabaseElementStats extends StatisticsTestSuite
         System.out.println("\n\nTESTING PROCEDURE STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[19];
+        ColumnInfo[] expectedSchema = new ColumnInfo[25];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -200,6 +201,12 @@ public class TestStatisticsSuiteDatabaseElementStats extends StatisticsTestSuite
         expectedSchema[16] = new ColumnInfo("AVG_PARAMETER_SET_SIZE", VoltType.INTEGER);
         expectedSchema[17] = new ColumnInfo("ABORTS", VoltType.BIGINT);
         expectedSchema[18] = new ColumnInfo("FAILURES", VoltType.BIGINT);
+        expectedSchema[19] = new ColumnInfo("SPILLED_BYTES", VoltType.BIGINT);
+        expectedSchema[20] = new ColumnInfo("PREDICATES", VoltType.BIGINT);
+        expectedSchema[21] = new ColumnInfo("COMPILED_PREDICATES", VoltType.BIGINT);
+        expectedSchema[22] = new ColumnInfo("AVG_FRAGMENT_EXECUTION_TIME", VoltType.BIGINT);
+        expectedSchema[23] = new ColumnInfo("SEMI_JOIN_PRUNED_ROWS", VoltType.BIGINT);
+        expectedSchema[24] = new ColumnInfo("AVG_SEMI_JOIN_PRUNED_ROWS", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
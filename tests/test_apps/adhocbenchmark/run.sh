@@ -67,6 +67,8 @@ function catalog() {
 function server() {
     # if a catalog doesn't exist, build one
     if [ ! -f $APPNAME.jar ]; then catalog; fi
+    # plan the large joins in the cheapest order found instead of as written
+    export VOLTDB_OPTS="$VOLTDB_OPTS -DENABLE_COST_BASED_JOIN_ORDER=true"
     # run the server
     $VOLTDB create -d deployment.xml -l $LICENSE -H localhost $APPNAME.jar
 }
@@ -136,6 +138,14 @@ function benchmark-MP-projections() {
     _benchmark projectionmp
 }
 
+function benchmark-large-joins() {
+    _benchmark joinlarge
+}
+
+function benchmark-large-star-joins() {
+    _benchmark joinstarlarge
+}
+
 function benchmark() {
     benchmark-joins
     benchmark-projections
@@ -145,12 +155,14 @@ function benchmark() {
     benchmark-SP-star-joins
     benchmark-MP-joins
     benchmark-MP-projections
+    benchmark-large-joins
+    benchmark-large-star-joins
     # broken by planner bug for now
     # benchmark-MP-star-joins
 }
 
 function help() {
-    echo "Usage: ./run.sh {clean|catalog|server|benchmark|benchmark-joins|benchmark-projections|benchmark-help}"
+    echo "Usage: ./run.sh {clean|catalog|server|benchmark|benchmark-joins|benchmark-large-joins|benchmark-projections|benchmark-help}"
 }
 
 # Run the target passed as the first arg on the command line
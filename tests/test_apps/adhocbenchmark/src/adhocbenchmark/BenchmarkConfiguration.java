@@ -67,6 +67,9 @@ public class BenchmarkConfiguration {
         installFactory("joinmp",       new JoinTest.MPChainFactory());
         installFactory("joinstarmp",   new JoinTest.MPStarFactory());
         installFactory("projectionmp", new ProjectionTest.MPFactory());
+        // Same as "join" and "joinstar" -- joins large enough that the planner chooses the join order by cost
+        installFactory("joinlarge",     new JoinTest.ChainFactory());
+        installFactory("joinstarlarge", new JoinTest.StarFactory());
         // Install additional benchmark tests here as QueryTestBase.Factory-based factories.
     }
 
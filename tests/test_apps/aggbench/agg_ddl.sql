@@ -124,5 +124,6 @@ CREATE PROCEDURE Q19 AS select coalesce( t2.userlabel, 'UNKNOWN') user_name, t1.
 
 CREATE PROCEDURE Q20 AS SELECT hour( from_unixtime( TB1.timestamp_id / 1000 ) ) time_hour, minute( from_unixtime( TB1.timestamp_id / 1000 ) ) time_minute,  coalesce( TB4.os, 'UNKNOWN') os,  sum( TB1.bytes ) volume  from TB1  LEFT OUTER JOIN TB4 TB4 ON TB1.TB4_id = TB4.TB4_id WHERE TB1.timestamp_id >= 1396332000122 AND TB1.timestamp_id <= 1396335599360 GROUP BY hour( from_unixtime( TB1.timestamp_id / 1000 ) ), minute( from_unixtime( TB1.timestamp_id / 1000 ) ), coalesce( TB4.os, 'UNKNOWN') ORDER BY time_hour, time_minute LIMIT 60;
 
-
-
+-- many groups and integer aggregates, to exercise the hash aggregate group table
+CREATE PROCEDURE Q21 AS select TB4_id, count(*), sum(C4), min(C5), max(C6) from TB1 group by TB4_id;
+CREATE PROCEDURE Q22 AS select C12, C17, count(C2), sum(C11), max(C18) from TB1 group by C12, C17;
@@ -67,18 +67,23 @@ function catalog() {
     if [ $? != 0 ]; then exit; fi
 }
 
-# run the voltdb server locally
+# run the voltdb server locally, grouping hash aggregates in the pre-sized arena hash table
 function server() {
-    # if a catalog doesn't exist, build one
-    if [ ! -f $APPNAME.jar ]; then catalog; fi
+    # the procedures are planned when the catalog is compiled, so always rebuild it
+    export VOLTDB_OPTS="$VOLTDB_OPTS -DENABLE_ARENA_HASH_AGGREGATION=true"
+    catalog
     # truncate the voltdb log
     [[ -d log && -w log ]] && > log/volt.log
-    # run the server
     echo "Starting the VoltDB server."
-    echo "To perform this action manually, use the command line: "
-    echo 
-    echo "${VOLTDB} create -d deployment.xml -l ${LICENSE} -H ${HOST} ${APPNAME}.jar"
-    echo
+    ${VOLTDB} create -d deployment.xml -l ${LICENSE} -H ${HOST} ${APPNAME}.jar
+}
+
+# run the voltdb server locally with the original hash aggregate group map, for comparison
+function server-unordered-map() {
+    # the procedures are planned when the catalog is compiled, so always rebuild it
+    catalog
+    [[ -d log && -w log ]] && > log/volt.log
+    echo "Starting the VoltDB server."
     ${VOLTDB} create -d deployment.xml -l ${LICENSE} -H ${HOST} ${APPNAME}.jar
 }
 
@@ -103,6 +108,10 @@ function client() {
         --statsfile="stats" 
 }
 
+function help() {
+    echo "Usage: ./run.sh {clean|catalog|server|server-unordered-map|restore|sqlclient|client}"
+}
+
 # Run the target passed as the first arg on the command line
 # If no first arg, run server
 if [ $# -gt 1 ]; then help; exit; fi
@@ -77,7 +77,7 @@ public class AggregationBenchmark {
         @Option(desc = "Snapshot path.")
         String snapshotpath = "";
 
-        @Option(desc = "Stored procedure number ( an integer from 1 to 20 )")
+        @Option(desc = "Stored procedure number ( an integer from 1 to 22 )")
         int proc = 1;
 
         @Option(desc = "Filename to write raw summary statistics to.")
@@ -85,7 +85,7 @@ public class AggregationBenchmark {
 
         @Override
         public void validate() {
-            if (proc <= 0 || proc > 20) exitWithMessageAndUsage("procedure number must be in range [1, 20]");
+            if (proc <= 0 || proc > 22) exitWithMessageAndUsage("procedure number must be in range [1, 22]");
         }
     }
 
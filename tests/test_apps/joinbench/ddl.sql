@@ -0,0 +1,53 @@
+-- Fact table, partitioned on its own key so report joins on the
+-- dimension columns can't use the partitioning or an index.
+CREATE TABLE SALES (
+  sale_id BIGINT NOT NULL,
+  customer_id BIGINT NOT NULL,
+  product_id INTEGER NOT NULL,
+  store_id INTEGER NOT NULL,
+  quantity INTEGER NOT NULL,
+  amount FLOAT NOT NULL,
+  PRIMARY KEY (sale_id)
+);
+PARTITION TABLE SALES ON COLUMN sale_id;
+
+-- Dimension tables, replicated and deliberately without indexes on the
+-- join columns.
+CREATE TABLE CUSTOMER (
+  customer_id BIGINT NOT NULL,
+  region_id INTEGER NOT NULL,
+  segment VARCHAR(16) NOT NULL,
+  name VARCHAR(63) NOT NULL
+);
+
+CREATE TABLE PRODUCT (
+  product_id INTEGER NOT NULL,
+  category VARCHAR(16) NOT NULL,
+  price FLOAT NOT NULL
+);
+
+CREATE TABLE STORE (
+  store_id INTEGER NOT NULL,
+  region_id INTEGER NOT NULL,
+  city VARCHAR(63) NOT NULL
+);
+
+CREATE TABLE REGION (
+  region_id INTEGER NOT NULL,
+  name VARCHAR(63) NOT NULL
+);
+
+-- Dimension to dimension
+CREATE PROCEDURE Q1 AS select r.name, count(*) customers from CUSTOMER c, REGION r where c.region_id = r.region_id group by r.name;
+CREATE PROCEDURE Q2 AS select c.segment, s.city, count(*) pairs from CUSTOMER c, STORE s where c.region_id = s.region_id group by c.segment, s.city order by pairs desc limit 10;
+
+-- Fact to dimension
+CREATE PROCEDURE Q3 AS select p.category, sum(s.amount) volume from SALES s, PRODUCT p where s.product_id = p.product_id group by p.category;
+CREATE PROCEDURE Q4 AS select c.segment, sum(s.amount) volume from SALES s, CUSTOMER c where s.customer_id = c.customer_id and c.segment = 'RETAIL' group by c.segment;
+CREATE PROCEDURE Q5 AS select r.name, p.category, sum(s.amount) volume from SALES s, STORE st, REGION r, PRODUCT p where s.store_id = st.store_id and st.region_id = r.region_id and s.product_id = p.product_id group by r.name, p.category order by volume desc limit 20;
+
+-- Intermediate results joined to a dimension
+CREATE PROCEDURE Q6 AS select s.city, t.customers from (select region_id, count(*) customers from CUSTOMER group by region_id) t, STORE s where t.region_id = s.region_id order by t.customers desc, s.city limit 10;
+
+-- Outer join, customers may belong to regions that were never loaded
+CREATE PROCEDURE Q7 AS select coalesce(r.name, 'UNKNOWN') region, count(*) customers from CUSTOMER c left outer join REGION r on c.region_id = r.region_id group by coalesce(r.name, 'UNKNOWN');
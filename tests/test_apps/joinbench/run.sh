@@ -0,0 +1,93 @@
+#!/usr/bin/env bash
+
+APPNAME="joinbench"
+
+# find voltdb binaries in either installation or distribution directory.
+if [ -n "$(which voltdb 2> /dev/null)" ]; then
+    VOLTDB_BIN=$(dirname "$(which voltdb)")
+else
+    VOLTDB_BIN="$(pwd)/../../../bin"
+fi
+# installation layout has all libraries in $VOLTDB_ROOT/lib/voltdb
+if [ -d "$VOLTDB_BIN/../lib/voltdb" ]; then
+    VOLTDB_BASE=$(dirname "$VOLTDB_BIN")
+    VOLTDB_LIB="$VOLTDB_BASE/lib/voltdb"
+    VOLTDB_VOLTDB="$VOLTDB_LIB"
+# distribution layout has libraries in separate lib and voltdb directories
+elif [ -d "$VOLTDB_BIN/../voltdb" ]; then
+    VOLTDB_BASE=$(dirname "$VOLTDB_BIN")
+    VOLTDB_LIB="$VOLTDB_BASE/lib"
+    VOLTDB_VOLTDB="$VOLTDB_BASE/voltdb"
+else
+    VOLTDB_LIB="`pwd`/../../../lib"
+    VOLTDB_VOLTDB="`pwd`/../../../voltdb"
+fi
+
+CLASSPATH=$(ls -x "$VOLTDB_VOLTDB"/voltdb-*.jar | tr '[:space:]' ':')$(ls -x "$VOLTDB_LIB"/*.jar | egrep -v 'voltdb[a-z0-9.-]+\.jar' | tr '[:space:]' ':')
+VOLTDB="$VOLTDB_BIN/voltdb"
+LOG4J="$VOLTDB_VOLTDB/log4j.xml"
+CLIENTLOG4J="$VOLTDB_VOLTDB/../tests/log4j-allconsole.xml"
+LICENSE="$VOLTDB_VOLTDB/license.xml"
+HOST="localhost"
+
+# remove build artifacts
+function clean() {
+    rm -rf obj debugoutput $APPNAME.jar voltdbroot log stats.csv
+}
+
+# compile the source code for the client
+function srccompile() {
+    mkdir -p obj
+    javac -classpath $CLASSPATH -d obj \
+        src/joinbench/*.java
+    # stop if compilation fails
+    if [ $? != 0 ]; then exit; fi
+}
+
+# build an application catalog
+function catalog() {
+    srccompile
+    $VOLTDB compile --classpath obj -o $APPNAME.jar ddl.sql
+    # stop if compilation fails
+    if [ $? != 0 ]; then exit; fi
+}
+
+# run the voltdb server locally, planning equi-joins as hash joins where they are cheaper
+function server() {
+    # the procedures are planned when the catalog is compiled, so always rebuild it
+    export VOLTDB_OPTS="$VOLTDB_OPTS -DENABLE_HASH_JOIN=true"
+    catalog
+    $VOLTDB create -d deployment.xml -l $LICENSE -H $HOST $APPNAME.jar
+}
+
+# run the voltdb server locally with nested loop joins only, for comparison
+function server-nestloop() {
+    # the procedures are planned when the catalog is compiled, so always rebuild it
+    catalog
+    $VOLTDB create -d deployment.xml -l $LICENSE -H $HOST $APPNAME.jar
+}
+
+# run the client that drives the example
+function client() {
+    benchmark
+}
+
+function benchmark() {
+    srccompile
+    java -classpath obj:$CLASSPATH:obj -Dlog4j.configuration=file://$CLIENTLOG4J \
+        joinbench.JoinBenchmark \
+        --servers=localhost:21212 \
+        --sales=500000 \
+        --customers=20000 \
+        --invocations=10 \
+        --statsfile=stats.csv
+}
+
+function help() {
+    echo "Usage: ./run.sh {clean|catalog|server|server-nestloop|client|benchmark}"
+}
+
+# Run the target passed as the first arg on the command line
+# If no first arg, run server
+if [ $# -gt 1 ]; then help; exit; fi
+if [ $# = 1 ]; then $1; else server; fi
@@ -0,0 +1,326 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package joinbench;
+
+import java.io.FileWriter;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltdb.CLIConfig;
+import org.voltdb.VoltTable;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientConfig;
+import org.voltdb.client.ClientFactory;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ClientStatusListenerExt;
+import org.voltdb.client.ProcedureCallback;
+
+/**
+ * Runs join-heavy report queries against dimension tables that have no
+ * indexes on their join columns, and reports the average latency of each.
+ * Run it once against a server started with -DENABLE_HASH_JOIN=true and
+ * once without to compare hash joins with nested loop joins.
+ */
+public class JoinBenchmark {
+
+    // handy, rather than typing this out several times
+    static final String HORIZONTAL_RULE =
+            "----------" + "----------" + "----------" + "----------" +
+            "----------" + "----------" + "----------" + "----------" + "\n";
+
+    static final String[] SEGMENTS = { "RETAIL", "WHOLESALE", "ONLINE", "CORPORATE" };
+    static final String[] CATEGORIES = { "BOOKS", "GAMES", "MUSIC", "TOOLS", "TOYS", "GARDEN" };
+    static final int QUERY_COUNT = 7;
+
+    // validated command line configuration
+    final JoinConfig config;
+    // Reference to the database connection we will use
+    final Client client;
+
+    final AtomicLong loadFailures = new AtomicLong();
+
+    /**
+     * Uses included {@link CLIConfig} class to
+     * declaratively state command line options with defaults
+     * and validation.
+     */
+    static class JoinConfig extends CLIConfig {
+        @Option(desc = "Comma separated list of the form server[:port] to connect to.")
+        String servers = "localhost";
+
+        @Option(desc = "Load the tables before running the queries.")
+        boolean load = true;
+
+        @Option(desc = "Number of SALES rows to load.")
+        int sales = 500000;
+
+        @Option(desc = "Number of CUSTOMER rows to load.")
+        int customers = 20000;
+
+        @Option(desc = "Number of PRODUCT rows to load.")
+        int products = 2000;
+
+        @Option(desc = "Number of STORE rows to load.")
+        int stores = 500;
+
+        @Option(desc = "Number of REGION rows to load, customers reference twice as many.")
+        int regions = 50;
+
+        @Option(desc = "Number of invocations of each query.")
+        int invocations = 10;
+
+        @Option(desc = "Query number to run ( an integer from 1 to 7 ), 0 runs all of them.")
+        int proc = 0;
+
+        @Option(desc = "Filename to write raw summary statistics to.")
+        String statsfile = "";
+
+        @Override
+        public void validate() {
+            if (sales <= 0) exitWithMessageAndUsage("sales must be > 0");
+            if (customers <= 0) exitWithMessageAndUsage("customers must be > 0");
+            if (products <= 0) exitWithMessageAndUsage("products must be > 0");
+            if (stores <= 0) exitWithMessageAndUsage("stores must be > 0");
+            if (regions <= 0) exitWithMessageAndUsage("regions must be > 0");
+            if (invocations <= 0) exitWithMessageAndUsage("invocations must be > 0");
+            if (proc < 0 || proc > QUERY_COUNT) exitWithMessageAndUsage("procedure number must be in range [0, 7]");
+        }
+    }
+
+    /**
+     * Provides a callback to be notified on node failure.
+     * This example only logs the event.
+     */
+    class StatusListener extends ClientStatusListenerExt {
+        @Override
+        public void connectionLost(String hostname, int port, int connectionsLeft, DisconnectCause cause) {
+            System.err.printf("Connection to %s:%d was lost.\n", hostname, port);
+        }
+    }
+
+    /**
+     * Counts failed inserts, the load keeps going regardless.
+     */
+    class LoadCallback implements ProcedureCallback {
+        @Override
+        public void clientCallback(ClientResponse response) {
+            if (response.getStatus() != ClientResponse.SUCCESS) {
+                if (loadFailures.incrementAndGet() == 1) {
+                    System.err.println("Insert failed: " + response.getStatusString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructor for benchmark instance.
+     * Configures VoltDB client and prints configuration.
+     *
+     * @param config Parsed & validated CLI options.
+     */
+    public JoinBenchmark(JoinConfig config) {
+        this.config = config;
+
+        ClientConfig clientConfig = new ClientConfig("", "", new StatusListener());
+        // large nested loop joins can take longer than the default 2 minute timeout
+        clientConfig.setProcedureCallTimeout(0);
+
+        client = ClientFactory.createClient(clientConfig);
+
+        System.out.print(HORIZONTAL_RULE);
+        System.out.println(" Command Line Configuration");
+        System.out.println(HORIZONTAL_RULE);
+        System.out.println(config.getConfigDumpString());
+    }
+
+    /**
+     * Connect to a single server with retry. Limited exponential backoff.
+     * No timeout. This will run until the process is killed if it's not
+     * able to connect.
+     *
+     * @param server hostname:port or just hostname (hostname can be ip).
+     */
+    void connectToOneServerWithRetry(String server) {
+        int sleep = 1000;
+        while (true) {
+            try {
+                client.createConnection(server);
+                break;
+            }
+            catch (Exception e) {
+                System.err.printf("Connection failed - retrying in %d second(s).\n", sleep / 1000);
+                try { Thread.sleep(sleep); } catch (Exception interruted) {}
+                if (sleep < 8000) sleep += sleep;
+            }
+        }
+        System.out.printf("Connected to VoltDB node at: %s.\n", server);
+    }
+
+    /**
+     * Connect to a set of servers in parallel. Each will retry until
+     * connection. This call will block until all have connected.
+     *
+     * @param servers A comma separated list of servers using the hostname:port
+     * syntax (where :port is optional).
+     * @throws InterruptedException if anything bad happens with the threads.
+     */
+    void connect(String servers) throws InterruptedException {
+        System.out.println("Connecting to VoltDB...");
+
+        String[] serverArray = servers.split(",");
+        final CountDownLatch connections = new CountDownLatch(serverArray.length);
+
+        // use a new thread to connect to each server
+        for (final String server : serverArray) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    connectToOneServerWithRetry(server);
+                    connections.countDown();
+                }
+            }).start();
+        }
+        // block until all have connected
+        connections.await();
+    }
+
+    /**
+     * Truncate and reload all tables with uniformly distributed random data.
+     */
+    void loadData() throws Exception {
+        Random rand = new Random(0);
+        LoadCallback callback = new LoadCallback();
+
+        for (String table : new String[] { "SALES", "CUSTOMER", "PRODUCT", "STORE", "REGION" }) {
+            client.callProcedure("@AdHoc", "DELETE FROM " + table + ";");
+        }
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < config.regions; i++) {
+            client.callProcedure(callback, "REGION.insert", i, "Region " + i);
+        }
+        for (int i = 0; i < config.stores; i++) {
+            client.callProcedure(callback, "STORE.insert", i, rand.nextInt(config.regions), "City " + i);
+        }
+        for (int i = 0; i < config.products; i++) {
+            client.callProcedure(callback, "PRODUCT.insert", i,
+                    CATEGORIES[rand.nextInt(CATEGORIES.length)], 1 + rand.nextInt(10000) / 100.0);
+        }
+        for (long i = 0; i < config.customers; i++) {
+            // half of the customers reference a region that doesn't exist
+            client.callProcedure(callback, "CUSTOMER.insert", i, rand.nextInt(config.regions * 2),
+                    SEGMENTS[rand.nextInt(SEGMENTS.length)], "Customer " + i);
+        }
+        for (long i = 0; i < config.sales; i++) {
+            int quantity = 1 + rand.nextInt(10);
+            client.callProcedure(callback, "SALES.insert", i,
+                    (long) rand.nextInt(config.customers),
+                    rand.nextInt(config.products),
+                    rand.nextInt(config.stores),
+                    quantity,
+                    quantity * (1 + rand.nextInt(10000) / 100.0));
+        }
+        client.drain();
+
+        System.out.printf("Loaded %d rows in %d ms with %d failures.\n",
+                config.sales + config.customers + config.products + config.stores + config.regions,
+                System.currentTimeMillis() - start, loadFailures.get());
+    }
+
+    /**
+     * Core benchmark code.
+     * Connect. Load. Run each query. Cleanup. Print Results.
+     *
+     * @throws Exception if anything unexpected happens.
+     */
+    public void runBenchmark() throws Exception {
+        // connect to one or more servers, loop until success
+        connect(config.servers);
+
+        if (config.load) {
+            System.out.print(HORIZONTAL_RULE);
+            System.out.println(" Loading Data");
+            System.out.println(HORIZONTAL_RULE);
+            loadData();
+        }
+
+        FileWriter fw = null;
+        if ((config.statsfile != null) && (config.statsfile.length() != 0)) {
+            fw = new FileWriter(config.statsfile);
+        }
+
+        System.out.print(HORIZONTAL_RULE);
+        System.out.println(" Running Benchmark");
+        System.out.println(HORIZONTAL_RULE);
+
+        int first = config.proc == 0 ? 1 : config.proc;
+        int last = config.proc == 0 ? QUERY_COUNT : config.proc;
+        for (int q = first; q <= last; q++) {
+            String procName = "Q" + q;
+            // one untimed run so the plan and the tables are warm
+            client.callProcedure(procName);
+
+            VoltTable vt = null;
+            long queryStartTS = System.nanoTime();
+            for (int i = 0; i < config.invocations; i++) {
+                vt = client.callProcedure(procName).getResults()[0];
+            }
+            double avg = (double)(System.nanoTime() - queryStartTS) / config.invocations;
+            System.out.printf("%s returned %d rows in average %.3f ms\n",
+                    procName, vt.getRowCount(), avg / 1000000.0);
+
+            if (fw != null) {
+                fw.append(String.format("%s,%d,-1,0,0,0,0,%f,0,0,0,0,0,0\n",
+                                        "Q" + String.format("%02d", q),
+                                        System.currentTimeMillis(),
+                                        avg / 1000.0));
+            }
+        }
+
+        // close down the client connections
+        client.close();
+
+        if (fw != null) {
+            fw.close();
+        }
+    }
+
+    /**
+     * Main routine creates a benchmark instance and kicks off the run method.
+     *
+     * @param args Command line arguments.
+     * @throws Exception if anything goes wrong.
+     * @see {@link JoinConfig}
+     */
+    public static void main(String[] args) throws Exception {
+        // create a configuration from the arguments
+        JoinConfig config = new JoinConfig();
+        config.parse(JoinBenchmark.class.getName(), args);
+
+        JoinBenchmark benchmark = new JoinBenchmark(config);
+        benchmark.runBenchmark();
+    }
+}
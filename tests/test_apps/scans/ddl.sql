@@ -12,6 +12,32 @@ CREATE TABLE narrow_index_p
 );
 PARTITION TABLE narrow_index_p ON COLUMN p;
 
+-- Device events, partitioned so each site scans its share of the rows.
+CREATE TABLE EVENTS (
+  event_id BIGINT NOT NULL,
+  device_id INTEGER NOT NULL,
+  event_time TIMESTAMP NOT NULL,
+  kind TINYINT NOT NULL,
+  severity SMALLINT,
+  reading BIGINT,
+  note VARCHAR(32),
+  PRIMARY KEY (event_id)
+);
+PARTITION TABLE EVENTS ON COLUMN event_id;
+CREATE INDEX EVENTS_TIME ON EVENTS (event_time);
+
 -- stored procedures
 CREATE PROCEDURE FROM CLASS scans.procedures.MinSeqScan;
 CREATE PROCEDURE FROM CLASS scans.procedures.MinIndexScan;
+
+-- Sequential scans with predicates the EE can evaluate a batch of rows at a time
+CREATE PROCEDURE S1 AS select count(*) from EVENTS where severity > ?;
+CREATE PROCEDURE S2 AS select count(*) from EVENTS where kind = ? and severity between ? and ?;
+CREATE PROCEDURE S3 AS select sum(reading) from EVENTS where reading * 2 + severity > ? or device_id = ?;
+CREATE PROCEDURE S4 AS select event_id, reading from EVENTS where device_id = ? and severity >= ?;
+
+-- What is left of the predicate after an index range lookup
+CREATE PROCEDURE S5 AS select count(*) from EVENTS where event_time > ? and severity < ? and kind <> ?;
+
+-- A string predicate is always evaluated one row at a time, as a baseline
+CREATE PROCEDURE S6 AS select count(*) from EVENTS where note = ?;
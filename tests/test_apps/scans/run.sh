@@ -32,7 +32,7 @@ HOST="localhost"
 
 # remove build artifacts
 function clean() {
-    rm -rf obj debugoutput $APPNAME.jar voltdbroot voltdbroot
+    rm -rf obj debugoutput $APPNAME.jar voltdbroot voltdbroot log stats.csv
 }
 
 # compile the source code for procedures and the client
@@ -55,12 +55,20 @@ function catalog() {
 
 # run the voltdb server locally
 function server() {
-    # if a catalog doesn't exist, build one
-    if [ ! -f $APPNAME.jar ]; then catalog; fi
+    # server-batch plans the procedures differently, so always rebuild the catalog
+    catalog
     # run the server
     $VOLTDB create -d deployment.xml -l $LICENSE -H $HOST $APPNAME.jar
 }
 
+# run the voltdb server locally, evaluating simple scan predicates a batch of rows at a time
+function server-batch() {
+    # the procedures are planned when the catalog is compiled, so always rebuild it
+    export VOLTDB_OPTS="$VOLTDB_OPTS -DENABLE_BATCH_PREDICATES=true"
+    catalog
+    $VOLTDB create -d deployment.xml -l $LICENSE -H $HOST $APPNAME.jar
+}
+
 # run the client that drives the example
 function client() {
     benchmark
@@ -75,8 +83,19 @@ function benchmark() {
         --servers=localhost:21212
 }
 
+# scan with the predicates of S1 to S6, against server and server-batch to compare
+function filters() {
+    srccompile
+    java -classpath obj:$CLASSPATH:obj -Dlog4j.configuration=file://$CLIENTLOG4J \
+        scans.ScanFilterBenchmark \
+        --servers=localhost:21212 \
+        --rows=2000000 \
+        --invocations=20 \
+        --statsfile=stats.csv
+}
+
 function help() {
-    echo "Usage: ./run.sh {clean|catalog|server|client|benchmark}"
+    echo "Usage: ./run.sh {clean|catalog|server|server-batch|client|benchmark|filters}"
 }
 
 # Run the target passed as the first arg on the command line
@@ -0,0 +1,319 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package scans;
+
+import java.io.FileWriter;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltdb.CLIConfig;
+import org.voltdb.VoltTable;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientConfig;
+import org.voltdb.client.ClientFactory;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ClientStatusListenerExt;
+import org.voltdb.client.ProcedureCallback;
+import org.voltdb.types.TimestampType;
+
+/**
+ * Runs queries that scan a large table with simple predicates and reports
+ * the average latency and the rows scanned per second of each.
+ * Run it once against a server started with -DENABLE_BATCH_PREDICATES=true
+ * and once without to compare batched and row at a time predicate evaluation.
+ */
+public class ScanFilterBenchmark {
+
+    // handy, rather than typing this out several times
+    static final String HORIZONTAL_RULE =
+            "----------" + "----------" + "----------" + "----------" +
+            "----------" + "----------" + "----------" + "----------" + "\n";
+
+    static final int QUERY_COUNT = 6;
+    // Events are a second apart, starting at this many microseconds after the epoch
+    static final long FIRST_EVENT_MICROS = 1420070400L * 1000000L;
+    static final int DEVICES = 10000;
+
+    // validated command line configuration
+    final ScanFilterConfig config;
+    // Reference to the database connection we will use
+    final Client client;
+
+    final AtomicLong loadFailures = new AtomicLong();
+
+    /**
+     * Uses included {@link CLIConfig} class to
+     * declaratively state command line options with defaults
+     * and validation.
+     */
+    static class ScanFilterConfig extends CLIConfig {
+        @Option(desc = "Comma separated list of the form server[:port] to connect to.")
+        String servers = "localhost";
+
+        @Option(desc = "Load the table before running the queries.")
+        boolean load = true;
+
+        @Option(desc = "Number of EVENTS rows to load.")
+        int rows = 2000000;
+
+        @Option(desc = "Number of invocations of each query.")
+        int invocations = 20;
+
+        @Option(desc = "Query number to run ( an integer from 1 to 6 ), 0 runs all of them.")
+        int proc = 0;
+
+        @Option(desc = "Filename to write raw summary statistics to.")
+        String statsfile = "";
+
+        @Override
+        public void validate() {
+            if (rows <= 0) exitWithMessageAndUsage("rows must be > 0");
+            if (invocations <= 0) exitWithMessageAndUsage("invocations must be > 0");
+            if (proc < 0 || proc > QUERY_COUNT) exitWithMessageAndUsage("procedure number must be in range [0, 6]");
+        }
+    }
+
+    /**
+     * Provides a callback to be notified on node failure.
+     * This example only logs the event.
+     */
+    class StatusListener extends ClientStatusListenerExt {
+        @Override
+        public void connectionLost(String hostname, int port, int connectionsLeft, DisconnectCause cause) {
+            System.err.printf("Connection to %s:%d was lost.\n", hostname, port);
+        }
+    }
+
+    /**
+     * Counts failed inserts, the load keeps going regardless.
+     */
+    class LoadCallback implements ProcedureCallback {
+        @Override
+        public void clientCallback(ClientResponse response) {
+            if (response.getStatus() != ClientResponse.SUCCESS) {
+                if (loadFailures.incrementAndGet() == 1) {
+                    System.err.println("Insert failed: " + response.getStatusString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructor for benchmark instance.
+     * Configures VoltDB client and prints configuration.
+     *
+     * @param config Parsed & validated CLI options.
+     */
+    public ScanFilterBenchmark(ScanFilterConfig config) {
+        this.config = config;
+
+        ClientConfig clientConfig = new ClientConfig("", "", new StatusListener());
+        client = ClientFactory.createClient(clientConfig);
+
+        System.out.print(HORIZONTAL_RULE);
+        System.out.println(" Command Line Configuration");
+        System.out.println(HORIZONTAL_RULE);
+        System.out.println(config.getConfigDumpString());
+    }
+
+    /**
+     * Connect to a single server with retry. Limited exponential backoff.
+     * No timeout. This will run until the process is killed if it's not
+     * able to connect.
+     *
+     * @param server hostname:port or just hostname (hostname can be ip).
+     */
+    void connectToOneServerWithRetry(String server) {
+        int sleep = 1000;
+        while (true) {
+            try {
+                client.createConnection(server);
+                break;
+            }
+            catch (Exception e) {
+                System.err.printf("Connection failed - retrying in %d second(s).\n", sleep / 1000);
+                try { Thread.sleep(sleep); } catch (Exception interruted) {}
+                if (sleep < 8000) sleep += sleep;
+            }
+        }
+        System.out.printf("Connected to VoltDB node at: %s.\n", server);
+    }
+
+    /**
+     * Connect to a set of servers in parallel. Each will retry until
+     * connection. This call will block until all have connected.
+     *
+     * @param servers A comma separated list of servers using the hostname:port
+     * syntax (where :port is optional).
+     * @throws InterruptedException if anything bad happens with the threads.
+     */
+    void connect(String servers) throws InterruptedException {
+        System.out.println("Connecting to VoltDB...");
+
+        String[] serverArray = servers.split(",");
+        final CountDownLatch connections = new CountDownLatch(serverArray.length);
+
+        // use a new thread to connect to each server
+        for (final String server : serverArray) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    connectToOneServerWithRetry(server);
+                    connections.countDown();
+                }
+            }).start();
+        }
+        // block until all have connected
+        connections.await();
+    }
+
+    /**
+     * Truncate and reload the table with uniformly distributed random data.
+     */
+    void loadData() throws Exception {
+        Random rand = new Random(0);
+        LoadCallback callback = new LoadCallback();
+
+        client.callProcedure("@AdHoc", "DELETE FROM EVENTS;");
+
+        long start = System.currentTimeMillis();
+        for (long i = 0; i < config.rows; i++) {
+            // one event in twenty has no severity or reading
+            boolean incomplete = rand.nextInt(20) == 0;
+            client.callProcedure(callback, "EVENTS.insert", i,
+                    rand.nextInt(DEVICES),
+                    new TimestampType(FIRST_EVENT_MICROS + i * 1000000L),
+                    rand.nextInt(8),
+                    incomplete ? null : rand.nextInt(10),
+                    incomplete ? null : (long) rand.nextInt(1000000),
+                    "note " + rand.nextInt(100));
+        }
+        client.drain();
+
+        System.out.printf("Loaded %d rows in %d ms with %d failures.\n",
+                config.rows, System.currentTimeMillis() - start, loadFailures.get());
+    }
+
+    /**
+     * Parameters of each query, chosen so that each one selects a fair
+     * share of the rows it scans.
+     */
+    Object[] parameters(int q) {
+        switch (q) {
+        case 1: return new Object[] { 4 };
+        case 2: return new Object[] { 3, 2, 6 };
+        case 3: return new Object[] { 1000000L, 42 };
+        case 4: return new Object[] { 42, 5 };
+        // the second half of the events
+        case 5: return new Object[] { new TimestampType(FIRST_EVENT_MICROS + config.rows / 2 * 1000000L), 7, 0 };
+        default: return new Object[] { "note 42" };
+        }
+    }
+
+    /**
+     * The number of rows each query scans.
+     */
+    long scannedRows(int q) {
+        return q == 5 ? config.rows / 2 : config.rows;
+    }
+
+    /**
+     * Core benchmark code.
+     * Connect. Load. Run each query. Cleanup. Print Results.
+     *
+     * @throws Exception if anything unexpected happens.
+     */
+    public void runBenchmark() throws Exception {
+        // connect to one or more servers, loop until success
+        connect(config.servers);
+
+        if (config.load) {
+            System.out.print(HORIZONTAL_RULE);
+            System.out.println(" Loading Data");
+            System.out.println(HORIZONTAL_RULE);
+            loadData();
+        }
+
+        FileWriter fw = null;
+        if ((config.statsfile != null) && (config.statsfile.length() != 0)) {
+            fw = new FileWriter(config.statsfile);
+        }
+
+        System.out.print(HORIZONTAL_RULE);
+        System.out.println(" Running Benchmark");
+        System.out.println(HORIZONTAL_RULE);
+
+        int first = config.proc == 0 ? 1 : config.proc;
+        int last = config.proc == 0 ? QUERY_COUNT : config.proc;
+        for (int q = first; q <= last; q++) {
+            String procName = "S" + q;
+            Object[] params = parameters(q);
+            // one untimed run so the tables are warm
+            client.callProcedure(procName, params);
+
+            VoltTable vt = null;
+            long queryStartTS = System.nanoTime();
+            for (int i = 0; i < config.invocations; i++) {
+                vt = client.callProcedure(procName, params).getResults()[0];
+            }
+            double avg = (double)(System.nanoTime() - queryStartTS) / config.invocations;
+            double rowsPerSecond = scannedRows(q) / (avg / 1000000000.0);
+            System.out.printf("%s returned %d rows in average %.3f ms, scanning %.0f rows/sec\n",
+                    procName, vt.getRowCount(), avg / 1000000.0, rowsPerSecond);
+
+            if (fw != null) {
+                fw.append(String.format("%s,%d,-1,%d,0,0,0,%f,0,0,0,0,0,0\n",
+                                        "S" + String.format("%02d", q),
+                                        System.currentTimeMillis(),
+                                        (long) rowsPerSecond,
+                                        avg / 1000.0));
+            }
+        }
+
+        // close down the client connections
+        client.close();
+
+        if (fw != null) {
+            fw.close();
+        }
+    }
+
+    /**
+     * Main routine creates a benchmark instance and kicks off the run method.
+     *
+     * @param args Command line arguments.
+     * @throws Exception if anything goes wrong.
+     * @see {@link ScanFilterConfig}
+     */
+    public static void main(String[] args) throws Exception {
+        // create a configuration from the arguments
+        ScanFilterConfig config = new ScanFilterConfig();
+        config.parse(ScanFilterBenchmark.class.getName(), args);
+
+        ScanFilterBenchmark benchmark = new ScanFilterBenchmark(config);
+        benchmark.runBenchmark();
+    }
+}
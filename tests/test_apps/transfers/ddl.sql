@@ -0,0 +1,12 @@
+CREATE TABLE accounts
+(
+  id integer NOT NULL,
+  balance bigint NOT NULL,
+  CONSTRAINT pk_accounts PRIMARY KEY (id)
+);
+PARTITION TABLE accounts ON COLUMN id;
+
+-- stored procedures
+CREATE PROCEDURE FROM CLASS transfers.procedures.Transfer;
+CREATE PROCEDURE PARTITION ON TABLE accounts COLUMN id PARAMETER 0 FROM CLASS transfers.procedures.Debit;
+CREATE PROCEDURE PARTITION ON TABLE accounts COLUMN id PARAMETER 0 FROM CLASS transfers.procedures.Credit;
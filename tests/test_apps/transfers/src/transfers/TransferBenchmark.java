@@ -0,0 +1,425 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+/*
+ * Measures the throughput of moving a balance between two accounts that
+ * usually live on different partitions.  In "mp" mode every transfer is a
+ * single multi-partition Transfer transaction.  In "sp" mode the same
+ * transfer is split into a Debit on the source partition followed by a
+ * Credit on the destination partition, which gives up atomicity but shows
+ * what the workload costs without MPI coordination.
+ */
+
+package transfers;
+
+import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltdb.CLIConfig;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientConfig;
+import org.voltdb.client.ClientFactory;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ClientStats;
+import org.voltdb.client.ClientStatsContext;
+import org.voltdb.client.ClientStatusListenerExt;
+import org.voltdb.client.NullCallback;
+import org.voltdb.client.ProcedureCallback;
+
+public class TransferBenchmark {
+
+    // handy, rather than typing this out several times
+    static final String HORIZONTAL_RULE =
+            "----------" + "----------" + "----------" + "----------" +
+            "----------" + "----------" + "----------" + "----------" + "\n";
+
+    static final long INITIAL_BALANCE = 1000000;
+
+    // validated command line configuration
+    final TransferConfig config;
+    // Reference to the database connection we will use
+    final Client client;
+    // Timer for periodic stats printing
+    Timer timer;
+    // Benchmark start time
+    long benchmarkStartTS;
+    // Statistics manager objects from the client
+    final ClientStatsContext periodicStatsContext;
+    final ClientStatsContext fullStatsContext;
+
+    // completed transfers, which is not the same as completed txns in sp mode
+    final AtomicLong transfers = new AtomicLong(0);
+
+    // sp mode credits whose debit has succeeded, issued from the benchmark thread
+    final ConcurrentLinkedQueue<TransferCallback> pendingCredits = new ConcurrentLinkedQueue<TransferCallback>();
+
+    final Random rand = new Random();
+
+    /**
+     * Uses included {@link CLIConfig} class to
+     * declaratively state command line options with defaults
+     * and validation.
+     */
+    static class TransferConfig extends CLIConfig {
+        @Option(desc = "Interval for performance feedback, in seconds.")
+        long displayinterval = 5;
+
+        @Option(desc = "Benchmark duration, in seconds.")
+        int duration = 20;
+
+        @Option(desc = "Warmup duration in seconds.")
+        int warmup = 2;
+
+        @Option(desc = "Comma separated list of the form server[:port] to connect to.")
+        String servers = "localhost";
+
+        @Option(desc = "Maximum TPS rate for benchmark.")
+        int ratelimit = Integer.MAX_VALUE;
+
+        @Option(desc = "Filename to write raw summary statistics to.")
+        String statsfile = "";
+
+        @Option(desc = "User name for connection.")
+        String user = "";
+
+        @Option(desc = "Password for connection.")
+        String password = "";
+
+        @Option(desc = "Number of accounts to load.")
+        int accounts = 100000;
+
+        @Option(desc = "mp: one Transfer MP txn per transfer. sp: a Debit and a Credit SP txn per transfer.")
+        String mode = "mp";
+
+        @Override
+        public void validate() {
+            if (duration <= 0) exitWithMessageAndUsage("duration must be > 0");
+            if (warmup < 0) exitWithMessageAndUsage("warmup must be >= 0");
+            if (displayinterval <= 0) exitWithMessageAndUsage("displayinterval must be > 0");
+            if (ratelimit <= 0) exitWithMessageAndUsage("ratelimit must be > 0");
+            if (accounts < 2) exitWithMessageAndUsage("accounts must be >= 2");
+            if (!mode.equals("mp") && !mode.equals("sp")) exitWithMessageAndUsage("mode must be mp or sp");
+        }
+    }
+
+    /**
+     * Provides a callback to be notified on node failure.
+     * This example only logs the event.
+     */
+    class StatusListener extends ClientStatusListenerExt {
+        @Override
+        public void connectionLost(String hostname, int port, int connectionsLeft, DisconnectCause cause) {
+            // if the benchmark is still active
+            if ((System.currentTimeMillis() - benchmarkStartTS) < (config.duration * 1000)) {
+                System.err.printf("Connection to %s:%d was lost.\n", hostname, port);
+            }
+        }
+    }
+
+    /**
+     * Constructor for benchmark instance.
+     * Configures VoltDB client and prints configuration.
+     *
+     * @param config Parsed & validated CLI options.
+     */
+    public TransferBenchmark(TransferConfig config) {
+        this.config = config;
+
+        ClientConfig clientConfig = new ClientConfig(config.user, config.password, new StatusListener());
+        clientConfig.setMaxTransactionsPerSecond(config.ratelimit);
+        client = ClientFactory.createClient(clientConfig);
+
+        periodicStatsContext = client.createStatsContext();
+        fullStatsContext = client.createStatsContext();
+
+        System.out.print(HORIZONTAL_RULE);
+        System.out.println(" Command Line Configuration");
+        System.out.println(HORIZONTAL_RULE);
+        System.out.println(config.getConfigDumpString());
+    }
+
+    /**
+     * Connect to a single server with retry. Limited exponential backoff.
+     * No timeout. This will run until the process is killed if it's not
+     * able to connect.
+     *
+     * @param server hostname:port or just hostname (hostname can be ip).
+     */
+    void connectToOneServerWithRetry(String server) {
+        int sleep = 1000;
+        while (true) {
+            try {
+                client.createConnection(server);
+                break;
+            }
+            catch (Exception e) {
+                System.err.printf("Connection failed - retrying in %d second(s).\n", sleep / 1000);
+                try { Thread.sleep(sleep); } catch (Exception interruted) {}
+                if (sleep < 8000) sleep += sleep;
+            }
+        }
+        System.out.printf("Connected to VoltDB node at: %s.\n", server);
+    }
+
+    /**
+     * Connect to a set of servers in parallel. Each will retry until
+     * connection. This call will block until all have connected.
+     *
+     * @param servers A comma separated list of servers using the hostname:port
+     * syntax (where :port is optional).
+     * @throws InterruptedException if anything bad happens with the threads.
+     */
+    void connect(String servers) throws InterruptedException {
+        System.out.println("Connecting to VoltDB...");
+
+        String[] serverArray = servers.split(",");
+        final CountDownLatch connections = new CountDownLatch(serverArray.length);
+
+        // use a new thread to connect to each server
+        for (final String server : serverArray) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    connectToOneServerWithRetry(server);
+                    connections.countDown();
+                }
+            }).start();
+        }
+        // block until all have connected
+        connections.await();
+    }
+
+    /**
+     * Create a Timer task to display performance data.
+     * It calls printStatistics() every displayInterval seconds
+     */
+    public void schedulePeriodicStats() {
+        timer = new Timer();
+        TimerTask statsPrinting = new TimerTask() {
+            @Override
+            public void run() { printStatistics(); }
+        };
+        timer.scheduleAtFixedRate(statsPrinting,
+                                  config.displayinterval * 1000,
+                                  config.displayinterval * 1000);
+    }
+
+    /**
+     * Prints a one line update on performance that can be printed
+     * periodically during a benchmark.
+     */
+    public synchronized void printStatistics() {
+        ClientStats stats = periodicStatsContext.fetchAndResetBaseline().getStats();
+        long time = Math.round((stats.getEndTimestamp() - benchmarkStartTS) / 1000.0);
+
+        System.out.printf("%02d:%02d:%02d ", time / 3600, (time / 60) % 60, time % 60);
+        System.out.printf("Throughput %d/s, ", stats.getTxnThroughput());
+        System.out.printf("Aborts/Failures %d/%d, ",
+                stats.getInvocationAborts(), stats.getInvocationErrors());
+        System.out.printf("Avg/95%% Latency %.2f/%.2fms\n", stats.getAverageLatency(),
+                stats.kPercentileLatencyAsDouble(0.95));
+    }
+
+    /**
+     * Prints the transfer rate and the client statistics.
+     *
+     * @throws Exception if anything unexpected happens.
+     */
+    public synchronized void printResults() throws Exception {
+        ClientStats stats = fullStatsContext.fetch().getStats();
+        double seconds = (stats.getEndTimestamp() - stats.getStartTimestamp()) / 1000.0;
+
+        System.out.print(HORIZONTAL_RULE);
+        System.out.println(" Client Workload Statistics");
+        System.out.println(HORIZONTAL_RULE);
+
+        System.out.printf("Mode:                          %9s\n", config.mode);
+        System.out.printf("Transfers completed:         %,11d\n", transfers.get());
+        System.out.printf("Transfer throughput:           %,9d transfers/sec\n", Math.round(transfers.get() / seconds));
+        System.out.printf("Average throughput:            %,9d txns/sec\n", stats.getTxnThroughput());
+        System.out.printf("Average latency:               %,9.2f ms\n", stats.getAverageLatency());
+        System.out.printf("95th percentile latency:       %,9.2f ms\n", stats.kPercentileLatencyAsDouble(.95));
+        System.out.printf("99th percentile latency:       %,9.2f ms\n", stats.kPercentileLatencyAsDouble(.99));
+
+        System.out.print("\n" + HORIZONTAL_RULE);
+        System.out.println(" System Server Statistics");
+        System.out.println(HORIZONTAL_RULE);
+
+        System.out.printf("Reported Internal Avg Latency: %,9.2f ms\n", stats.getAverageInternalLatency());
+
+        // Write stats to file if requested
+        client.writeSummaryCSV(stats, config.statsfile);
+    }
+
+    /**
+     * Counts a transfer once its last transaction has succeeded.
+     * In sp mode the Debit callback queues the Credit for the benchmark thread,
+     * as calling a procedure synchronously from a callback can block the
+     * thread that delivers the responses it waits for.
+     */
+    class TransferCallback implements ProcedureCallback {
+        final int to;
+        final long amount;
+        final boolean isDebit;
+        final boolean counted;
+
+        TransferCallback(int to, long amount, boolean isDebit, boolean counted) {
+            this.to = to;
+            this.amount = amount;
+            this.isDebit = isDebit;
+            this.counted = counted;
+        }
+
+        @Override
+        public void clientCallback(ClientResponse response) throws Exception {
+            if (response.getStatus() != ClientResponse.SUCCESS) {
+                System.err.println(response.getStatusString());
+                System.exit(-1);
+            }
+            if (isDebit) {
+                pendingCredits.offer(new TransferCallback(to, amount, false, counted));
+            }
+            else if (counted) {
+                transfers.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Issues the credits of the debits that have succeeded so far.
+     */
+    void creditPending() throws Exception {
+        TransferCallback credit;
+        while ((credit = pendingCredits.poll()) != null) {
+            client.callProcedure(credit, "Credit", credit.to, credit.amount);
+        }
+    }
+
+    /**
+     * Blocks until every transfer started so far, including its credit, has completed.
+     */
+    void drainTransfers() throws Exception {
+        client.drain();
+        // every debit response has been delivered, so all of their credits are queued
+        creditPending();
+        client.drain();
+    }
+
+    void transfer(boolean counted) throws Exception {
+        int from = rand.nextInt(config.accounts);
+        int to = rand.nextInt(config.accounts - 1);
+        if (to >= from) {
+            ++to;
+        }
+        long amount = rand.nextInt(100) + 1;
+        if (config.mode.equals("mp")) {
+            client.callProcedure(new TransferCallback(to, amount, false, counted),
+                                 "Transfer", from, to, amount);
+        }
+        else {
+            creditPending();
+            client.callProcedure(new TransferCallback(to, amount, true, counted),
+                                 "Debit", from, amount);
+        }
+    }
+
+    /**
+     * Core benchmark code.
+     * Connect. Initialize. Run the loop. Cleanup. Print Results.
+     *
+     * @throws Exception if anything unexpected happens.
+     */
+    public void runBenchmark() throws Exception {
+        System.out.print(HORIZONTAL_RULE);
+        System.out.println(" Setup & Initialization");
+        System.out.println(HORIZONTAL_RULE);
+
+        // connect to one or more servers, loop until success
+        connect(config.servers);
+
+        System.out.println("Loading " + config.accounts + " accounts...");
+        for (int i = 0; i < config.accounts; i++) {
+            client.callProcedure(new NullCallback(), "ACCOUNTS.upsert", i, INITIAL_BALANCE);
+        }
+        client.drain();
+
+        System.out.print(HORIZONTAL_RULE);
+        System.out.println("Starting Benchmark");
+        System.out.println(HORIZONTAL_RULE);
+
+        // Run the benchmark loop for the requested warmup time
+        // The throughput may be throttled depending on client configuration
+        System.out.println("Warming up...");
+        final long warmupEndTime = System.currentTimeMillis() + (1000l * config.warmup);
+        while (warmupEndTime > System.currentTimeMillis()) {
+            transfer(false);
+        }
+
+        // reset the stats after warmup
+        drainTransfers();
+        fullStatsContext.fetchAndResetBaseline();
+        periodicStatsContext.fetchAndResetBaseline();
+
+        // print periodic statistics to the console
+        benchmarkStartTS = System.currentTimeMillis();
+        schedulePeriodicStats();
+
+        // Run the benchmark loop for the requested duration
+        // The throughput may be throttled depending on client configuration
+        System.out.println("\nRunning benchmark...");
+        final long benchmarkEndTime = System.currentTimeMillis() + (1000l * config.duration);
+        while (benchmarkEndTime > System.currentTimeMillis()) {
+            transfer(true);
+        }
+
+        // cancel periodic stats printing
+        timer.cancel();
+
+        // block until all outstanding txns return
+        drainTransfers();
+
+        // print the summary results
+        printResults();
+
+        // close down the client connections
+        client.close();
+    }
+
+    /**
+     * Main routine creates a benchmark instance and kicks off the run method.
+     *
+     * @param args Command line arguments.
+     * @throws Exception if anything goes wrong.
+     */
+    public static void main(String[] args) throws Exception {
+        // create a configuration from the arguments
+        TransferConfig config = new TransferConfig();
+        config.parse(TransferBenchmark.class.getName(), args);
+
+        TransferBenchmark benchmark = new TransferBenchmark(config);
+        benchmark.runBenchmark();
+    }
+}